@@ -0,0 +1,30 @@
+package gov.nist.csd.pm.benchmarks;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pdp.audit.Auditor;
+import gov.nist.csd.pm.pdp.audit.PReviewAuditor;
+import gov.nist.csd.pm.pdp.audit.model.Explain;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuditorBenchmark extends GraphState {
+
+    private Auditor auditor;
+
+    @Override
+    protected void setUpBenchmark() throws PMException {
+        auditor = new PReviewAuditor(graph);
+    }
+
+    @Benchmark
+    public Explain explain() throws PMException {
+        return auditor.explain(randomUser(), randomObject());
+    }
+}
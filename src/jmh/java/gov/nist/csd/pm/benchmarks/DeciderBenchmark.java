@@ -0,0 +1,55 @@
+package gov.nist.csd.pm.benchmarks;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pdp.decider.Decider;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeciderBenchmark extends GraphState {
+
+    private Decider     decider;
+    private Set<String> filterNodes;
+
+    @Override
+    protected void setUpBenchmark() throws PMException {
+        decider = new PReviewDecider(graph, new MemProhibitions());
+        filterNodes = new HashSet<>(objects.subList(0, Math.min(100, objects.size())));
+    }
+
+    @Benchmark
+    public boolean check() throws PMException {
+        return decider.check(randomUser(), "", randomObject(), "read");
+    }
+
+    @Benchmark
+    public Set<String> list() throws PMException {
+        return decider.list(randomUser(), "", randomObject());
+    }
+
+    @Benchmark
+    public Set<String> filter() throws PMException {
+        return decider.filter(randomUser(), "", filterNodes, "read");
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> getCapabilityList() throws PMException {
+        return decider.getCapabilityList(randomUser(), "");
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> generateACL() throws PMException {
+        return decider.generateACL(randomObject(), "");
+    }
+}
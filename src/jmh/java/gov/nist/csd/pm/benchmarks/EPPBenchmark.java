@@ -0,0 +1,92 @@
+package gov.nist.csd.pm.benchmarks;
+
+import gov.nist.csd.pm.epp.EPP;
+import gov.nist.csd.pm.epp.EPPOptions;
+import gov.nist.csd.pm.epp.FunctionEvaluator;
+import gov.nist.csd.pm.epp.events.AssignToEvent;
+import gov.nist.csd.pm.epp.events.EventContext;
+import gov.nist.csd.pm.epp.functions.FunctionExecutor;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.obligations.model.*;
+import gov.nist.csd.pm.pip.obligations.model.actions.FunctionAction;
+import gov.nist.csd.pm.pip.obligations.model.functions.Function;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes assign to events against a number of obligations.  Each obligation has one rule that matches assign to
+ * events on a random object attribute, and responds with a function that does not change the policy, so the benchmark
+ * measures matching the rules of an event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EPPBenchmark extends GraphState {
+
+    @Param({"10", "1000"})
+    public int obligations;
+
+    private EPP        epp;
+
+    @Override
+    protected void setUpBenchmark() throws PMException {
+        PDP pdp = new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), new EPPOptions(new NoopExecutor()));
+        epp = pdp.getEPP();
+
+        Random random = new Random(42);
+        for (int i = 0; i < obligations; i++) {
+            String object = objects.get(random.nextInt(objects.size()));
+            String container = graph.getParents(object).iterator().next();
+
+            Target target = new Target();
+            target.setContainers(Collections.singletonList(
+                    new EvrNode(container, graph.getNode(container).getType().toString(), new HashMap<>())));
+            Rule rule = new Rule();
+            rule.setLabel("rule" + i);
+            rule.getEventPattern().setOperations(Collections.singletonList(EventContext.ASSIGN_TO_EVENT));
+            rule.getEventPattern().setTarget(target);
+            rule.getResponsePattern().addAction(new FunctionAction(new Function("noop", new ArrayList<>())));
+
+            Obligation obligation = new Obligation();
+            obligation.setLabel("obligation" + i);
+            obligation.setRules(new ArrayList<>(Collections.singletonList(rule)));
+            pdp.getPAP().getObligationsPAP().add(obligation, true);
+            epp.compile(obligation);
+        }
+    }
+
+    @Benchmark
+    public void processEvent() throws PMException {
+        String object = randomObject();
+        Node parent = graph.getNode(graph.getParents(object).iterator().next());
+        epp.processEvent(new AssignToEvent(parent, graph.getNode(object)), randomUser(), "");
+    }
+
+    private static class NoopExecutor implements FunctionExecutor {
+        @Override
+        public String getFunctionName() {
+            return "noop";
+        }
+
+        @Override
+        public int numParams() {
+            return 0;
+        }
+
+        @Override
+        public Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                           FunctionEvaluator functionEvaluator) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package gov.nist.csd.pm.benchmarks;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.O;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark extends GraphState {
+
+    private String parent;
+    private String otherParent;
+
+    /**
+     * The other parent is an attribute of another object that the first object is not assigned to, so every invocation
+     * of assignAndDeassign assigns and deassigns the object.
+     */
+    @Override
+    protected void setUpBenchmark() throws PMException {
+        String object = objects.get(0);
+        parent = graph.getParents(object).iterator().next();
+
+        for (int i = objects.size() - 1; i > 0 && otherParent == null; i--) {
+            for (String candidate : graph.getParents(objects.get(i))) {
+                if (!graph.isAssigned(object, candidate)) {
+                    otherParent = candidate;
+                    break;
+                }
+            }
+        }
+
+        if (otherParent == null) {
+            throw new IllegalStateException(object + " is assigned to the parents of every other object");
+        }
+    }
+
+    /**
+     * Create an object and delete it so the size of the graph does not change between invocations.
+     */
+    @Benchmark
+    public void createAndDeleteNode() throws PMException {
+        graph.createNode("benchmark-object", O, null, parent);
+        graph.deleteNode("benchmark-object");
+    }
+
+    @Benchmark
+    public void assignAndDeassign() throws PMException {
+        String object = objects.get(0);
+        graph.assign(object, otherParent);
+        graph.deassign(object, otherParent);
+    }
+
+    @Benchmark
+    public Node getNode() throws PMException {
+        return graph.getNode(randomObject());
+    }
+
+    @Benchmark
+    public boolean exists() throws PMException {
+        return graph.exists(randomUser());
+    }
+
+    @Benchmark
+    public Set<String> getParents() throws PMException {
+        return graph.getParents(randomObject());
+    }
+
+    @Benchmark
+    public Set<String> getChildren() throws PMException {
+        return graph.getChildren(parent);
+    }
+}
@@ -0,0 +1,82 @@
+package gov.nist.csd.pm.benchmarks;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pap.PolicyGenerator;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A graph shared by the benchmarks, generated by PolicyGenerator from the benchmark parameters.  Half of the nodes are
+ * users and half are objects, and the graph is generated from a fixed seed so every run of a benchmark uses the same
+ * graph.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+
+    @Param({"1000", "10000"})
+    public int nodes;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"4"})
+    public int fanout;
+
+    @Param({"1", "3"})
+    public int policyClasses;
+
+    public Graph        graph;
+    public List<String> users;
+    public List<String> objects;
+
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void buildGraph() throws PMException {
+        graph = new MemGraph();
+        random = new Random(42);
+        new PolicyGenerator.Builder(42)
+                .setUsers(nodes / 2)
+                .setObjects(nodes / 2)
+                .setPolicyClasses(policyClasses)
+                .setDepth(depth)
+                .setBranching(fanout)
+                .build()
+                .generate(graph);
+
+        users = new ArrayList<>();
+        objects = new ArrayList<>();
+        for (int i = 0; i < nodes / 2; i++) {
+            users.add("u" + i);
+            objects.add("o" + i);
+        }
+
+        setUpBenchmark();
+    }
+
+    /**
+     * Set up the state of a benchmark once its graph is built.  JMH does not order the setup methods of a state and its
+     * superclass, so benchmarks override this instead of declaring their own.
+     */
+    protected void setUpBenchmark() throws PMException {
+    }
+
+    /**
+     * @return a user chosen at random.
+     */
+    public String randomUser() {
+        return users.get(random.nextInt(users.size()));
+    }
+
+    /**
+     * @return an object chosen at random.
+     */
+    public String randomObject() {
+        return objects.get(random.nextInt(objects.size()));
+    }
+}
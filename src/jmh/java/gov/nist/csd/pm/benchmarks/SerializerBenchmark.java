@@ -0,0 +1,49 @@
+package gov.nist.csd.pm.benchmarks;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.GraphSerializer;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark extends GraphState {
+
+    private String json;
+    private String serialized;
+
+    @Override
+    protected void setUpBenchmark() throws PMException {
+        json = GraphSerializer.toJson(graph);
+        serialized = GraphSerializer.serialize(graph);
+    }
+
+    @Benchmark
+    public String toJson() throws PMException {
+        return GraphSerializer.toJson(graph);
+    }
+
+    @Benchmark
+    public Graph fromJson() throws PMException {
+        Graph graph = new MemGraph();
+        GraphSerializer.fromJson(graph, json);
+        return graph;
+    }
+
+    @Benchmark
+    public String serialize() throws PMException {
+        return GraphSerializer.serialize(graph);
+    }
+
+    @Benchmark
+    public Graph deserialize() throws PMException {
+        return GraphSerializer.deserialize(new MemGraph(), serialized);
+    }
+}
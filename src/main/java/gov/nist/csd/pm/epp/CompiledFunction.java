@@ -0,0 +1,62 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.epp.events.EventContext;
+import gov.nist.csd.pm.epp.functions.FunctionExecutor;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pip.obligations.model.functions.Function;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A Function bound to its FunctionExecutor and validated by FunctionEvaluator.compile.  The functions passed as arguments
+ * are compiled as well and bound to the Function of each argument when the function is compiled.  The executor
+ * evaluates them through an evaluator bound to this function, so the executor of an argument is not looked up and its
+ * arguments are not validated again.
+ */
+public class CompiledFunction {
+
+    private Function                        function;
+    private FunctionExecutor                executor;
+    // the compiled function of each argument that is a function, by identity since equal functions can be passed as
+    // different arguments
+    private Map<Function, CompiledFunction> args;
+    private FunctionEvaluator               evaluator;
+
+    CompiledFunction(Function function, FunctionExecutor executor, CompiledFunction[] args) {
+        this.function = function;
+        this.executor = executor;
+        this.args = new IdentityHashMap<>();
+        for (CompiledFunction arg : args) {
+            if (arg != null) {
+                this.args.put(arg.function, arg);
+            }
+        }
+    }
+
+    void setEvaluator(FunctionEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * Execute the function.
+     *
+     * @return the object the function returns.
+     * @throws PMException if there is an error executing the function.
+     */
+    public Object eval(EventContext eventCtx, String user, String process, PDP pdp) throws PMException {
+        return executor.exec(eventCtx, user, process, pdp, function, evaluator);
+    }
+
+    /**
+     * @return the compiled argument of this function for the given Function, or null if it is not an argument.
+     */
+    CompiledFunction getArg(Function argFunction) {
+        return args.get(argFunction);
+    }
+}
@@ -0,0 +1,181 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.epp.events.EventContext;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.obligations.model.*;
+import gov.nist.csd.pm.pip.obligations.model.actions.*;
+import gov.nist.csd.pm.pip.obligations.model.functions.Function;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The functions and target pattern of a rule compiled by a FunctionEvaluator.  The conditions of the response and of each action are
+ * evaluated through their compiled functions.  The functions used by the actions are compiled so they are validated
+ * and are evaluated without looking up their executors, and are kept here so the evaluator does not discard them.
+ *
+ * A compiled rule does not reference the rule it was compiled from, so it can be cached in a map weakly keyed by the rule.
+ */
+class CompiledRule {
+
+    private List<CompiledFunction>       condition;
+    private List<CompiledFunction>       negatedCondition;
+    private List<List<CompiledFunction>> actionConditions;
+    private List<List<CompiledFunction>> actionNegatedConditions;
+    private List<CompiledFunction>       actionFunctions;
+    private TargetMatcher                targetMatcher;
+
+    CompiledRule(Rule rule, FunctionEvaluator functionEvaluator) throws PMException {
+        EventPattern event = rule.getEventPattern();
+        this.targetMatcher = new TargetMatcher(event == null ? null : event.getTarget());
+
+        ResponsePattern response = rule.getResponsePattern();
+        this.actionConditions = new ArrayList<>();
+        this.actionNegatedConditions = new ArrayList<>();
+        this.actionFunctions = new ArrayList<>();
+        if (response == null) {
+            return;
+        }
+
+        this.condition = compileCondition(functionEvaluator, response.getCondition());
+        this.negatedCondition = compileCondition(functionEvaluator, response.getNegatedCondition());
+
+        if (response.getActions() == null) {
+            return;
+        }
+
+        for (Action action : response.getActions()) {
+            actionConditions.add(action == null ? null : compileCondition(functionEvaluator, action.getCondition()));
+            actionNegatedConditions.add(action == null ? null : compileCondition(functionEvaluator, action.getNegatedCondition()));
+            compileAction(functionEvaluator, action);
+        }
+    }
+
+    private static List<CompiledFunction> compileCondition(FunctionEvaluator functionEvaluator, Condition condition) throws PMException {
+        return condition == null ? null : compileCondition(functionEvaluator, condition.getCondition());
+    }
+
+    private static List<CompiledFunction> compileCondition(FunctionEvaluator functionEvaluator, NegatedCondition condition) throws PMException {
+        return condition == null ? null : compileCondition(functionEvaluator, condition.getCondition());
+    }
+
+    private static List<CompiledFunction> compileCondition(FunctionEvaluator functionEvaluator, List<Function> functions) throws PMException {
+        List<CompiledFunction> compiled = new ArrayList<>();
+        if (functions != null) {
+            for (Function function : functions) {
+                compiled.add(functionEvaluator.compile(function, Boolean.class));
+            }
+        }
+        return compiled;
+    }
+
+    private void compileAction(FunctionEvaluator functionEvaluator, Action action) throws PMException {
+        if (action instanceof AssignAction) {
+            compileAssignments(functionEvaluator, (AssignAction) action);
+        } else if (action instanceof CreateAction) {
+            CreateAction createAction = (CreateAction) action;
+            if (createAction.getCreateNodesList() != null) {
+                for (CreateAction.CreateNode createNode : createAction.getCreateNodesList()) {
+                    compileNode(functionEvaluator, createNode.getWhere());
+                }
+            }
+        } else if (action instanceof DeleteAction) {
+            DeleteAction deleteAction = (DeleteAction) action;
+            if (deleteAction.getNodes() != null) {
+                for (EvrNode evrNode : deleteAction.getNodes()) {
+                    compileNode(functionEvaluator, evrNode);
+                }
+            }
+            if (deleteAction.getAssignments() != null) {
+                compileAssignments(functionEvaluator, deleteAction.getAssignments());
+            }
+            if (deleteAction.getAssociations() != null) {
+                for (GrantAction grantAction : deleteAction.getAssociations()) {
+                    compileNode(functionEvaluator, grantAction.getSubject());
+                    compileNode(functionEvaluator, grantAction.getTarget());
+                }
+            }
+        } else if (action instanceof DenyAction) {
+            DenyAction denyAction = (DenyAction) action;
+            if (denyAction.getSubject() != null) {
+                compile(functionEvaluator, denyAction.getSubject().getFunction(), String.class);
+            }
+            if (denyAction.getTarget() != null && denyAction.getTarget().getContainers() != null) {
+                for (DenyAction.Target.Container container : denyAction.getTarget().getContainers()) {
+                    compile(functionEvaluator, container.getFunction(), Object.class);
+                }
+            }
+        } else if (action instanceof GrantAction) {
+            GrantAction grantAction = (GrantAction) action;
+            compileNode(functionEvaluator, grantAction.getSubject());
+            compileNode(functionEvaluator, grantAction.getTarget());
+        } else if (action instanceof FunctionAction) {
+            compile(functionEvaluator, ((FunctionAction) action).getFunction(), Object.class);
+        }
+    }
+
+    private void compileAssignments(FunctionEvaluator functionEvaluator, AssignAction action) throws PMException {
+        if (action.getAssignments() == null) {
+            return;
+        }
+
+        for (AssignAction.Assignment assignment : action.getAssignments()) {
+            compileNode(functionEvaluator, assignment.getWhat());
+            compileNode(functionEvaluator, assignment.getWhere());
+        }
+    }
+
+    private void compileNode(FunctionEvaluator functionEvaluator, EvrNode evrNode) throws PMException {
+        if (evrNode != null) {
+            compile(functionEvaluator, evrNode.getFunction(), Node.class);
+        }
+    }
+
+    private void compile(FunctionEvaluator functionEvaluator, Function function, Class<?> expectedType) throws PMException {
+        if (function != null) {
+            actionFunctions.add(functionEvaluator.compile(function, expectedType));
+        }
+    }
+
+    /**
+     * @return the matcher of the target of the rule's event pattern.
+     */
+    TargetMatcher getTargetMatcher() {
+        return targetMatcher;
+    }
+
+    /**
+     * @return true if every function of the response condition evaluates to true and every function of the negated
+     * response condition evaluates to false.
+     */
+    boolean checkResponseCondition(EventContext eventCtx, String user, String process, PDP pdp) throws PMException {
+        return check(condition, true, eventCtx, user, process, pdp) &&
+                check(negatedCondition, false, eventCtx, user, process, pdp);
+    }
+
+    /**
+     * @return true if the conditions of the action at the given index of the response are satisfied.
+     */
+    boolean checkActionCondition(int i, EventContext eventCtx, String user, String process, PDP pdp) throws PMException {
+        return check(actionConditions.get(i), true, eventCtx, user, process, pdp) &&
+                check(actionNegatedConditions.get(i), false, eventCtx, user, process, pdp);
+    }
+
+    private static boolean check(List<CompiledFunction> functions, boolean expected, EventContext eventCtx,
+                                 String user, String process, PDP pdp) throws PMException {
+        if (functions == null) {
+            return true;
+        }
+
+        for (CompiledFunction function : functions) {
+            Boolean result = (Boolean) function.eval(eventCtx, user, process, pdp);
+            if (result != expected) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -3,15 +3,20 @@ package gov.nist.csd.pm.epp;
 import gov.nist.csd.pm.epp.events.EventContext;
 import gov.nist.csd.pm.epp.functions.FunctionExecutor;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.jfr.FlightRecorderEvents;
+import gov.nist.csd.pm.jfr.ProcessEventEvent;
+import gov.nist.csd.pm.metrics.Metrics;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
+import gov.nist.csd.pm.metrics.Timer;
 import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pap.Batch;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pdp.workload.WorkloadRecorder;
 import gov.nist.csd.pm.pip.graph.Graph;
-import gov.nist.csd.pm.pip.graph.dag.searcher.DepthFirstSearcher;
-import gov.nist.csd.pm.pip.graph.dag.searcher.Direction;
-import gov.nist.csd.pm.pip.graph.dag.visitor.Visitor;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+import gov.nist.csd.pm.pip.obligations.RuleIndex;
 import gov.nist.csd.pm.pip.obligations.model.*;
 import gov.nist.csd.pm.pip.obligations.model.actions.*;
 import gov.nist.csd.pm.pip.obligations.model.functions.Function;
@@ -19,6 +24,10 @@ import gov.nist.csd.pm.pip.prohibitions.model.ContainerCondition;
 import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
 
 import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
 
@@ -27,21 +36,42 @@ public class EPP {
     private PAP pap;
     private PDP pdp;
     private FunctionEvaluator functionEvaluator;
+    private EventPipeline pipeline;
+    private EventCoalescer coalescer;
+    private WorkloadRecorder recorder;
+    private Executor matchExecutor;
+    private int parallelThreshold;
+    // the compiled functions of each rule, weakly keyed so a rule that is removed from its obligation is discarded
+    private Map<Rule, CompiledRule> compiledRules;
 
     public EPP(PDP pdp) throws PMException {
         this.pap = pdp.getPAP();
         this.pdp = pdp;
         this.functionEvaluator = new FunctionEvaluator();
+        this.compiledRules = Collections.synchronizedMap(new WeakHashMap<>());
     }
 
     public EPP(PDP pdp, EPPOptions eppOptions) throws PMException {
         this.pap = pdp.getPAP();
         this.pdp = pdp;
         this.functionEvaluator = new FunctionEvaluator();
+        this.compiledRules = Collections.synchronizedMap(new WeakHashMap<>());
         if (eppOptions != null) {
             for (FunctionExecutor executor : eppOptions.getExecutors()) {
                 this.functionEvaluator.addFunctionExecutor(executor);
             }
+
+            this.matchExecutor = eppOptions.getMatchExecutor();
+            this.parallelThreshold = eppOptions.getParallelThreshold();
+
+            if (eppOptions.isAsync()) {
+                this.pipeline = new EventPipeline(this::handleEvent, eppOptions.getWorkers(),
+                        eppOptions.getQueueCapacity(), eppOptions.getBackpressure());
+            }
+
+            if (eppOptions.isCoalescing()) {
+                this.coalescer = new EventCoalescer(this::dispatchEvent, eppOptions.getCoalescingWindow());
+            }
         }
     }
 
@@ -61,91 +91,467 @@ public class EPP {
         this.pdp = pdp;
     }
 
+    /**
+     * Process an event by applying the responses of the obligations that match it.  If the EPP is asynchronous, the
+     * event is queued and processed by a worker thread, use flush to wait for it to be processed.
+     *
+     * @param eventCtx the event.
+     * @param user the user that triggered the event.
+     * @param process the process that triggered the event.
+     * @throws PMException if the event is processed synchronously and there is an error processing it, or the event
+     * cannot be queued.
+     */
     public void processEvent(EventContext eventCtx, String user, String process) throws PMException {
-        List<Obligation> obligations = pap.getObligationsPAP().getAll();
-        for(Obligation obligation : obligations) {
-            if (!obligation.isEnabled()) {
-                continue;
+        if (recorder != null) {
+            recorder.recordEvent(eventCtx, user, process);
+        }
+
+        if (coalescer != null) {
+            coalescer.submit(eventCtx, user, process);
+        } else {
+            dispatchEvent(eventCtx, user, process);
+        }
+    }
+
+    private void dispatchEvent(EventContext eventCtx, String user, String process) throws PMException {
+        if (pipeline != null) {
+            pipeline.submit(eventCtx, user, process);
+        } else {
+            handleEvent(eventCtx, user, process);
+        }
+    }
+
+    /**
+     * Record every event processed by this EPP.
+     *
+     * @param recorder the recorder to record events with, null to stop recording.
+     */
+    public void setWorkloadRecorder(WorkloadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public boolean isAsync() {
+        return pipeline != null;
+    }
+
+    /**
+     * Wait until every event submitted to an asynchronous EPP has been processed.  Does nothing if the EPP is
+     * synchronous.
+     *
+     * @throws PMException if an event processed since the last flush failed.
+     */
+    public void flush() throws PMException {
+        PMException coalescerError = null;
+        if (coalescer != null) {
+            try {
+                coalescer.flush();
+            } catch (PMException e) {
+                coalescerError = e;
             }
+        }
 
-            List<Rule> rules = obligation.getRules();
-            for(Rule rule : rules) {
-                if(!eventMatches(user, process, eventCtx.getEvent(), eventCtx.getTarget(), rule.getEventPattern())) {
-                    continue;
-                }
+        if (pipeline != null) {
+            pipeline.flush();
+        }
+
+        if (coalescerError != null) {
+            throw coalescerError;
+        }
+    }
+
+    public boolean isCoalescing() {
+        return coalescer != null;
+    }
+
+    /**
+     * Start a batch of events on the calling thread.  The events the thread processes until the batch ends are buffered
+     * and duplicate events are removed, see EPPOptions.setCoalescing.  Batches can be nested, the events are processed
+     * when the outermost batch ends.  The events of other threads are not buffered by the batch.
+     *
+     * @throws PMException if the EPP does not coalesce events.
+     */
+    public void beginEventBatch() throws PMException {
+        if (coalescer == null) {
+            throw new PMException("the EPP does not coalesce events");
+        }
+
+        coalescer.begin();
+    }
+
+    /**
+     * End the batch of events of the calling thread.  If it is the outermost batch, its events are processed, or
+     * submitted to the workers if the EPP is asynchronous.
+     *
+     * @throws PMException if the EPP does not coalesce events, the calling thread did not start a batch, or an event is
+     * processed synchronously and fails.
+     */
+    public void endEventBatch() throws PMException {
+        if (coalescer == null) {
+            throw new PMException("the EPP does not coalesce events");
+        }
+
+        coalescer.end();
+    }
+
+    /**
+     * @return the number of events that were not processed because they were duplicates of an event in the same batch.
+     */
+    public long getCoalescedEvents() {
+        return coalescer == null ? 0 : coalescer.getCoalescedEvents();
+    }
+
+    /**
+     * @return the number of events discarded because the queue was full and the backpressure policy is DROP.
+     */
+    public long getDroppedEvents() {
+        return pipeline == null ? 0 : pipeline.getDroppedEvents();
+    }
 
-                // check the response condition
-                ResponsePattern responsePattern = rule.getResponsePattern();
-                if(!checkCondition(responsePattern.getCondition(), eventCtx, user, process, pdp)) {
-                    continue;
-                } else if(!checkNegatedCondition(responsePattern.getNegatedCondition(), eventCtx, user, process, pdp)) {
-                    continue;
+    /**
+     * Stop the worker threads of an asynchronous EPP after the events already queued have been processed.  Events
+     * buffered outside a batch by a coalescing EPP are processed first.  Events cannot be submitted after the EPP is shut
+     * down.
+     */
+    public void shutdown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    /**
+     * Compile the functions of the rules of the given obligation, including the rules it creates in response to an event.
+     * Each function is validated by its executor and the type it returns is checked once, so an invalid obligation is
+     * reported when it is loaded.  The rules of obligations that are not compiled before an event are compiled the first
+     * time they match an event.
+     *
+     * @param obligation the obligation to compile.
+     * @throws PMException if a function of the obligation is not recognized, is not valid, or returns the wrong type.
+     */
+    public void compile(Obligation obligation) throws PMException {
+        for (Rule rule : obligation.getRules()) {
+            compile(rule);
+        }
+    }
+
+    private CompiledRule compile(Rule rule) throws PMException {
+        CompiledRule compiledRule = compiledRules.get(rule);
+        if (compiledRule != null) {
+            return compiledRule;
+        }
+
+        compiledRule = new CompiledRule(rule, functionEvaluator);
+        compiledRules.put(rule, compiledRule);
+
+        ResponsePattern response = rule.getResponsePattern();
+        if (response != null && response.getActions() != null) {
+            for (Action action : response.getActions()) {
+                if (action instanceof CreateAction && ((CreateAction) action).getRules() != null) {
+                    for (Rule createdRule : ((CreateAction) action).getRules()) {
+                        compile(createdRule);
+                    }
                 }
+            }
+        }
 
-                for(Action action : rule.getResponsePattern().getActions()) {
-                    if(!checkCondition(action.getCondition(), eventCtx, user, process, pdp)) {
-                        continue;
-                    } else if(!checkNegatedCondition(action.getNegatedCondition(), eventCtx, user, process, pdp)) {
+        return compiledRule;
+    }
+
+    /**
+     * Evaluate the rules that can match the event and apply the actions of the rules that do.  Reports the duration of
+     * the event (epp.process_event), the number of candidate rules (epp.candidates), and the number of rules matched
+     * (epp.rules.matched) and actions applied (epp.actions.applied) to the metrics set in MetricsRegistry.  Events that
+     * take longer than the threshold of ProcessEventEvent are recorded by flight recordings that enable it.  The event
+     * is processed holding the write lock of the PAP, so events processed by different threads, and the services of the
+     * PDP, do not access the policy at the same time.
+     */
+    private void handleEvent(EventContext eventCtx, String user, String process) throws PMException {
+        Lock lock = pap.getLock().writeLock();
+        lock.lock();
+        try {
+            applyObligations(eventCtx, user, process);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyObligations(EventContext eventCtx, String user, String process) throws PMException {
+        ProcessEventEvent event = FlightRecorderEvents.processEvent();
+        Metrics metrics = MetricsRegistry.getMetrics();
+        Timer timer = metrics.timer("epp.process_event");
+        long start = timer.start();
+
+        // only the rules that can match the event are evaluated
+        EvaluationContext evalCtx = new EvaluationContext(eventCtx, user, process);
+        List<RuleIndex.IndexedRule> candidates = pap.getObligationsPAP().getRuleIndex().getCandidates(evalCtx);
+        int candidateCount = candidates.size();
+        metrics.histogram("epp.candidates").record(candidateCount);
+
+        int rulesMatched = 0;
+        int actionsApplied = 0;
+        boolean[] matched = null;
+        if (matchExecutor != null && candidates.size() >= parallelThreshold) {
+            matched = matchParallel(evalCtx, candidates);
+        }
+
+        for(int i = 0; i < candidates.size(); i++) {
+            RuleIndex.IndexedRule candidate = candidates.get(i);
+            // the response conditions of rules whose event patterns were matched in parallel are checked by this thread
+            if (matched != null ? !matched[i] || !conditionMatches(evalCtx, candidate) : !matches(evalCtx, candidate)) {
+                continue;
+            }
+
+            Rule rule = candidate.getRule();
+            CompiledRule compiledRule = compile(rule);
+            rulesMatched++;
+
+            // the changes of the rule's actions, including the changes of functions, are applied together once every
+            // action has been evaluated
+            Batch batch = new Batch();
+            List<Action> actions = rule.getResponsePattern().getActions();
+            functionEvaluator.setBatch(batch);
+            try {
+                for (int j = 0; j < actions.size(); j++) {
+                    if (!compiledRule.checkActionCondition(j, eventCtx, user, process, pdp)) {
                         continue;
                     }
 
-                    applyAction(obligation.getLabel(), eventCtx, user, process, action);
+                    applyAction(candidate.getObligation().getLabel(), eventCtx, user, process, actions.get(j), batch);
+                    actionsApplied++;
+                }
+            } finally {
+                functionEvaluator.setBatch(null);
+            }
+            pap.apply(batch);
+
+            // the rules after this one see the changes it applied, as if each rule were evaluated against the graph
+            // after the rules before it, so the cached containers and the matches computed in parallel are discarded
+            // and the rules that can now match are looked up again
+            if (!batch.isEmpty()) {
+                matched = null;
+                if (evalCtx.reset()) {
+                    candidates = getCandidatesAfter(evalCtx, candidate);
+                    i = -1;
                 }
             }
         }
+
+        timer.stop(start);
+        metrics.counter("epp.rules.matched").increment(rulesMatched);
+        metrics.counter("epp.actions.applied").increment(actionsApplied);
+        if (event != null) {
+            event.end(eventCtx.getEvent(), user, process, eventCtx.getTarget().getName(), candidateCount, rulesMatched,
+                    actionsApplied);
+        }
     }
 
-    private boolean checkCondition(Condition condition, EventContext eventCtx, String user, String process, PDP pdp) throws PMException {
-        if(condition == null) {
-            return true;
+    private List<RuleIndex.IndexedRule> getCandidatesAfter(EvaluationContext evalCtx, RuleIndex.IndexedRule rule)
+            throws PMException {
+        List<RuleIndex.IndexedRule> candidates = new ArrayList<>();
+        for (RuleIndex.IndexedRule candidate : pap.getObligationsPAP().getRuleIndex().getCandidates(evalCtx)) {
+            if (candidate.isAfter(rule)) {
+                candidates.add(candidate);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return true if the obligation of the rule is enabled, the rule's event pattern matches the event, and its response
+     * condition is satisfied.
+     */
+    private boolean matches(EvaluationContext evalCtx, RuleIndex.IndexedRule candidate) throws PMException {
+        return patternMatches(evalCtx, candidate) && conditionMatches(evalCtx, candidate);
+    }
+
+    /**
+     * @return true if the obligation of the rule is enabled and the rule's event pattern matches the event.  Only reads
+     * the graph, so it can be called by the threads of the match executor while the calling thread holds the write lock.
+     */
+    private boolean patternMatches(EvaluationContext evalCtx, RuleIndex.IndexedRule candidate) throws PMException {
+        if (!candidate.getObligation().isEnabled()) {
+            return false;
+        }
+
+        Rule rule = candidate.getRule();
+        return eventMatches(evalCtx, rule.getEventPattern(), compile(rule));
+    }
+
+    /**
+     * @return true if the response condition of the rule is satisfied.  The functions of the condition may use the
+     * services of the PDP, which take the lock of the PAP, so it is only checked by the thread processing the event.
+     */
+    private boolean conditionMatches(EvaluationContext evalCtx, RuleIndex.IndexedRule candidate) throws PMException {
+        return compile(candidate.getRule()).checkResponseCondition(evalCtx.eventCtx, evalCtx.getUser(),
+                evalCtx.getProcess(), pdp);
+    }
+
+    /**
+     * Match the event patterns of the candidate rules of an event in parallel.  The candidates are split into one chunk
+     * for each available processor and each chunk but the first is matched by a task on the match executor.  Response
+     * conditions are not checked here.
+     *
+     * @return for each candidate, true if its obligation is enabled and its event pattern matches the event.
+     */
+    private boolean[] matchParallel(EvaluationContext evalCtx, List<RuleIndex.IndexedRule> candidates) throws PMException {
+        boolean[] matched = new boolean[candidates.size()];
+        int chunks = Math.min(candidates.size(), Runtime.getRuntime().availableProcessors());
+        int chunkSize = (candidates.size() + chunks - 1) / chunks;
+
+        // the first chunk is matched by the calling thread while the others are matched by the executor
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int start = chunkSize; start < candidates.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, candidates.size());
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    match(evalCtx, candidates, matched, from, to);
+                } catch (PMException e) {
+                    throw new CompletionException(e);
+                }
+            }, matchExecutor));
         }
 
-        List<Function> functions = condition.getCondition();
-        for(Function f : functions) {
-            boolean result = functionEvaluator.evalBool(eventCtx, user, process, pdp, f);
-            if(!result) {
-                return false;
+        match(evalCtx, candidates, matched, 0, Math.min(chunkSize, candidates.size()));
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PMException) {
+                throw (PMException) e.getCause();
             }
+            throw e;
         }
 
-        return true;
+        return matched;
+    }
+
+    private void match(EvaluationContext evalCtx, List<RuleIndex.IndexedRule> candidates, boolean[] matched,
+                       int from, int to) throws PMException {
+        for (int i = from; i < to; i++) {
+            matched[i] = patternMatches(evalCtx, candidates.get(i));
+        }
     }
 
     /**
-     * Return true if the condition is satisfied. A condition is satisfied if all the functions evaluate to false.
+     * The state of the graph shared by every rule evaluated for one event.  The containers of the user and target of
+     * the event are only computed the first time a rule needs them, and are computed once for all the rules until a rule
+     * changes the graph.  The
+     * context is also the keys used to look up the rules that can match the event.  The rules of an event can be matched
+     * in parallel, so the containers are computed under the context's lock.
      */
-    private boolean checkNegatedCondition(NegatedCondition condition, EventContext eventCtx, String user, String process, PDP pdp) throws PMException {
-        if(condition == null) {
-            return true;
+    private class EvaluationContext implements RuleIndex.EventKeys {
+        private EventContext eventCtx;
+        private String       user;
+        private String       process;
+        private Node         userNode;
+        private Set<String>  userContainers;
+        private Set<String>  targetContainers;
+
+        EvaluationContext(EventContext eventCtx, String user, String process) {
+            this.eventCtx = eventCtx;
+            this.user = user;
+            this.process = process;
+        }
+
+        /**
+         * Discard the user node and containers, which may have been changed by the actions of a rule.
+         *
+         * @return true if the containers had been computed.
+         */
+        synchronized boolean reset() {
+            boolean computed = userContainers != null || targetContainers != null;
+            userNode = null;
+            userContainers = null;
+            targetContainers = null;
+            return computed;
         }
 
-        List<Function> functions = condition.getCondition();
-        for(Function f : functions) {
-            boolean result = functionEvaluator.evalBool(eventCtx, user, process, pdp, f);
-            if(result) {
-                return false;
+        @Override
+        public String getOperation() {
+            return eventCtx.getEvent();
+        }
+
+        @Override
+        public String getUser() {
+            return user;
+        }
+
+        @Override
+        public String getProcess() {
+            return process;
+        }
+
+        @Override
+        public String getTarget() {
+            return eventCtx.getTarget().getName();
+        }
+
+        synchronized Node getUserNode() throws PMException {
+            if (userNode == null) {
+                userNode = pap.getGraphPAP().getNode(user);
             }
+            return userNode;
         }
 
-        return true;
+        @Override
+        public synchronized Set<String> getUserContainers() throws PMException {
+            if (userContainers == null) {
+                userContainers = getContainerNames(user);
+            }
+            return userContainers;
+        }
+
+        @Override
+        public synchronized Set<String> getTargetContainers() throws PMException {
+            if (targetContainers == null) {
+                targetContainers = getContainerNames(eventCtx.getTarget().getName());
+            }
+            return targetContainers;
+        }
+
+        /**
+         * Every node the given node is assigned to, directly or indirectly.  Each node is visited once, so nodes
+         * reachable through more than one path are not traversed again.
+         */
+        private Set<String> getContainerNames(String name) throws PMException {
+            Graph graph = pap.getGraphPAP();
+            Set<String> containers = new HashSet<>();
+            if (name == null || !graph.exists(name)) {
+                return containers;
+            }
+
+            Queue<String> queue = new LinkedList<>();
+            queue.add(name);
+            while (!queue.isEmpty()) {
+                graph.forEachParent(queue.poll(), parent -> {
+                    if (containers.add(parent)) {
+                        queue.add(parent);
+                    }
+                });
+            }
+            return containers;
+        }
     }
 
-    private boolean eventMatches(String user, String process, String event, Node target, EventPattern match) throws PMException {
+    private boolean eventMatches(EvaluationContext evalCtx, EventPattern match, CompiledRule compiledRule) throws PMException {
         if(match.getOperations() != null &&
-                !match.getOperations().contains(event)) {
+                !match.getOperations().contains(evalCtx.getOperation())) {
             return false;
         }
 
         Subject matchSubject = match.getSubject();
         PolicyClass matchPolicyClass = match.getPolicyClass();
-        Target matchTarget = match.getTarget();
 
-        return subjectMatches(user, process, matchSubject) &&
-                pcMatches(user, matchPolicyClass) &&
-                targetMatches(target, matchTarget);
+        return subjectMatches(evalCtx, matchSubject) &&
+                pcMatches(evalCtx.getUser(), matchPolicyClass) &&
+                compiledRule.getTargetMatcher().matches(evalCtx.eventCtx.getTarget(), evalCtx::getTargetContainers,
+                        pap.getGraphPAP());
     }
 
-    private boolean subjectMatches(String user, String process, Subject matchSubject) throws PMException {
+    private boolean subjectMatches(EvaluationContext evalCtx, Subject matchSubject) throws PMException {
         if(matchSubject == null) {
             return true;
         }
@@ -157,10 +563,10 @@ public class EPP {
         }
 
         // get the current user node
-        Node userNode = pap.getGraphPAP().getNode(user);
+        Node userNode = evalCtx.getUserNode();
 
         if (matchSubject.getAnyUser() != null) {
-            return checkAnyUser(userNode, matchSubject.getAnyUser());
+            return checkAnyUser(evalCtx, matchSubject.getAnyUser());
         }
 
         if(matchSubject.getUser() != null && matchSubject.getUser().equals(userNode.getName())) {
@@ -168,40 +574,27 @@ public class EPP {
         }
 
         return matchSubject.getProcess() != null &&
-                matchSubject.getProcess().getValue().equals(process);
+                matchSubject.getProcess().getValue().equals(evalCtx.getProcess());
     }
 
-    private boolean checkAnyUser(Node userNode, List<String> anyUser) throws PMException {
+    private boolean checkAnyUser(EvaluationContext evalCtx, List<String> anyUser) throws PMException {
         if (anyUser == null || anyUser.isEmpty()) {
             return true;
         }
 
-        DepthFirstSearcher dfs = new DepthFirstSearcher(pdp.getPAP().getGraphPAP());
-
         // check each user in the anyUser list
         // there can be users and user attributes
+        Graph graph = pap.getGraphPAP();
         for (String u : anyUser) {
-            Node anyUserNode = pdp.getPAP().getGraphPAP().getNode(u);
+            Node anyUserNode = graph.getNode(u);
 
             // if the node in anyUser == the user than return true
-            if (anyUserNode.getName().equals(userNode.getName())) {
+            if (anyUserNode.getName().equals(evalCtx.getUserNode().getName())) {
                 return true;
             }
 
-            // if the anyUser is not an UA, move to the next one
-            if (anyUserNode.getType() != UA) {
-                continue;
-            }
-            
-            Set<String> nodes = new HashSet<>();
-            Visitor visitor = node -> {
-                if (node.getName().equals(anyUserNode.getName())) { //the change
-                    nodes.add(node.getName());
-                }
-            };
-            dfs.traverse(userNode, (c, p) -> {}, visitor, Direction.PARENTS);
-
-            if (nodes.contains(anyUserNode.getName())) {
+            // if the anyUser is an UA the user is assigned to, directly or indirectly
+            if (anyUserNode.getType() == UA && evalCtx.getUserContainers().contains(anyUserNode.getName())) {
                 return true;
             }
         }
@@ -214,121 +607,44 @@ public class EPP {
         return true;
     }
 
-    private boolean targetMatches(Node target, Target matchTarget) throws PMException {
-        if(matchTarget == null) {
-            return true;
-        }
-
-        if (matchTarget.getPolicyElements() == null &&
-                matchTarget.getContainers() == null) {
-            return true;
-        }
-
-        if(matchTarget.getContainers() != null) {
-            if (matchTarget.getContainers().isEmpty()) {
-                return true;
-            }
-
-            // check that target is contained in any container
-            Set<Node> containers = getContainersOf(target.getName());
-            for(EvrNode evrContainer : matchTarget.getContainers()) {
-                for(Node contNode : containers) {
-                    if (nodesMatch(evrContainer, contNode)) {
-                        return true;
-                    }
-                }
-            }
-
-            return false;
-        } else if(matchTarget.getPolicyElements() != null) {
-            if (matchTarget.getPolicyElements().isEmpty()) {
-                return true;
-            }
-
-            // check that target is in the list of policy elements
-            for(EvrNode evrNode : matchTarget.getPolicyElements()) {
-                if(nodesMatch(evrNode, target)) {
-                    return true;
-                }
-            }
-
-            return false;
-        }
-
-        return false;
-    }
-
-    private boolean nodesMatch(EvrNode evrNode, Node node) {
-        if(!evrNode.getName().equals(node.getName())) {
-            return false;
-        }
-
-        if(!evrNode.getType().equals(node.getType().toString())) {
-            return false;
-        }
-
-        for (String k : evrNode.getProperties().keySet()) {
-            String v = evrNode.getProperties().get(k);
-            if(node.getProperties().containsKey(k)) {
-                if(!node.getProperties().get(k).equals(v)) {
-                    return false;
-                }
-            } else {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    private Set<Node> getContainersOf(String name) throws PMException {
-        Set<Node> nodes = new HashSet<>();
-        Set<String> parents = pap.getGraphPAP().getParents(name);
-        for (String parent : parents) {
-            nodes.add(pap.getGraphPAP().getNode(parent));
-            nodes.addAll(getContainersOf(parent));
-        }
-        return nodes;
-    }
-
-    private void applyAction(String label, EventContext eventCtx, String user, String process, Action action) throws PMException {
+    private void applyAction(String label, EventContext eventCtx, String user, String process, Action action, Batch batch) throws PMException {
         if (action == null) {
             return;
         }
 
         if(action instanceof AssignAction) {
-            applyAssignAction(eventCtx, user, process, (AssignAction) action);
+            applyAssignAction(eventCtx, user, process, (AssignAction) action, batch);
         } else if(action instanceof CreateAction) {
-            applyCreateAction(label, eventCtx, user, process, (CreateAction) action);
+            applyCreateAction(label, eventCtx, user, process, (CreateAction) action, batch);
         } else if(action instanceof DeleteAction) {
-            applyDeleteAction(eventCtx, user, process, (DeleteAction) action);
+            applyDeleteAction(eventCtx, user, process, (DeleteAction) action, batch);
         } else if(action instanceof DenyAction) {
-            applyDenyAction(eventCtx, user, process, (DenyAction) action);
+            applyDenyAction(eventCtx, user, process, (DenyAction) action, batch);
         } else if(action instanceof GrantAction) {
-            applyGrantAction(eventCtx, user, process, (GrantAction) action);
+            applyGrantAction(eventCtx, user, process, (GrantAction) action, batch);
         } else if(action instanceof FunctionAction) {
-            functionEvaluator.evalNode(eventCtx, user, process, pdp, ((FunctionAction) action).getFunction());
+            functionEvaluator.evalObject(eventCtx, user, process, pdp, ((FunctionAction) action).getFunction());
         }
     }
 
-    private void applyGrantAction(EventContext eventCtx, String user, String process, GrantAction action) throws PMException {
+    private void applyGrantAction(EventContext eventCtx, String user, String process, GrantAction action, Batch batch) throws PMException {
         EvrNode subject = action.getSubject();
         List<String> operations = action.getOperations();
         EvrNode target = action.getTarget();
 
-        Node subjectNode = toNode(eventCtx, user, process, subject);
-        Node targetNode = toNode(eventCtx, user, process, target);
+        Node subjectNode = toNode(eventCtx, user, process, subject, batch);
+        Node targetNode = toNode(eventCtx, user, process, target, batch);
 
-        pap.getGraphPAP().associate(subjectNode.getName(), targetNode.getName(), new OperationSet(operations));
+        batch.associate(subjectNode.getName(), targetNode.getName(), new OperationSet(operations));
     }
 
-    private void applyDenyAction(EventContext eventCtx, String user, String process, DenyAction action) throws PMException {
+    private void applyDenyAction(EventContext eventCtx, String user, String process, DenyAction action, Batch batch) throws PMException {
         EvrNode subject = action.getSubject();
         List<String> operations = action.getOperations();
         DenyAction.Target target = action.getTarget();
 
-        String denySubject = toDenySubject(eventCtx, user, process, subject);
-        Map<String, Boolean> denyNodes = toDenyNodes(eventCtx, user, process, target);
+        String denySubject = toDenySubject(eventCtx, user, process, subject, batch);
+        Map<String, Boolean> denyNodes = toDenyNodes(eventCtx, user, process, target, batch);
 
         Prohibition.Builder builder = new Prohibition.Builder(action.getLabel(), denySubject, new OperationSet(operations))
                 .setIntersection(target.isIntersection());
@@ -338,13 +654,13 @@ public class EPP {
         }
 
         // add the prohibition to the PAP
-        pap.getProhibitionsPAP().add(builder.build());
+        batch.addProhibition(builder.build());
 
         // TODO this complement is ignored in the current Prohibition object
         boolean complement = target.isComplement();
     }
 
-    private Map<String, Boolean> toDenyNodes(EventContext eventCtx, String user, String process, DenyAction.Target target) throws PMException {
+    private Map<String, Boolean> toDenyNodes(EventContext eventCtx, String user, String process, DenyAction.Target target, Batch batch) throws PMException {
         Map<String, Boolean> nodes = new HashMap<>();
         List<DenyAction.Target.Container> containers = target.getContainers();
         for(DenyAction.Target.Container container : containers) {
@@ -359,10 +675,8 @@ public class EPP {
                 ContainerCondition cc = (ContainerCondition) result;
                 nodes.put(cc.getName(), cc.isComplement());
             } else {
-                Graph graph = pap.getGraphPAP();
-
                 // get the node
-                Node node = graph.getNode(container.getName());
+                Node node = getNode(container.getName(), batch);
                 nodes.put(node.getName(), container.isComplement());
             }
         }
@@ -370,7 +684,7 @@ public class EPP {
         return nodes;
     }
 
-    private String toDenySubject(EventContext eventCtx, String user, String process, EvrNode subject) throws PMException {
+    private String toDenySubject(EventContext eventCtx, String user, String process, EvrNode subject, Batch batch) throws PMException {
         String denySubject;
 
         if(subject.getFunction() != null) {
@@ -380,84 +694,102 @@ public class EPP {
             denySubject = subject.getProcess().getValue();
         } else {
             if (subject.getName() != null) {
-                denySubject = pap.getGraphPAP().getNode(subject.getName()).getName();
+                denySubject = getNode(subject.getName(), batch).getName();
             } else {
-                denySubject = pap.getGraphPAP().getNode(NodeType.toNodeType(subject.getType()), subject.getProperties()).getName();
+                denySubject = getNode(NodeType.toNodeType(subject.getType()), subject.getProperties(), batch).getName();
             }
         }
 
         return denySubject;
     }
 
-    private void applyDeleteAction(EventContext eventCtx, String user, String process, DeleteAction action) throws PMException {
-        List<EvrNode> nodes = action.getNodes();
-        if (nodes != null) {
-            for (EvrNode evrNode : nodes) {
-                Node node = toNode(eventCtx, user, process, evrNode);
-                pdp.getPAP().getGraphPAP().deleteNode(node.getName());
-            }
-        }
-
+    private void applyDeleteAction(EventContext eventCtx, String user, String process, DeleteAction action, Batch batch) throws PMException {
         AssignAction assignAction = action.getAssignments();
         if (assignAction != null) {
             for (AssignAction.Assignment assignment : assignAction.getAssignments()) {
-                Node what = toNode(eventCtx, user, process, assignment.getWhat());
-                Node where = toNode(eventCtx, user, process, assignment.getWhere());
-                pdp.getPAP().getGraphPAP().deassign(what.getName(), where.getName());
+                Node what = toNode(eventCtx, user, process, assignment.getWhat(), batch);
+                Node where = toNode(eventCtx, user, process, assignment.getWhere(), batch);
+                batch.deassign(what.getName(), where.getName());
             }
         }
 
         List<GrantAction> associations = action.getAssociations();
         if (associations != null){
             for (GrantAction grantAction : associations) {
-                Node subject = toNode(eventCtx, user, process, grantAction.getSubject());
-                Node target = toNode(eventCtx, user, process, grantAction.getTarget());
-                pdp.getPAP().getGraphPAP().dissociate(subject.getName(), target.getName());
+                Node subject = toNode(eventCtx, user, process, grantAction.getSubject(), batch);
+                Node target = toNode(eventCtx, user, process, grantAction.getTarget(), batch);
+                batch.dissociate(subject.getName(), target.getName());
             }
         }
 
         List<String> prohibitions = action.getProhibitions();
         if (prohibitions != null) {
             for (String label : prohibitions) {
-                pdp.getPAP().getProhibitionsPAP().delete(label);
+                batch.deleteProhibition(label);
+            }
+        }
+
+        // the nodes are deleted after the relations that refer to them
+        List<EvrNode> nodes = action.getNodes();
+        if (nodes != null) {
+            for (EvrNode evrNode : nodes) {
+                Node node = toNode(eventCtx, user, process, evrNode, batch);
+                batch.deleteNode(node.getName());
             }
         }
 
         List<String> rules = action.getRules();
         if (rules != null) {
             for (String label : rules) {
-                List<Obligation> obligations = pdp.getPAP().getObligationsPAP().getAll();
-                for (Obligation obligation : obligations) {
-                    List<Rule> oblRules = obligation.getRules();
-                    for (Rule rule : oblRules) {
-                        if (rule.getLabel().equals(label)) {
-                            oblRules.remove(rule);
-                        }
-                    }
-                }
+                batch.deleteRule(label);
             }
         }
     }
 
-    private Node toNode(EventContext eventCtx, String user, String process, EvrNode evrNode) throws PMException {
+    private Node toNode(EventContext eventCtx, String user, String process, EvrNode evrNode, Batch batch) throws PMException {
         Node node;
         if(evrNode.getFunction() != null) {
             node = functionEvaluator.evalNode(eventCtx, user, process, pdp, evrNode.getFunction());
         } else {
             if (evrNode.getName() != null && !evrNode.getName().isEmpty()) {
-                node = pap.getGraphPAP().getNode(evrNode.getName());
+                node = getNode(evrNode.getName(), batch);
             } else {
-                node = pap.getGraphPAP().getNode(NodeType.toNodeType(evrNode.getType()), evrNode.getProperties());
+                node = getNode(NodeType.toNodeType(evrNode.getType()), evrNode.getProperties(), batch);
             }
         }
         return node;
     }
 
-    private void applyCreateAction(String label, EventContext eventCtx, String user, String process, CreateAction action) throws PMException {
+    /**
+     * Get the node with the given name, which can be a node created by an earlier action of the same response.
+     */
+    private Node getNode(String name, Batch batch) throws PMException {
+        Node node = batch.getCreatedNode(name);
+        if (node != null) {
+            return node;
+        }
+
+        return pap.getGraphPAP().getNode(name);
+    }
+
+    /**
+     * Get a node with the given type and properties, which can be a node created by an earlier action of the same
+     * response.
+     */
+    private Node getNode(NodeType type, Map<String, String> properties, Batch batch) throws PMException {
+        Node node = batch.getCreatedNode(type, properties);
+        if (node != null) {
+            return node;
+        }
+
+        return pap.getGraphPAP().getNode(type, properties);
+    }
+
+    private void applyCreateAction(String label, EventContext eventCtx, String user, String process, CreateAction action, Batch batch) throws PMException {
         List<Rule> rules = action.getRules();
         if (rules != null) {
             for (Rule rule : rules) {
-                createRule(label, eventCtx, rule);
+                batch.addRule(label, rule);
             }
         }
 
@@ -466,31 +798,23 @@ public class EPP {
             for (CreateAction.CreateNode createNode : createNodesList) {
                 EvrNode what = createNode.getWhat();
                 EvrNode where = createNode.getWhere();
-                Node whereNode = toNode(eventCtx, user, process, where);
-                pap.getGraphPAP().createNode(what.getName(), NodeType.toNodeType(what.getType()), what.getProperties(), whereNode.getName());
+                Node whereNode = toNode(eventCtx, user, process, where, batch);
+                batch.createNode(what.getName(), NodeType.toNodeType(what.getType()), what.getProperties(), whereNode.getName());
             }
         }
     }
 
-    private void createRule(String obligationLabel, EventContext eventCtx, Rule rule) {
-        // add the rule to the obligation
-        Obligation obligation = pap.getObligationsPAP().get(obligationLabel);
-        List<Rule> rules = obligation.getRules();
-        rules.add(rule);
-        obligation.setRules(rules);
-    }
-
-    private void applyAssignAction(EventContext eventCtx, String user, String process, AssignAction action) throws PMException {
+    private void applyAssignAction(EventContext eventCtx, String user, String process, AssignAction action, Batch batch) throws PMException {
         List<AssignAction.Assignment> assignments = action.getAssignments();
         if (assignments != null) {
             for (AssignAction.Assignment assignment : assignments) {
                 EvrNode what = assignment.getWhat();
                 EvrNode where = assignment.getWhere();
 
-                Node whatNode = toNode(eventCtx, user, process, what);
-                Node whereNode = toNode(eventCtx, user, process, where);
+                Node whatNode = toNode(eventCtx, user, process, what, batch);
+                Node whereNode = toNode(eventCtx, user, process, where, batch);
 
-                pap.getGraphPAP().assign(whatNode.getName(), whereNode.getName());
+                batch.assign(whatNode.getName(), whereNode.getName());
             }
         }
     }
@@ -4,16 +4,145 @@ import gov.nist.csd.pm.epp.functions.FunctionExecutor;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class EPPOptions {
 
+    /**
+     * What to do with an event when the queue of the worker that should process it is full.
+     */
+    public enum Backpressure {
+        /**
+         * Wait for space in the queue.
+         */
+        BLOCK,
+        /**
+         * Discard the event.
+         */
+        DROP,
+        /**
+         * Process the event in the thread that submitted it.
+         */
+        CALLER_RUNS
+    }
+
     private List<FunctionExecutor> executors;
+    private int                    workers;
+    private int                    queueCapacity;
+    private Backpressure           backpressure;
+    private Executor               matchExecutor;
+    private int                    parallelThreshold;
+    private boolean                coalescing;
+    private long                   coalescingWindow;
 
     public EPPOptions(FunctionExecutor ... executors) {
         this.executors = Arrays.asList(executors);
+        this.workers = 0;
+        this.queueCapacity = 1024;
+        this.backpressure = Backpressure.BLOCK;
+        this.parallelThreshold = 16;
     }
 
     public List<FunctionExecutor> getExecutors() {
         return executors;
     }
+
+    /**
+     * Process events asynchronously on the given number of worker threads.  Events with the same target node are always
+     * processed by the same worker, in the order they were submitted. Obligations are evaluated while the caller
+     * continues to use the PDP, so each event is processed holding the write lock of the PAP, see PAP.getLock, and the
+     * effects of an obligation are not visible until the event has been processed.  Because of the lock, the workers
+     * process one event at a time. EPP.flush waits for all submitted
+     * events to be processed.
+     *
+     * @param workers the number of worker threads, 0 to process events synchronously.
+     * @param queueCapacity the maximum number of events waiting to be processed by each worker.
+     * @param backpressure what to do with an event when the queue of its worker is full.
+     * @return these options.
+     */
+    public EPPOptions setAsync(int workers, int queueCapacity, Backpressure backpressure) {
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.backpressure = backpressure;
+        return this;
+    }
+
+    public boolean isAsync() {
+        return workers > 0;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * Evaluate the event patterns of the rules that can match an event in parallel on the common ForkJoinPool.  See
+     * setParallelMatching(Executor, int).
+     *
+     * @return these options.
+     */
+    public EPPOptions setParallelMatching() {
+        return setParallelMatching(ForkJoinPool.commonPool(), parallelThreshold);
+    }
+
+    /**
+     * Evaluate the event patterns of the rules that can match an event in parallel using the given executor.  The
+     * response conditions of the rules whose patterns match are then checked, and their actions applied, one rule at a
+     * time in the order of the obligations and their rules by the thread processing the event.  Conditions are not
+     * checked by the executor because their functions may use the services of the PDP, which would wait for the lock
+     * held by the thread processing the event.  Once a rule changes the policy, the rules after it are matched by the
+     * thread processing the event so they see the change.  Events with fewer candidate rules than the threshold are
+     * matched sequentially.
+     *
+     * @param executor the executor to evaluate rules on, null to evaluate rules sequentially.
+     * @param threshold the minimum number of candidate rules of an event to evaluate them in parallel.
+     * @return these options.
+     */
+    public EPPOptions setParallelMatching(Executor executor, int threshold) {
+        this.matchExecutor = executor;
+        this.parallelThreshold = threshold;
+        return this;
+    }
+
+    public Executor getMatchExecutor() {
+        return matchExecutor;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Coalesce the events submitted to the EPP.  Events a thread submits between EPP.beginEventBatch and
+     * EPP.endEventBatch are processed together when its batch ends, and duplicate events in the batch are processed
+     * once.  Two events are duplicates if they have the same event name, target, user and process, and the same child
+     * or parent for the events of an assignment, and only the first of them is processed.
+     * If the window is greater than 0, events submitted outside a batch are also processed together at most the
+     * window after the first of them was submitted, by a separate thread.  EPP.flush processes them immediately.
+     *
+     * @param windowMillis how long to buffer events submitted outside a batch, 0 to only coalesce events in a batch.
+     * @return these options.
+     */
+    public EPPOptions setCoalescing(long windowMillis) {
+        this.coalescing = true;
+        this.coalescingWindow = windowMillis;
+        return this;
+    }
+
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    public long getCoalescingWindow() {
+        return coalescingWindow;
+    }
 }
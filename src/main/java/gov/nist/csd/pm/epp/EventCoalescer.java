@@ -0,0 +1,336 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.epp.events.*;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers events and passes them on to be processed as a batch with duplicate events removed.  Two events are
+ * duplicates if they have the same event name, target node name, user and process, and the same child or parent node
+ * for the events of an assignment, so duplicates only differ in fields the obligations do not read.  An event is only
+ * removed if it is a duplicate of the last event submitted on the same assignment, or on the same target for events that
+ * are not about an assignment.  So an assignment that is undone and done again in a batch is processed each time, while
+ * an assignment event submitted again before anything else happened to the assignment is removed.  The events that are
+ * not removed are processed in the order they were submitted.
+ *
+ * Batches belong to the thread that opened them.  The events a thread submits while it has a batch open are buffered
+ * and passed on by that thread when it closes its outermost batch, events submitted by other threads are not affected.
+ * If the coalescer has a window, events submitted outside a batch are also buffered and passed on by a timer thread at
+ * most the window after the first of them was submitted.  Without a window, events submitted outside a batch are passed
+ * on immediately.  Exceptions thrown while the timer passes events on are collected and thrown by the next call to
+ * flush.
+ */
+class EventCoalescer {
+
+    private EventPipeline.EventHandler handler;
+    private long                       windowMillis;
+    private ScheduledExecutorService   timer;
+
+    private final Object        lock = new Object();
+    // held while events are passed on so batches drained by different threads are not interleaved
+    private final Object        drainLock = new Object();
+    // the events submitted outside a batch, buffered until the window ends
+    private Events              buffer;
+    // the open batch of each thread
+    private ThreadLocal<Batch>  batches;
+    private boolean             scheduled;
+    private AtomicLong          coalesced;
+    private List<PMException>   errors;
+
+    EventCoalescer(EventPipeline.EventHandler handler, long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("the EPP coalescing window cannot be negative");
+        }
+
+        this.handler = handler;
+        this.windowMillis = windowMillis;
+        this.buffer = new Events();
+        this.batches = new ThreadLocal<>();
+        this.coalesced = new AtomicLong();
+        this.errors = new ArrayList<>();
+        if (windowMillis > 0) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "epp-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    void submit(EventContext eventCtx, String user, String process) throws PMException {
+        Batch batch = batches.get();
+        if (batch != null) {
+            add(batch.events, eventCtx, user, process);
+            return;
+        }
+
+        if (timer != null) {
+            synchronized (lock) {
+                add(buffer, eventCtx, user, process);
+                if (!scheduled) {
+                    scheduled = true;
+                    timer.schedule(this::drainOnTimer, windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            return;
+        }
+
+        handler.handle(eventCtx, user, process);
+    }
+
+    private void add(Events events, EventContext eventCtx, String user, String process) {
+        if (!events.add(new Key(eventCtx, user, process), new Event(eventCtx, user, process))) {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Open a batch on the calling thread.  Batches can be nested, the events are passed on when the outermost batch is
+     * closed.
+     */
+    void begin() {
+        Batch batch = batches.get();
+        if (batch == null) {
+            batch = new Batch();
+            batches.set(batch);
+        }
+        batch.depth++;
+    }
+
+    /**
+     * Close a batch of the calling thread.  If it is the outermost batch, the buffered events are passed on by the
+     * calling thread.
+     *
+     * @throws PMException if the calling thread has no open batch or any of the events fails.
+     */
+    void end() throws PMException {
+        Batch batch = batches.get();
+        if (batch == null) {
+            throw new PMException("there is no open batch of EPP events");
+        }
+
+        batch.depth--;
+        if (batch.depth > 0) {
+            return;
+        }
+
+        batches.remove();
+        synchronized (drainLock) {
+            handle(batch.events.list);
+        }
+    }
+
+    /**
+     * Pass on the events buffered outside a batch without waiting for the window to end.  Events buffered in an open
+     * batch are not passed on.
+     *
+     * @throws PMException if any of the events, or any event passed on by the timer since the last flush, failed.
+     */
+    void flush() throws PMException {
+        PMException drainError = null;
+        try {
+            drain();
+        } catch (PMException e) {
+            drainError = e;
+        }
+
+        synchronized (lock) {
+            if (drainError == null && errors.isEmpty()) {
+                return;
+            }
+
+            if (drainError != null) {
+                errors.add(0, drainError);
+            }
+            PMException e = new PMException(String.format("%d coalesced event(s) failed, the first error was: %s",
+                    errors.size(), errors.get(0).getMessage()));
+            e.initCause(errors.get(0));
+            errors.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of events discarded because they were duplicates of the previous event on the same assignment
+     * or target in the same batch.
+     */
+    long getCoalescedEvents() {
+        return coalesced.get();
+    }
+
+    /**
+     * Pass on the events buffered outside a batch and stop the timer.
+     */
+    void shutdown() {
+        drainOnTimer();
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+
+    private void drainOnTimer() {
+        synchronized (lock) {
+            scheduled = false;
+        }
+
+        // errors cannot be returned to the thread that submitted the events
+
+        try {
+            drain();
+        } catch (PMException e) {
+            synchronized (lock) {
+                errors.add(e);
+            }
+        }
+    }
+
+    /**
+     * Pass on the events buffered outside a batch.
+     *
+     * @throws PMException the first error if any event failed.
+     */
+    private void drain() throws PMException {
+        synchronized (drainLock) {
+            Collection<Event> events;
+            synchronized (lock) {
+                if (buffer.list.isEmpty()) {
+                    return;
+                }
+
+                events = buffer.list;
+                buffer = new Events();
+            }
+
+            handle(events);
+        }
+    }
+
+    /**
+     * Pass on the given events.  Every event is passed on even if one fails.
+     *
+     * @throws PMException the first error if any event failed.
+     */
+    private void handle(Collection<Event> events) throws PMException {
+        PMException first = null;
+        for (Event event : events) {
+            try {
+                handler.handle(event.eventCtx, event.user, event.process);
+            } catch (PMException e) {
+                if (first == null) {
+                    first = e;
+                }
+            }
+        }
+
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    private static class Batch {
+        int    depth;
+        Events events = new Events();
+    }
+
+    /**
+     * The buffered events in the order they were submitted, with the key of the last event on each assignment or target.
+     */
+    private static class Events {
+        List<Event>            list = new ArrayList<>();
+        Map<List<String>, Key> last = new HashMap<>();
+
+        /**
+         * @return false if the event was not added because it is a duplicate of the last event on its assignment or target.
+         */
+        boolean add(Key key, Event event) {
+            if (key.equals(last.put(key.subject(), key))) {
+                return false;
+            }
+
+            list.add(event);
+            return true;
+        }
+    }
+
+    private static class Event {
+        EventContext eventCtx;
+        String       user;
+        String       process;
+
+        Event(EventContext eventCtx, String user, String process) {
+            this.eventCtx = eventCtx;
+            this.user = user;
+            this.process = process;
+        }
+    }
+
+    private static class Key {
+        String event;
+        String target;
+        String other;
+        String user;
+        String process;
+
+        Key(EventContext eventCtx, String user, String process) {
+            this.event = eventCtx.getEvent();
+            this.target = eventCtx.getTarget().getName();
+            this.other = otherNode(eventCtx);
+            this.user = user;
+            this.process = process;
+        }
+
+        /**
+         * @return the nodes the event is about: the child and parent of an assignment in the same order for the events of
+         * both nodes, or the target of other events.
+         */
+        List<String> subject() {
+            if (other == null) {
+                return Collections.singletonList(target);
+            }
+
+            return target.compareTo(other) < 0 ? Arrays.asList(target, other) : Arrays.asList(other, target);
+        }
+
+        /**
+         * @return the name of the node on the other end of the assignment of an assignment event, null for other events.
+         */
+        private static String otherNode(EventContext eventCtx) {
+            Node other = null;
+            if (eventCtx instanceof AssignToEvent) {
+                other = ((AssignToEvent) eventCtx).getChildNode();
+            } else if (eventCtx instanceof AssignEvent) {
+                other = ((AssignEvent) eventCtx).getParentNode();
+            } else if (eventCtx instanceof DeassignFromEvent) {
+                other = ((DeassignFromEvent) eventCtx).getChildNode();
+            } else if (eventCtx instanceof DeassignEvent) {
+                other = ((DeassignEvent) eventCtx).getParentNode();
+            }
+            return other == null ? null : other.getName();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return Objects.equals(event, key.event) &&
+                    Objects.equals(target, key.target) &&
+                    Objects.equals(other, key.other) &&
+                    Objects.equals(user, key.user) &&
+                    Objects.equals(process, key.process);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(event, target, other, user, process);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.epp.events.EventContext;
+import gov.nist.csd.pm.exceptions.PMException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes events on a pool of worker threads.  Each worker has its own bounded queue and events are routed to a
+ * worker by the name of their target node, so events with the same target are processed in the order they were
+ * submitted.  Events with different targets may be processed concurrently and in any order.
+ *
+ * Exceptions thrown while processing an event cannot be returned to the caller that submitted it. They are collected
+ * and thrown by the next call to flush.
+ */
+class EventPipeline {
+
+    // the longest a blocked submitter waits before checking the queue again, in case it missed the worker's notification
+    private static final long BLOCK_WAIT_MILLIS = 10;
+
+    /**
+     * Processes a single event.
+     */
+    interface EventHandler {
+        void handle(EventContext eventCtx, String user, String process) throws PMException;
+    }
+
+    private EventHandler            handler;
+    private EPPOptions.Backpressure backpressure;
+    private Worker[]                workers;
+
+    // the number of events that have been submitted and not yet processed
+    private final Object            pendingLock = new Object();
+    private long                    pending;
+    private AtomicLong              dropped;
+    private List<PMException>       errors;
+
+    EventPipeline(EventHandler handler, int numWorkers, int queueCapacity, EPPOptions.Backpressure backpressure) {
+        if (numWorkers <= 0) {
+            throw new IllegalArgumentException("the number of EPP workers must be greater than 0");
+        } else if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("the EPP queue capacity must be greater than 0");
+        }
+
+        this.handler = handler;
+        this.backpressure = backpressure == null ? EPPOptions.Backpressure.BLOCK : backpressure;
+        this.dropped = new AtomicLong();
+        this.errors = new ArrayList<>();
+        this.workers = new Worker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new Worker("epp-worker-" + i, queueCapacity);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Submit an event to be processed by the worker responsible for its target.  If the worker's queue is full, the
+     * backpressure policy decides what happens to the event:
+     * BLOCK waits for space in the queue, DROP discards the event, and CALLER_RUNS processes the event in the calling
+     * thread.  An event processed by the caller may be processed before events with the same target that are still
+     * queued.  A worker thread never waits for space in a queue, since the worker it waits for may be waiting for it,
+     * so an event a worker submits to a full queue with BLOCK is processed by the worker.
+     *
+     * @throws PMException if the pipeline has been shut down, the caller is interrupted while waiting for space in the
+     * queue, or the event is processed by the caller and fails.
+     */
+    void submit(EventContext eventCtx, String user, String process) throws PMException {
+        Worker worker = workers[(eventCtx.getTarget().getName().hashCode() & Integer.MAX_VALUE) % workers.length];
+        Event event = new Event(eventCtx, user, process);
+
+        // the worker only stops once its queue is empty, checked under the same lock, so an event is never queued after
+        // the worker has stopped
+        synchronized (worker.lock) {
+            if (worker.shutdown) {
+                throw new PMException("the EPP has been shut down");
+            }
+
+            incrementPending();
+            if (worker.queue.offer(event)) {
+                return;
+            }
+
+            // the lock is released while waiting so the worker can stop, and shutdown is checked again after each wait
+            while (backpressure == EPPOptions.Backpressure.BLOCK && !isWorker()) {
+                try {
+                    worker.waiting++;
+                    try {
+                        worker.lock.wait(BLOCK_WAIT_MILLIS);
+                    } finally {
+                        worker.waiting--;
+                    }
+                } catch (InterruptedException e) {
+                    decrementPending();
+                    Thread.currentThread().interrupt();
+                    throw new PMException("interrupted while waiting to submit an event to the EPP");
+                }
+
+                if (worker.shutdown) {
+                    decrementPending();
+                    throw new PMException("the EPP has been shut down");
+                } else if (worker.queue.offer(event)) {
+                    return;
+                }
+            }
+        }
+
+        if (backpressure == EPPOptions.Backpressure.DROP) {
+            dropped.incrementAndGet();
+            decrementPending();
+        } else {
+            try {
+                handler.handle(eventCtx, user, process);
+            } finally {
+                decrementPending();
+            }
+        }
+    }
+
+    private boolean isWorker() {
+        for (Worker worker : workers) {
+            if (Thread.currentThread() == worker) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait until every event submitted before this call has been processed.
+     *
+     * @throws PMException if any event processed since the last flush failed, or the caller is interrupted.
+     */
+    void flush() throws PMException {
+        synchronized (pendingLock) {
+            while (pending > 0) {
+                try {
+                    pendingLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PMException("interrupted while waiting for the EPP to process events");
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                PMException e = new PMException(String.format("%d event(s) failed, the first error was: %s",
+                        errors.size(), errors.get(0).getMessage()));
+                e.initCause(errors.get(0));
+                errors.clear();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return the number of events discarded by the DROP backpressure policy.
+     */
+    long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop accepting events and stop the workers once their queues are empty.
+     */
+    void shutdown() {
+        for (Worker worker : workers) {
+            synchronized (worker.lock) {
+                worker.shutdown = true;
+                worker.lock.notifyAll();
+            }
+            worker.interrupt();
+        }
+    }
+
+    private void incrementPending() {
+        synchronized (pendingLock) {
+            pending++;
+        }
+    }
+
+    private void decrementPending() {
+        synchronized (pendingLock) {
+            pending--;
+            if (pending == 0) {
+                pendingLock.notifyAll();
+            }
+        }
+    }
+
+    private void failed(PMException e) {
+        synchronized (pendingLock) {
+            errors.add(e);
+        }
+    }
+
+    private static class Event {
+        EventContext eventCtx;
+        String       user;
+        String       process;
+
+        Event(EventContext eventCtx, String user, String process) {
+            this.eventCtx = eventCtx;
+            this.user = user;
+            this.process = process;
+        }
+    }
+
+    private class Worker extends Thread {
+        private BlockingQueue<Event> queue;
+        private volatile boolean     shutdown;
+        // held to check for shutdown and queue an event, or to check for shutdown and an empty queue before stopping
+        private final Object         lock = new Object();
+        // the number of submitters waiting for space in the queue, guarded by the lock
+        private volatile int         waiting;
+
+        Worker(String name, int queueCapacity) {
+            super(name);
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                if (shutdown) {
+                    synchronized (lock) {
+                        if (queue.isEmpty()) {
+                            return;
+                        }
+                    }
+                }
+
+                Event event;
+                try {
+                    event = queue.take();
+                } catch (InterruptedException e) {
+                    // interrupted by shutdown, process any remaining events before stopping
+                    continue;
+                }
+
+                // wake the submitters waiting for space in the queue
+                if (waiting > 0) {
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                }
+
+                try {
+                    handler.handle(event.eventCtx, event.user, event.process);
+                } catch (PMException e) {
+                    failed(e);
+                } catch (RuntimeException e) {
+                    failed(new PMException(e.getMessage()));
+                } finally {
+                    decrementPending();
+                }
+            }
+        }
+    }
+}
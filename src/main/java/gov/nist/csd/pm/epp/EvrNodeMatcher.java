@@ -0,0 +1,75 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+import gov.nist.csd.pm.pip.obligations.model.EvrNode;
+
+import java.util.Map;
+
+/**
+ * An EvrNode of an event pattern compiled to match nodes without parsing its type or walking its property map for
+ * every event.  A node matches if it has the same name and type as the EvrNode and has every property of the EvrNode.
+ */
+class EvrNodeMatcher {
+
+    private String   name;
+    private NodeType type;
+    private boolean  anyType;
+    private String[] keys;
+    private String[] values;
+
+    EvrNodeMatcher(EvrNode evrNode) {
+        this.name = evrNode.getName();
+
+        // a type that is not the label of a NodeType is kept as a null type which does not match any node
+        String typeStr = evrNode.getType();
+        this.anyType = typeStr == null;
+        NodeType nodeType = NodeType.toNodeType(typeStr);
+        this.type = nodeType != null && nodeType.toString().equals(typeStr) ? nodeType : null;
+
+        Map<String, String> properties = evrNode.getProperties();
+        int size = properties == null ? 0 : properties.size();
+        this.keys = new String[size];
+        this.values = new String[size];
+        if (properties != null) {
+            int i = 0;
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                keys[i] = property.getKey();
+                values[i] = property.getValue();
+                i++;
+            }
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean matches(Node node) {
+        if (name == null || node == null || !name.equals(node.getName())) {
+            return false;
+        }
+
+        if (!anyType && (type == null || type != node.getType())) {
+            return false;
+        }
+
+        if (keys.length == 0) {
+            return true;
+        }
+
+        Map<String, String> properties = node.getProperties();
+        if (properties == null) {
+            return false;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            String value = properties.get(keys[i]);
+            if (value == null || !value.equals(values[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -3,19 +3,31 @@ package gov.nist.csd.pm.epp;
 import gov.nist.csd.pm.epp.events.*;
 import gov.nist.csd.pm.epp.functions.*;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pap.Batch;
 import gov.nist.csd.pm.pdp.PDP;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.obligations.model.functions.Arg;
 import gov.nist.csd.pm.pip.obligations.model.functions.Function;
 import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 public class FunctionEvaluator {
 
     private Map<String, FunctionExecutor> funExecs;
+    // the functions compiled by this evaluator, evaluated without looking up their executors again.  The compiled
+    // functions are referenced weakly, they are kept by whoever compiled them for as long as they are needed
+    private Map<Function, WeakReference<CompiledFunction>> compiled;
+    // the function whose arguments this evaluator evaluates, null if this is not the evaluator of a compiled function
+    private CompiledFunction bound;
+    // the batch of the response each thread is evaluating
+    private ThreadLocal<Batch> batches;
 
     public FunctionEvaluator() throws PMException {
         funExecs = new HashMap<>();
+        compiled = Collections.synchronizedMap(new WeakHashMap<>());
+        batches = new ThreadLocal<>();
 
         // add the build in functions
         addFunctionExecutor(new ChildOfAssignExecutor());
@@ -31,57 +43,151 @@ public class FunctionEvaluator {
         addFunctionExecutor(new ToPropertiesExecutor());
     }
 
+    private FunctionEvaluator(FunctionEvaluator root, CompiledFunction bound) {
+        this.funExecs = root.funExecs;
+        this.compiled = root.compiled;
+        this.batches = root.batches;
+        this.bound = bound;
+    }
+
     public void addFunctionExecutor(FunctionExecutor executor) {
         this.funExecs.put(executor.getFunctionName(), executor);
+
+        // functions compiled with a replaced executor have to be compiled again
+        this.compiled.clear();
+    }
+
+    /**
+     * Functions that change the policy, such as create_node, add their changes to this batch instead of changing the PAP,
+     * so the changes are applied with the other actions of the response.
+     *
+     * @return the batch of the response the calling thread is evaluating, or null if it is not evaluating a response.
+     */
+    public Batch getBatch() {
+        return batches.get();
+    }
+
+    /**
+     * Set the batch of the response the calling thread is evaluating, or null when it is done.
+     */
+    void setBatch(Batch batch) {
+        if (batch == null) {
+            batches.remove();
+        } else {
+            batches.set(batch);
+        }
     }
 
     public FunctionExecutor getFunctionExecutor(String name) throws PMException {
-        if (!funExecs.containsKey(name)) {
+        FunctionExecutor executor = funExecs.get(name);
+        if (executor == null) {
             throw new PMException(name + " is not a recognized function");
         }
-        return funExecs.get(name);
+        return executor;
     }
 
-    public boolean evalBool(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
+    /**
+     * Compile the given function and the functions passed as its arguments.  The executor of each function is looked up
+     * and the function is validated by the executor once, and the type the executor returns is checked against the
+     * expected type.  When the compiled function, or the Function it was compiled from, is evaluated the executors are
+     * not looked up again.
+     *
+     * @param function the function to compile.
+     * @param expectedType the type the function is expected to return, Object if any type is accepted.
+     * @return the compiled function.
+     * @throws PMException if a function is not recognized, has invalid arguments, or does not return the expected type.
+     */
+    public CompiledFunction compile(Function function, Class<?> expectedType) throws PMException {
+        FunctionExecutor executor = getFunctionExecutor(function.getName());
+        executor.validate(function);
+
+        Class<?> returnType = getReturnType(executor);
+        if (!isAssignable(returnType, expectedType)) {
+            throw new PMException(String.format("function %s returns %s but %s is expected", function.getName(),
+                    returnType.getSimpleName(), expectedType.getSimpleName()));
+        }
+
+        List<Arg> args = function.getArgs() == null ? new ArrayList<>() : function.getArgs();
+        CompiledFunction[] compiledArgs = new CompiledFunction[args.size()];
+        for (int i = 0; i < args.size(); i++) {
+            Function argFunction = args.get(i).getFunction();
+            if (argFunction != null) {
+                compiledArgs[i] = compile(argFunction, Object.class);
+            }
+        }
+
+        CompiledFunction compiledFunction = new CompiledFunction(function, executor, compiledArgs);
+        compiledFunction.setEvaluator(new FunctionEvaluator(this, compiledFunction));
+        compiled.put(function, new WeakReference<>(compiledFunction));
+        return compiledFunction;
+    }
 
-        return (boolean)functionExecutor.exec(eventCtx, user, process, pdp, function, this);
+    /**
+     * The return type of the executor's exec method, which executors can narrow from Object.
+     */
+    private static Class<?> getReturnType(FunctionExecutor executor) throws PMException {
+        try {
+            return executor.getClass().getMethod("exec", EventContext.class, String.class, String.class, PDP.class,
+                    Function.class, FunctionEvaluator.class).getReturnType();
+        } catch (NoSuchMethodException e) {
+            throw new PMException(e.getMessage());
+        }
+    }
+
+    /**
+     * A function can be used where the expected type is required if it returns a subtype of the expected type.  If the
+     * function returns a supertype, such as Object, the type of the value cannot be known until it is returned.
+     */
+    private static boolean isAssignable(Class<?> returnType, Class<?> expectedType) {
+        if (returnType == boolean.class) {
+            returnType = Boolean.class;
+        }
+
+        return expectedType.isAssignableFrom(returnType) || returnType.isAssignableFrom(expectedType);
+    }
+
+    public boolean evalBool(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
+        return (boolean) eval(eventCtx, user, process, pdp, function);
     }
 
     public List evalNodeList(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
-        return (List) functionExecutor.exec(eventCtx, user, process, pdp, function, this);
+        return (List) eval(eventCtx, user, process, pdp, function);
     }
 
     public Node evalNode(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
-        return (Node)functionExecutor.exec(eventCtx, user, process, pdp, function, this);
+        return (Node) eval(eventCtx, user, process, pdp, function);
     }
 
     public String evalString(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
-        return (String)functionExecutor.exec(eventCtx, user, process, pdp, function, this);
+        return (String) eval(eventCtx, user, process, pdp, function);
     }
 
     public String evalLong(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
-        return (String)functionExecutor.exec(eventCtx, user, process, pdp, function, this);
+        return (String) eval(eventCtx, user, process, pdp, function);
     }
 
     public Map evalMap(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
-        return (Map)functionExecutor.exec(eventCtx, user, process, pdp, function, this);
+        return (Map) eval(eventCtx, user, process, pdp, function);
     }
 
     public Object evalObject(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
-        String functionName = function.getName();
-        FunctionExecutor functionExecutor = getFunctionExecutor(functionName);
+        return eval(eventCtx, user, process, pdp, function);
+    }
+
+    private Object eval(EventContext eventCtx, String user, String process, PDP pdp, Function function) throws PMException {
+        CompiledFunction compiledFunction = bound == null ? null : bound.getArg(function);
+        if (compiledFunction == null) {
+            WeakReference<CompiledFunction> ref = compiled.get(function);
+            compiledFunction = ref == null ? null : ref.get();
+        }
+
+        if (compiledFunction != null) {
+            return compiledFunction.eval(eventCtx, user, process, pdp);
+        }
+
+        // the function was not compiled, so it is validated every time it is evaluated
+        FunctionExecutor functionExecutor = getFunctionExecutor(function.getName());
+        functionExecutor.validate(function);
         return functionExecutor.exec(eventCtx, user, process, pdp, function, this);
     }
 }
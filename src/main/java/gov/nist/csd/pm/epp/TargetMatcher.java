@@ -0,0 +1,108 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.obligations.model.EvrNode;
+import gov.nist.csd.pm.pip.obligations.model.Target;
+
+import java.util.*;
+
+/**
+ * The target of an event pattern compiled into EvrNodeMatchers keyed by the name of the node they match.  The target of
+ * an event is matched by looking up its name, or the names of its containers, instead of comparing it to every node of
+ * the pattern.
+ */
+class TargetMatcher {
+
+    private boolean                        any;
+    private Map<String, EvrNodeMatcher[]> containers;
+    private Map<String, EvrNodeMatcher[]> policyElements;
+
+    TargetMatcher(Target target) {
+        if (target == null ||
+                (target.getContainers() == null && target.getPolicyElements() == null)) {
+            this.any = true;
+        } else if (target.getContainers() != null) {
+            this.any = target.getContainers().isEmpty();
+            this.containers = index(target.getContainers());
+        } else {
+            this.any = target.getPolicyElements().isEmpty();
+            this.policyElements = index(target.getPolicyElements());
+        }
+    }
+
+    private static Map<String, EvrNodeMatcher[]> index(List<EvrNode> evrNodes) {
+        Map<String, List<EvrNodeMatcher>> lists = new HashMap<>();
+        for (EvrNode evrNode : evrNodes) {
+            EvrNodeMatcher matcher = new EvrNodeMatcher(evrNode);
+            // a node without a name cannot match the target
+            if (matcher.getName() != null) {
+                lists.computeIfAbsent(matcher.getName(), k -> new ArrayList<>()).add(matcher);
+            }
+        }
+
+        Map<String, EvrNodeMatcher[]> index = new HashMap<>();
+        for (Map.Entry<String, List<EvrNodeMatcher>> e : lists.entrySet()) {
+            index.put(e.getKey(), e.getValue().toArray(new EvrNodeMatcher[0]));
+        }
+        return index;
+    }
+
+    /**
+     * @param target the target of the event.
+     * @param targetContainers the names of the nodes the target is assigned to, directly or indirectly.  Only called
+     *                         if the pattern matches containers.
+     * @param graph the graph to get the nodes of the containers from.
+     * @return true if the target is one of the policy elements of the pattern, or is contained in one of its containers.
+     */
+    boolean matches(Node target, ContainerSupplier targetContainers, Graph graph) throws PMException {
+        if (any) {
+            return true;
+        }
+
+        if (policyElements != null) {
+            return matchesAny(policyElements.get(target.getName()), target);
+        }
+
+        // look up the smaller of the two sets in the other
+        Set<String> names = targetContainers.get();
+        if (containers.size() <= names.size()) {
+            for (Map.Entry<String, EvrNodeMatcher[]> e : containers.entrySet()) {
+                if (names.contains(e.getKey()) && matchesAny(e.getValue(), graph.getNode(e.getKey()))) {
+                    return true;
+                }
+            }
+        } else {
+            for (String name : names) {
+                EvrNodeMatcher[] matchers = containers.get(name);
+                if (matchers != null && matchesAny(matchers, graph.getNode(name))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean matchesAny(EvrNodeMatcher[] matchers, Node node) {
+        if (matchers == null) {
+            return false;
+        }
+
+        for (EvrNodeMatcher matcher : matchers) {
+            if (matcher.matches(node)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Supplies the containers of the target, which are only computed if the pattern needs them.
+     */
+    interface ContainerSupplier {
+        Set<String> get() throws PMException;
+    }
+}
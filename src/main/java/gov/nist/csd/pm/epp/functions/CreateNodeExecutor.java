@@ -3,6 +3,7 @@ package gov.nist.csd.pm.epp.functions;
 import gov.nist.csd.pm.epp.FunctionEvaluator;
 import gov.nist.csd.pm.epp.events.EventContext;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pap.Batch;
 import gov.nist.csd.pm.pdp.PDP;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
@@ -27,6 +28,14 @@ public class CreateNodeExecutor implements FunctionExecutor {
         return 6;
     }
 
+    @Override
+    public void validate(Function function) throws PMException {
+        List<Arg> args = function.getArgs();
+        if (args == null || args.size() < 4) {
+            throw new PMException(getFunctionName() + " expected at least four arguments (parent name, parent type, name, and type)");
+        }
+    }
+
     @Override
     public Node exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
         List<Arg> args = function.getArgs();
@@ -78,14 +87,25 @@ public class CreateNodeExecutor implements FunctionExecutor {
         }
 
         Graph graph = pdp.getPAP().getGraphPAP();
+        Batch batch = functionEvaluator.getBatch();
 
         Node parentNode;
         if (parentName != null) {
-            parentNode = graph.getNode(parentName);
+            // the parent can be created by an earlier action of the same response
+            parentNode = batch == null ? null : batch.getCreatedNode(parentName);
+            if (parentNode == null) {
+                parentNode = graph.getNode(parentName);
+            }
         } else {
             parentNode = graph.getNode(NodeType.toNodeType(parentType), new HashMap<>());
         }
 
+        // in a response the node is created with the response's other changes
+        if (batch != null) {
+            batch.createNode(name, NodeType.toNodeType(type), props, parentNode.getName());
+            return batch.getCreatedNode(name);
+        }
+
         return graph.createNode(name, NodeType.toNodeType(type), props, parentNode.getName());
     }
 }
@@ -21,7 +21,8 @@ public interface FunctionExecutor {
     int numParams();
 
     /**
-     * Execute the function.
+     * Execute the function.  The function has already been checked by validate, when it was compiled or, if it was not
+     * compiled, by the FunctionEvaluator before executing it, so the arguments are not checked again.
      * @param eventCtx the event that is being processed
      * @param user the name of the user that triggered the event
      * @param process the process that triggered the event
@@ -32,4 +33,14 @@ public interface FunctionExecutor {
      * @throws PMException if there is any error executing the function
      */
     Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException;
+
+    /**
+     * Check that the arguments of the function are valid for this executor, without executing it.  This is called once
+     * when a function is compiled, so errors in an obligation are reported when it is loaded instead of when an event
+     * is processed, and before each execution of a function that was not compiled.  By default no arguments are checked.
+     * @param function the function information
+     * @throws PMException if the arguments of the function are not valid
+     */
+    default void validate(Function function) throws PMException {
+    }
 }
\ No newline at end of file
@@ -26,11 +26,16 @@ public class GetNodeExecutor implements FunctionExecutor {
     }
 
     @Override
-    public Node exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
+    public void validate(Function function) throws PMException {
         List<Arg> args = function.getArgs();
         if (args == null || args.size() < numParams() || args.size() > numParams()) {
             throw new PMException(getFunctionName() + " expected at least two arguments (name and type) but found none");
         }
+    }
+
+    @Override
+    public Node exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
+        List<Arg> args = function.getArgs();
 
         // first arg should be a string or a function tht returns a string
         Arg arg = args.get(0);
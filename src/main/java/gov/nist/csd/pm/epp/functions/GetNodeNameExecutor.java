@@ -26,18 +26,20 @@ public class GetNodeNameExecutor implements FunctionExecutor {
      * @return the name of the node returned from this function.
      */
     @Override
-    public String exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
+    public void validate(Function function) throws PMException {
         List<Arg> args = function.getArgs();
         if (args.size() != numParams()) {
             throw new PMException(getFunctionName() + " expected " + numParams() + " arg but got " + args.size());
         }
 
-        Arg arg = args.get(0);
-        Function argFunction = arg.getFunction();
-        if (argFunction == null) {
+        if (args.get(0).getFunction() == null) {
             throw new PMException(getFunctionName() + " expected the first argument to be a function but it was null");
         }
+    }
 
+    @Override
+    public String exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
+        Function argFunction = function.getArgs().get(0).getFunction();
         Node node = functionEvaluator.evalNode(eventCtx, user, process, pdp, argFunction);
         return node.getName();
     }
@@ -27,18 +27,25 @@ public class IsNodeContainedInExecutor implements FunctionExecutor {
     }
 
     @Override
-    public Boolean exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
-        List< Arg > args = function.getArgs();
+    public void validate(Function function) throws PMException {
+        List<Arg> args = function.getArgs();
         if (args.size() != numParams()) {
             throw new PMException(getFunctionName() + " expected " + numParams() + " parameters but got " + args.size());
         }
 
-        Arg arg = args.get(0);
-        Function f = arg.getFunction();
-        if (f == null) {
-            throw new PMException(getFunctionName() + " expects two functions as parameters");
+        for (Arg arg : args) {
+            if (arg.getFunction() == null) {
+                throw new PMException(getFunctionName() + " expects two functions as parameters");
+            }
         }
+    }
 
+    @Override
+    public Boolean exec(EventContext eventCtx, String user, String process, PDP pdp, Function function, FunctionEvaluator functionEvaluator) throws PMException {
+        List< Arg > args = function.getArgs();
+
+        Arg arg = args.get(0);
+        Function f = arg.getFunction();
         Node childNode = functionEvaluator.evalNode(eventCtx, user, process, pdp, f);
         if(childNode == null) {
             return false;
@@ -46,9 +53,6 @@ public class IsNodeContainedInExecutor implements FunctionExecutor {
 
         arg = args.get(1);
         f = arg.getFunction();
-        if (f == null) {
-            throw new PMException(getFunctionName() + " expects two functions as parameters");
-        }
 
         Node parentNode = functionEvaluator.evalNode(eventCtx, user, process, pdp, f);
         if(parentNode == null) {
@@ -21,6 +21,15 @@ public class ToPropertiesExecutor implements FunctionExecutor {
         return 0;
     }
 
+    @Override
+    public void validate(Function function) throws PMException {
+        for(Arg arg : function.getArgs()) {
+            if (arg.getValue() == null) {
+                throw new PMException(getFunctionName() + " expects all arguments to be strings with the format key=value");
+            }
+        }
+    }
+
     /**
      * The args should all be strings with the format: "key=value"
      * This function takes those strings and returns a Map<String,String> to be used
@@ -0,0 +1,18 @@
+package gov.nist.csd.pm.exceptions;
+
+/**
+ * Wraps a PMException that occurs while a lazily evaluated result, such as a Stream, is being consumed and a checked
+ * exception cannot be thrown.
+ */
+public class PMRuntimeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PMRuntimeException(PMException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized PMException getCause() {
+        return (PMException) super.getCause();
+    }
+}
@@ -0,0 +1,58 @@
+package gov.nist.csd.pm.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * An access decision made by PReviewDecider.check or PReviewDecider.list, including the decisions on a SubjectContext
+ * computed before.
+ */
+@Name("gov.nist.csd.pm.Decision")
+@Label("Access Decision")
+@Category({"Policy Machine", "PDP"})
+@Description("A decision of the permissions a subject has on a target")
+@Threshold("10 ms")
+@StackTrace(false)
+public class DecisionEvent extends Event {
+
+    @Label("Operation")
+    @Description("check or list")
+    String operation;
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Process")
+    String process;
+
+    @Label("Target")
+    String target;
+
+    @Label("Nodes Visited")
+    @Description("The number of nodes visited on the user and target sides of the graph, the user side is not counted if the decision reused a subject context")
+    int nodesVisited;
+
+    @Label("Result Size")
+    @Description("The number of permissions the subject has on the target")
+    int resultSize;
+
+    DecisionEvent() {
+    }
+
+    /**
+     * End the event and commit it if it is enabled and took longer than its threshold.
+     */
+    public void end(String operation, String subject, String process, String target, int nodesVisited, int resultSize) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.operation = operation;
+        this.subject = subject;
+        this.process = process;
+        this.target = target;
+        this.nodesVisited = nodesVisited;
+        this.resultSize = resultSize;
+        commit();
+    }
+}
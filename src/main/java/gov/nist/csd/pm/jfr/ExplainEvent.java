@@ -0,0 +1,48 @@
+package gov.nist.csd.pm.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * An explanation of a user's permissions on a target made by PReviewAuditor.explain.
+ */
+@Name("gov.nist.csd.pm.Explain")
+@Label("Access Explanation")
+@Category({"Policy Machine", "PDP"})
+@Description("An explanation of the paths that give a user permissions on a target")
+@Threshold("10 ms")
+@StackTrace(false)
+public class ExplainEvent extends Event {
+
+    @Label("User")
+    String user;
+
+    @Label("Target")
+    String target;
+
+    @Label("Paths")
+    @Description("The number of paths found from the user and from the target")
+    int paths;
+
+    @Label("Result Size")
+    @Description("The number of permissions the user has on the target")
+    int resultSize;
+
+    ExplainEvent() {
+    }
+
+    /**
+     * End the event and commit it if it is enabled and took longer than its threshold.
+     */
+    public void end(String user, String target, int paths, int resultSize) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.user = user;
+        this.target = target;
+        this.paths = paths;
+        this.resultSize = resultSize;
+        commit();
+    }
+}
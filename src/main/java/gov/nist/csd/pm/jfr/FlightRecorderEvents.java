@@ -0,0 +1,59 @@
+package gov.nist.csd.pm.jfr;
+
+/**
+ * Creates the Java Flight Recorder events of the decider, auditor and EPP.  The events are only created if the JVM has
+ * the jdk.jfr API, which is available from JDK 11 and OpenJDK 8u272, so the classes of the events are never loaded by
+ * JVMs without it.  Each method returns null if the API is not available, otherwise a new event whose duration has
+ * started.
+ *
+ * The events are recorded by flight recordings that enable them, and only if they take longer than their threshold.  The
+ * thresholds default to the value of the Threshold annotation of each event and can be changed in the recording's
+ * settings, for example with -XX:StartFlightRecording:settings=pm.jfc where pm.jfc sets
+ * gov.nist.csd.pm.Decision#threshold.
+ */
+public final class FlightRecorderEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static DecisionEvent decision() {
+        if (!AVAILABLE) {
+            return null;
+        }
+
+        DecisionEvent event = new DecisionEvent();
+        event.begin();
+        return event;
+    }
+
+    public static ExplainEvent explain() {
+        if (!AVAILABLE) {
+            return null;
+        }
+
+        ExplainEvent event = new ExplainEvent();
+        event.begin();
+        return event;
+    }
+
+    public static ProcessEventEvent processEvent() {
+        if (!AVAILABLE) {
+            return null;
+        }
+
+        ProcessEventEvent event = new ProcessEventEvent();
+        event.begin();
+        return event;
+    }
+}
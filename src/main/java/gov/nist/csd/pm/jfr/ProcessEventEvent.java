@@ -0,0 +1,60 @@
+package gov.nist.csd.pm.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * An event processed by the EPP.  With an asynchronous EPP the event is recorded by the thread that processes it.
+ */
+@Name("gov.nist.csd.pm.ProcessEvent")
+@Label("EPP Event")
+@Category({"Policy Machine", "EPP"})
+@Description("An event matched against the obligations by the EPP")
+@Threshold("10 ms")
+@StackTrace(false)
+public class ProcessEventEvent extends Event {
+
+    @Label("Event")
+    String event;
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Process")
+    String process;
+
+    @Label("Target")
+    String target;
+
+    @Label("Candidate Rules")
+    @Description("The number of rules evaluated against the event")
+    int candidates;
+
+    @Label("Rules Matched")
+    int rulesMatched;
+
+    @Label("Actions Applied")
+    int actionsApplied;
+
+    ProcessEventEvent() {
+    }
+
+    /**
+     * End the event and commit it if it is enabled and took longer than its threshold.
+     */
+    public void end(String event, String subject, String process, String target, int candidates, int rulesMatched,
+                    int actionsApplied) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.event = event;
+        this.subject = subject;
+        this.process = process;
+        this.target = target;
+        this.candidates = candidates;
+        this.rulesMatched = rulesMatched;
+        this.actionsApplied = actionsApplied;
+        commit();
+    }
+}
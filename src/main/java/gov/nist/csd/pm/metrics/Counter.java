@@ -0,0 +1,13 @@
+package gov.nist.csd.pm.metrics;
+
+/**
+ * A count of events.
+ */
+public interface Counter {
+
+    void increment(long n);
+
+    default void increment() {
+        increment(1);
+    }
+}
@@ -0,0 +1,12 @@
+package gov.nist.csd.pm.metrics;
+
+/**
+ * A distribution of values, such as the number of nodes visited by a decision.
+ */
+public interface Histogram {
+
+    /**
+     * @param value the value to record, values less than 0 are recorded as 0.
+     */
+    void record(long value);
+}
@@ -0,0 +1,204 @@
+package gov.nist.csd.pm.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics kept in memory, for tests and for inspecting a running PDP.  Histograms and timers count values in buckets
+ * whose width grows with the value, in the way HdrHistogram does, so percentiles are within 2% of the recorded values
+ * while each histogram has a fixed size.
+ */
+public class InMemoryMetrics implements Metrics {
+
+    private ConcurrentMap<String, InMemoryCounter>   counters;
+    private ConcurrentMap<String, InMemoryHistogram> histograms;
+    private ConcurrentMap<String, InMemoryTimer>     timers;
+
+    public InMemoryMetrics() {
+        this.counters = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+        this.timers = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public InMemoryCounter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new InMemoryCounter());
+    }
+
+    @Override
+    public InMemoryTimer timer(String name) {
+        return timers.computeIfAbsent(name, k -> new InMemoryTimer());
+    }
+
+    @Override
+    public InMemoryHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new InMemoryHistogram());
+    }
+
+    public Map<String, InMemoryCounter> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    public Map<String, InMemoryHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    public Map<String, InMemoryTimer> getTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(timers));
+    }
+
+    public void clear() {
+        counters.clear();
+        histograms.clear();
+        timers.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, InMemoryCounter> e : getCounters().entrySet()) {
+            sb.append(String.format("%s count=%d%n", e.getKey(), e.getValue().getCount()));
+        }
+        for (Map.Entry<String, InMemoryHistogram> e : getHistograms().entrySet()) {
+            sb.append(String.format("%s %s%n", e.getKey(), e.getValue()));
+        }
+        for (Map.Entry<String, InMemoryTimer> e : getTimers().entrySet()) {
+            sb.append(String.format("%s %s (ns)%n", e.getKey(), e.getValue().getHistogram()));
+        }
+        return sb.toString();
+    }
+
+    public static class InMemoryCounter implements Counter {
+        private LongAdder count = new LongAdder();
+
+        @Override
+        public void increment(long n) {
+            count.add(n);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    public static class InMemoryTimer implements Timer {
+        private InMemoryHistogram histogram = new InMemoryHistogram();
+
+        @Override
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        /**
+         * @return the histogram of the recorded durations in nanoseconds.
+         */
+        public InMemoryHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Values less than 128 are counted exactly.  Larger values are counted in one of 64 buckets for each power of 2,
+     * so a bucket is never wider than 1/64 of its values.
+     */
+    public static class InMemoryHistogram implements Histogram {
+        private static final int SUB_BUCKET_BITS = 6;
+        private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+        private static final int EXACT           = SUB_BUCKETS * 2;
+
+        private AtomicLongArray counts;
+        private LongAdder       count;
+        private LongAdder       sum;
+        private LongAccumulator max;
+
+        InMemoryHistogram() {
+            this.counts = new AtomicLongArray(EXACT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+            this.count = new LongAdder();
+            this.sum = new LongAdder();
+            this.max = new LongAccumulator(Math::max, 0);
+        }
+
+        @Override
+        public void record(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(index(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        static int index(long value) {
+            if (value < EXACT) {
+                return (int) value;
+            }
+
+            // the shift that leaves the top SUB_BUCKET_BITS + 1 bits of the value
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return EXACT + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+
+        /**
+         * @return the largest value counted in the bucket at the given index.
+         */
+        static long highestValue(int index) {
+            if (index < EXACT) {
+                return index;
+            }
+
+            int shift = (index - EXACT) / SUB_BUCKETS + 1;
+            long subBucket = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getSum() / n;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100.
+         * @return the value that the given percentage of recorded values do not exceed, within the width of its bucket.
+         */
+        public long getPercentile(double percentile) {
+            long n = getCount();
+            if (n == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), getMax());
+                }
+            }
+
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", getCount(), getMean(),
+                    getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+        }
+    }
+}
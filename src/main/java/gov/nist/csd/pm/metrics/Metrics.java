@@ -0,0 +1,30 @@
+package gov.nist.csd.pm.metrics;
+
+/**
+ * Creates the instruments the PDP, decider, EPP and serializers report to.  The instruments of a name are created on
+ * the first call and the same instrument is returned by every call with that name after that.  Implementations must be
+ * safe to use from concurrent threads.
+ *
+ * The metrics reported to are set with MetricsRegistry.setMetrics and are NOOP by default.
+ */
+public interface Metrics {
+
+    /**
+     * Metrics that discard everything reported to them.
+     */
+    Metrics NOOP = new NoopMetrics();
+
+    Counter counter(String name);
+
+    Timer timer(String name);
+
+    Histogram histogram(String name);
+
+    /**
+     * @return false if everything reported to these metrics is discarded, so components can skip computing values that
+     * are only reported.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package gov.nist.csd.pm.metrics;
+
+/**
+ * Holds the Metrics every component reports to.  Components look up the metrics when they report, so metrics set
+ * while the PDP is running are used by the next operation.
+ */
+public class MetricsRegistry {
+
+    private static volatile Metrics metrics = Metrics.NOOP;
+
+    private MetricsRegistry() {
+    }
+
+    public static Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics the metrics to report to, null to stop reporting.
+     */
+    public static void setMetrics(Metrics metrics) {
+        MetricsRegistry.metrics = metrics == null ? Metrics.NOOP : metrics;
+    }
+}
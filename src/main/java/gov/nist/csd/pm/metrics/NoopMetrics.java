@@ -0,0 +1,45 @@
+package gov.nist.csd.pm.metrics;
+
+/**
+ * Metrics that discard everything reported to them.  The same instruments are returned for every name and do not read
+ * the clock.
+ */
+class NoopMetrics implements Metrics {
+
+    private static final Counter   COUNTER   = n -> {};
+    private static final Histogram HISTOGRAM = value -> {};
+    private static final Timer     TIMER     = new Timer() {
+        @Override
+        public void record(long nanos) {
+        }
+
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void stop(long start) {
+        }
+    };
+
+    @Override
+    public Counter counter(String name) {
+        return COUNTER;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return TIMER;
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return HISTOGRAM;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package gov.nist.csd.pm.metrics;
+
+/**
+ * A distribution of durations.  A duration is measured by calling start before the operation and stop with the value
+ * start returned after it.
+ */
+public interface Timer {
+
+    /**
+     * @param nanos the duration in nanoseconds.
+     */
+    void record(long nanos);
+
+    /**
+     * @return the start of a duration to pass to stop.
+     */
+    default long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the duration since the given start.
+     *
+     * @param start the value returned by start.
+     */
+    default void stop(long start) {
+        record(System.nanoTime() - start);
+    }
+}
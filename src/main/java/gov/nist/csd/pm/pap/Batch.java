@@ -0,0 +1,574 @@
+package gov.nist.csd.pm.pap;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+import gov.nist.csd.pm.pip.obligations.model.Obligation;
+import gov.nist.csd.pm.pip.obligations.model.Rule;
+import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
+
+import java.util.*;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.PC;
+
+/**
+ * An ordered list of changes to the graph, prohibitions, and obligations of a PAP.  A batch is applied with PAP.apply,
+ * which validates every change against the state of the PAP and the changes before it, and then applies all of the
+ * changes or, if one fails, none of them.
+ *
+ * Nodes created by a batch are not in the graph until the batch is applied.  getCreatedNode returns the nodes that will
+ * be created so later changes in the same batch can refer to them.
+ */
+public class Batch {
+
+    private List<Mutation>    mutations;
+    private Map<String, Node> createdNodes;
+
+    public Batch() {
+        this.mutations = new ArrayList<>();
+        this.createdNodes = new HashMap<>();
+    }
+
+    /**
+     * Create a node assigned to the given parent.  The parent can be a node created earlier in the batch.
+     */
+    public Batch createNode(String name, NodeType type, Map<String, String> properties, String parent) {
+        Node node = new Node(name, type, properties == null ? new HashMap<>() : properties);
+        createdNodes.put(name, node);
+        mutations.add(new CreateNode(node, parent));
+        return this;
+    }
+
+    public Batch deleteNode(String name) {
+        createdNodes.remove(name);
+        mutations.add(new DeleteNode(name));
+        return this;
+    }
+
+    public Batch assign(String child, String parent) {
+        mutations.add(new Assign(child, parent));
+        return this;
+    }
+
+    public Batch deassign(String child, String parent) {
+        mutations.add(new Deassign(child, parent));
+        return this;
+    }
+
+    public Batch associate(String ua, String target, OperationSet operations) {
+        mutations.add(new Associate(ua, target, operations));
+        return this;
+    }
+
+    public Batch dissociate(String ua, String target) {
+        mutations.add(new Dissociate(ua, target));
+        return this;
+    }
+
+    public Batch addProhibition(Prohibition prohibition) {
+        mutations.add(new AddProhibition(prohibition));
+        return this;
+    }
+
+    public Batch deleteProhibition(String name) {
+        mutations.add(new DeleteProhibition(name));
+        return this;
+    }
+
+    /**
+     * Add a rule to the end of the rules of the obligation with the given label.
+     */
+    public Batch addRule(String obligationLabel, Rule rule) {
+        mutations.add(new AddRule(obligationLabel, rule));
+        return this;
+    }
+
+    /**
+     * Remove the rules with the given label from every obligation.
+     */
+    public Batch deleteRule(String ruleLabel) {
+        mutations.add(new DeleteRule(ruleLabel));
+        return this;
+    }
+
+    /**
+     * @return the node with the given name if it is created by this batch, or null if it is not.
+     */
+    public Node getCreatedNode(String name) {
+        return createdNodes.get(name);
+    }
+
+    /**
+     * Find a node created by this batch with the given type and properties, matched the same way as Graph.getNode.  A
+     * property value of null or * matches any value.
+     *
+     * @return a node created by this batch that matches, or null if there is none.
+     */
+    public Node getCreatedNode(NodeType type, Map<String, String> properties) {
+        for (Node node : createdNodes.values()) {
+            if (type != null && node.getType() != type) {
+                continue;
+            }
+
+            boolean matches = true;
+            if (properties != null) {
+                for (Map.Entry<String, String> entry : properties.entrySet()) {
+                    String value = entry.getValue();
+                    if (value != null && !value.equals("*") && !value.equals(node.getProperties().get(entry.getKey()))) {
+                        matches = false;
+                        break;
+                    }
+                }
+            }
+
+            if (matches) {
+                return node;
+            }
+        }
+
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return mutations.isEmpty();
+    }
+
+    public int size() {
+        return mutations.size();
+    }
+
+    /**
+     * Check that each change refers to nodes and obligations that exist when it is applied and does not create a node
+     * that already exists.
+     *
+     * @throws PMException if a change is not valid.
+     */
+    void validate(PAP pap) throws PMException {
+        Validation validation = new Validation(pap.getGraphPAP());
+        for (Mutation mutation : mutations) {
+            mutation.validate(pap, validation);
+        }
+    }
+
+    /**
+     * Apply the changes in order.  If a change fails, the changes already applied are undone in reverse order.  Every
+     * change is undone even if undoing another one fails, the failures are suppressed by the thrown exception.
+     *
+     * @throws PMException if a change fails, caused by the exception of the change.
+     */
+    void apply(PAP pap) throws PMException {
+        Deque<Undo> undos = new ArrayDeque<>();
+        for (Mutation mutation : mutations) {
+            try {
+                undos.push(mutation.apply(pap));
+            } catch (PMException | RuntimeException e) {
+                PMException ex = new PMException("the batch was not applied: " + e.getMessage());
+                ex.initCause(e);
+                rollback(pap, undos, ex);
+                throw ex;
+            }
+        }
+    }
+
+    private static void rollback(PAP pap, Deque<Undo> undos, PMException ex) {
+        while (!undos.isEmpty()) {
+            try {
+                undos.pop().undo(pap);
+            } catch (PMException | RuntimeException e) {
+                ex.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * The nodes that exist at each change of the batch.
+     */
+    private static class Validation {
+        private Graph       graph;
+        private Set<String> created = new HashSet<>();
+        private Set<String> deleted = new HashSet<>();
+
+        Validation(Graph graph) {
+            this.graph = graph;
+        }
+
+        boolean exists(String name) throws PMException {
+            return name != null && !deleted.contains(name) && (created.contains(name) || graph.exists(name));
+        }
+
+        void checkExists(String name) throws PMException {
+            if (!exists(name)) {
+                throw new PMException(String.format("node %s does not exist", name));
+            }
+        }
+
+        void created(String name) {
+            created.add(name);
+            deleted.remove(name);
+        }
+
+        void deleted(String name) {
+            deleted.add(name);
+            created.remove(name);
+        }
+    }
+
+    private interface Undo {
+        void undo(PAP pap) throws PMException;
+    }
+
+    private interface Mutation {
+        void validate(PAP pap, Validation validation) throws PMException;
+
+        /**
+         * @return how to undo the change.
+         */
+        Undo apply(PAP pap) throws PMException;
+    }
+
+    private static class CreateNode implements Mutation {
+        private Node   node;
+        private String parent;
+
+        CreateNode(Node node, String parent) {
+            this.node = node;
+            this.parent = parent;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) throws PMException {
+            if (node.getName() == null) {
+                throw new PMException("no name was provided when creating a node");
+            } else if (node.getType() == null) {
+                throw new PMException("no type was provided when creating node " + node.getName());
+            } else if (validation.exists(node.getName())) {
+                throw new PMException(String.format("a node with the name %s already exists", node.getName()));
+            }
+
+            if (node.getType() != PC) {
+                validation.checkExists(parent);
+            }
+            validation.created(node.getName());
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            Graph graph = pap.getGraphPAP();
+            if (node.getType() == PC) {
+                graph.createPolicyClass(node.getName(), node.getProperties());
+            } else {
+                try {
+                    graph.createNode(node.getName(), node.getType(), node.getProperties(), parent);
+                } catch (PMException | RuntimeException e) {
+                    // the node may have been added before its assignment to the parent failed
+                    graph.deleteNode(node.getName());
+                    throw e;
+                }
+            }
+            return p -> p.getGraphPAP().deleteNode(node.getName());
+        }
+    }
+
+    private static class DeleteNode implements Mutation {
+        private String name;
+
+        DeleteNode(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) {
+            validation.deleted(name);
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            Graph graph = pap.getGraphPAP();
+            if (!graph.exists(name)) {
+                graph.deleteNode(name);
+                return p -> {};
+            }
+
+            // keep the node and its relations so it can be restored
+            Node node = graph.getNode(name);
+            List<String> parents = new ArrayList<>(graph.getParents(name));
+            if (node.getType() != PC && parents.isEmpty()) {
+                // a node other than a policy class cannot be created without a parent, so it could not be restored
+                throw new PMException(String.format("node %s cannot be deleted in a batch because it has no parents", name));
+            }
+            List<String> children = new ArrayList<>(graph.getChildren(name));
+            Map<String, OperationSet> sourceAssocs = new HashMap<>(graph.getSourceAssociations(name));
+            Map<String, OperationSet> targetAssocs = new HashMap<>(graph.getTargetAssociations(name));
+
+            graph.deleteNode(name);
+
+            return p -> {
+                Graph g = p.getGraphPAP();
+                if (node.getType() == PC) {
+                    g.createPolicyClass(name, node.getProperties());
+                } else {
+                    g.createNode(name, node.getType(), node.getProperties(), parents.get(0),
+                            parents.subList(1, parents.size()).toArray(new String[0]));
+                }
+
+                for (String child : children) {
+                    g.assign(child, name);
+                }
+                for (Map.Entry<String, OperationSet> entry : sourceAssocs.entrySet()) {
+                    g.associate(name, entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<String, OperationSet> entry : targetAssocs.entrySet()) {
+                    g.associate(entry.getKey(), name, entry.getValue());
+                }
+            };
+        }
+    }
+
+    private static class Assign implements Mutation {
+        private String child;
+        private String parent;
+
+        Assign(String child, String parent) {
+            this.child = child;
+            this.parent = parent;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) throws PMException {
+            validation.checkExists(child);
+            validation.checkExists(parent);
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            pap.getGraphPAP().assign(child, parent);
+            return p -> p.getGraphPAP().deassign(child, parent);
+        }
+    }
+
+    private static class Deassign implements Mutation {
+        private String child;
+        private String parent;
+
+        Deassign(String child, String parent) {
+            this.child = child;
+            this.parent = parent;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) {
+            // removing a relation that does not exist has no effect
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            Graph graph = pap.getGraphPAP();
+            boolean assigned = graph.isAssigned(child, parent);
+            graph.deassign(child, parent);
+            return p -> {
+                if (assigned) {
+                    p.getGraphPAP().assign(child, parent);
+                }
+            };
+        }
+    }
+
+    private static class Associate implements Mutation {
+        private String       ua;
+        private String       target;
+        private OperationSet operations;
+
+        Associate(String ua, String target, OperationSet operations) {
+            this.ua = ua;
+            this.target = target;
+            this.operations = operations;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) throws PMException {
+            validation.checkExists(ua);
+            validation.checkExists(target);
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            Graph graph = pap.getGraphPAP();
+            OperationSet previous = graph.getSourceAssociations(ua).get(target);
+            OperationSet restore = previous == null ? null : new OperationSet(previous);
+            graph.associate(ua, target, operations);
+            return p -> {
+                if (restore == null) {
+                    p.getGraphPAP().dissociate(ua, target);
+                } else {
+                    p.getGraphPAP().associate(ua, target, restore);
+                }
+            };
+        }
+    }
+
+    private static class Dissociate implements Mutation {
+        private String ua;
+        private String target;
+
+        Dissociate(String ua, String target) {
+            this.ua = ua;
+            this.target = target;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) {
+            // removing a relation that does not exist has no effect
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            Graph graph = pap.getGraphPAP();
+            OperationSet previous = graph.getSourceAssociations(ua).get(target);
+            OperationSet restore = previous == null ? null : new OperationSet(previous);
+            graph.dissociate(ua, target);
+            return p -> {
+                if (restore != null) {
+                    p.getGraphPAP().associate(ua, target, restore);
+                }
+            };
+        }
+    }
+
+    /**
+     * @return every prohibition with the given name.  A prohibition store can have more than one prohibition with the same
+     * name, and deleting the name deletes all of them.
+     */
+    private static List<Prohibition> getProhibitions(PAP pap, String name) throws PMException {
+        List<Prohibition> prohibitions = new ArrayList<>();
+        for (Prohibition prohibition : pap.getProhibitionsPAP().getAll()) {
+            if (prohibition.getName().equals(name)) {
+                prohibitions.add(prohibition);
+            }
+        }
+        return prohibitions;
+    }
+
+    private static class AddProhibition implements Mutation {
+        private Prohibition prohibition;
+
+        AddProhibition(Prohibition prohibition) {
+            this.prohibition = prohibition;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) throws PMException {
+            if (prohibition == null || prohibition.getName() == null || prohibition.getName().isEmpty()) {
+                throw new PMException("a null or empty name was provided when creating a prohibition");
+            } else if (prohibition.getSubject() == null) {
+                throw new PMException("a null subject was provided when creating prohibition " + prohibition.getName());
+            }
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            // prohibitions are deleted by name, so the prohibitions that already have the name are restored after
+            // deleting the added prohibition
+            List<Prohibition> previous = getProhibitions(pap, prohibition.getName());
+            pap.getProhibitionsPAP().add(prohibition);
+            return p -> {
+                p.getProhibitionsPAP().delete(prohibition.getName());
+                for (Prohibition restore : previous) {
+                    p.getProhibitionsPAP().add(restore);
+                }
+            };
+        }
+    }
+
+    private static class DeleteProhibition implements Mutation {
+        private String name;
+
+        DeleteProhibition(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) {
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            List<Prohibition> previous = getProhibitions(pap, name);
+            pap.getProhibitionsPAP().delete(name);
+            return p -> {
+                for (Prohibition restore : previous) {
+                    p.getProhibitionsPAP().add(restore);
+                }
+            };
+        }
+    }
+
+    private static class AddRule implements Mutation {
+        private String obligationLabel;
+        private Rule   rule;
+
+        AddRule(String obligationLabel, Rule rule) {
+            this.obligationLabel = obligationLabel;
+            this.rule = rule;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) throws PMException {
+            if (pap.getObligationsPAP().get(obligationLabel) == null) {
+                throw new PMException(String.format("obligation %s does not exist", obligationLabel));
+            }
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            // the rules are copied so the list is not changed while another thread reads it
+            Obligation obligation = pap.getObligationsPAP().get(obligationLabel);
+            List<Rule> previous = obligation.getRules();
+            List<Rule> rules = new ArrayList<>(previous);
+            rules.add(rule);
+            obligation.setRules(rules);
+
+            // update the obligation so the new rule is indexed
+            pap.getObligationsPAP().update(obligationLabel, obligation);
+
+            return p -> {
+                obligation.setRules(previous);
+                p.getObligationsPAP().update(obligationLabel, obligation);
+            };
+        }
+    }
+
+    private static class DeleteRule implements Mutation {
+        private String ruleLabel;
+
+        DeleteRule(String ruleLabel) {
+            this.ruleLabel = ruleLabel;
+        }
+
+        @Override
+        public void validate(PAP pap, Validation validation) {
+            // deleting a rule that does not exist has no effect
+        }
+
+        @Override
+        public Undo apply(PAP pap) throws PMException {
+            Map<Obligation, List<Rule>> previous = new HashMap<>();
+            for (Obligation obligation : pap.getObligationsPAP().getObligationsWithRule(ruleLabel)) {
+                List<Rule> rules = new ArrayList<>(obligation.getRules());
+                rules.removeIf(rule -> ruleLabel.equals(rule.getLabel()));
+
+                previous.put(obligation, obligation.getRules());
+                obligation.setRules(rules);
+                pap.getObligationsPAP().update(obligation.getLabel(), obligation);
+            }
+
+            return p -> {
+                for (Map.Entry<Obligation, List<Rule>> entry : previous.entrySet()) {
+                    entry.getKey().setRules(entry.getValue());
+                    p.getObligationsPAP().update(entry.getKey().getLabel(), entry.getKey());
+                }
+            };
+        }
+    }
+}
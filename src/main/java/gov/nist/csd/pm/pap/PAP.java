@@ -1,15 +1,22 @@
 package gov.nist.csd.pm.pap;
 
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.Versioned;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.obligations.Obligations;
 import gov.nist.csd.pm.pip.prohibitions.Prohibitions;
 
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 public class PAP {
 
     private Graph        graphPAP;
     private Prohibitions prohibitionsPAP;
     private Obligations  obligationsPAP;
+    // added to the versions of the stores so the policy version keeps increasing when a store is replaced
+    private long         versionOffset;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public PAP(Graph graphPAP, Prohibitions prohibitionsPAP, Obligations obligationsPAP) throws PMException {
         this.graphPAP = graphPAP;
@@ -22,7 +29,9 @@ public class PAP {
     }
 
     public void setGraphPAP(Graph graphPAP) {
+        long before = getPolicyVersion();
         this.graphPAP = graphPAP;
+        replaced(before);
     }
 
     public Prohibitions getProhibitionsPAP() {
@@ -30,7 +39,9 @@ public class PAP {
     }
 
     public void setProhibitionsPAP(Prohibitions prohibitionsPAP) {
+        long before = getPolicyVersion();
         this.prohibitionsPAP = prohibitionsPAP;
+        replaced(before);
     }
 
     public Obligations getObligationsPAP() {
@@ -38,6 +49,66 @@ public class PAP {
     }
 
     public void setObligationsPAP(Obligations obligationsPAP) {
+        long before = getPolicyVersion();
         this.obligationsPAP = obligationsPAP;
+        replaced(before);
+    }
+
+    /**
+     * The version of the policy, which increases every time the graph, prohibitions or obligations are changed or
+     * replaced.  The version can only be tracked if each of them is Versioned, like the in-memory implementations.
+     *
+     * @return the version of the policy, or -1 if any of the graph, prohibitions or obligations is not Versioned.
+     */
+    public long getPolicyVersion() {
+        if (!(graphPAP instanceof Versioned) || !(prohibitionsPAP instanceof Versioned)
+                || !(obligationsPAP instanceof Versioned)) {
+            return -1;
+        }
+
+        return versionOffset + ((Versioned) graphPAP).getVersion() + ((Versioned) prohibitionsPAP).getVersion()
+                + ((Versioned) obligationsPAP).getVersion();
+    }
+
+    private void replaced(long before) {
+        long after = getPolicyVersion();
+        if (before >= 0 && after >= 0) {
+            versionOffset += before + 1 - after;
+        }
+    }
+
+    /**
+     * The lock guarding the graph, prohibitions and obligations of this PAP.  The in-memory stores do not support
+     * concurrent access, so the services of the PDP hold the read lock while they read the policy and the write lock
+     * while they change it, and the EPP holds the write lock while it processes an event.  Code that uses the stores or
+     * the decider of the PDP directly while other threads use the PDP must hold the lock as well.  The lock is
+     * reentrant, and the write lock can be held while acquiring the read lock but not the other way around.
+     *
+     * @return the read/write lock of the policy.
+     */
+    public ReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * Apply the changes of the given batch to the graph, prohibitions, and obligations.  The batch is validated before
+     * any change is applied.  If a change fails, the changes of the batch that were already applied are undone, so
+     * either every change is applied or none are.  Batches are applied one at a time, holding the write lock.
+     *
+     * @param batch the changes to apply.
+     * @throws PMException if the batch is not valid or a change fails.
+     */
+    public void apply(Batch batch) throws PMException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            batch.validate(this);
+            batch.apply(this);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 }
@@ -0,0 +1,302 @@
+package gov.nist.csd.pm.pap;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.GraphSerializer;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+import gov.nist.csd.pm.pip.obligations.model.*;
+import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
+
+import java.util.*;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+
+/**
+ * Generates synthetic NGAC policies for load testing.  The same options and seed always generate the same policy.
+ *
+ * Each policy class pc{p} has a hierarchy of user attributes pc{p}_ua{i} and a hierarchy of object attributes
+ * pc{p}_oa{i}, each with the given depth and branching.  The users u{i} and objects o{i} are assigned to a random leaf
+ * attribute of every policy class.  Each user attribute is associated with a random object attribute of its policy class
+ * with the probability given by the association density.  Each user is the subject of a prohibition on a random object
+ * attribute with the probability given by the prohibition density.  Each obligation has one rule that matches assign to
+ * events on a random object attribute and has no actions.
+ */
+public class PolicyGenerator {
+
+    private static final OperationSet[] OPERATIONS = {
+            new OperationSet("read"),
+            new OperationSet("write"),
+            new OperationSet("read", "write")
+    };
+
+    private long   seed;
+    private int    users;
+    private int    objects;
+    private int    policyClasses;
+    private int    depth;
+    private int    branching;
+    private double associationDensity;
+    private double prohibitionDensity;
+    private int    obligations;
+
+    private PolicyGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.users = builder.users;
+        this.objects = builder.objects;
+        this.policyClasses = builder.policyClasses;
+        this.depth = builder.depth;
+        this.branching = builder.branching;
+        this.associationDensity = builder.associationDensity;
+        this.prohibitionDensity = builder.prohibitionDensity;
+        this.obligations = builder.obligations;
+    }
+
+    /**
+     * Generate the graph of the policy in the given graph.
+     *
+     * @param graph the graph to create the nodes and relations in, which should not contain any of the generated nodes.
+     * @throws PMException if there is an error creating the nodes and relations.
+     */
+    public void generate(Graph graph) throws PMException {
+        generate(graph, new Random(seed));
+    }
+
+    /**
+     * Generate the graph, prohibitions and obligations of the policy in the given PAP.
+     *
+     * @param pap the PAP to generate the policy in.
+     * @throws PMException if there is an error creating the policy.
+     */
+    public void generate(PAP pap) throws PMException {
+        Random random = new Random(seed);
+        Hierarchies hierarchies = generate(pap.getGraphPAP(), random);
+
+        for (int i = 0; i < users; i++) {
+            if (random.nextDouble() < prohibitionDensity) {
+                String container = pick(random, pick(random, hierarchies.oas));
+                pap.getProhibitionsPAP().add(new Prohibition.Builder("deny_u" + i, "u" + i, new OperationSet("write"))
+                        .addContainer(container, false)
+                        .build());
+            }
+        }
+
+        for (int i = 0; i < obligations; i++) {
+            String container = pick(random, pick(random, hierarchies.oas));
+            pap.getObligationsPAP().add(obligation(i, container), true);
+        }
+    }
+
+    /**
+     * @return the graph of the policy in the json format of GraphSerializer.toJson.
+     * @throws PMException if there is an error generating or serializing the graph.
+     */
+    public String toJson() throws PMException {
+        Graph graph = new MemGraph();
+        generate(graph);
+        return GraphSerializer.toJson(graph);
+    }
+
+    /**
+     * @return the graph of the policy in the format of GraphSerializer.serialize.
+     * @throws PMException if there is an error generating or serializing the graph.
+     */
+    public String serialize() throws PMException {
+        Graph graph = new MemGraph();
+        generate(graph);
+        return GraphSerializer.serialize(graph);
+    }
+
+    private Hierarchies generate(Graph graph, Random random) throws PMException {
+        Hierarchies hierarchies = new Hierarchies();
+        for (int p = 0; p < policyClasses; p++) {
+            String pc = "pc" + p;
+            graph.createPolicyClass(pc, null);
+
+            List<String> uas = hierarchy(graph, pc, UA);
+            List<String> oas = hierarchy(graph, pc, OA);
+            for (String ua : uas) {
+                if (random.nextDouble() < associationDensity) {
+                    graph.associate(ua, pick(random, oas), OPERATIONS[random.nextInt(OPERATIONS.length)]);
+                }
+            }
+
+            hierarchies.uas.add(uas);
+            hierarchies.oas.add(oas);
+            hierarchies.uaLeaves.add(leaves(uas));
+            hierarchies.oaLeaves.add(leaves(oas));
+        }
+
+        for (int i = 0; i < users; i++) {
+            createLeaf(graph, random, "u" + i, U, hierarchies.uaLeaves);
+        }
+        for (int i = 0; i < objects; i++) {
+            createLeaf(graph, random, "o" + i, O, hierarchies.oaLeaves);
+        }
+
+        return hierarchies;
+    }
+
+    /**
+     * Create the attribute hierarchy of the given type under a policy class, level by level, so the leaves are the last
+     * attributes of the returned list.
+     */
+    private List<String> hierarchy(Graph graph, String pc, NodeType type) throws PMException {
+        String prefix = pc + "_" + type.toString().toLowerCase();
+        List<String> names = new ArrayList<>();
+        List<String> level = Collections.singletonList(pc);
+        for (int d = 0; d < depth; d++) {
+            List<String> next = new ArrayList<>();
+            for (String parent : level) {
+                // the top of the hierarchy is a single attribute assigned to the policy class
+                int children = d == 0 ? 1 : branching;
+                for (int c = 0; c < children; c++) {
+                    String name = prefix + (names.size() + next.size());
+                    graph.createNode(name, type, null, parent);
+                    next.add(name);
+                }
+            }
+            names.addAll(next);
+            level = next;
+        }
+
+        return names;
+    }
+
+    private List<String> leaves(List<String> hierarchy) {
+        int leaves = 1;
+        for (int d = 1; d < depth; d++) {
+            leaves *= branching;
+        }
+        return hierarchy.subList(hierarchy.size() - leaves, hierarchy.size());
+    }
+
+    private static void createLeaf(Graph graph, Random random, String name, NodeType type,
+                                   List<List<String>> leaves) throws PMException {
+        String[] additionalParents = new String[leaves.size() - 1];
+        for (int i = 1; i < leaves.size(); i++) {
+            additionalParents[i - 1] = pick(random, leaves.get(i));
+        }
+
+        graph.createNode(name, type, null, pick(random, leaves.get(0)), additionalParents);
+    }
+
+    private static Obligation obligation(int i, String container) {
+        Target target = new Target();
+        target.setContainers(Collections.singletonList(new EvrNode(container, OA.toString(), new HashMap<>())));
+
+        Rule rule = new Rule();
+        rule.setLabel("rule" + i);
+        rule.getEventPattern().setOperations(Collections.singletonList("assign to"));
+        rule.getEventPattern().setTarget(target);
+
+        Obligation obligation = new Obligation();
+        obligation.setLabel("obligation" + i);
+        obligation.setRules(new ArrayList<>(Collections.singletonList(rule)));
+        return obligation;
+    }
+
+    private static <T> T pick(Random random, List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private static class Hierarchies {
+        List<List<String>> uas      = new ArrayList<>();
+        List<List<String>> oas      = new ArrayList<>();
+        List<List<String>> uaLeaves = new ArrayList<>();
+        List<List<String>> oaLeaves = new ArrayList<>();
+    }
+
+    public static class Builder {
+
+        private long   seed;
+        private int    users;
+        private int    objects;
+        private int    policyClasses;
+        private int    depth;
+        private int    branching;
+        private double associationDensity;
+        private double prohibitionDensity;
+        private int    obligations;
+
+        /**
+         * @param seed the seed of the random choices of the generator.
+         */
+        public Builder(long seed) {
+            this.seed = seed;
+            this.users = 100;
+            this.objects = 100;
+            this.policyClasses = 1;
+            this.depth = 3;
+            this.branching = 4;
+            this.associationDensity = 1;
+            this.prohibitionDensity = 0;
+            this.obligations = 0;
+        }
+
+        public Builder setUsers(int users) {
+            this.users = users;
+            return this;
+        }
+
+        public Builder setObjects(int objects) {
+            this.objects = objects;
+            return this;
+        }
+
+        public Builder setPolicyClasses(int policyClasses) {
+            this.policyClasses = policyClasses;
+            return this;
+        }
+
+        /**
+         * @param depth the number of levels of the user and object attribute hierarchies of each policy class.
+         */
+        public Builder setDepth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * @param branching the number of children of each attribute that is not a leaf of its hierarchy.
+         */
+        public Builder setBranching(int branching) {
+            this.branching = branching;
+            return this;
+        }
+
+        /**
+         * @param associationDensity the probability that a user attribute is associated with an object attribute.
+         */
+        public Builder setAssociationDensity(double associationDensity) {
+            this.associationDensity = associationDensity;
+            return this;
+        }
+
+        /**
+         * @param prohibitionDensity the probability that a user is the subject of a prohibition.
+         */
+        public Builder setProhibitionDensity(double prohibitionDensity) {
+            this.prohibitionDensity = prohibitionDensity;
+            return this;
+        }
+
+        public Builder setObligations(int obligations) {
+            this.obligations = obligations;
+            return this;
+        }
+
+        public PolicyGenerator build() {
+            if (users < 0 || objects < 0 || obligations < 0) {
+                throw new IllegalArgumentException("the number of users, objects and obligations cannot be negative");
+            } else if (policyClasses <= 0 || depth <= 0 || branching <= 0) {
+                throw new IllegalArgumentException("the number of policy classes, depth and branching must be greater than 0");
+            } else if (associationDensity < 0 || associationDensity > 1 || prohibitionDensity < 0 || prohibitionDensity > 1) {
+                throw new IllegalArgumentException("densities must be between 0 and 1");
+            }
+
+            return new PolicyGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package gov.nist.csd.pm.pdp;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.metrics.Metrics;
+import gov.nist.csd.pm.metrics.Timer;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.Page;
+import gov.nist.csd.pm.pip.graph.dag.visitor.AssociationVisitor;
+import gov.nist.csd.pm.pip.graph.dag.visitor.NameVisitor;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A Graph that reports the duration of each call to a GraphService to the timer graph_service.{operation}, and each
+ * call that throws an exception to the counter graph_service.{operation}.errors.  The duration of a call that returns a
+ * stream does not include consuming the stream.
+ */
+class MeteredGraph implements Graph {
+
+    private Metrics metrics;
+    private Graph   graph;
+
+    MeteredGraph(Metrics metrics, Graph graph) {
+        this.metrics = metrics;
+        this.graph = graph;
+    }
+
+    private <T> T time(String name, Call<T> call) throws PMException {
+        Timer timer = metrics.timer(name);
+        long start = timer.start();
+        try {
+            T result = call.call();
+            timer.stop(start);
+            return result;
+        } catch (PMException | RuntimeException e) {
+            metrics.counter(name + ".errors").increment();
+            throw e;
+        }
+    }
+
+    private void run(String name, Runnable call) throws PMException {
+        time(name, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private interface Call<T> {
+        T call() throws PMException;
+    }
+
+    private interface Runnable {
+        void run() throws PMException;
+    }
+
+    @Override
+    public Node createPolicyClass(String name, Map<String, String> properties) throws PMException {
+        return time("graph_service.create_policy_class", () -> graph.createPolicyClass(name, properties));
+    }
+
+    @Override
+    public Node createNode(String name, NodeType type, Map<String, String> properties, String initialParent,
+                           String... additionalParents) throws PMException {
+        return time("graph_service.create_node",
+                () -> graph.createNode(name, type, properties, initialParent, additionalParents));
+    }
+
+    @Override
+    public void updateNode(String name, Map<String, String> properties) throws PMException {
+        run("graph_service.update_node", () -> graph.updateNode(name, properties));
+    }
+
+    @Override
+    public void deleteNode(String name) throws PMException {
+        run("graph_service.delete_node", () -> graph.deleteNode(name));
+    }
+
+    @Override
+    public void assign(String child, String parent) throws PMException {
+        run("graph_service.assign", () -> graph.assign(child, parent));
+    }
+
+    @Override
+    public void deassign(String child, String parent) throws PMException {
+        run("graph_service.deassign", () -> graph.deassign(child, parent));
+    }
+
+    @Override
+    public void associate(String ua, String target, OperationSet operations) throws PMException {
+        run("graph_service.associate", () -> graph.associate(ua, target, operations));
+    }
+
+    @Override
+    public void dissociate(String ua, String target) throws PMException {
+        run("graph_service.dissociate", () -> graph.dissociate(ua, target));
+    }
+
+    @Override
+    public boolean exists(String name) throws PMException {
+        return time("graph_service.exists", () -> graph.exists(name));
+    }
+
+    @Override
+    public Set<String> getPolicyClasses() throws PMException {
+        return time("graph_service.get_policy_classes", graph::getPolicyClasses);
+    }
+
+    @Override
+    public Set<Node> getNodes() throws PMException {
+        return time("graph_service.get_nodes", graph::getNodes);
+    }
+
+    @Override
+    public Page<Node> getNodes(String token, int pageSize) throws PMException {
+        return time("graph_service.get_nodes", () -> graph.getNodes(token, pageSize));
+    }
+
+    @Override
+    public Stream<Node> streamNodes() throws PMException {
+        return time("graph_service.stream_nodes", graph::streamNodes);
+    }
+
+    @Override
+    public Node getNode(String name) throws PMException {
+        return time("graph_service.get_node", () -> graph.getNode(name));
+    }
+
+    @Override
+    public Node getNode(NodeType type, Map<String, String> properties) throws PMException {
+        return time("graph_service.get_node", () -> graph.getNode(type, properties));
+    }
+
+    @Override
+    public Set<Node> search(NodeType type, Map<String, String> properties) throws PMException {
+        return time("graph_service.search", () -> graph.search(type, properties));
+    }
+
+    @Override
+    public Page<Node> search(NodeType type, Map<String, String> properties, String token, int pageSize) throws PMException {
+        return time("graph_service.search", () -> graph.search(type, properties, token, pageSize));
+    }
+
+    @Override
+    public Stream<Node> streamSearch(NodeType type, Map<String, String> properties) throws PMException {
+        return time("graph_service.stream_search", () -> graph.streamSearch(type, properties));
+    }
+
+    @Override
+    public Set<String> getChildren(String name) throws PMException {
+        return time("graph_service.get_children", () -> graph.getChildren(name));
+    }
+
+    @Override
+    public Page<String> getChildren(String name, String token, int pageSize) throws PMException {
+        return time("graph_service.get_children", () -> graph.getChildren(name, token, pageSize));
+    }
+
+    @Override
+    public Stream<String> streamChildren(String name) throws PMException {
+        return time("graph_service.stream_children", () -> graph.streamChildren(name));
+    }
+
+    @Override
+    public Set<String> getParents(String name) throws PMException {
+        return time("graph_service.get_parents", () -> graph.getParents(name));
+    }
+
+    @Override
+    public void forEachChild(String name, NameVisitor visitor) throws PMException {
+        run("graph_service.for_each_child", () -> graph.forEachChild(name, visitor));
+    }
+
+    @Override
+    public void forEachParent(String name, NameVisitor visitor) throws PMException {
+        run("graph_service.for_each_parent", () -> graph.forEachParent(name, visitor));
+    }
+
+    @Override
+    public boolean isAssigned(String child, String parent) throws PMException {
+        return time("graph_service.is_assigned", () -> graph.isAssigned(child, parent));
+    }
+
+    @Override
+    public Map<String, OperationSet> getSourceAssociations(String source) throws PMException {
+        return time("graph_service.get_source_associations", () -> graph.getSourceAssociations(source));
+    }
+
+    @Override
+    public Map<String, OperationSet> getTargetAssociations(String target) throws PMException {
+        return time("graph_service.get_target_associations", () -> graph.getTargetAssociations(target));
+    }
+
+    @Override
+    public void forEachSourceAssociation(String source, AssociationVisitor visitor) throws PMException {
+        run("graph_service.for_each_source_association", () -> graph.forEachSourceAssociation(source, visitor));
+    }
+
+    @Override
+    public void forEachTargetAssociation(String target, AssociationVisitor visitor) throws PMException {
+        run("graph_service.for_each_target_association", () -> graph.forEachTargetAssociation(target, visitor));
+    }
+}
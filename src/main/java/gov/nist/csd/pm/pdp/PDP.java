@@ -4,7 +4,10 @@ import gov.nist.csd.pm.epp.EPP;
 import gov.nist.csd.pm.epp.EPPOptions;
 import gov.nist.csd.pm.epp.functions.FunctionExecutor;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.metrics.Metrics;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
 import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
 import gov.nist.csd.pm.pdp.policy.SuperPolicy;
 import gov.nist.csd.pm.pdp.services.*;
 import gov.nist.csd.pm.pip.graph.Graph;
@@ -16,11 +19,8 @@ public class PDP {
 
     private EPP epp;
     private PAP pap;
-
-    private GraphService graphService;
-    private ProhibitionsService prohibitionsService;
-    private AnalyticsService    analyticsService;
-    private ObligationsService obligationsService;
+    private SuperPolicy superPolicy;
+    private PReviewDecider decider;
 
     /**
      * Create a new PDP instance given a Policy Administration Point and an optional set of FunctionExecutors to be
@@ -34,14 +34,12 @@ public class PDP {
 
         this.epp = new EPP(this, eppOptions);
 
-        // initialize services
-        this.graphService = new GraphService(this.pap, this.epp);
         // configure the super policy
-        SuperPolicy superPolicy = this.graphService.configureSuperPolicy();
+        this.superPolicy = new SuperPolicy();
+        this.superPolicy.configure(this.pap.getGraphPAP());
 
-        this.prohibitionsService = new ProhibitionsService(this.pap, this.epp, superPolicy);
-        this.analyticsService = new AnalyticsService(this.pap, this.epp);
-        this.obligationsService = new ObligationsService(this.pap, this.epp, superPolicy);
+        // the decider is shared by every service this PDP hands out
+        this.decider = new PReviewDecider(this.pap.getGraphPAP(), this.pap.getProhibitionsPAP());
     }
 
     public EPP getEPP() {
@@ -52,23 +50,37 @@ public class PDP {
         return pap;
     }
 
+    public PReviewDecider getDecider() {
+        return decider;
+    }
+
+    public SuperPolicy getSuperPolicy() {
+        return superPolicy;
+    }
+
+    /**
+     * Get a GraphService bound to the given user context.  Each call returns a new, lightweight service that shares the
+     * PAP and EPP of this PDP, so services handed out to concurrent requests do not see each other's user context.
+     * If the metrics set in MetricsRegistry are enabled, the service reports the duration of each call to them.
+     * @param userCtx the user and process making the request.
+     * @return a Graph that checks the user's permissions before accessing the PAP.
+     */
     public Graph getGraphService(UserContext userCtx) {
-        graphService.setUserCtx(userCtx);
-        return graphService;
+        Graph graphService = new GraphService(pap, epp, decider, superPolicy, userCtx);
+
+        Metrics metrics = MetricsRegistry.getMetrics();
+        return metrics.isEnabled() ? new MeteredGraph(metrics, graphService) : graphService;
     }
 
     public Prohibitions getProhibitionsService(UserContext userCtx) {
-        prohibitionsService.setUserCtx(userCtx);
-        return prohibitionsService;
+        return new ProhibitionsService(pap, epp, decider, superPolicy, userCtx);
     }
 
     public AnalyticsService getAnalyticsService(UserContext userCtx) {
-        analyticsService.setUserCtx(userCtx);
-        return analyticsService;
+        return new AnalyticsService(pap, epp, decider, userCtx);
     }
 
     public Obligations getObligationsService(UserContext userCtx) {
-        obligationsService.setUserCtx(userCtx);
-        return obligationsService;
+        return new ObligationsService(pap, epp, decider, superPolicy, userCtx);
     }
 }
\ No newline at end of file
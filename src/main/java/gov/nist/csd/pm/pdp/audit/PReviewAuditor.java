@@ -1,5 +1,7 @@
 package gov.nist.csd.pm.pdp.audit;
 
+import gov.nist.csd.pm.jfr.ExplainEvent;
+import gov.nist.csd.pm.jfr.FlightRecorderEvents;
 import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pdp.audit.model.Explain;
 import gov.nist.csd.pm.pdp.audit.model.Path;
@@ -28,6 +30,9 @@ public class PReviewAuditor implements Auditor {
 
     @Override
     public Explain explain(String userID, String target) throws PMException {
+        // recorded by flight recordings that enable ExplainEvent if it takes longer than the event's threshold
+        ExplainEvent event = FlightRecorderEvents.explain();
+
         Node userNode = graph.getNode(userID);
         Node targetNode = graph.getNode(target);
 
@@ -37,6 +42,10 @@ public class PReviewAuditor implements Auditor {
         Map<String, PolicyClass> resolvedPaths = resolvePaths(userPaths, targetPaths, target);
         Set<String> perms = resolvePermissions(resolvedPaths);
 
+        if (event != null) {
+            event.end(userID, target, userPaths.size() + targetPaths.size(), perms.size());
+        }
+
         return new Explain(perms, resolvedPaths);
     }
 
@@ -205,7 +214,7 @@ public class PReviewAuditor implements Auditor {
         Visitor visitor = node -> {
             List<EdgePath> nodePaths = new ArrayList<>();
 
-            for(String parent : graph.getParents(node.getName())) {
+            graph.forEachParent(node.getName(), parent -> {
                 EdgePath.Edge edge = new EdgePath.Edge(node, graph.getNode(parent), null);
                 List<EdgePath> parentPaths = propPaths.get(parent);
                 if(parentPaths.isEmpty()) {
@@ -223,16 +232,15 @@ public class PReviewAuditor implements Auditor {
                         nodePaths.add(parentPath);
                     }
                 }
-            }
+            });
 
-            Map<String, OperationSet> assocs = graph.getSourceAssociations(node.getName());
-            for(String target : assocs.keySet()) {
-                Set<String> ops = assocs.get(target);
+            graph.forEachSourceAssociation(node.getName(), (target, ops) -> {
                 Node targetNode = graph.getNode(target);
                 EdgePath path = new EdgePath();
-                path.addEdge(new EdgePath.Edge(node, targetNode, ops));
+                // the edge is part of the returned explanation so it gets its own copy of the operations
+                path.addEdge(new EdgePath.Edge(node, targetNode, new OperationSet(ops)));
                 nodePaths.add(path);
-            }
+            });
 
             // if the node being visited is the start node, add all the found nodePaths
             // TODO there might be a more efficient way of doing this
@@ -0,0 +1,69 @@
+package gov.nist.csd.pm.pdp.decider;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The asynchronous variant of the Decider interface.  Each method returns immediately with a CompletableFuture that is
+ * completed with the result of the decision, or completed exceptionally with the PMException the decision threw.
+ */
+public interface AsyncDecider {
+
+    /**
+     * @see Decider#check(String, String, String, String...)
+     */
+    CompletableFuture<Boolean> check(String subject, String process, String target, String... perms);
+
+    /**
+     * @see Decider#list(String, String, String)
+     */
+    CompletableFuture<Set<String>> list(String subject, String process, String target);
+
+    /**
+     * The given set of nodes is not modified, the future is completed with a new set.
+     *
+     * @see Decider#filter(String, String, Set, String...)
+     */
+    CompletableFuture<Set<String>> filter(String subject, String process, Set<String> nodes, String... perms);
+
+    /**
+     * @see Decider#getChildren(String, String, String, String...)
+     */
+    CompletableFuture<Set<String>> getChildren(String subject, String process, String target, String... perms);
+
+    /**
+     * @see Decider#getCapabilityList(String, String)
+     */
+    CompletableFuture<Map<String, Set<String>>> getCapabilityList(String subject, String process);
+
+    /**
+     * @see Decider#generateACL(String, String)
+     */
+    CompletableFuture<Map<String, Set<String>>> generateACL(String target, String process);
+
+    /**
+     * Check if the subject has the permissions on each of the given targets.  The checks are made in parallel.
+     *
+     * @param subject the name of the subject.
+     * @param process the name of the process if applicable.
+     * @param targets the names of the target nodes.
+     * @param perms the permissions to check for.
+     * @return a future of a map of each target to the result of its check, completed exceptionally if any check fails.
+     */
+    default CompletableFuture<Map<String, Boolean>> checkAll(String subject, String process, Collection<String> targets,
+                                                             String... perms) {
+        Map<String, CompletableFuture<Boolean>> checks = new LinkedHashMap<>();
+        for (String target : targets) {
+            checks.put(target, check(subject, process, target, perms));
+        }
+
+        return CompletableFuture.allOf(checks.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    Map<String, Boolean> results = new LinkedHashMap<>();
+                    for (Map.Entry<String, CompletableFuture<Boolean>> e : checks.entrySet()) {
+                        results.put(e.getKey(), e.getValue().join());
+                    }
+                    return results;
+                });
+    }
+}
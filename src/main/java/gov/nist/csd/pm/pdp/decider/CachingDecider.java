@@ -0,0 +1,254 @@
+package gov.nist.csd.pm.pdp.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A Decider that caches the permissions of a subject and process on a target, so repeated check and list calls with the
+ * same subject, process and target are answered without traversing the graph.  Every cached decision is tagged with the
+ * version of the policy it was made at, and is only used while the policy is at that version, so a change to the graph,
+ * prohibitions or obligations invalidates every cached decision.  The other methods of the Decider are not cached.
+ *
+ * The cache holds the most recently used decisions up to a maximum size, and decisions can expire after a time to live.
+ * Decisions that give the subject no permissions are cached unless negative caching is disabled.  Calls that throw an
+ * exception, for example because the target does not exist, are never cached.  If the version is negative, for example
+ * because the PAP has a store that is not Versioned, nothing is cached.
+ *
+ * Hits and misses are reported to the counters decider.cache.hits and decider.cache.misses of the metrics set in
+ * MetricsRegistry.
+ * <pre>
+ * Decider decider = new CachingDecider.Builder(pdp.getDecider(), pdp.getPAP()::getPolicyVersion)
+ *         .setMaximumSize(10_000)
+ *         .setTtl(5, TimeUnit.MINUTES)
+ *         .build();
+ * </pre>
+ */
+public class CachingDecider implements Decider {
+
+    private final Decider                  decider;
+    private final LongSupplier             version;
+    private final int                      maximumSize;
+    private final long                     ttlNanos;
+    private final boolean                  cacheNegative;
+    private final Map<Key, CachedDecision> decisions;
+    private final AtomicLong               hits;
+    private final AtomicLong               misses;
+
+    private CachingDecider(Builder builder) {
+        this.decider = builder.decider;
+        this.version = builder.version;
+        this.maximumSize = builder.maximumSize;
+        this.ttlNanos = builder.ttlNanos;
+        this.cacheNegative = builder.cacheNegative;
+        this.decisions = new LinkedHashMap<Key, CachedDecision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedDecision> eldest) {
+                return size() > CachingDecider.this.maximumSize;
+            }
+        };
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    @Override
+    public boolean check(String subject, String process, String target, String... perms) throws PMException {
+        return PReviewDecider.hasPermissions(decide(subject, process, target), Arrays.asList(perms));
+    }
+
+    @Override
+    public Set<String> list(String subject, String process, String target) throws PMException {
+        return new HashSet<>(decide(subject, process, target));
+    }
+
+    /**
+     * @return the cached permissions, which must not be modified.
+     */
+    private Set<String> decide(String subject, String process, String target) throws PMException {
+        long currentVersion = version.getAsLong();
+        if (currentVersion < 0) {
+            return decider.list(subject, process, target);
+        }
+
+        Key key = new Key(subject, process, target);
+        synchronized (decisions) {
+            CachedDecision decision = decisions.get(key);
+            if (decision != null) {
+                if (decision.version == currentVersion && (ttlNanos == 0 || System.nanoTime() < decision.expires)) {
+                    hits.incrementAndGet();
+                    MetricsRegistry.getMetrics().counter("decider.cache.hits").increment();
+                    return decision.permissions;
+                }
+
+                decisions.remove(key);
+            }
+        }
+
+        misses.incrementAndGet();
+        MetricsRegistry.getMetrics().counter("decider.cache.misses").increment();
+
+        // the decision is made at least at the version read before it, if the policy changed since, the decision is
+        // tagged with an old version and is not used
+        Set<String> permissions = Collections.unmodifiableSet(new HashSet<>(decider.list(subject, process, target)));
+        if (!permissions.isEmpty() || cacheNegative) {
+            CachedDecision decision = new CachedDecision(permissions, currentVersion, System.nanoTime() + ttlNanos);
+            synchronized (decisions) {
+                decisions.put(key, decision);
+            }
+        }
+
+        return permissions;
+    }
+
+    @Override
+    public Set<String> filter(String subject, String process, Set<String> nodes, String... perms) throws PMException {
+        return decider.filter(subject, process, nodes, perms);
+    }
+
+    @Override
+    public Set<String> getChildren(String subject, String process, String target, String... perms) throws PMException {
+        return decider.getChildren(subject, process, target, perms);
+    }
+
+    @Override
+    public Map<String, Set<String>> getCapabilityList(String subject, String process) throws PMException {
+        return decider.getCapabilityList(subject, process);
+    }
+
+    @Override
+    public Map<String, Set<String>> generateACL(String target, String process) throws PMException {
+        return decider.generateACL(target, process);
+    }
+
+    /**
+     * @return the number of cached decisions, including decisions of an old version that have not been removed yet.
+     */
+    public int size() {
+        synchronized (decisions) {
+            return decisions.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (decisions) {
+            decisions.clear();
+        }
+    }
+
+    /**
+     * @return the number of decisions that were found in the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of decisions that were not found in the cache, or had expired or were of an old version.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class CachedDecision {
+        Set<String> permissions;
+        long        version;
+        long        expires;
+
+        CachedDecision(Set<String> permissions, long version, long expires) {
+            this.permissions = permissions;
+            this.version = version;
+            this.expires = expires;
+        }
+    }
+
+    private static class Key {
+        String subject;
+        String process;
+        String target;
+
+        Key(String subject, String process, String target) {
+            this.subject = subject;
+            this.process = process;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return Objects.equals(subject, key.subject) &&
+                    Objects.equals(process, key.process) &&
+                    Objects.equals(target, key.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subject, process, target);
+        }
+    }
+
+    public static class Builder {
+
+        private Decider      decider;
+        private LongSupplier version;
+        private int          maximumSize;
+        private long         ttlNanos;
+        private boolean      cacheNegative;
+
+        /**
+         * @param decider the decider to make the decisions that are not cached.
+         * @param version the version of the policy the decider makes decisions on, usually PAP.getPolicyVersion.
+         */
+        public Builder(Decider decider, LongSupplier version) {
+            this.decider = decider;
+            this.version = version;
+            this.maximumSize = 10_000;
+            this.ttlNanos = 0;
+            this.cacheNegative = true;
+        }
+
+        /**
+         * @param maximumSize the maximum number of decisions to cache, the least recently used are removed first.
+         */
+        public Builder setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param ttl how long a decision is cached, 0 to cache decisions until the policy changes or they are removed.
+         * @param unit the unit of the time to live.
+         */
+        public Builder setTtl(long ttl, TimeUnit unit) {
+            this.ttlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * @param cacheNegative true to cache decisions that give the subject no permissions on the target.
+         */
+        public Builder setCacheNegative(boolean cacheNegative) {
+            this.cacheNegative = cacheNegative;
+            return this;
+        }
+
+        public CachingDecider build() {
+            if (decider == null || version == null) {
+                throw new IllegalArgumentException("a caching decider needs a decider and a policy version");
+            } else if (maximumSize <= 0) {
+                throw new IllegalArgumentException("the maximum size of the decision cache must be greater than 0");
+            } else if (ttlNanos < 0) {
+                throw new IllegalArgumentException("the time to live of cached decisions cannot be negative");
+            }
+
+            return new CachingDecider(this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package gov.nist.csd.pm.pdp.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * An AsyncDecider that makes the decisions of a Decider on an Executor, so callers such as event loop threads never
+ * block on a decision.  By default decisions are made on the common ForkJoinPool.  On JVMs that support virtual threads,
+ * newVirtualThreadExecutor returns an executor that makes each decision on its own virtual thread.
+ *
+ * The Decider is called by several threads at once, so the policy it decides on must support concurrent reads.  If the
+ * policy can change while decisions are made, pass the read lock of the PAP, PAP.getLock().readLock(), which is held for
+ * each decision so it never sees a policy that is being changed.
+ */
+public class ExecutorAsyncDecider implements AsyncDecider {
+
+    private Decider  decider;
+    private Executor executor;
+    private Lock     lock;
+
+    /**
+     * Make the decisions of the given Decider on the common ForkJoinPool.
+     */
+    public ExecutorAsyncDecider(Decider decider) {
+        this(decider, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param decider the Decider to make the decisions with.
+     * @param executor the executor to make the decisions on.
+     */
+    public ExecutorAsyncDecider(Decider decider, Executor executor) {
+        this(decider, executor, null);
+    }
+
+    /**
+     * @param decider the Decider to make the decisions with.
+     * @param executor the executor to make the decisions on.
+     * @param lock the lock to hold for each decision, usually PAP.getLock().readLock(), or null to not lock.
+     */
+    public ExecutorAsyncDecider(Decider decider, Executor executor, Lock lock) {
+        if (decider == null) {
+            throw new IllegalArgumentException("the decider cannot be null");
+        } else if (executor == null) {
+            throw new IllegalArgumentException("the executor cannot be null");
+        }
+
+        this.decider = decider;
+        this.executor = executor;
+        this.lock = lock;
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return virtualThreadExecutorFactory() != null;
+    }
+
+    /**
+     * Create an executor that runs each task on a new virtual thread.  Virtual threads are available from Java 21, the
+     * executor is created reflectively so the library still runs on Java 8.
+     *
+     * @return a new virtual thread per task executor, which should be shut down when it is no longer used.
+     * @throws UnsupportedOperationException if the JVM does not support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        Method factory = virtualThreadExecutorFactory();
+        if (factory == null) {
+            throw new UnsupportedOperationException("virtual threads are not supported by this JVM");
+        }
+
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("virtual threads are not supported by this JVM", e);
+        }
+    }
+
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> check(String subject, String process, String target, String... perms) {
+        return submit(() -> decider.check(subject, process, target, perms));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> list(String subject, String process, String target) {
+        return submit(() -> decider.list(subject, process, target));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> filter(String subject, String process, Set<String> nodes, String... perms) {
+        // Decider.filter removes the nodes from the given set, which the caller may still be using
+        Set<String> copy = new HashSet<>(nodes);
+        return submit(() -> decider.filter(subject, process, copy, perms));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getChildren(String subject, String process, String target, String... perms) {
+        return submit(() -> decider.getChildren(subject, process, target, perms));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Set<String>>> getCapabilityList(String subject, String process) {
+        return submit(() -> decider.getCapabilityList(subject, process));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Set<String>>> generateACL(String target, String process) {
+        return submit(() -> decider.generateACL(target, process));
+    }
+
+    private <T> CompletableFuture<T> submit(Decision<T> decision) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (lock != null) {
+                    lock.lock();
+                }
+                try {
+                    future.complete(decision.decide());
+                } catch (Throwable e) {
+                    // complete the future on any failure, including an Error, so the caller does not wait forever
+                    future.completeExceptionally(e);
+                } finally {
+                    if (lock != null) {
+                        lock.unlock();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private interface Decision<T> {
+        T decide() throws PMException;
+    }
+}
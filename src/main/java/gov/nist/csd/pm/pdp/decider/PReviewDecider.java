@@ -1,7 +1,11 @@
 package gov.nist.csd.pm.pdp.decider;
 
 import gov.nist.csd.pm.exceptions.PMException;
-import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.jfr.DecisionEvent;
+import gov.nist.csd.pm.jfr.FlightRecorderEvents;
+import gov.nist.csd.pm.metrics.Metrics;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
+import gov.nist.csd.pm.metrics.Timer;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.dag.propagator.Propagator;
 import gov.nist.csd.pm.pip.graph.dag.searcher.BreadthFirstSearcher;
@@ -15,19 +19,40 @@ import gov.nist.csd.pm.pip.prohibitions.Prohibitions;
 import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
 
 /**
- * An implementation of the Decider interface that uses an in memory NGAC graph
+ * An implementation of the Decider interface that uses an in memory NGAC graph.
+ *
+ * The decider reports to the metrics set in MetricsRegistry: the duration of each traversal of the user side
+ * (decider.subject) and the target side (decider.target) of the graph, the number of nodes each traversal visits
+ * (decider.subject.nodes, decider.target.nodes), the number of permission sets resolved for a target (decider.decisions)
+ * and the number of prohibitions evaluated to resolve them (decider.prohibitions.evaluated).  Calls to check and list
+ * that take longer than the threshold of DecisionEvent are recorded by flight recordings that enable it.  The
+ * traversals of a decision are recorded in the TraversalTrace started on the calling thread, if there is one.
+ *
+ * In graphs with many policy classes, the permissions of a target under each policy class can be resolved in parallel,
+ * see setParallelPolicyClasses.
  */
 public class PReviewDecider implements Decider {
 
     public static final String ANY_OPERATIONS = "any";
     public static final String ALL_OPERATIONS = "*";
 
+    static final String SUBJECT_TIMER          = "decider.subject";
+    static final String SUBJECT_NODES          = "decider.subject.nodes";
+    static final String TARGET_TIMER           = "decider.target";
+    static final String TARGET_NODES           = "decider.target.nodes";
+    static final String DECISIONS              = "decider.decisions";
+    static final String PROHIBITIONS_EVALUATED = "decider.prohibitions.evaluated";
+
     private Graph graph;
     private Prohibitions prohibitions;
+    private ForkJoinPool pcPool;
+    private int pcThreshold;
 
     public PReviewDecider(Graph graph) {
         if (graph == null) {
@@ -51,11 +76,37 @@ public class PReviewDecider implements Decider {
         this.prohibitions = prohibitions;
     }
 
+    /**
+     * Resolve the permissions of a target under each policy class in parallel when the graph has at least the given
+     * number of policy classes.  The nodes the target is contained in are collected by the calling thread, then the
+     * operations under each policy class the target is contained in are resolved by a separate task of the pool and
+     * intersected once every task is done.  The decisions are the same as the sequential evaluation, but the policy
+     * classes are only worth splitting when the target is contained in many of them, so small graphs are evaluated
+     * sequentially.
+     *
+     * @param pool the pool to resolve the policy classes in, or null to always evaluate targets sequentially.
+     * @param threshold the minimum number of policy classes in the graph to resolve them in parallel.
+     * @return this decider.
+     */
+    public PReviewDecider setParallelPolicyClasses(ForkJoinPool pool, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("the policy class threshold must be greater than 0");
+        }
+
+        this.pcPool = pool;
+        this.pcThreshold = threshold;
+        return this;
+    }
+
     @Override
     public boolean check(String subject, String process, String target, String... perms) throws PMException {
         List<String> permsToCheck = Arrays.asList(perms);
-        Set<String> permissions = list(subject, process, target);
+        Set<String> permissions = decide("check", subject, process, target);
 
+        return hasPermissions(permissions, permsToCheck);
+    }
+
+    static boolean hasPermissions(Set<String> permissions, List<String> permsToCheck) {
         //if just checking for any operations, return true if the resulting permissions set is not empty.
         //if the resulting permissions set contains * or all operations, return true.
         //if neither of the above apply, return true iff the resulting permissions set contains all the provided
@@ -76,26 +127,123 @@ public class PReviewDecider implements Decider {
 
     @Override
     public Set<String> list(String subject, String process, String target) throws PMException {
-        Set<String> perms = new HashSet<>();
+        return decide("list", subject, process, target);
+    }
+
+    private Set<String> decide(String operation, String subject, String process, String target) throws PMException {
+        DecisionEvent event = FlightRecorderEvents.decision();
 
         // traverse the user side of the graph to get the associations
-        UserContext userCtx = processUserDAG(subject, process);
-        if (userCtx.getBorderTargets().isEmpty()) {
-            return perms;
+        SubjectContext subjectCtx = processUserDAG(subject, process);
+
+        return decide(event, operation, subjectCtx, subjectCtx.getNodesVisited(), target);
+    }
+
+    /**
+     * Resolve the permissions of the subject on the target and record the decision.  Every check and list decision on a
+     * single target is made here.
+     *
+     * @param event the event started when the decision started, null if it is not recorded.
+     * @param userNodesVisited the number of nodes visited on the user side of the graph by this decision, 0 if the
+     *                         SubjectContext was computed before.
+     */
+    private Set<String> decide(DecisionEvent event, String operation, SubjectContext subjectCtx, int userNodesVisited,
+                               String target) throws PMException {
+        int nodesVisited = userNodesVisited;
+        Set<String> perms = new HashSet<>();
+        if (!subjectCtx.getBorderTargets().isEmpty()) {
+            // traverse the target side of the graph to get permissions per policy class
+            TargetContext targetCtx = processTargetDAG(target, subjectCtx);
+            nodesVisited += targetCtx.getReachedTargets().size();
+
+            // resolve the permissions
+            perms = resolvePermissions(subjectCtx, targetCtx, target);
+        }
+
+        if (event != null) {
+            event.end(operation, subjectCtx.getSubject(), subjectCtx.getProcess(), target, nodesVisited, perms.size());
         }
 
-        // traverse the target side of the graph to get permissions per policy class
-        TargetContext targetCtx = processTargetDAG(target, userCtx);
+        return perms;
+    }
+
+    /**
+     * Traverse the user side of the graph for the given subject and process.  The returned SubjectContext can be passed
+     * to list(SubjectContext, String) to make several decisions for the same subject without traversing the user side
+     * of the graph each time.  The SubjectContext reflects the graph at the time it was computed.
+     *
+     * @param subject the name of the subject.
+     * @param process the name of the process if applicable.
+     * @return the border targets and prohibitions reachable by the subject.
+     * @throws PMException if there is an exception traversing the graph.
+     */
+    public SubjectContext getSubjectContext(String subject, String process) throws PMException {
+        return processUserDAG(subject, process);
+    }
 
-        // resolve the permissions
-        return resolvePermissions(userCtx, targetCtx, target);
+    /**
+     * List the permissions that the subject of the given SubjectContext has on the target node.
+     *
+     * @param subjectCtx the SubjectContext computed by getSubjectContext.
+     * @param target the name of the target node.
+     * @return the set of operations that the subject is allowed to perform on the target.
+     * @throws PMException if there is an exception traversing the graph.
+     */
+    public Set<String> list(SubjectContext subjectCtx, String target) throws PMException {
+        return decide(FlightRecorderEvents.decision(), "list", subjectCtx, 0, target);
+    }
+
+    /**
+     * List the permissions that the subject of the given SubjectContext has on each of the given targets. The result is
+     * the same as calling list(SubjectContext, String) for each target, but the region of the graph the subject has
+     * access to is computed once and the target side of the graph is only traversed once for all of the targets.  Any
+     * target outside of the subject's region is mapped to an empty set of permissions without being traversed.
+     *
+     * @param subjectCtx the SubjectContext computed by getSubjectContext.
+     * @param targets the names of the target nodes.
+     * @return a map of each target to the operations the subject is allowed to perform on it.
+     * @throws PMException if there is an exception traversing the graph.
+     */
+    public Map<String, Set<String>> list(SubjectContext subjectCtx, Collection<String> targets) throws PMException {
+        Map<String, Set<String>> results = new HashMap<>();
+
+        BulkResolver resolver = getBulkResolver(subjectCtx);
+        for (String target : targets) {
+            results.put(target, resolver.list(target));
+        }
+
+        return results;
+    }
+
+    /**
+     * Get a resolver of the permissions the subject of the given SubjectContext has on any number of targets.  The
+     * resolver memoizes what it computes for each target, so targets that are listed in several calls share the work.
+     * The memoized permissions are only valid until the policy changes, after which a new resolver is needed.
+     *
+     * @param subjectCtx the SubjectContext computed by getSubjectContext.
+     * @return the resolver of the subject's permissions.
+     * @throws PMException if there is an exception traversing the graph.
+     */
+    public BulkResolver getBulkResolver(SubjectContext subjectCtx) throws PMException {
+        return new BulkResolver(subjectCtx);
     }
 
     @Override
     public Set<String> filter(String subject, String process, Set<String> nodes, String... perms) {
+        List<String> permsToCheck = Arrays.asList(perms);
+
+        BulkResolver resolver;
+        try {
+            resolver = new BulkResolver(processUserDAG(subject, process));
+        }
+        catch (PMException e) {
+            nodes.clear();
+            return nodes;
+        }
+
         nodes.removeIf(n -> {
             try {
-                return !check(subject, process, n, perms);
+                return !hasPermissions(resolver.list(n), permsToCheck);
             }
             catch (PMException e) {
                 return true;
@@ -115,7 +263,7 @@ public class PReviewDecider implements Decider {
         Map<String, Set<String>> results = new HashMap<>();
 
         //get border nodes.  Can be OA or UA.  Return empty set if no OAs are reachable
-        UserContext userCtx = processUserDAG(subject, process);
+        SubjectContext userCtx = processUserDAG(subject, process);
         if (userCtx.getBorderTargets().isEmpty()) {
             return results;
         }
@@ -146,7 +294,7 @@ public class PReviewDecider implements Decider {
         return acl;
     }
 
-    private HashSet<String> resolvePermissions(UserContext userContext, TargetContext targetCtx, String target) {
+    private HashSet<String> resolvePermissions(SubjectContext userContext, TargetContext targetCtx, String target) {
         Map<String, Set<String>> pcMap = targetCtx.getPcSet();
 
         HashSet<String> inter = new HashSet<>();
@@ -174,6 +322,8 @@ public class PReviewDecider implements Decider {
             }
         }
 
+        MetricsRegistry.getMetrics().counter(DECISIONS).increment();
+
         // remove any prohibited operations
         Set<String> denied = resolveProhibitions(userContext, targetCtx, target);
         inter.removeAll(denied);
@@ -187,11 +337,14 @@ public class PReviewDecider implements Decider {
         return inter;
     }
 
-    private Set<String> resolveProhibitions(UserContext userCtx, TargetContext targetCtx, String target) {
+    private Set<String> resolveProhibitions(SubjectContext userCtx, TargetContext targetCtx, String target) {
         Set<String> denied = new HashSet<>();
 
         Set<Prohibition> prohibitions = userCtx.getProhibitions();
         Set<String> reachedTargets = targetCtx.getReachedTargets();
+        if (!prohibitions.isEmpty()) {
+            MetricsRegistry.getMetrics().counter(PROHIBITIONS_EVALUATED).increment(prohibitions.size());
+        }
 
         for(Prohibition p : prohibitions) {
             boolean inter = p.isIntersection();
@@ -248,9 +401,25 @@ public class PReviewDecider implements Decider {
      *
      * @param target      the name of the current target node.
      */
-    private TargetContext processTargetDAG(String target, UserContext userCtx) throws PMException {
-        Map<String, Set<String>> borderTargets = userCtx.getBorderTargets();
+    private TargetContext processTargetDAG(String target, SubjectContext userCtx) throws PMException {
+        Metrics metrics = MetricsRegistry.getMetrics();
+        Timer timer = metrics.timer(TARGET_TIMER);
+        long start = timer.start();
+
+        TargetContext targetCtx;
+        if (pcPool != null && graph.getPolicyClasses().size() >= pcThreshold) {
+            targetCtx = processTargetDAGPerPolicyClass(target, userCtx.getBorderTargets());
+        } else {
+            targetCtx = traverseTargetDAG(target, userCtx.getBorderTargets());
+        }
+
+        timer.stop(start);
+        metrics.histogram(TARGET_NODES).record(targetCtx.getReachedTargets().size());
 
+        return targetCtx;
+    }
+
+    private TargetContext traverseTargetDAG(String target, Map<String, Set<String>> borderTargets) throws PMException {
         Map<String, Map<String, Set<String>>> visitedNodes = new HashMap<>();
         Set<String> reachedTargets = new HashSet<>();
 
@@ -258,20 +427,15 @@ public class PReviewDecider implements Decider {
             // mark the node as reached, to be used for resolving prohibitions
             reachedTargets.add(node.getName());
 
-            Map<String, Set<String>> nodeCtx = visitedNodes.getOrDefault(node.getName(), new HashMap<>());
-            if (nodeCtx.isEmpty()) {
-                visitedNodes.put(node.getName(), nodeCtx);
-            }
+            Map<String, Set<String>> nodeCtx = visitedNodes.computeIfAbsent(node.getName(), k -> new HashMap<>());
 
             if (node.getType().equals(NodeType.PC)) {
                 nodeCtx.put(node.getName(), new HashSet<>());
             } else {
-                if (borderTargets.containsKey(node.getName())) {
-                    Set<String> uaOps = borderTargets.get(node.getName());
-                    for (String pc : nodeCtx.keySet()) {
-                        Set<String> pcOps = nodeCtx.getOrDefault(pc, new HashSet<>());
+                Set<String> uaOps = borderTargets.get(node.getName());
+                if (uaOps != null) {
+                    for (Set<String> pcOps : nodeCtx.values()) {
                         pcOps.addAll(uaOps);
-                        nodeCtx.put(pc, pcOps);
                     }
                 }
             }
@@ -279,13 +443,10 @@ public class PReviewDecider implements Decider {
 
         Propagator propagator = (parent, child) -> {
             Map<String, Set<String>> parentCtx = visitedNodes.get(parent.getName());
-            Map<String, Set<String>> nodeCtx = visitedNodes.getOrDefault(child.getName(), new HashMap<>());
-            for (String name : parentCtx.keySet()) {
-                Set<String> ops = nodeCtx.getOrDefault(name, new HashSet<>());
-                ops.addAll(parentCtx.get(name));
-                nodeCtx.put(name, ops);
+            Map<String, Set<String>> nodeCtx = visitedNodes.computeIfAbsent(child.getName(), k -> new HashMap<>());
+            for (Map.Entry<String, Set<String>> entry : parentCtx.entrySet()) {
+                nodeCtx.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
             }
-            visitedNodes.put(child.getName(), nodeCtx);
         };
 
         DepthFirstSearcher searcher = new DepthFirstSearcher(graph);
@@ -294,6 +455,85 @@ public class PReviewDecider implements Decider {
         return new TargetContext(visitedNodes.get(target), reachedTargets);
     }
 
+    /**
+     * Compute the same TargetContext as traverseTargetDAG, resolving the operations under each policy class in a separate
+     * task.  The nodes the target is contained in are collected first, with the assignments between them reversed so
+     * each task can walk down from its policy class to the nodes contained in it.  Only those nodes contribute the
+     * operations of their associations to the policy class.  The first policy class is resolved by the calling thread.
+     */
+    private TargetContext processTargetDAGPerPolicyClass(String target, Map<String, Set<String>> borderTargets)
+            throws PMException {
+        Set<String> policyClasses = graph.getPolicyClasses();
+
+        // check the target exists
+        graph.getNode(target);
+
+        Map<String, List<String>> children = new HashMap<>();
+        Set<String> reachedTargets = new HashSet<>();
+        List<String> reachedPcs = new ArrayList<>();
+        Deque<String> stack = new ArrayDeque<>();
+        reachedTargets.add(target);
+        stack.push(target);
+        while (!stack.isEmpty()) {
+            String node = stack.pop();
+            if (policyClasses.contains(node)) {
+                reachedPcs.add(node);
+                continue;
+            }
+
+            graph.forEachParent(node, parent -> {
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(node);
+                if (reachedTargets.add(parent)) {
+                    stack.push(parent);
+                }
+            });
+        }
+
+        List<ForkJoinTask<Set<String>>> tasks = new ArrayList<>();
+        for (int i = 1; i < reachedPcs.size(); i++) {
+            String pc = reachedPcs.get(i);
+            tasks.add(pcPool.submit(() -> resolvePolicyClass(pc, children, borderTargets)));
+        }
+
+        Map<String, Set<String>> pcSet = new HashMap<>();
+        if (!reachedPcs.isEmpty()) {
+            pcSet.put(reachedPcs.get(0), resolvePolicyClass(reachedPcs.get(0), children, borderTargets));
+        }
+        for (int i = 1; i < reachedPcs.size(); i++) {
+            pcSet.put(reachedPcs.get(i), tasks.get(i - 1).join());
+        }
+
+        return new TargetContext(pcSet, reachedTargets);
+    }
+
+    /**
+     * Collect the operations of the border targets contained in the given policy class, among the nodes collected by
+     * processTargetDAGPerPolicyClass.
+     */
+    private static Set<String> resolvePolicyClass(String pc, Map<String, List<String>> children,
+                                                  Map<String, Set<String>> borderTargets) {
+        Set<String> ops = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        visited.add(pc);
+        stack.push(pc);
+        while (!stack.isEmpty()) {
+            String node = stack.pop();
+            Set<String> uaOps = borderTargets.get(node);
+            if (uaOps != null) {
+                ops.addAll(uaOps);
+            }
+
+            for (String child : children.getOrDefault(node, Collections.emptyList())) {
+                if (visited.add(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        return ops;
+    }
+
     /**
      * Find the target nodes that are reachable by the subject via an association. This is done by a breadth first search
      * starting at the subject node and walking up the user side of the graph until all user attributes the subject is assigned
@@ -303,100 +543,167 @@ public class PReviewDecider implements Decider {
      *
      * @return a Map of target nodes that the subject can reach via associations and the operations the user has on each.
      */
-    private UserContext processUserDAG(String subject, String process) throws PMException {
+    private SubjectContext processUserDAG(String subject, String process) throws PMException {
+        Metrics metrics = MetricsRegistry.getMetrics();
+        Timer timer = metrics.timer(SUBJECT_TIMER);
+        long start = timer.start();
+        int[] visited = new int[1];
+
         BreadthFirstSearcher searcher = new BreadthFirstSearcher(graph);
 
-        Node start = graph.getNode(subject);
+        Node subjectNode = graph.getNode(subject);
 
         final Map<String, Set<String>> borderTargets = new HashMap<>();
         // initialize with the prohibitions or the provided process
         final Set<Prohibition> reachedProhibitions = new HashSet<>(prohibitions.getProhibitionsFor(process));
 
-        // if the start node is an UA, get it's associations
-        if (start.getType() == UA) {
-            Map<String, OperationSet> assocs = graph.getSourceAssociations(start.getName());
-            collectAssociations(assocs, borderTargets);
-        }
-
+        // the bfs visits the subject and every node it is assigned to directly or indirectly, so collecting the
+        // associations of each visited node collects the associations of every user attribute the subject is in
         Visitor visitor = node -> {
+            visited[0]++;
+
             List<Prohibition> subjectProhibitions = prohibitions.getProhibitionsFor(node.getName());
             reachedProhibitions.addAll(subjectProhibitions);
 
-            //get the parents of the subject to start bfs on user side
-            Set<String> parents = graph.getParents(node.getName());
-            while (!parents.isEmpty()) {
-                String parentNode = parents.iterator().next();
-
-                //get the associations the current parent node is the source of
-                Map<String, OperationSet> assocs = graph.getSourceAssociations(parentNode);
-
-                //collect the target and operation information for each association
-                collectAssociations(assocs, borderTargets);
-
-                //add all of the current parent node's parents to the queue
-                parents.addAll(graph.getParents(parentNode));
-
-                //remove the current parent from the queue
-                parents.remove(parentNode);
-            }
+            //collect the target and operation information for each association the node is the source of
+            graph.forEachSourceAssociation(node.getName(), (target, ops) -> collectAssociation(target, ops, borderTargets));
         };
 
         // nothing is being propagated
         Propagator propagator = (parentNode, childNode) -> {};
 
         // start the bfs
-        searcher.traverse(start, propagator, visitor, Direction.PARENTS);
+        searcher.traverse(subjectNode, propagator, visitor, Direction.PARENTS);
+
+        timer.stop(start);
+        metrics.histogram(SUBJECT_NODES).record(visited[0]);
 
-        return new UserContext(borderTargets, reachedProhibitions);
+        return new SubjectContext(subject, process, borderTargets, reachedProhibitions, visited[0]);
     }
 
-    private void collectAssociations(Map<String, OperationSet> assocs, Map<String, Set<String>> borderTargets) {
-        for (String target : assocs.keySet()) {
-            Set<String> ops = assocs.get(target);
-            Set<String> exOps = borderTargets.get(target);
-            //if the target is not in the map already, put it
-            //else add the found operations to the existing ones.
-            if (exOps == null) {
-                borderTargets.put(target, ops);
-            } else {
-                ops.addAll(exOps);
-                borderTargets.put(target, ops);
-            }
+    private void collectAssociation(String target, Set<String> ops, Map<String, Set<String>> borderTargets) {
+        //if the target is not in the map already, put a copy of the operations
+        //else add the found operations to the existing ones.
+        Set<String> exOps = borderTargets.get(target);
+        if (exOps == null) {
+            borderTargets.put(target, new HashSet<>(ops));
+        } else {
+            exOps.addAll(ops);
+        }
+    }
+
+    /**
+     * Get the names of the given nodes and every node assigned to them directly or indirectly.
+     */
+    private Set<String> getContained(Collection<String> nodes) throws PMException {
+        Set<String> contained = new HashSet<>(nodes);
+        Queue<String> queue = new LinkedList<>(nodes);
+        while (!queue.isEmpty()) {
+            graph.forEachChild(queue.poll(), child -> {
+                if (contained.add(child)) {
+                    queue.add(child);
+                }
+            });
         }
+
+        return contained;
     }
 
     private Set<String> getAscendants(String vNode) throws PMException {
         Set<String> ascendants = new HashSet<>();
         ascendants.add(vNode);
 
-        Set<String> children = graph.getChildren(vNode);
-        if (children.isEmpty()) {
-            return ascendants;
-        }
-
-        ascendants.addAll(children);
-        for (String child : children) {
-            ascendants.addAll(getAscendants(child));
-        }
+        graph.forEachChild(vNode, child -> ascendants.addAll(getAscendants(child)));
 
         return ascendants;
     }
 
-    private static class UserContext {
-        private Map<String, Set<String>> borderTargets;
-        private Set<Prohibition> prohibitions;
+    /**
+     * Resolves the permissions of a single subject on many targets.  Only targets contained in a border target of the
+     * subject can have permissions, this region is computed once.  The permissions per policy class of each node on the
+     * target side of the graph are memoized so nodes shared by several targets are only processed once.  Prohibitions
+     * are resolved by checking if a target is contained in each prohibition container instead of collecting every node
+     * reached from the target.
+     */
+    public class BulkResolver {
+        private SubjectContext subjectCtx;
+        private Set<String> region;
+        private Map<String, Map<String, Set<String>>> pcSets;
+        private Map<String, Set<String>> prohibitionContainers;
+
+        BulkResolver(SubjectContext subjectCtx) throws PMException {
+            this.subjectCtx = subjectCtx;
+            this.region = getContained(subjectCtx.getBorderTargets().keySet());
+            this.pcSets = new HashMap<>();
+            this.prohibitionContainers = new HashMap<>();
+        }
+
+        /**
+         * @return the operations the subject is allowed to perform on the target, the same as list(SubjectContext,
+         * String).
+         * @throws PMException if the target does not exist or there is an exception traversing the graph.
+         */
+        public Set<String> list(String target) throws PMException {
+            if (!graph.exists(target)) {
+                throw new PMException(String.format("node %s does not exist", target));
+            } else if (!region.contains(target)) {
+                return new HashSet<>();
+            }
+
+            Map<String, Set<String>> pcSet = getPcSet(target);
+            Set<String> reachedContainers = new HashSet<>();
+            for (Prohibition p : subjectCtx.getProhibitions()) {
+                for (String contName : p.getContainers().keySet()) {
+                    if (getContainedIn(contName).contains(target)) {
+                        reachedContainers.add(contName);
+                    }
+                }
+            }
 
-        UserContext(Map<String, Set<String>> borderTargets, Set<Prohibition> prohibitions) {
-            this.borderTargets = borderTargets;
-            this.prohibitions = prohibitions;
+            return resolvePermissions(subjectCtx, new TargetContext(pcSet, reachedContainers), target);
         }
 
-        Map<String, Set<String>> getBorderTargets() {
-            return borderTargets;
+        /**
+         * The same per policy class permissions processTargetDAG computes for a target, memoized for every node
+         * visited.  The returned map is shared and must not be modified.
+         */
+        private Map<String, Set<String>> getPcSet(String node) throws PMException {
+            Map<String, Set<String>> pcSet = pcSets.get(node);
+            if (pcSet != null) {
+                return pcSet;
+            }
+
+            Map<String, Set<String>> nodePcSet = new HashMap<>();
+            if (graph.getNode(node).getType().equals(NodeType.PC)) {
+                nodePcSet.put(node, new HashSet<>());
+            } else {
+                graph.forEachParent(node, parent -> {
+                    Map<String, Set<String>> parentPcSet = getPcSet(parent);
+                    for (Map.Entry<String, Set<String>> entry : parentPcSet.entrySet()) {
+                        nodePcSet.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+                    }
+                });
+
+                Set<String> uaOps = subjectCtx.getBorderTargets().get(node);
+                if (uaOps != null) {
+                    for (Set<String> ops : nodePcSet.values()) {
+                        ops.addAll(uaOps);
+                    }
+                }
+            }
+
+            pcSets.put(node, nodePcSet);
+            return nodePcSet;
         }
 
-        Set<Prohibition> getProhibitions() {
-            return prohibitions;
+        private Set<String> getContainedIn(String container) throws PMException {
+            Set<String> contained = prohibitionContainers.get(container);
+            if (contained == null) {
+                contained = graph.exists(container) ? getContained(Collections.singleton(container)) : new HashSet<>();
+                prohibitionContainers.put(container, contained);
+            }
+
+            return contained;
         }
     }
 
@@ -0,0 +1,235 @@
+package gov.nist.csd.pm.pdp.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A Decider that lets concurrent identical requests share one computation.  A check or list call with the same subject,
+ * process and target as a call that is still being computed waits for that call and returns its result instead of
+ * traversing the graph again.  Calls for the same subject and process on different targets also share the traversal of
+ * the user side of the graph if one is in flight.  Nothing is kept once a computation completes, so a call never sees a
+ * result computed before it was made; put a CachingDecider in front of this decider to also reuse completed results.
+ *
+ * A call only shares a computation that was started at the same version of the policy, so a call made after a change to
+ * the policy never receives a result computed before the change.  If the version is negative, for example because the
+ * PAP has a store that is not Versioned, no computations are shared.
+ *
+ * A call that shares the computation of another call throws the same exception or error if that computation fails.  The number
+ * of shared computations is reported to the counters decider.single_flight.decisions and
+ * decider.single_flight.subjects of the metrics set in MetricsRegistry.  The other methods of the Decider are passed
+ * to the PReviewDecider.
+ */
+public class SingleFlightDecider implements Decider {
+
+    private final PReviewDecider                                               decider;
+    private final LongSupplier                                                 version;
+    private final ConcurrentMap<DecisionKey, CompletableFuture<Set<String>>>   decisions;
+    private final ConcurrentMap<SubjectKey, CompletableFuture<SubjectContext>> subjects;
+    private final AtomicLong                                                   sharedDecisions;
+    private final AtomicLong                                                   sharedSubjects;
+
+    /**
+     * @param decider the decider that computes the decisions.
+     * @param version the version of the policy the decider makes decisions on, usually PAP.getPolicyVersion.
+     */
+    public SingleFlightDecider(PReviewDecider decider, LongSupplier version) {
+        if (decider == null || version == null) {
+            throw new IllegalArgumentException("a single flight decider needs a decider and a policy version");
+        }
+
+        this.decider = decider;
+        this.version = version;
+        this.decisions = new ConcurrentHashMap<>();
+        this.subjects = new ConcurrentHashMap<>();
+        this.sharedDecisions = new AtomicLong();
+        this.sharedSubjects = new AtomicLong();
+    }
+
+    @Override
+    public boolean check(String subject, String process, String target, String... perms) throws PMException {
+        return PReviewDecider.hasPermissions(decide(subject, process, target), Arrays.asList(perms));
+    }
+
+    @Override
+    public Set<String> list(String subject, String process, String target) throws PMException {
+        return new HashSet<>(decide(subject, process, target));
+    }
+
+    /**
+     * @return the permissions, which are shared by every call waiting for the same computation and must not be modified.
+     */
+    private Set<String> decide(String subject, String process, String target) throws PMException {
+        long currentVersion = version.getAsLong();
+        if (currentVersion < 0) {
+            return Collections.unmodifiableSet(decider.list(decider.getSubjectContext(subject, process), target));
+        }
+
+        DecisionKey key = new DecisionKey(subject, process, target, currentVersion);
+        CompletableFuture<Set<String>> future = new CompletableFuture<>();
+        CompletableFuture<Set<String>> inFlight = decisions.putIfAbsent(key, future);
+        if (inFlight != null) {
+            sharedDecisions.incrementAndGet();
+            MetricsRegistry.getMetrics().counter("decider.single_flight.decisions").increment();
+            return await(inFlight);
+        }
+
+        try {
+            SubjectContext subjectCtx = getSubjectContext(subject, process, currentVersion);
+            Set<String> permissions = Collections.unmodifiableSet(decider.list(subjectCtx, target));
+            future.complete(permissions);
+            return permissions;
+        } catch (Throwable e) {
+            // complete the future on any failure, including an Error, so that the calls waiting for it do not hang
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            decisions.remove(key, future);
+        }
+    }
+
+    private SubjectContext getSubjectContext(String subject, String process, long version) throws PMException {
+        SubjectKey key = new SubjectKey(subject, process, version);
+        CompletableFuture<SubjectContext> future = new CompletableFuture<>();
+        CompletableFuture<SubjectContext> inFlight = subjects.putIfAbsent(key, future);
+        if (inFlight != null) {
+            sharedSubjects.incrementAndGet();
+            MetricsRegistry.getMetrics().counter("decider.single_flight.subjects").increment();
+            return await(inFlight);
+        }
+
+        try {
+            SubjectContext subjectCtx = decider.getSubjectContext(subject, process);
+            future.complete(subjectCtx);
+            return subjectCtx;
+        } catch (Throwable e) {
+            // complete the future on any failure, including an Error, so that the calls waiting for it do not hang
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            subjects.remove(key, future);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws PMException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PMException("interrupted while waiting for a decision");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PMException) {
+                throw (PMException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public Set<String> filter(String subject, String process, Set<String> nodes, String... perms) throws PMException {
+        return decider.filter(subject, process, nodes, perms);
+    }
+
+    @Override
+    public Set<String> getChildren(String subject, String process, String target, String... perms) throws PMException {
+        return decider.getChildren(subject, process, target, perms);
+    }
+
+    @Override
+    public Map<String, Set<String>> getCapabilityList(String subject, String process) throws PMException {
+        return decider.getCapabilityList(subject, process);
+    }
+
+    @Override
+    public Map<String, Set<String>> generateACL(String target, String process) throws PMException {
+        return decider.generateACL(target, process);
+    }
+
+    /**
+     * @return the number of check and list calls that shared the computation of another call.
+     */
+    public long getSharedDecisions() {
+        return sharedDecisions.get();
+    }
+
+    /**
+     * @return the number of traversals of the user side of the graph that were shared by calls on different targets.
+     */
+    public long getSharedSubjects() {
+        return sharedSubjects.get();
+    }
+
+    private static class SubjectKey {
+        String subject;
+        String process;
+        long   version;
+
+        SubjectKey(String subject, String process, long version) {
+            this.subject = subject;
+            this.process = process;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SubjectKey)) {
+                return false;
+            }
+
+            SubjectKey key = (SubjectKey) o;
+            return Objects.equals(subject, key.subject) &&
+                    Objects.equals(process, key.process) &&
+                    version == key.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subject, process, version);
+        }
+    }
+
+    private static class DecisionKey {
+        String subject;
+        String process;
+        String target;
+        long   version;
+
+        DecisionKey(String subject, String process, String target, long version) {
+            this.subject = subject;
+            this.process = process;
+            this.target = target;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DecisionKey)) {
+                return false;
+            }
+
+            DecisionKey key = (DecisionKey) o;
+            return Objects.equals(subject, key.subject) &&
+                    Objects.equals(process, key.process) &&
+                    Objects.equals(target, key.target) &&
+                    version == key.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subject, process, target, version);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package gov.nist.csd.pm.pdp.decider;
+
+import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of traversing the user side of the graph for a subject and process.  The border targets are the targets
+ * of the associations reachable by the subject and the operations the subject has on each. The prohibitions are the
+ * prohibitions that apply to the subject, any of its attributes, or the process.
+ */
+public class SubjectContext {
+    private String subject;
+    private String process;
+    private Map<String, Set<String>> borderTargets;
+    private Set<Prohibition> prohibitions;
+    private int nodesVisited;
+
+    SubjectContext(String subject, String process, Map<String, Set<String>> borderTargets, Set<Prohibition> prohibitions,
+                   int nodesVisited) {
+        this.subject = subject;
+        this.process = process;
+        this.borderTargets = borderTargets;
+        this.prohibitions = prohibitions;
+        this.nodesVisited = nodesVisited;
+    }
+
+    /**
+     * @return the name of the subject the user side of the graph was traversed for.
+     */
+    String getSubject() {
+        return subject;
+    }
+
+    /**
+     * @return the process the user side of the graph was traversed for.
+     */
+    String getProcess() {
+        return process;
+    }
+
+    public Map<String, Set<String>> getBorderTargets() {
+        return borderTargets;
+    }
+
+    public Set<Prohibition> getProhibitions() {
+        return prohibitions;
+    }
+
+    /**
+     * @return the number of nodes visited on the user side of the graph.
+     */
+    int getNodesVisited() {
+        return nodesVisited;
+    }
+}
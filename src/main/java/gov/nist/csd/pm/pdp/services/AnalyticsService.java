@@ -8,6 +8,7 @@ import gov.nist.csd.pm.pdp.audit.Auditor;
 import gov.nist.csd.pm.pdp.audit.PReviewAuditor;
 import gov.nist.csd.pm.pdp.audit.model.Explain;
 import gov.nist.csd.pm.pdp.decider.Decider;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 
 import java.util.*;
@@ -17,8 +18,8 @@ import java.util.*;
  */
 public class AnalyticsService extends Service {
 
-    public AnalyticsService(PAP pap, EPP epp) {
-        super(pap, epp);
+    public AnalyticsService(PAP pap, EPP epp, PReviewDecider decider, UserContext userCtx) {
+        super(pap, epp, decider, null, userCtx);
     }
 
     /**
@@ -29,7 +30,7 @@ public class AnalyticsService extends Service {
      */
     public Set<String> getPermissions(String target) throws PMException {
         Decider decider = getDecider();
-        return decider.list(userCtx.getUser(), userCtx.getProcess(), target);
+        return read(() -> decider.list(userCtx.getUser(), userCtx.getProcess(), target));
     }
 
 
@@ -39,6 +40,10 @@ public class AnalyticsService extends Service {
      * @return the set of nodes that the user has direct access.
      */
     public Set<Node> getPos(UserContext userCtx) throws PMException {
+        return read(() -> findPos(userCtx));
+    }
+
+    private Set<Node> findPos(UserContext userCtx) throws PMException {
         // Prepare the hashset to return.
         HashSet<Node> hsOa = new HashSet<>();
 
@@ -228,6 +233,6 @@ public class AnalyticsService extends Service {
 
     public Explain explain(String user, String target) throws PMException {
         Auditor auditor = new PReviewAuditor(getGraphPAP());
-        return auditor.explain(user, target);
+        return read(() -> auditor.explain(user, target));
     }
 }
@@ -5,18 +5,25 @@ import gov.nist.csd.pm.epp.events.AssignToEvent;
 import gov.nist.csd.pm.epp.EPP;
 import gov.nist.csd.pm.epp.events.DeassignEvent;
 import gov.nist.csd.pm.epp.events.DeassignFromEvent;
+import gov.nist.csd.pm.epp.events.EventContext;
 import gov.nist.csd.pm.exceptions.PMAuthorizationException;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.exceptions.PMRuntimeException;
 import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
 import gov.nist.csd.pm.pdp.policy.SuperPolicy;
 import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.Page;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
 import gov.nist.csd.pm.pip.graph.model.relationships.Assignment;
 import gov.nist.csd.pm.pip.graph.model.relationships.Association;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static gov.nist.csd.pm.operations.Operations.*;
 import static gov.nist.csd.pm.pdp.decider.PReviewDecider.ALL_OPERATIONS;
@@ -29,31 +36,31 @@ import static gov.nist.csd.pm.pip.graph.model.nodes.Properties.*;
  */
 public class GraphService extends Service implements Graph {
 
+    // the number of nodes read from the PAP in a page and filtered together when streaming
+    private static final int STREAM_BATCH_SIZE = 1000;
+
     private Graph graph;
 
-    public GraphService(PAP pap, EPP epp) throws PMException {
-        super(pap, epp);
+    public GraphService(PAP pap, EPP epp, PReviewDecider decider, SuperPolicy superPolicy, UserContext userCtx) {
+        super(pap, epp, decider, superPolicy, userCtx);
 
         this.graph = pap.getGraphPAP();
     }
 
-    public SuperPolicy configureSuperPolicy() throws PMException {
-        superPolicy = new SuperPolicy();
-        superPolicy.configure(graph);
-        return superPolicy;
-    }
-
     @Override
     public Node createPolicyClass(String name, Map<String, String> properties) throws PMException {
+        Node pcNode = write(() -> createPolicyClassNodes(name, properties == null ? new HashMap<>() : properties));
+        resetSubjectContext();
+
+        return pcNode;
+    }
+
+    private Node createPolicyClassNodes(String name, Map<String, String> properties) throws PMException {
         // check that the user can create a policy class
         if (!hasPermissions(userCtx, superPolicy.getSuperPolicyClassRep().getName(), CREATE_POLICY_CLASS)) {
             throw new PMAuthorizationException("unauthorized permissions to create a policy class");
         }
 
-        if (properties == null) {
-            properties = new HashMap<>();
-        }
-
         // create the PC node
         String rep = name + "_rep";
         String defaultUA = name + "_default_UA";
@@ -119,47 +126,67 @@ public class GraphService extends Service implements Graph {
 
         // instantiate the properties map if it's null
         // if this node is a user, hash the password if present in the properties
-        if(properties == null) {
-            properties = new HashMap<>();
-        }
-        
-        // check that the user has the permission to assign to the parent node
-        if (!hasPermissions(userCtx, initialParent, ASSIGN_TO)) {
-            // if the user cannot assign to the parent node, delete the newly created node
-            throw new PMAuthorizationException(String.format("unauthorized permission \"%s\" on node %s", ASSIGN_TO, initialParent));
-        }
-        // if the parent is a PC get the PC default
-        Node parentNode = graph.getNode(initialParent);
-        if (parentNode.getType().equals(PC)) {
-            initialParent = getPolicyClassDefault(parentNode.getName(), type);
-            parentNode = getNode(initialParent);
-        }
+        Map<String, String> nodeProperties = properties == null ? new HashMap<>() : properties;
 
-        // check any additional parents before assigning
-        for (int i = 0; i < additionalParents.length; i++) {
-            String parent = additionalParents[i];
+        // the node is created holding the write lock, its events are processed once the lock is released
+        List<Node> parentNodes = new ArrayList<>();
+        Node node = write(() -> {
+            String parent = initialParent;
 
+            // check that the user has the permission to assign to the parent node
             if (!hasPermissions(userCtx, parent, ASSIGN_TO)) {
                 // if the user cannot assign to the parent node, delete the newly created node
-                throw new PMAuthorizationException(String.format("unauthorized permission \"%s\" on %s", ASSIGN_TO, parent));
+                throw new PMAuthorizationException(String.format("unauthorized permission \"%s\" on node %s", ASSIGN_TO, parent));
             }
-
             // if the parent is a PC get the PC default
-            Node additionalParentNode = graph.getNode(parent);
-            if (additionalParentNode.getType().equals(PC)) {
-               additionalParents[i] = getPolicyClassDefault(additionalParentNode.getName(), type);
+            Node parentNode = graph.getNode(parent);
+            if (parentNode.getType().equals(PC)) {
+                parent = getPolicyClassDefault(parentNode.getName(), type);
+                parentNode = getNode(parent);
+            }
+            parentNodes.add(parentNode);
+
+            // check any additional parents before assigning
+            for (int i = 0; i < additionalParents.length; i++) {
+                String additionalParent = additionalParents[i];
+
+                if (!hasPermissions(userCtx, additionalParent, ASSIGN_TO)) {
+                    // if the user cannot assign to the parent node, delete the newly created node
+                    throw new PMAuthorizationException(String.format("unauthorized permission \"%s\" on %s", ASSIGN_TO, additionalParent));
+                }
+
+                // if the parent is a PC get the PC default
+                Node additionalParentNode = graph.getNode(additionalParent);
+                if (additionalParentNode.getType().equals(PC)) {
+                   additionalParents[i] = getPolicyClassDefault(additionalParentNode.getName(), type);
+                }
+            }
+
+            //create the node
+            Node created = getGraphPAP().createNode(name, type, nodeProperties, parent, additionalParents);
+            for (String additionalParent : additionalParents) {
+                parentNodes.add(graph.getNode(additionalParent));
             }
-        }
 
-        //create the node
-        Node node = getGraphPAP().createNode(name, type, properties, initialParent, additionalParents);
+            return created;
+        });
+        resetSubjectContext();
 
-        // process event for initial parent
-        getEPP().processEvent(new AssignToEvent(parentNode, node), userCtx.getUser(), userCtx.getProcess());
-        // process event for any additional parents
-        for (String parent : additionalParents) {
-            parentNode = graph.getNode(parent);
-            getEPP().processEvent(new AssignToEvent(parentNode, node), userCtx.getUser(), userCtx.getProcess());
+        // the events of the assignments are processed together if the EPP coalesces events
+        boolean batch = getEPP().isCoalescing();
+        if (batch) {
+            getEPP().beginEventBatch();
+        }
+        try {
+            // process the event of the initial parent and any additional parents
+            for (Node parentNode : parentNodes) {
+                processEvent(new AssignToEvent(parentNode, node));
+            }
+        } finally {
+            if (batch) {
+                getEPP().endEventBatch();
+                resetSubjectContext();
+            }
         }
 
         return node;
@@ -183,13 +210,16 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        // check that the user can update the node
-        if(!hasPermissions(userCtx, name, UPDATE_NODE)) {
-            throw new PMAuthorizationException(String.format("unauthorized permission %s on node %s", UPDATE_NODE, name));
-        }
+        write(() -> {
+            // check that the user can update the node
+            if(!hasPermissions(userCtx, name, UPDATE_NODE)) {
+                throw new PMAuthorizationException(String.format("unauthorized permission %s on node %s", UPDATE_NODE, name));
+            }
 
-        //update node in the PAP
-        getGraphPAP().updateNode(name, properties);
+            //update node in the PAP
+            getGraphPAP().updateNode(name, properties);
+            return null;
+        });
     }
 
     /**
@@ -205,34 +235,44 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        Node node = getGraphPAP().getNode(name);
+        // the node is checked and deleted holding the write lock, so it cannot change in between, and its events are
+        // processed from the captured nodes once the lock is released
+        List<Node> nodes = write(() -> {
+            Node node = getGraphPAP().getNode(name);
 
-        // check the user can deassign the node
-        if (!hasPermissions(userCtx, name, DEASSIGN)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", name, DEASSIGN));
-        }
+            // check the user can deassign the node
+            if (!hasPermissions(userCtx, name, DEASSIGN)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", name, DEASSIGN));
+            }
 
-        // check that the user can deassign from the node's parents
-        Set<String> parents = getGraphPAP().getParents(name);
-        for(String parent : parents) {
-            if(!hasPermissions(userCtx, parent, DEASSIGN_FROM)) {
-                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", parent, DEASSIGN_FROM));
+            // check that the user can deassign from the node's parents
+            List<Node> checked = new ArrayList<>();
+            checked.add(node);
+            for(String parent : getGraphPAP().getParents(name)) {
+                if(!hasPermissions(userCtx, parent, DEASSIGN_FROM)) {
+                    throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", parent, DEASSIGN_FROM));
+                }
+                checked.add(getGraphPAP().getNode(parent));
             }
 
-            Node parentNode = getGraphPAP().getNode(parent);
+            // if it's a PC, delete the rep
+            if (node.getType().equals(PC)) {
+                if (node.getProperties().containsKey(REP_PROPERTY)) {
+                    getGraphPAP().deleteNode(node.getProperties().get(REP_PROPERTY));
+                }
+            }
 
-            getEPP().processEvent(new DeassignEvent(node, parentNode), userCtx.getUser(), userCtx.getProcess());
-            getEPP().processEvent(new DeassignFromEvent(parentNode, node), userCtx.getUser(), userCtx.getProcess());
-        }
+            getGraphPAP().deleteNode(name);
+            resetSubjectContext();
 
-        // if it's a PC, delete the rep
-        if (node.getType().equals(PC)) {
-            if (node.getProperties().containsKey(REP_PROPERTY)) {
-                getGraphPAP().deleteNode(node.getProperties().get(REP_PROPERTY));
-            }
-        }
+            return checked;
+        });
 
-        getGraphPAP().deleteNode(name);
+        Node node = nodes.get(0);
+        for(Node parentNode : nodes.subList(1, nodes.size())) {
+            processEvent(new DeassignEvent(node, parentNode));
+            processEvent(new DeassignFromEvent(parentNode, node));
+        }
     }
 
     /**
@@ -246,27 +286,29 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        boolean exists = getGraphPAP().exists(name);
-        if (!exists) {
-            return false;
-        }
+        return read(() -> {
+            boolean exists = getGraphPAP().exists(name);
+            if (!exists) {
+                return false;
+            }
 
-        Node node = getGraphPAP().getNode(name);
+            Node node = getGraphPAP().getNode(name);
 
-        // if the node is a pc the user must have permission on the rep OA of the PC
-        if (node.getType().equals(PC)) {
-            String pcRep = node.getProperties().get(REP_PROPERTY);
-            node = getGraphPAP().getNode(pcRep);
-            return hasPermissions(userCtx, node.getName(), ANY_OPERATIONS);
-        }
+            // if the node is a pc the user must have permission on the rep OA of the PC
+            if (node.getType().equals(PC)) {
+                String pcRep = node.getProperties().get(REP_PROPERTY);
+                node = getGraphPAP().getNode(pcRep);
+                return hasPermissions(userCtx, node.getName(), ANY_OPERATIONS);
+            }
 
-        // node exists, return false if the user does not have access to it.
-        return hasPermissions(userCtx, name, ANY_OPERATIONS);
+            // node exists, return false if the user does not have access to it.
+            return hasPermissions(userCtx, name, ANY_OPERATIONS);
+        });
     }
 
     /**
-     * Retrieve the list of all nodes in the graph.  Go to the database to do this, since it is more likely to have
-     * all of the node information.
+     * Retrieve the list of all nodes in the graph that the user has any permissions on.  Go to the database to do this,
+     * since it is more likely to have all of the node information.
      * @return the set of all nodes in the graph.
      * @throws PMException if there is an error getting the nodes from the PAP.
      */
@@ -275,18 +317,47 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        Set<Node> nodes = new HashSet<>(getGraphPAP().getNodes());
-        nodes.removeIf((node) -> {
-            try {
-                return !hasPermissions(userCtx, node.getName(), ANY_OPERATIONS);
-            }
-            catch (PMException e) {
-                e.printStackTrace();
-                return true;
+        return read(() -> {
+            Set<Node> nodes = new HashSet<>(getGraphPAP().getNodes());
+            Set<String> names = new HashSet<>();
+            for (Node node : nodes) {
+                names.add(node.getName());
             }
+
+            Set<String> accessible = getAccessibleNodes(names);
+            nodes.removeIf((node) -> !accessible.contains(node.getName()));
+
+            return nodes;
         });
+    }
+
+    /**
+     * Retrieve a page of the nodes the user has any permissions on, ordered by name. Pages are read from the PAP and
+     * filtered one at a time until the page is full, so nodes are never all read or checked at once.
+     */
+    @Override
+    public Page<Node> getNodes(String token, int pageSize) throws PMException {
+        if(userCtx == null) {
+            throw new PMException("no user context provided to the PDP");
+        }
 
-        return new HashSet<>(nodes);
+        return read(() -> {
+            return getAccessiblePage(t -> getGraphPAP().getNodes(t, pageSize), Node::getName, token, pageSize);
+        });
+    }
+
+    /**
+     * Stream the nodes the user has any permissions on, ordered by name.  Nodes are read in pages and filtered lazily
+     * as the stream is consumed, and the graph can be changed while the stream is consumed.  A PMException thrown while
+     * filtering is rethrown as a PMRuntimeException.
+     */
+    @Override
+    public Stream<Node> streamNodes() throws PMException {
+        if(userCtx == null) {
+            throw new PMException("no user context provided to the PDP");
+        }
+
+        return pageStream(t -> getGraphPAP().getNodes(t, STREAM_BATCH_SIZE), Node::getName);
     }
 
     /**
@@ -299,7 +370,9 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        return getGraphPAP().getPolicyClasses();
+        return read(() -> {
+            return getGraphPAP().getPolicyClasses();
+        });
     }
 
     /**
@@ -317,22 +390,44 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(!exists(name)) {
-            throw new PMException(String.format("node %s could not be found", name));
+        return read(() -> {
+            if(!exists(name)) {
+                throw new PMException(String.format("node %s could not be found", name));
+            }
+
+            Set<String> children = getGraphPAP().getChildren(name);
+            children.retainAll(getAccessibleNodes(children));
+
+            return children;
+        });
+    }
+
+    @Override
+    public Page<String> getChildren(String name, String token, int pageSize) throws PMException {
+        if(userCtx == null) {
+            throw new PMException("no user context provided to the PDP");
         }
 
-        Set<String> children = getGraphPAP().getChildren(name);
-        children.removeIf((node) -> {
-            try {
-                return !hasPermissions(userCtx, node, ANY_OPERATIONS);
-            }
-            catch (PMException e) {
-                e.printStackTrace();
-                return true;
+        return read(() -> {
+            if(!exists(name)) {
+                throw new PMException(String.format("node %s could not be found", name));
             }
+
+            return getAccessiblePage(t -> getGraphPAP().getChildren(name, t, pageSize), c -> c, token, pageSize);
         });
+    }
 
-        return children;
+    @Override
+    public Stream<String> streamChildren(String name) throws PMException {
+        if(userCtx == null) {
+            throw new PMException("no user context provided to the PDP");
+        }
+
+        if(!exists(name)) {
+            throw new PMException(String.format("node %s could not be found", name));
+        }
+
+        return pageStream(t -> getGraphPAP().getChildren(name, t, STREAM_BATCH_SIZE), c -> c);
     }
 
     /**
@@ -348,22 +443,16 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(!exists(name)) {
-            throw new PMException(String.format("node %s could not be found", name));
-        }
-
-        Set<String> parents = getGraphPAP().getParents(name);
-        parents.removeIf((node) -> {
-            try {
-                return !hasPermissions(userCtx, node, ANY_OPERATIONS);
-            }
-            catch (PMException e) {
-                e.printStackTrace();
-                return true;
+        return read(() -> {
+            if(!exists(name)) {
+                throw new PMException(String.format("node %s could not be found", name));
             }
-        });
 
-        return parents;
+            Set<String> parents = getGraphPAP().getParents(name);
+            parents.retainAll(getAccessibleNodes(parents));
+
+            return parents;
+        });
     }
 
     /**
@@ -382,41 +471,47 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        // check that the nodes are not null
-        if(child == null) {
-            throw new IllegalArgumentException("the child node name cannot be null when creating an assignment");
-        } else if(parent == null) {
-            throw new IllegalArgumentException("the parent node name cannot be null when creating an assignment");
-        } else if(!exists(child)) {
-            throw new PMException(String.format("child node %s does not exist", child));
-        } else if(!exists(parent)) {
-            throw new PMException(String.format("parent node %s does not exist", parent));
-        }
+        // the assignment is created holding the write lock, its events are processed once the lock is released
+        Node[] nodes = write(() -> {
+            // check that the nodes are not null
+            if(child == null) {
+                throw new IllegalArgumentException("the child node name cannot be null when creating an assignment");
+            } else if(parent == null) {
+                throw new IllegalArgumentException("the parent node name cannot be null when creating an assignment");
+            } else if(!exists(child)) {
+                throw new PMException(String.format("child node %s does not exist", child));
+            } else if(!exists(parent)) {
+                throw new PMException(String.format("parent node %s does not exist", parent));
+            }
 
-        //check the user can assign the child
-        if(!hasPermissions(userCtx, child, ASSIGN)) {
-            throw new PMAuthorizationException(String.format("unauthorized permission %s on node %s", ASSIGN, child));
-        }
+            //check the user can assign the child
+            if(!hasPermissions(userCtx, child, ASSIGN)) {
+                throw new PMAuthorizationException(String.format("unauthorized permission %s on node %s", ASSIGN, child));
+            }
 
-        //check if the assignment is valid
-        Node childNode = getNode(child);
-        Node parentNode = getNode(parent);
-        Assignment.checkAssignment(childNode.getType(), parentNode.getType());
+            //check if the assignment is valid
+            Node childNode = getNode(child);
+            Node parentNode = getNode(parent);
+            Assignment.checkAssignment(childNode.getType(), parentNode.getType());
 
-        // check that the user can assign to the parent node
-        if (!hasPermissions(userCtx, parent, ASSIGN_TO)) {
-            throw new PMAuthorizationException(String.format("unauthorized permission %s on node %s", ASSIGN_TO, parent));
-        }
+            // check that the user can assign to the parent node
+            if (!hasPermissions(userCtx, parent, ASSIGN_TO)) {
+                throw new PMAuthorizationException(String.format("unauthorized permission %s on node %s", ASSIGN_TO, parent));
+            }
 
-        if (parentNode.getType().equals(PC)) {
-            parent = getPolicyClassDefault(parentNode.getName(), childNode.getType());
-        }
+            String assignTo = parent;
+            if (parentNode.getType().equals(PC)) {
+                assignTo = getPolicyClassDefault(parentNode.getName(), childNode.getType());
+            }
 
-        // assign in the PAP
-        getGraphPAP().assign(child, parent);
+            // assign in the PAP
+            getGraphPAP().assign(child, assignTo);
+            return new Node[]{childNode, parentNode};
+        });
+        resetSubjectContext();
 
-        getEPP().processEvent(new AssignEvent(childNode, parentNode), userCtx.getUser(), userCtx.getProcess());
-        getEPP().processEvent(new AssignToEvent(parentNode, childNode), userCtx.getUser(), userCtx.getProcess());
+        processEvent(new AssignEvent(nodes[0], nodes[1]));
+        processEvent(new AssignToEvent(nodes[1], nodes[0]));
     }
 
     /**
@@ -434,35 +529,38 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        // check that the parameters are correct
-        if(child == null) {
-            throw new IllegalArgumentException("the child node cannot be null when deassigning");
-        } else if(parent == null) {
-            throw new IllegalArgumentException("the parent node cannot be null when deassigning");
-        } else if(!exists(child)) {
-            throw new PMException(String.format("child node %s could not be found when deassigning", child));
-        } else if(!exists(parent)) {
-            throw new PMException(String.format("parent node %s could not be found when deassigning", parent));
-        }
+        // the assignment is deleted holding the write lock, its events are processed once the lock is released
+        Node[] nodes = write(() -> {
+            // check that the parameters are correct
+            if(child == null) {
+                throw new IllegalArgumentException("the child node cannot be null when deassigning");
+            } else if(parent == null) {
+                throw new IllegalArgumentException("the parent node cannot be null when deassigning");
+            } else if(!exists(child)) {
+                throw new PMException(String.format("child node %s could not be found when deassigning", child));
+            } else if(!exists(parent)) {
+                throw new PMException(String.format("parent node %s could not be found when deassigning", parent));
+            }
 
-        //check the user can deassign the child
-        if(!hasPermissions(userCtx, child, DEASSIGN)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", child, DEASSIGN));
-        }
+            //check the user can deassign the child
+            if(!hasPermissions(userCtx, child, DEASSIGN)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", child, DEASSIGN));
+            }
 
-        //check that the user can deassign from the parent
-        if (!hasPermissions(userCtx, parent, DEASSIGN_FROM)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", parent, DEASSIGN_FROM));
-        }
+            //check that the user can deassign from the parent
+            if (!hasPermissions(userCtx, parent, DEASSIGN_FROM)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", parent, DEASSIGN_FROM));
+            }
 
-        //delete assignment in PAP
-        getGraphPAP().deassign(child, parent);
+            //delete assignment in PAP
+            getGraphPAP().deassign(child, parent);
+            resetSubjectContext();
 
-        Node parentNode = getNode(parent);
-        Node childNode = getNode(child);
+            return new Node[]{getNode(child), getNode(parent)};
+        });
 
-        getEPP().processEvent(new DeassignEvent(childNode, parentNode), userCtx.getUser(), userCtx.getProcess());
-        getEPP().processEvent(new DeassignFromEvent(parentNode, childNode), userCtx.getUser(), userCtx.getProcess());
+        processEvent(new DeassignEvent(nodes[0], nodes[1]));
+        processEvent(new DeassignFromEvent(nodes[1], nodes[0]));
     }
 
     @Override
@@ -471,11 +569,13 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        Node parentNode = getNode(parent);
-        Node childNode = getNode(child);
+        return read(() -> {
+            Node parentNode = getNode(parent);
+            Node childNode = getNode(child);
 
-        return getGraphPAP().isAssigned(childNode.getName(), parentNode.getName());
+            return getGraphPAP().isAssigned(childNode.getName(), parentNode.getName());
 
+        });
     }
 
     /**
@@ -498,27 +598,31 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(ua == null) {
-            throw new IllegalArgumentException("the user attribute cannot be null when creating an association");
-        } else if(target == null) {
-            throw new IllegalArgumentException("the target node cannot be null when creating an association");
-        }
+        write(() -> {
+            if(ua == null) {
+                throw new IllegalArgumentException("the user attribute cannot be null when creating an association");
+            } else if(target == null) {
+                throw new IllegalArgumentException("the target node cannot be null when creating an association");
+            }
 
-        Node sourceNode = getNode(ua);
-        Node targetNode = getNode(target);
+            Node sourceNode = getNode(ua);
+            Node targetNode = getNode(target);
 
-        Association.checkAssociation(sourceNode.getType(), targetNode.getType());
+            Association.checkAssociation(sourceNode.getType(), targetNode.getType());
 
-        //check the user can associate the source and target nodes
-        if(!hasPermissions(userCtx, ua, ASSOCIATE)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", sourceNode.getName(), ASSOCIATE));
-        }
-        if (!hasPermissions(userCtx, target, ASSOCIATE)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", targetNode.getName(), ASSOCIATE));
-        }
+            //check the user can associate the source and target nodes
+            if(!hasPermissions(userCtx, ua, ASSOCIATE)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", sourceNode.getName(), ASSOCIATE));
+            }
+            if (!hasPermissions(userCtx, target, ASSOCIATE)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", targetNode.getName(), ASSOCIATE));
+            }
 
-        //create association in PAP
-        getGraphPAP().associate(ua, target, operations);
+            //create association in PAP
+            getGraphPAP().associate(ua, target, operations);
+            resetSubjectContext();
+            return null;
+        });
     }
 
     /**
@@ -538,26 +642,30 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(ua == null) {
-            throw new IllegalArgumentException("the user attribute cannot be null when creating an association");
-        } else if(target == null) {
-            throw new IllegalArgumentException("the target cannot be null when creating an association");
-        } else if(!exists(ua)) {
-            throw new PMException(String.format("node %s could not be found when creating an association", ua));
-        } else if(!exists(target)) {
-            throw new PMException(String.format("node %s could not be found when creating an association", target));
-        }
+        write(() -> {
+            if(ua == null) {
+                throw new IllegalArgumentException("the user attribute cannot be null when creating an association");
+            } else if(target == null) {
+                throw new IllegalArgumentException("the target cannot be null when creating an association");
+            } else if(!exists(ua)) {
+                throw new PMException(String.format("node %s could not be found when creating an association", ua));
+            } else if(!exists(target)) {
+                throw new PMException(String.format("node %s could not be found when creating an association", target));
+            }
 
-        //check the user can associate the source and target nodes
-        if(!hasPermissions(userCtx, ua, DISASSOCIATE)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", ua, DISASSOCIATE));
-        }
-        if (!hasPermissions(userCtx, target, DISASSOCIATE)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", target, DISASSOCIATE));
-        }
+            //check the user can associate the source and target nodes
+            if(!hasPermissions(userCtx, ua, DISASSOCIATE)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", ua, DISASSOCIATE));
+            }
+            if (!hasPermissions(userCtx, target, DISASSOCIATE)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", target, DISASSOCIATE));
+            }
 
-        //create association in PAP
-        getGraphPAP().dissociate(ua, target);
+            //create association in PAP
+            getGraphPAP().dissociate(ua, target);
+            resetSubjectContext();
+            return null;
+        });
     }
 
     /**
@@ -574,16 +682,18 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(!exists(source)) {
-            throw new PMException(String.format("node %s could not be found", source));
-        }
+        return read(() -> {
+            if(!exists(source)) {
+                throw new PMException(String.format("node %s could not be found", source));
+            }
 
-        //check the user can get the associations of the source node
-        if(!hasPermissions(userCtx, source, GET_ASSOCIATIONS)){
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", source, GET_ASSOCIATIONS));
-        }
+            //check the user can get the associations of the source node
+            if(!hasPermissions(userCtx, source, GET_ASSOCIATIONS)){
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", source, GET_ASSOCIATIONS));
+            }
 
-        return getGraphPAP().getSourceAssociations(source);
+            return getGraphPAP().getSourceAssociations(source);
+        });
     }
 
     /**
@@ -600,16 +710,18 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(!exists(target)) {
-            throw new PMException(String.format("node %s could not be found", target));
-        }
+        return read(() -> {
+            if(!exists(target)) {
+                throw new PMException(String.format("node %s could not be found", target));
+            }
 
-        //check the user can get the associations of the source node
-        if(!hasPermissions(userCtx, target, GET_ASSOCIATIONS)){
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", target, GET_ASSOCIATIONS));
-        }
+            //check the user can get the associations of the source node
+            if(!hasPermissions(userCtx, target, GET_ASSOCIATIONS)){
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", target, GET_ASSOCIATIONS));
+            }
 
-        return getGraphPAP().getTargetAssociations(target);
+            return getGraphPAP().getTargetAssociations(target);
+        });
     }
 
     /**
@@ -628,16 +740,37 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        Set<Node> search = getGraphPAP().search(type, properties);
-        search.removeIf(x -> {
-            try {
-                return !hasPermissions(userCtx, x.getName(), ANY_OPERATIONS);
-            }
-            catch (PMException e) {
-                return true;
+        return read(() -> {
+            Set<Node> search = getGraphPAP().search(type, properties);
+            Set<String> names = new HashSet<>();
+            for (Node node : search) {
+                names.add(node.getName());
             }
+
+            Set<String> accessible = getAccessibleNodes(names);
+            search.removeIf(x -> !accessible.contains(x.getName()));
+            return search;
+        });
+    }
+
+    @Override
+    public Page<Node> search(NodeType type, Map<String, String> properties, String token, int pageSize) throws PMException {
+        if(userCtx == null) {
+            throw new PMException("no user context provided to the PDP");
+        }
+
+        return read(() -> {
+            return getAccessiblePage(t -> getGraphPAP().search(type, properties, t, pageSize), Node::getName, token, pageSize);
         });
-        return search;
+    }
+
+    @Override
+    public Stream<Node> streamSearch(NodeType type, Map<String, String> properties) throws PMException {
+        if(userCtx == null) {
+            throw new PMException("no user context provided to the PDP");
+        }
+
+        return pageStream(t -> getGraphPAP().search(type, properties, t, STREAM_BATCH_SIZE), Node::getName);
     }
 
     /**
@@ -653,24 +786,28 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        if(!exists(name)) {
-            throw new PMException(String.format("node %s could not be found", name));
-        }
+        return read(() -> {
+            if(!exists(name)) {
+                throw new PMException(String.format("node %s could not be found", name));
+            }
 
-        if(!hasPermissions(userCtx, name, ANY_OPERATIONS)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", name, ANY_OPERATIONS));
-        }
+            if(!hasPermissions(userCtx, name, ANY_OPERATIONS)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", name, ANY_OPERATIONS));
+            }
 
-        return getGraphPAP().getNode(name);
+            return getGraphPAP().getNode(name);
+        });
     }
 
     @Override
     public Node getNode(NodeType type, Map<String, String> properties) throws PMException {
-        Node node = getGraphPAP().getNode(type, properties);
-        if (!hasPermissions(userCtx, node.getName(), ANY_OPERATIONS)) {
-            throw new PMException(String.format("node (%s, %s) could not be found", type, properties.toString()));
-        }
-        return node;
+        return read(() -> {
+            Node node = getGraphPAP().getNode(type, properties);
+            if (!hasPermissions(userCtx, node.getName(), ANY_OPERATIONS)) {
+                throw new PMException(String.format("node (%s, %s) could not be found", type, properties.toString()));
+            }
+            return node;
+        });
     }
 
     /**
@@ -683,18 +820,141 @@ public class GraphService extends Service implements Graph {
             throw new PMException("no user context provided to the PDP");
         }
 
-        // check that the user can reset the graph
-//        if (!hasPermissions(userCtx, superPolicy.getSuperPolicyClassRep().getName(), RESET)) {
-//            throw new PMAuthorizationException("unauthorized permissions to reset the graph");
-//        }
+        write(() -> {
+            // check that the user can reset the graph
+    //        if (!hasPermissions(userCtx, superPolicy.getSuperPolicyClassRep().getName(), RESET)) {
+    //            throw new PMAuthorizationException("unauthorized permissions to reset the graph");
+    //        }
 
-        Collection<Node> nodes = getGraphPAP().getNodes();
-        Set<String> names = new HashSet<>();
-        for (Node node: nodes) {
-            names.add(node.getName());
-        }
-        for (String name : names) {
-            getGraphPAP().deleteNode(name);
-        }
+            Collection<Node> nodes = getGraphPAP().getNodes();
+            Set<String> names = new HashSet<>();
+            for (Node node: nodes) {
+                names.add(node.getName());
+            }
+            for (String name : names) {
+                getGraphPAP().deleteNode(name);
+            }
+            resetSubjectContext();
+            return null;
+        });
+    }
+
+    /**
+     * Send the event to the EPP on behalf of the user of this service.  Obligations may change the policy in response
+     * to the event, so any memoized SubjectContext is discarded.
+     */
+    private void processEvent(EventContext eventCtx) throws PMException {
+        getEPP().processEvent(eventCtx, userCtx.getUser(), userCtx.getProcess());
+        resetSubjectContext();
+    }
+
+    private interface PageQuery<T> {
+        Page<T> get(String token) throws PMException;
+    }
+
+    /**
+     * Fill a page with the items the user has any permissions on, reading pages from the PAP until the page is full or
+     * there are no more items.  If the page fills up part way through a PAP page, the next token is the name of the last
+     * item returned so the next request continues from there.  The pages are read holding the read lock, so one
+     * resolver is used to check all of them.
+     */
+    private <T> Page<T> getAccessiblePage(PageQuery<T> query, Function<T, String> key, String token, int pageSize) throws PMException {
+        PReviewDecider.BulkResolver resolver = getBulkResolver();
+        List<T> items = new ArrayList<>();
+        String next = token;
+        do {
+            Page<T> page = query.get(next);
+
+            List<String> names = new ArrayList<>();
+            for (T item : page.getItems()) {
+                names.add(key.apply(item));
+            }
+            Set<String> accessible = getAccessibleNodes(names, resolver);
+
+            for (T item : page.getItems()) {
+                if (!accessible.contains(key.apply(item))) {
+                    continue;
+                }
+
+                if (items.size() == pageSize) {
+                    return new Page<>(items, key.apply(items.get(items.size() - 1)));
+                }
+
+                items.add(item);
+            }
+
+            next = page.getNextToken();
+        } while (next != null);
+
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Stream the items the user has any permissions on, reading pages of STREAM_BATCH_SIZE items from the PAP as the
+     * returned stream is consumed.  Each page is read and filtered holding the read lock of the PAP, and the next page
+     * is read from the token of the previous one, so no iterator over the policy is kept while the lock is not held and
+     * the policy can be changed while the stream is consumed, including by the consumer.  The pages are checked with the
+     * same resolver until the version of the policy changes.
+     */
+    private <T> Stream<T> pageStream(PageQuery<T> query, Function<T, String> key) {
+        Iterator<T> filtered = new Iterator<T>() {
+            private Iterator<T> batch = Collections.emptyIterator();
+            private String token;
+            private boolean done;
+            private PReviewDecider.BulkResolver resolver;
+            private long version;
+
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext() && !done) {
+                    try {
+                        batch = read(this::nextPage).iterator();
+                    }
+                    catch (PMException e) {
+                        throw new PMRuntimeException(e);
+                    }
+                }
+
+                return batch.hasNext();
+            }
+
+            /**
+             * @return the accessible items of the next page.
+             */
+            private List<T> nextPage() throws PMException {
+                Page<T> page = query.get(token);
+                token = page.getNextToken();
+                done = token == null;
+
+                // the permissions memoized by the resolver are discarded if the policy changed, or if it is not
+                // versioned and may have changed
+                long current = getPAP().getPolicyVersion();
+                if (resolver == null || current < 0 || current != version) {
+                    resolver = getBulkResolver();
+                    version = current;
+                }
+
+                List<T> items = new ArrayList<>(page.getItems());
+                List<String> names = new ArrayList<>();
+                for (T item : items) {
+                    names.add(key.apply(item));
+                }
+
+                Set<String> accessible = getAccessibleNodes(names, resolver);
+                items.removeIf(item -> !accessible.contains(key.apply(item)));
+                return items;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return batch.next();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(filtered, Spliterator.NONNULL), false);
     }
 }
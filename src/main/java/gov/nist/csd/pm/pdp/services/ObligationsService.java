@@ -4,6 +4,7 @@ import gov.nist.csd.pm.epp.EPP;
 import gov.nist.csd.pm.exceptions.PMAuthorizationException;
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
 import gov.nist.csd.pm.pdp.policy.SuperPolicy;
 import gov.nist.csd.pm.pip.obligations.Obligations;
 import gov.nist.csd.pm.pip.obligations.model.Obligation;
@@ -11,50 +12,63 @@ import gov.nist.csd.pm.pip.obligations.model.Obligation;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 import static gov.nist.csd.pm.operations.Operations.RESET;
 
 public class ObligationsService extends Service implements Obligations {
 
-    public ObligationsService(PAP pap, EPP epp, SuperPolicy superPolicy) {
-        super(pap, epp);
-
-        this.superPolicy = superPolicy;
+    public ObligationsService(PAP pap, EPP epp, PReviewDecider decider, SuperPolicy superPolicy, UserContext userCtx) {
+        super(pap, epp, decider, superPolicy, userCtx);
     }
 
     @Override
     public void add(Obligation obligation, boolean enable) throws PMException {
-        getPAP().getObligationsPAP().add(obligation, enable);
+        // compile the obligation's functions so an invalid obligation is not added
+        if (getEPP() != null) {
+            getEPP().compile(obligation);
+        }
+
+        write(() -> {
+            getPAP().getObligationsPAP().add(obligation, enable);
+            return null;
+        });
     }
 
     @Override
     public Obligation get(String label) {
-        return getPAP().getObligationsPAP().get(label);
+        return readObligations(() -> getPAP().getObligationsPAP().get(label));
     }
 
     @Override
     public List<Obligation> getAll() {
-        return getPAP().getObligationsPAP().getAll();
+        return readObligations(() -> getPAP().getObligationsPAP().getAll());
     }
 
     @Override
     public void update(String label, Obligation obligation) {
-        getPAP().getObligationsPAP().update(label, obligation);
+        writeObligations(() -> getPAP().getObligationsPAP().update(label, obligation));
     }
 
     @Override
     public void delete(String label) {
-        getPAP().getObligationsPAP().delete(label);
+        writeObligations(() -> getPAP().getObligationsPAP().delete(label));
     }
 
     @Override
     public void setEnable(String label, boolean enabled) {
-        getPAP().getObligationsPAP().setEnable(label, enabled);
+        writeObligations(() -> getPAP().getObligationsPAP().setEnable(label, enabled));
     }
 
     @Override
     public List<Obligation> getEnabled() {
-        return getPAP().getObligationsPAP().getEnabled();
+        return readObligations(() -> getPAP().getObligationsPAP().getEnabled());
+    }
+
+    @Override
+    public List<Obligation> getObligationsWithRule(String ruleLabel) {
+        return readObligations(() -> getPAP().getObligationsPAP().getObligationsWithRule(ruleLabel));
     }
 
     public void reset() throws PMException {
@@ -76,4 +90,28 @@ public class ObligationsService extends Service implements Obligations {
             delete(label);
         }
     }
+
+    /**
+     * The methods of Obligations that do not throw PMException hold the lock of the PAP the same way as Service.read
+     * and Service.write.
+     */
+    private <T> T readObligations(Supplier<T> call) {
+        Lock lock = getPAP().getLock().readLock();
+        lock.lock();
+        try {
+            return call.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeObligations(Runnable call) {
+        Lock lock = getPAP().getLock().writeLock();
+        lock.lock();
+        try {
+            call.run();
+        } finally {
+            lock.unlock();
+        }
+    }
 }
@@ -6,6 +6,7 @@ import gov.nist.csd.pm.exceptions.PMAuthorizationException;
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pdp.decider.Decider;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
 import gov.nist.csd.pm.pdp.policy.SuperPolicy;
 import gov.nist.csd.pm.pip.prohibitions.Prohibitions;
 import gov.nist.csd.pm.pip.prohibitions.model.ContainerCondition;
@@ -17,14 +18,12 @@ import static gov.nist.csd.pm.operations.Operations.*;
 
 public class ProhibitionsService extends Service implements Prohibitions {
 
-    public ProhibitionsService(PAP pap, EPP epp, SuperPolicy superPolicy) {
-        super(pap, epp);
-
-        this.superPolicy = superPolicy;
+    public ProhibitionsService(PAP pap, EPP epp, PReviewDecider decider, SuperPolicy superPolicy, UserContext userCtx) {
+        super(pap, epp, decider, superPolicy, userCtx);
     }
 
     public List<Prohibition> getProhibitions() throws PMException {
-        return getProhibitionsPAP().getAll();
+        return read(() -> getProhibitionsPAP().getAll());
     }
 
     @Override
@@ -36,45 +35,57 @@ public class ProhibitionsService extends Service implements Prohibitions {
             throw new IllegalArgumentException("a null name was provided when creating a prohibition");
         }
 
-        //check the prohibitions doesn't already exist
-        for(Prohibition p : getProhibitions()) {
-            if(p.getName().equals(name)) {
-                throw new PMException(String.format("a prohibition with the name %s already exists", name));
+        write(() -> {
+            //check the prohibitions doesn't already exist
+            for(Prohibition p : getProhibitions()) {
+                if(p.getName().equals(name)) {
+                    throw new PMException(String.format("a prohibition with the name %s already exists", name));
+                }
             }
-        }
 
-        // check that the user has permission to create a prohibition on the super policy object
-        if(!getDecider().check(userCtx.getUser(), userCtx.getProcess(), superPolicy.getSuperObjectAttribute().getName(), CREATE_PROHIBITION)) {
-            throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", superPolicy.getSuperObjectAttribute().getName(), CREATE_PROHIBITION));
-        }
+            // check that the user has permission to create a prohibition on the super policy object
+            if(!getDecider().check(userCtx.getUser(), userCtx.getProcess(), superPolicy.getSuperObjectAttribute().getName(), CREATE_PROHIBITION)) {
+                throw new PMAuthorizationException(String.format("unauthorized permissions on %s: %s", superPolicy.getSuperObjectAttribute().getName(), CREATE_PROHIBITION));
+            }
 
-        //create prohibition in PAP
-        getProhibitionsPAP().add(prohibition);
+            //create prohibition in PAP
+            getProhibitionsPAP().add(prohibition);
+            return null;
+        });
+        resetSubjectContext();
     }
 
     @Override
     public List<Prohibition> getAll() throws PMException {
-        return getProhibitionsPAP().getAll();
+        return read(() -> getProhibitionsPAP().getAll());
     }
 
     @Override
     public Prohibition get(String prohibitionName) throws PMException {
-        return getPAP().getProhibitionsPAP().get(prohibitionName);
+        return read(() -> getPAP().getProhibitionsPAP().get(prohibitionName));
     }
 
     @Override
     public List<Prohibition> getProhibitionsFor(String subject) throws PMException {
-        return getPAP().getProhibitionsPAP().getProhibitionsFor(subject);
+        return read(() -> getPAP().getProhibitionsPAP().getProhibitionsFor(subject));
     }
 
     @Override
     public void update(String prohibitionName, Prohibition prohibition) throws PMException {
-        getPAP().getProhibitionsPAP().update(prohibitionName, prohibition);
+        write(() -> {
+            getPAP().getProhibitionsPAP().update(prohibitionName, prohibition);
+            return null;
+        });
+        resetSubjectContext();
     }
 
     @Override
     public void delete(String prohibitionName) throws PMException {
-        getPAP().getProhibitionsPAP().delete(prohibitionName);
+        write(() -> {
+            getPAP().getProhibitionsPAP().delete(prohibitionName);
+            return null;
+        });
+        resetSubjectContext();
     }
 
     public void reset(UserContext userCtx) throws PMException {
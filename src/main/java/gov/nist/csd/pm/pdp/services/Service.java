@@ -5,14 +5,15 @@ import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pdp.decider.Decider;
 import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pdp.decider.SubjectContext;
 import gov.nist.csd.pm.pdp.policy.SuperPolicy;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.obligations.Obligations;
 import gov.nist.csd.pm.pip.prohibitions.Prohibitions;
 
-import java.util.Arrays;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
 
 import static gov.nist.csd.pm.pdp.decider.PReviewDecider.ANY_OPERATIONS;
 import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.PC;
@@ -23,24 +24,30 @@ import static gov.nist.csd.pm.pip.graph.model.nodes.Properties.REP_PROPERTY;
  */
 public class Service {
 
-    private PAP pap;
-    private EPP epp;
-    SuperPolicy superPolicy;
-    UserContext userCtx;
+    private final PAP pap;
+    private final EPP epp;
+    private final PReviewDecider decider;
+    final SuperPolicy superPolicy;
+    final UserContext userCtx;
+
+    // the user side of the graph for userCtx, reused while the policy is at the version it was computed at
+    private volatile SubjectMemo subjectMemo;
 
     /**
-     * Create a new Service with a sessionID and processID from the request context.
+     * Create a new Service bound to the given user context.  A Service is a lightweight view over the shared PAP and EPP,
+     * the user context cannot be changed once the Service is created, so a Service can be handed to a single request
+     * without affecting any other request running concurrently.
      * @param pap the Policy Administration Point
      * @param epp the Event Processing Point
+     * @param decider the Decider shared by all services of the PDP
+     * @param superPolicy the super policy configured by the PDP
+     * @param userCtx the user and process making the request
      */
-    Service(PAP pap, EPP epp) {
+    Service(PAP pap, EPP epp, PReviewDecider decider, SuperPolicy superPolicy, UserContext userCtx) {
         this.pap = pap;
         this.epp = epp;
-    }
-
-    private Service() {}
-
-    public void setUserCtx(UserContext userCtx) {
+        this.decider = decider;
+        this.superPolicy = superPolicy;
         this.userCtx = userCtx;
     }
 
@@ -68,13 +75,77 @@ public class Service {
         return pap.getObligationsPAP();
     }
 
-    public Decider getDecider() throws PMException {
-        return new PReviewDecider(getGraphPAP(), getProhibitionsPAP());
+    public Decider getDecider() {
+        return decider;
     }
 
-    boolean hasPermissions(UserContext userCtx, String target, String... permissions) throws PMException {
-        Decider decider = new PReviewDecider(pap.getGraphPAP(), pap.getProhibitionsPAP());
+    interface PolicyCall<T> {
+        T call() throws PMException;
+    }
+
+    /**
+     * Make the call holding the read lock of the PAP, so the policy is not changed by another thread while it is read.
+     */
+    <T> T read(PolicyCall<T> call) throws PMException {
+        return locked(pap.getLock().readLock(), call);
+    }
+
+    /**
+     * Make the call holding the write lock of the PAP.  Events are processed after the call returns, since the workers
+     * of an asynchronous EPP cannot process them while the lock is held.
+     */
+    <T> T write(PolicyCall<T> call) throws PMException {
+        return locked(pap.getLock().writeLock(), call);
+    }
 
+    private static <T> T locked(Lock lock, PolicyCall<T> call) throws PMException {
+        lock.lock();
+        try {
+            return call.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the SubjectContext of the user of this service.  The SubjectContext is reused by later permission checks while
+     * the version of the policy is the one it was computed at, so a change made by any service or thread is seen by the
+     * next check.  If the policy is not versioned the SubjectContext is computed for every check.
+     */
+    SubjectContext getSubjectContext() throws PMException {
+        long version = pap.getPolicyVersion();
+        SubjectMemo memo = subjectMemo;
+        if (memo != null && version >= 0 && memo.version == version) {
+            return memo.subjectCtx;
+        }
+
+        SubjectContext subjectCtx = decider.getSubjectContext(userCtx.getUser(), userCtx.getProcess());
+        if (version >= 0) {
+            subjectMemo = new SubjectMemo(subjectCtx, version);
+        }
+
+        return subjectCtx;
+    }
+
+    /**
+     * Discard the memoized SubjectContext.  This is called any time this service changes the policy since the change
+     * may affect the user side of the graph.
+     */
+    void resetSubjectContext() {
+        subjectMemo = null;
+    }
+
+    private static class SubjectMemo {
+        private final SubjectContext subjectCtx;
+        private final long           version;
+
+        SubjectMemo(SubjectContext subjectCtx, long version) {
+            this.subjectCtx = subjectCtx;
+            this.version = version;
+        }
+    }
+
+    boolean hasPermissions(UserContext userCtx, String target, String... permissions) throws PMException {
         Node node = pap.getGraphPAP().getNode(target);
         if (node.getType().equals(PC)) {
             if (!node.getProperties().containsKey(REP_PROPERTY)) {
@@ -84,7 +155,14 @@ public class Service {
             target = node.getProperties().get(REP_PROPERTY);
         }
 
-        Set<String> perms = decider.list(userCtx.getUser(), userCtx.getProcess(), target);
+        SubjectContext subjectCtx;
+        if (userCtx.equals(this.userCtx)) {
+            subjectCtx = getSubjectContext();
+        } else {
+            subjectCtx = decider.getSubjectContext(userCtx.getUser(), userCtx.getProcess());
+        }
+
+        Set<String> perms = decider.list(subjectCtx, target);
         if(permissions.length == 0 || Arrays.asList(permissions).contains(ANY_OPERATIONS)) {
             return !perms.isEmpty();
         } else if (perms.contains("*")) {
@@ -93,4 +171,55 @@ public class Service {
             return !perms.isEmpty() && perms.containsAll(Arrays.asList(permissions));
         }
     }
+
+    /**
+     * Get the subset of the given nodes that the user of this service has any permissions on.  This returns the same
+     * nodes as calling hasPermissions(userCtx, node, ANY_OPERATIONS) for each node, but the user's accessible region of
+     * the graph is computed once and intersected with the given nodes, rather than making a full decision per node.
+     * As with hasPermissions, the rep of a policy class is used in place of the policy class, and a policy class without
+     * a rep is never accessible.
+     * @param nodes the names of the nodes to filter.
+     * @return the names of the nodes the user has any permissions on.
+     */
+    Set<String> getAccessibleNodes(Collection<String> nodes) throws PMException {
+        return getAccessibleNodes(nodes, getBulkResolver());
+    }
+
+    /**
+     * Get the subset of the given nodes that the user has any permissions on using the given resolver, so callers that
+     * filter nodes in several parts can reuse what the resolver computed for the earlier parts.
+     * @param nodes the names of the nodes to filter.
+     * @param resolver a resolver created by getBulkResolver since the policy last changed.
+     * @return the names of the nodes the user has any permissions on.
+     */
+    Set<String> getAccessibleNodes(Collection<String> nodes, PReviewDecider.BulkResolver resolver) throws PMException {
+        // map each node to the node permissions are checked on
+        Map<String, String> targets = new HashMap<>();
+        for (String name : nodes) {
+            Node node = pap.getGraphPAP().getNode(name);
+            if (node.getType().equals(PC)) {
+                if (node.getProperties().containsKey(REP_PROPERTY)) {
+                    targets.put(name, node.getProperties().get(REP_PROPERTY));
+                }
+            } else {
+                targets.put(name, name);
+            }
+        }
+
+        Set<String> accessible = new HashSet<>();
+        for (Map.Entry<String, String> entry : targets.entrySet()) {
+            if (!resolver.list(entry.getValue()).isEmpty()) {
+                accessible.add(entry.getKey());
+            }
+        }
+
+        return accessible;
+    }
+
+    /**
+     * @return a resolver of the permissions of the user of this service.
+     */
+    PReviewDecider.BulkResolver getBulkResolver() throws PMException {
+        return decider.getBulkResolver(getSubjectContext());
+    }
 }
@@ -1,8 +1,10 @@
 package gov.nist.csd.pm.pdp.services;
 
+import java.util.Objects;
+
 public class UserContext {
-    private String user;
-    private String process;
+    private final String user;
+    private final String process;
 
     public UserContext(String user, String process) {
         this.user = user;
@@ -21,4 +23,19 @@ public class UserContext {
     public String getProcess() {
         return process;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof UserContext)) {
+            return false;
+        }
+
+        UserContext ctx = (UserContext) o;
+        return Objects.equals(user, ctx.user) && Objects.equals(process, ctx.process);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(user, process);
+    }
 }
@@ -0,0 +1,22 @@
+package gov.nist.csd.pm.pdp.workload;
+
+/**
+ * The types of PDP calls captured by a WorkloadRecorder.
+ */
+public enum OperationType {
+    CHECK,
+    LIST,
+    FILTER,
+    GET_CHILDREN,
+    GET_CAPABILITY_LIST,
+    GENERATE_ACL,
+    CREATE_POLICY_CLASS,
+    CREATE_NODE,
+    UPDATE_NODE,
+    DELETE_NODE,
+    ASSIGN,
+    DEASSIGN,
+    ASSOCIATE,
+    DISSOCIATE,
+    EVENT
+}
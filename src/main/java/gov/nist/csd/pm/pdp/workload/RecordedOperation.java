@@ -0,0 +1,69 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import java.util.Arrays;
+
+/**
+ * A PDP call captured by a WorkloadRecorder.  Each argument of the call is an array of strings: single values are
+ * arrays of one string, properties are arrays of alternating keys and values, and a null argument is null.
+ */
+public class RecordedOperation {
+
+    private OperationType type;
+    private long          timestamp;
+    private boolean       nested;
+    private String        user;
+    private String        process;
+    private String[][]    args;
+
+    public RecordedOperation(OperationType type, long timestamp, boolean nested, String user, String process, String[][] args) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.nested = nested;
+        this.user = user;
+        this.process = process;
+        this.args = args;
+    }
+
+    public OperationType getType() {
+        return type;
+    }
+
+    /**
+     * @return the time the call was made, in nanoseconds since the recording started.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return true if the call was made by another recorded call, such as an event processed by a GraphService
+     * mutation.  Nested calls are made again when the call that made them is replayed, so they are not replayed.
+     */
+    public boolean isNested() {
+        return nested;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getProcess() {
+        return process;
+    }
+
+    public String[][] getArgs() {
+        return args;
+    }
+
+    /**
+     * @return the single value of the argument at the given index, or null if the argument is null.
+     */
+    public String getArg(int i) {
+        return args[i] == null ? null : args[i][0];
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + user + " " + process + " " + Arrays.deepToString(args);
+    }
+}
@@ -0,0 +1,59 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pdp.decider.Decider;
+
+import java.util.Map;
+import java.util.Set;
+
+import static gov.nist.csd.pm.pdp.workload.WorkloadRecorder.value;
+
+/**
+ * A Decider that records each decision before making it with another Decider.
+ */
+class RecordingDecider implements Decider {
+
+    private WorkloadRecorder recorder;
+    private Decider          decider;
+
+    RecordingDecider(WorkloadRecorder recorder, Decider decider) {
+        this.recorder = recorder;
+        this.decider = decider;
+    }
+
+    @Override
+    public boolean check(String subject, String process, String target, String... perms) throws PMException {
+        recorder.record(OperationType.CHECK, subject, process, value(target), perms);
+        return recorder.call(() -> decider.check(subject, process, target, perms));
+    }
+
+    @Override
+    public Set<String> list(String subject, String process, String target) throws PMException {
+        recorder.record(OperationType.LIST, subject, process, value(target));
+        return recorder.call(() -> decider.list(subject, process, target));
+    }
+
+    @Override
+    public Set<String> filter(String subject, String process, Set<String> nodes, String... perms) throws PMException {
+        recorder.record(OperationType.FILTER, subject, process, nodes == null ? null : nodes.toArray(new String[0]), perms);
+        return recorder.call(() -> decider.filter(subject, process, nodes, perms));
+    }
+
+    @Override
+    public Set<String> getChildren(String subject, String process, String target, String... perms) throws PMException {
+        recorder.record(OperationType.GET_CHILDREN, subject, process, value(target), perms);
+        return recorder.call(() -> decider.getChildren(subject, process, target, perms));
+    }
+
+    @Override
+    public Map<String, Set<String>> getCapabilityList(String subject, String process) throws PMException {
+        recorder.record(OperationType.GET_CAPABILITY_LIST, subject, process);
+        return recorder.call(() -> decider.getCapabilityList(subject, process));
+    }
+
+    @Override
+    public Map<String, Set<String>> generateACL(String target, String process) throws PMException {
+        recorder.record(OperationType.GENERATE_ACL, null, process, value(target));
+        return recorder.call(() -> decider.generateACL(target, process));
+    }
+}
@@ -0,0 +1,211 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.Page;
+import gov.nist.csd.pm.pip.graph.dag.visitor.AssociationVisitor;
+import gov.nist.csd.pm.pip.graph.dag.visitor.NameVisitor;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static gov.nist.csd.pm.pdp.workload.WorkloadRecorder.properties;
+import static gov.nist.csd.pm.pdp.workload.WorkloadRecorder.value;
+
+/**
+ * A Graph that records each mutation of a user's GraphService before making it.  Queries are passed to the GraphService
+ * without being recorded.
+ */
+class RecordingGraph implements Graph {
+
+    private WorkloadRecorder recorder;
+    private Graph            graph;
+    private String           user;
+    private String           process;
+
+    RecordingGraph(WorkloadRecorder recorder, Graph graph, UserContext userCtx) {
+        this.recorder = recorder;
+        this.graph = graph;
+        this.user = userCtx.getUser();
+        this.process = userCtx.getProcess();
+    }
+
+    @Override
+    public Node createPolicyClass(String name, Map<String, String> properties) throws PMException {
+        recorder.record(OperationType.CREATE_POLICY_CLASS, user, process, value(name), properties(properties));
+        return recorder.call(() -> graph.createPolicyClass(name, properties));
+    }
+
+    @Override
+    public Node createNode(String name, NodeType type, Map<String, String> properties, String initialParent,
+                           String... additionalParents) throws PMException {
+        recorder.record(OperationType.CREATE_NODE, user, process, value(name), type == null ? null : value(type.toString()),
+                properties(properties), value(initialParent), additionalParents);
+        return recorder.call(() -> graph.createNode(name, type, properties, initialParent, additionalParents));
+    }
+
+    @Override
+    public void updateNode(String name, Map<String, String> properties) throws PMException {
+        recorder.record(OperationType.UPDATE_NODE, user, process, value(name), properties(properties));
+        recorder.call(() -> {
+            graph.updateNode(name, properties);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteNode(String name) throws PMException {
+        recorder.record(OperationType.DELETE_NODE, user, process, value(name));
+        recorder.call(() -> {
+            graph.deleteNode(name);
+            return null;
+        });
+    }
+
+    @Override
+    public void assign(String child, String parent) throws PMException {
+        recorder.record(OperationType.ASSIGN, user, process, value(child), value(parent));
+        recorder.call(() -> {
+            graph.assign(child, parent);
+            return null;
+        });
+    }
+
+    @Override
+    public void deassign(String child, String parent) throws PMException {
+        recorder.record(OperationType.DEASSIGN, user, process, value(child), value(parent));
+        recorder.call(() -> {
+            graph.deassign(child, parent);
+            return null;
+        });
+    }
+
+    @Override
+    public void associate(String ua, String target, OperationSet operations) throws PMException {
+        recorder.record(OperationType.ASSOCIATE, user, process, value(ua), value(target),
+                operations == null ? null : operations.toArray(new String[0]));
+        recorder.call(() -> {
+            graph.associate(ua, target, operations);
+            return null;
+        });
+    }
+
+    @Override
+    public void dissociate(String ua, String target) throws PMException {
+        recorder.record(OperationType.DISSOCIATE, user, process, value(ua), value(target));
+        recorder.call(() -> {
+            graph.dissociate(ua, target);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean exists(String name) throws PMException {
+        return graph.exists(name);
+    }
+
+    @Override
+    public Set<String> getPolicyClasses() throws PMException {
+        return graph.getPolicyClasses();
+    }
+
+    @Override
+    public Set<Node> getNodes() throws PMException {
+        return graph.getNodes();
+    }
+
+    @Override
+    public Page<Node> getNodes(String token, int pageSize) throws PMException {
+        return graph.getNodes(token, pageSize);
+    }
+
+    @Override
+    public Stream<Node> streamNodes() throws PMException {
+        return graph.streamNodes();
+    }
+
+    @Override
+    public Node getNode(String name) throws PMException {
+        return graph.getNode(name);
+    }
+
+    @Override
+    public Node getNode(NodeType type, Map<String, String> properties) throws PMException {
+        return graph.getNode(type, properties);
+    }
+
+    @Override
+    public Set<Node> search(NodeType type, Map<String, String> properties) throws PMException {
+        return graph.search(type, properties);
+    }
+
+    @Override
+    public Page<Node> search(NodeType type, Map<String, String> properties, String token, int pageSize) throws PMException {
+        return graph.search(type, properties, token, pageSize);
+    }
+
+    @Override
+    public Stream<Node> streamSearch(NodeType type, Map<String, String> properties) throws PMException {
+        return graph.streamSearch(type, properties);
+    }
+
+    @Override
+    public Set<String> getChildren(String name) throws PMException {
+        return graph.getChildren(name);
+    }
+
+    @Override
+    public Page<String> getChildren(String name, String token, int pageSize) throws PMException {
+        return graph.getChildren(name, token, pageSize);
+    }
+
+    @Override
+    public Stream<String> streamChildren(String name) throws PMException {
+        return graph.streamChildren(name);
+    }
+
+    @Override
+    public Set<String> getParents(String name) throws PMException {
+        return graph.getParents(name);
+    }
+
+    @Override
+    public void forEachChild(String name, NameVisitor visitor) throws PMException {
+        graph.forEachChild(name, visitor);
+    }
+
+    @Override
+    public void forEachParent(String name, NameVisitor visitor) throws PMException {
+        graph.forEachParent(name, visitor);
+    }
+
+    @Override
+    public boolean isAssigned(String child, String parent) throws PMException {
+        return graph.isAssigned(child, parent);
+    }
+
+    @Override
+    public Map<String, OperationSet> getSourceAssociations(String source) throws PMException {
+        return graph.getSourceAssociations(source);
+    }
+
+    @Override
+    public Map<String, OperationSet> getTargetAssociations(String target) throws PMException {
+        return graph.getTargetAssociations(target);
+    }
+
+    @Override
+    public void forEachSourceAssociation(String source, AssociationVisitor visitor) throws PMException {
+        graph.forEachSourceAssociation(source, visitor);
+    }
+
+    @Override
+    public void forEachTargetAssociation(String target, AssociationVisitor visitor) throws PMException {
+        graph.forEachTargetAssociation(target, visitor);
+    }
+}
@@ -0,0 +1,106 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The throughput and latencies of a replayed workload.
+ */
+public class ReplayReport {
+
+    private long                               elapsedNanos;
+    private Map<OperationType, OperationStats> stats;
+
+    ReplayReport(long elapsedNanos, Map<OperationType, long[]> latencies, Map<OperationType, Integer> errors) {
+        this.elapsedNanos = elapsedNanos;
+        this.stats = new EnumMap<>(OperationType.class);
+        for (Map.Entry<OperationType, long[]> e : latencies.entrySet()) {
+            Integer typeErrors = errors.get(e.getKey());
+            stats.put(e.getKey(), new OperationStats(e.getValue(), typeErrors == null ? 0 : typeErrors));
+        }
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the number of operations replayed.
+     */
+    public long getOperations() {
+        long operations = 0;
+        for (OperationStats s : stats.values()) {
+            operations += s.getCount();
+        }
+        return operations;
+    }
+
+    /**
+     * @return the number of operations replayed per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getOperations() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the statistics of each type of operation that was replayed.
+     */
+    public Map<OperationType, OperationStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%d operations in %.1f ms, %.1f ops/s%n",
+                getOperations(), elapsedNanos / 1e6, getThroughput()));
+        sb.append(String.format("%-20s %8s %8s %12s %12s %12s %12s%n",
+                "operation", "count", "errors", "p50 (us)", "p90 (us)", "p99 (us)", "max (us)"));
+        for (Map.Entry<OperationType, OperationStats> e : stats.entrySet()) {
+            OperationStats s = e.getValue();
+            sb.append(String.format("%-20s %8d %8d %12.1f %12.1f %12.1f %12.1f%n", e.getKey(), s.getCount(), s.getErrors(),
+                    s.getPercentile(50) / 1e3, s.getPercentile(90) / 1e3, s.getPercentile(99) / 1e3, s.getMax() / 1e3));
+        }
+        return sb.toString();
+    }
+
+    public static class OperationStats {
+        private long[] latencies;
+        private int    errors;
+
+        OperationStats(long[] latencies, int errors) {
+            this.latencies = latencies;
+            this.errors = errors;
+            Arrays.sort(this.latencies);
+        }
+
+        public int getCount() {
+            return latencies.length;
+        }
+
+        /**
+         * @return the number of operations that threw an exception.
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100.
+         * @return the latency in nanoseconds that the given percentage of operations did not exceed.
+         */
+        public long getPercentile(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+
+            int i = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(i, latencies.length - 1))];
+        }
+
+        public long getMax() {
+            return latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The binary format of a recorded workload.  A workload file starts with a magic number and a version, followed by one
+ * record per operation:
+ *
+ * type (byte), nanoseconds since the previous operation (varlong), flags (byte), user (string), process (string),
+ * number of arguments (varint), and each argument as its length + 1 (varint, 0 for null) followed by its strings.
+ *
+ * Strings are written once: a string is a varint id, 0 for null, the id of a string already written, or the next id
+ * followed by the string in modified UTF-8 the first time it is written.
+ */
+final class WorkloadFormat {
+
+    static final int  MAGIC       = 0x504d574c;
+    static final byte VERSION     = 1;
+    static final int  FLAG_NESTED = 1;
+
+    private WorkloadFormat() {
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint in workload");
+    }
+}
@@ -0,0 +1,92 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import gov.nist.csd.pm.exceptions.PMException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gov.nist.csd.pm.pdp.workload.WorkloadFormat.*;
+
+/**
+ * Reads a workload written by a WorkloadRecorder.
+ */
+public class WorkloadReader {
+
+    private WorkloadReader() {
+    }
+
+    /**
+     * Read every operation of the workload in the given stream.
+     *
+     * @param in the stream to read the workload from.
+     * @return the operations in the order they were recorded.
+     * @throws PMException if the stream is not a workload or cannot be read.
+     */
+    public static List<RecordedOperation> read(InputStream in) throws PMException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        List<RecordedOperation> operations = new ArrayList<>();
+        List<String> strings = new ArrayList<>();
+        OperationType[] types = OperationType.values();
+
+        try {
+            if (data.readInt() != MAGIC) {
+                throw new PMException("the stream is not a recorded workload");
+            }
+            byte version = data.readByte();
+            if (version != VERSION) {
+                throw new PMException("unsupported workload version " + version);
+            }
+
+            long timestamp = 0;
+            int type;
+            while ((type = data.read()) != -1) {
+                if (type >= types.length) {
+                    throw new PMException("unknown operation type " + type + " in workload");
+                }
+
+                timestamp += readVarLong(data);
+                int flags = data.readByte();
+                String user = readString(data, strings);
+                String process = readString(data, strings);
+                String[][] args = new String[(int) readVarLong(data)][];
+                for (int i = 0; i < args.length; i++) {
+                    int length = (int) readVarLong(data);
+                    if (length == 0) {
+                        continue;
+                    }
+
+                    args[i] = new String[length - 1];
+                    for (int j = 0; j < args[i].length; j++) {
+                        args[i][j] = readString(data, strings);
+                    }
+                }
+
+                operations.add(new RecordedOperation(types[type], timestamp, (flags & FLAG_NESTED) != 0, user, process, args));
+            }
+        } catch (EOFException e) {
+            throw new PMException("the workload ends in the middle of an operation");
+        } catch (IOException e) {
+            PMException pmException = new PMException("could not read the workload: " + e.getMessage());
+            pmException.initCause(e);
+            throw pmException;
+        }
+
+        return operations;
+    }
+
+    private static String readString(DataInput in, List<String> strings) throws IOException, PMException {
+        int id = (int) readVarLong(in);
+        if (id == 0) {
+            return null;
+        } else if (id <= strings.size()) {
+            return strings.get(id - 1);
+        } else if (id == strings.size() + 1) {
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+
+        throw new PMException("unknown string " + id + " in workload");
+    }
+}
@@ -0,0 +1,188 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import gov.nist.csd.pm.epp.events.*;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pdp.decider.Decider;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+import static gov.nist.csd.pm.pdp.workload.WorkloadFormat.*;
+
+/**
+ * Captures the calls made to a PDP, with the time of each call, into a compact binary stream that WorkloadReader reads
+ * and WorkloadReplayer replays.  Decisions are captured by the Decider returned by record(Decider), GraphService
+ * mutations by the Graph returned by record(Graph, UserContext), and events by setting the recorder on the EPP with
+ * EPP.setWorkloadRecorder.  Calls are recorded when they are made, before they return, so calls that fail are recorded
+ * too.  A recorder can be shared by concurrent requests.
+ */
+public class WorkloadRecorder implements Closeable {
+
+    private DataOutputStream     out;
+    private Map<String, Integer> strings;
+    private long                 start;
+    private long                 last;
+    private ThreadLocal<int[]>   depth;
+
+    /**
+     * @param out the stream to write the workload to.
+     * @throws PMException if the header of the workload cannot be written.
+     */
+    public WorkloadRecorder(OutputStream out) throws PMException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.strings = new HashMap<>();
+        this.depth = ThreadLocal.withInitial(() -> new int[1]);
+
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw recordError(e);
+        }
+
+        this.start = System.nanoTime();
+        this.last = 0;
+    }
+
+    /**
+     * @return a Decider that records each decision before making it with the given Decider.
+     */
+    public Decider record(Decider decider) {
+        return new RecordingDecider(this, decider);
+    }
+
+    /**
+     * @param graph the GraphService of the user.
+     * @param userCtx the user context the GraphService is bound to.
+     * @return a Graph that records each mutation before making it with the given Graph.
+     */
+    public Graph record(Graph graph, UserContext userCtx) {
+        return new RecordingGraph(this, graph, userCtx);
+    }
+
+    /**
+     * Record an event processed by the EPP.  Events processed while a recorded call is made, such as the events of a
+     * GraphService mutation, are recorded as nested.
+     */
+    public void recordEvent(EventContext eventCtx, String user, String process) throws PMException {
+        Node other = null;
+        if (eventCtx instanceof AssignToEvent) {
+            other = ((AssignToEvent) eventCtx).getChildNode();
+        } else if (eventCtx instanceof AssignEvent) {
+            other = ((AssignEvent) eventCtx).getParentNode();
+        } else if (eventCtx instanceof DeassignFromEvent) {
+            other = ((DeassignFromEvent) eventCtx).getChildNode();
+        } else if (eventCtx instanceof DeassignEvent) {
+            other = ((DeassignEvent) eventCtx).getParentNode();
+        }
+
+        record(OperationType.EVENT, user, process, value(eventCtx.getEvent()), value(eventCtx.getTarget().getName()),
+                other == null ? null : value(other.getName()));
+    }
+
+    /**
+     * Record a call.
+     */
+    synchronized void record(OperationType type, String user, String process, String[]... args) throws PMException {
+        long now = System.nanoTime() - start;
+        try {
+            out.writeByte(type.ordinal());
+            // calls recorded by concurrent threads may be recorded out of order by a few nanoseconds
+            writeVarLong(out, Math.max(0, now - last));
+            out.writeByte(depth.get()[0] > 0 ? FLAG_NESTED : 0);
+            writeString(user);
+            writeString(process);
+            writeVarLong(out, args.length);
+            for (String[] arg : args) {
+                if (arg == null) {
+                    writeVarLong(out, 0);
+                    continue;
+                }
+
+                writeVarLong(out, arg.length + 1L);
+                for (String s : arg) {
+                    writeString(s);
+                }
+            }
+        } catch (IOException e) {
+            throw recordError(e);
+        }
+        last = Math.max(last, now);
+    }
+
+    /**
+     * Make a recorded call.  Calls recorded while it is made are nested in it.
+     */
+    <T> T call(RecordedCall<T> call) throws PMException {
+        int[] d = depth.get();
+        d[0]++;
+        try {
+            return call.call();
+        } finally {
+            d[0]--;
+        }
+    }
+
+    interface RecordedCall<T> {
+        T call() throws PMException;
+    }
+
+    static String[] value(String value) {
+        return value == null ? null : new String[]{value};
+    }
+
+    static String[] properties(Map<String, String> properties) {
+        if (properties == null) {
+            return null;
+        }
+
+        String[] arr = new String[properties.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> e : properties.entrySet()) {
+            arr[i++] = e.getKey();
+            arr[i++] = e.getValue();
+        }
+        return arr;
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+
+        Integer id = strings.get(s);
+        if (id != null) {
+            writeVarLong(out, id);
+            return;
+        }
+
+        id = strings.size() + 1;
+        strings.put(s, id);
+        writeVarLong(out, id);
+        out.writeUTF(s);
+    }
+
+    public synchronized void flush() throws PMException {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw recordError(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private static PMException recordError(IOException e) {
+        PMException pmException = new PMException("could not record the workload: " + e.getMessage());
+        pmException.initCause(e);
+        return pmException;
+    }
+}
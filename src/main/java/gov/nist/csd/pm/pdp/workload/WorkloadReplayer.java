@@ -0,0 +1,369 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import gov.nist.csd.pm.epp.events.*;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pdp.decider.Decider;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Replays a recorded workload against a PDP, usually one built from a snapshot of the policy the workload was recorded
+ * against, and reports the throughput and the latency percentiles of each type of operation.
+ *
+ * Operations are replayed in the order they were recorded.  With a concurrency greater than 1, operations are replayed
+ * by that many threads, and the operations of each user are replayed by the same thread so they stay in order.  The
+ * threads share the policy of the PDP: decisions are replayed holding the read lock of the PAP, and mutations and
+ * events hold its write lock through the GraphService and the EPP, so decisions never read the policy while it is
+ * changed.  The operations of different users can still be replayed in a different order than they were recorded.
+ * Operations that fail are counted as errors and do not stop the replay.  Nested operations, such as the events of a
+ * GraphService mutation, are made by the operation they are nested in and are not replayed on their own.
+ */
+public class WorkloadReplayer {
+
+    private static final RecordedOperation END = new RecordedOperation(null, 0, false, null, null, null);
+
+    private PDP    pdp;
+    private double speed;
+    private int    concurrency;
+
+    /**
+     * @param pdp the PDP to replay workloads against.
+     */
+    public WorkloadReplayer(PDP pdp) {
+        this.pdp = pdp;
+        this.speed = 0;
+        this.concurrency = 1;
+    }
+
+    /**
+     * @param speed how fast to replay the workload relative to how it was recorded, 2 replays it twice as fast, and 0
+     *              replays every operation as soon as possible.
+     * @return this replayer.
+     */
+    public WorkloadReplayer setSpeed(double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("the replay speed cannot be negative");
+        }
+
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * @param concurrency the number of threads replaying operations.
+     * @return this replayer.
+     */
+    public WorkloadReplayer setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("the replay concurrency must be greater than 0");
+        }
+
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Replay the given operations.
+     *
+     * @param operations the operations read from a workload.
+     * @return the throughput and latencies of the replay.
+     * @throws PMException if the replay is interrupted.
+     */
+    public ReplayReport replay(List<RecordedOperation> operations) throws PMException {
+        long start = System.nanoTime();
+        List<Stats> stats = new ArrayList<>();
+
+        if (concurrency == 1) {
+            Stats s = new Stats();
+            stats.add(s);
+            for (RecordedOperation operation : operations) {
+                if (!operation.isNested()) {
+                    pace(start, operation);
+                    replay(operation, s);
+                }
+            }
+        } else {
+            List<Worker> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = new Worker("workload-replayer-" + i);
+                workers.add(worker);
+                stats.add(worker.stats);
+                worker.start();
+            }
+
+            try {
+                for (RecordedOperation operation : operations) {
+                    if (!operation.isNested()) {
+                        pace(start, operation);
+                        int i = (Objects.hashCode(operation.getUser()) & Integer.MAX_VALUE) % workers.size();
+                        workers.get(i).queue.put(operation);
+                    }
+                }
+
+                for (Worker worker : workers) {
+                    worker.queue.put(END);
+                }
+                for (Worker worker : workers) {
+                    worker.join();
+                }
+            } catch (InterruptedException e) {
+                for (Worker worker : workers) {
+                    worker.interrupt();
+                }
+                Thread.currentThread().interrupt();
+                throw new PMException("interrupted while replaying the workload");
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        Map<OperationType, long[]> latencies = new EnumMap<>(OperationType.class);
+        Map<OperationType, Integer> errors = new EnumMap<>(OperationType.class);
+        for (Stats s : stats) {
+            s.merge(latencies, errors);
+        }
+
+        return new ReplayReport(elapsed, latencies, errors);
+    }
+
+    /**
+     * Wait until the time the operation should be replayed at.
+     */
+    private void pace(long start, RecordedOperation operation) throws PMException {
+        if (speed == 0) {
+            return;
+        }
+
+        long wait = start + (long) (operation.getTimestamp() / speed) - System.nanoTime();
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PMException("interrupted while replaying the workload");
+            }
+        }
+    }
+
+    private void replay(RecordedOperation operation, Stats stats) {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            execute(operation);
+        } catch (PMException | RuntimeException e) {
+            failed = true;
+        }
+        stats.add(operation.getType(), System.nanoTime() - start, failed);
+    }
+
+    private void execute(RecordedOperation op) throws PMException {
+        switch (op.getType()) {
+            case EVENT:
+                // the EPP takes the write lock to process the event, so only the target is read holding the read lock
+                EventContext eventCtx = read(() -> toEvent(op));
+                pdp.getEPP().processEvent(eventCtx, op.getUser(), op.getProcess());
+                break;
+            case CHECK:
+            case LIST:
+            case FILTER:
+            case GET_CHILDREN:
+            case GET_CAPABILITY_LIST:
+            case GENERATE_ACL:
+                read(() -> {
+                    decide(op);
+                    return null;
+                });
+                break;
+            default:
+                mutate(pdp.getGraphService(new UserContext(op.getUser(), op.getProcess())), op);
+        }
+    }
+
+    private interface Replay<T> {
+        T call() throws PMException;
+    }
+
+    private <T> T read(Replay<T> replay) throws PMException {
+        Lock lock = pdp.getPAP().getLock().readLock();
+        lock.lock();
+        try {
+            return replay.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decide(RecordedOperation op) throws PMException {
+        String user = op.getUser();
+        String process = op.getProcess();
+        String[][] args = op.getArgs();
+        Decider decider = pdp.getDecider();
+
+        switch (op.getType()) {
+            case CHECK:
+                decider.check(user, process, op.getArg(0), strings(args[1]));
+                break;
+            case LIST:
+                decider.list(user, process, op.getArg(0));
+                break;
+            case FILTER:
+                decider.filter(user, process, new HashSet<>(Arrays.asList(strings(args[0]))), strings(args[1]));
+                break;
+            case GET_CHILDREN:
+                decider.getChildren(user, process, op.getArg(0), strings(args[1]));
+                break;
+            case GET_CAPABILITY_LIST:
+                decider.getCapabilityList(user, process);
+                break;
+            case GENERATE_ACL:
+                decider.generateACL(op.getArg(0), process);
+                break;
+            default:
+                throw new PMException("cannot replay operation " + op.getType());
+        }
+    }
+
+    private static void mutate(Graph graph, RecordedOperation op) throws PMException {
+        String[][] args = op.getArgs();
+        switch (op.getType()) {
+            case CREATE_POLICY_CLASS:
+                graph.createPolicyClass(op.getArg(0), properties(args[1]));
+                break;
+            case CREATE_NODE:
+                graph.createNode(op.getArg(0), NodeType.toNodeType(op.getArg(1)), properties(args[2]), op.getArg(3),
+                        strings(args[4]));
+                break;
+            case UPDATE_NODE:
+                graph.updateNode(op.getArg(0), properties(args[1]));
+                break;
+            case DELETE_NODE:
+                graph.deleteNode(op.getArg(0));
+                break;
+            case ASSIGN:
+                graph.assign(op.getArg(0), op.getArg(1));
+                break;
+            case DEASSIGN:
+                graph.deassign(op.getArg(0), op.getArg(1));
+                break;
+            case ASSOCIATE:
+                graph.associate(op.getArg(0), op.getArg(1), new OperationSet(strings(args[2])));
+                break;
+            case DISSOCIATE:
+                graph.dissociate(op.getArg(0), op.getArg(1));
+                break;
+            default:
+                throw new PMException("cannot replay operation " + op.getType());
+        }
+    }
+
+    private EventContext toEvent(RecordedOperation op) throws PMException {
+        Graph graph = pdp.getPAP().getGraphPAP();
+        String event = op.getArg(0);
+        Node target = graph.getNode(op.getArg(1));
+        Node other = op.getArg(2) == null ? null : graph.getNode(op.getArg(2));
+
+        switch (event) {
+            case EventContext.ASSIGN_TO_EVENT:
+                return new AssignToEvent(target, other);
+            case EventContext.ASSIGN_EVENT:
+                return new AssignEvent(target, other);
+            case EventContext.DEASSIGN_FROM_EVENT:
+                return new DeassignFromEvent(target, other);
+            case EventContext.DEASSIGN_EVENT:
+                return new DeassignEvent(target, other);
+            default:
+                return new ObjectAccessEvent(event, target);
+        }
+    }
+
+    private static String[] strings(String[] arg) {
+        return arg == null ? new String[0] : arg;
+    }
+
+    private static Map<String, String> properties(String[] arg) {
+        if (arg == null) {
+            return null;
+        }
+
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i + 1 < arg.length; i += 2) {
+            properties.put(arg[i], arg[i + 1]);
+        }
+        return properties;
+    }
+
+    /**
+     * The latencies and errors of the operations replayed by one thread.
+     */
+    private static class Stats {
+        private Map<OperationType, long[]>  latencies = new EnumMap<>(OperationType.class);
+        private Map<OperationType, Integer> counts    = new EnumMap<>(OperationType.class);
+        private Map<OperationType, Integer> errors    = new EnumMap<>(OperationType.class);
+
+        void add(OperationType type, long latency, boolean failed) {
+            long[] arr = latencies.get(type);
+            int count = counts.getOrDefault(type, 0);
+            if (arr == null) {
+                arr = new long[16];
+            } else if (count == arr.length) {
+                arr = Arrays.copyOf(arr, count * 2);
+            }
+            arr[count] = latency;
+            latencies.put(type, arr);
+            counts.put(type, count + 1);
+            if (failed) {
+                errors.merge(type, 1, Integer::sum);
+            }
+        }
+
+        void merge(Map<OperationType, long[]> allLatencies, Map<OperationType, Integer> allErrors) {
+            for (Map.Entry<OperationType, long[]> e : latencies.entrySet()) {
+                long[] arr = Arrays.copyOf(e.getValue(), counts.get(e.getKey()));
+                long[] all = allLatencies.get(e.getKey());
+                if (all == null) {
+                    allLatencies.put(e.getKey(), arr);
+                } else {
+                    long[] merged = Arrays.copyOf(all, all.length + arr.length);
+                    System.arraycopy(arr, 0, merged, all.length, arr.length);
+                    allLatencies.put(e.getKey(), merged);
+                }
+            }
+            for (Map.Entry<OperationType, Integer> e : errors.entrySet()) {
+                allErrors.merge(e.getKey(), e.getValue(), Integer::sum);
+            }
+        }
+    }
+
+    private class Worker extends Thread {
+        private BlockingQueue<RecordedOperation> queue;
+        private Stats                            stats;
+
+        Worker(String name) {
+            super(name);
+            this.queue = new ArrayBlockingQueue<>(1024);
+            this.stats = new Stats();
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                RecordedOperation operation;
+                while ((operation = queue.take()) != END) {
+                    replay(operation, stats);
+                }
+            } catch (InterruptedException e) {
+                // the replay was interrupted
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package gov.nist.csd.pm.pip;
+
+/**
+ * A policy store with a version that increases every time the store is changed.  The version is increased after a change
+ * is made, so anything computed from the store after reading a version reflects at least that version.
+ */
+public interface Versioned {
+
+    /**
+     * @return the current version of the store.
+     */
+    long getVersion();
+}
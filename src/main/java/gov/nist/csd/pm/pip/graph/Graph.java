@@ -2,11 +2,15 @@ package gov.nist.csd.pm.pip.graph;
 
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pip.graph.dag.visitor.AssociationVisitor;
+import gov.nist.csd.pm.pip.graph.dag.visitor.NameVisitor;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Interface for maintaining an NGAC graph.
@@ -80,6 +84,29 @@ public interface Graph {
      */
     Set<Node> getNodes() throws PMException;
 
+    /**
+     * Retrieve a page of the nodes in the graph, ordered by name.
+     *
+     * @param token the next token of the previous page, or null to get the first page.
+     * @param pageSize the maximum number of nodes to return.
+     * @return a page of nodes and the token to get the next page.
+     * @throws PMException if there is an error retrieving the nodes in the graph.
+     */
+    default Page<Node> getNodes(String token, int pageSize) throws PMException {
+        return Page.of(getNodes(), Node::getName, token, pageSize);
+    }
+
+    /**
+     * Stream the nodes in the graph.  Implementations may read the nodes lazily, in which case the graph should not
+     * be modified while the stream is consumed.
+     *
+     * @return a Stream of the nodes in the graph.
+     * @throws PMException if there is an error retrieving the nodes in the graph.
+     */
+    default Stream<Node> streamNodes() throws PMException {
+        return getNodes().stream();
+    }
+
     /**
      * Retrieve the node with the given name.
      *
@@ -116,6 +143,33 @@ public interface Graph {
      */
     Set<Node> search(NodeType type, Map<String, String> properties) throws PMException;
 
+    /**
+     * Search the graph for nodes matching the given parameters, returning one page of results ordered by name.
+     *
+     * @param type       the type of the nodes to search for.
+     * @param properties the properties of the nodes to search for.
+     * @param token      the next token of the previous page, or null to get the first page.
+     * @param pageSize   the maximum number of nodes to return.
+     * @return a page of nodes that match the given search criteria and the token to get the next page.
+     * @throws PMException if there is an error searching the graph.
+     */
+    default Page<Node> search(NodeType type, Map<String, String> properties, String token, int pageSize) throws PMException {
+        return Page.of(search(type, properties), Node::getName, token, pageSize);
+    }
+
+    /**
+     * Stream the nodes matching the given parameters.  Implementations may search the graph lazily, in which case the
+     * graph should not be modified while the stream is consumed.
+     *
+     * @param type       the type of the nodes to search for.
+     * @param properties the properties of the nodes to search for.
+     * @return a Stream of the nodes that match the given search criteria.
+     * @throws PMException if there is an error searching the graph.
+     */
+    default Stream<Node> streamSearch(NodeType type, Map<String, String> properties) throws PMException {
+        return search(type, properties).stream();
+    }
+
     /**
      * Get the set of nodes that are assigned to the node with the given name.
      *
@@ -125,6 +179,31 @@ public interface Graph {
      */
     Set<String> getChildren(String name) throws PMException;
 
+    /**
+     * Get a page of the nodes that are assigned to the node with the given name, ordered by name.
+     *
+     * @param name the name of the node to get the children of.
+     * @param token the next token of the previous page, or null to get the first page.
+     * @param pageSize the maximum number of children to return.
+     * @return a page of the names of the children and the token to get the next page.
+     * @throws PMException if there is an error retrieving the children of the node.
+     */
+    default Page<String> getChildren(String name, String token, int pageSize) throws PMException {
+        return Page.of(getChildren(name), n -> n, token, pageSize);
+    }
+
+    /**
+     * Stream the nodes that are assigned to the node with the given name.  Implementations may read the children
+     * lazily, in which case the graph should not be modified while the stream is consumed.
+     *
+     * @param name the name of the node to get the children of.
+     * @return a Stream of the names of the children.
+     * @throws PMException if there is an error retrieving the children of the node.
+     */
+    default Stream<String> streamChildren(String name) throws PMException {
+        return getChildren(name).stream();
+    }
+
     /**
      * Get the set of nodes that the node with the given name is assigned to.
      *
@@ -134,6 +213,34 @@ public interface Graph {
      */
     Set<String> getParents(String name) throws PMException;
 
+    /**
+     * Visit each node that is assigned to the node with the given name.  Unlike getChildren, implementations may visit
+     * the children without copying them, so the graph must not be modified by the visitor.
+     *
+     * @param name the name of the node to visit the children of.
+     * @param visitor the visitor to call with the name of each child.
+     * @throws PMException if there is an error retrieving the children of the node or the visitor throws an exception.
+     */
+    default void forEachChild(String name, NameVisitor visitor) throws PMException {
+        for (String child : getChildren(name)) {
+            visitor.visit(child);
+        }
+    }
+
+    /**
+     * Visit each node that the node with the given name is assigned to.  Unlike getParents, implementations may visit
+     * the parents without copying them, so the graph must not be modified by the visitor.
+     *
+     * @param name the name of the node to visit the parents of.
+     * @param visitor the visitor to call with the name of each parent.
+     * @throws PMException if there is an error retrieving the parents of the node or the visitor throws an exception.
+     */
+    default void forEachParent(String name, NameVisitor visitor) throws PMException {
+        for (String parent : getParents(name)) {
+            visitor.visit(parent);
+        }
+    }
+
     /**
      * Assign the child node to the parent node. The child and parent nodes must both already exist in the graph,
      * and the types must make a valid assignment. An example of a valid assignment is assigning o1, an object, to oa1,
@@ -207,4 +314,34 @@ public interface Graph {
      * @throws PMException if there is an retrieving the associations of the target node from the graph.
      */
     Map<String, OperationSet> getTargetAssociations(String target) throws PMException;
+
+    /**
+     * Visit the associations the given node is the source of.  The visitor is called with the target of each association
+     * and a read only view of its operations.  The graph must not be modified by the visitor.
+     *
+     * @param source the name of the source node.
+     * @param visitor the visitor to call for each association.
+     * @throws PMException if there is an error retrieving the associations or the visitor throws an exception.
+     */
+    default void forEachSourceAssociation(String source, AssociationVisitor visitor) throws PMException {
+        Map<String, OperationSet> assocs = getSourceAssociations(source);
+        for (Map.Entry<String, OperationSet> entry : assocs.entrySet()) {
+            visitor.visit(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        }
+    }
+
+    /**
+     * Visit the associations the given node is the target of.  The visitor is called with the source of each association
+     * and a read only view of its operations.  The graph must not be modified by the visitor.
+     *
+     * @param target the name of the target node.
+     * @param visitor the visitor to call for each association.
+     * @throws PMException if there is an error retrieving the associations or the visitor throws an exception.
+     */
+    default void forEachTargetAssociation(String target, AssociationVisitor visitor) throws PMException {
+        Map<String, OperationSet> assocs = getTargetAssociations(target);
+        for (Map.Entry<String, OperationSet> entry : assocs.entrySet()) {
+            visitor.visit(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        }
+    }
 }
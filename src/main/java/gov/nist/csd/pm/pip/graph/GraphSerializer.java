@@ -3,6 +3,8 @@ package gov.nist.csd.pm.pip.graph;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
+import gov.nist.csd.pm.metrics.Timer;
 import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
@@ -56,25 +58,27 @@ public class GraphSerializer {
      * @throws PMException if there is an error accessing the graph.
      */
     public static String toJson(Graph graph) throws PMException {
+        Timer timer = MetricsRegistry.getMetrics().timer("serializer.graph.to_json");
+        long start = timer.start();
+        String result = writeJson(graph);
+        timer.stop(start);
+        return result;
+    }
+
+    private static String writeJson(Graph graph) throws PMException {
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
         Collection<Node> nodes = graph.getNodes();
         HashSet<Assignment> jsonAssignments = new HashSet<>();
         HashSet<JsonAssociation> jsonAssociations = new HashSet<>();
         for (Node node : nodes) {
-            Set<String> parents = graph.getParents(node.getName());
+            graph.forEachParent(node.getName(), parent -> jsonAssignments.add(new Assignment(node.getName(), parent)));
 
-            for (String parent : parents) {
-                jsonAssignments.add(new Assignment(node.getName(), parent));
-            }
-
-            Map<String, OperationSet> associations = graph.getSourceAssociations(node.getName());
-            for (String target : associations.keySet()) {
-                OperationSet ops = associations.get(target);
+            graph.forEachSourceAssociation(node.getName(), (target, ops) -> {
                 Node targetNode = graph.getNode(target);
 
                 jsonAssociations.add(new JsonAssociation(node.getName(), targetNode.getName(), ops));
-            }
+            });
         }
 
         return gson.toJson(new JsonGraph(nodes, jsonAssignments, jsonAssociations));
@@ -89,6 +93,13 @@ public class GraphSerializer {
      * @throws PMException if there is an error converting the string to a Graph.
      */
     public static void fromJson(Graph graph, String json) throws PMException {
+        Timer timer = MetricsRegistry.getMetrics().timer("serializer.graph.from_json");
+        long start = timer.start();
+        readJson(graph, json);
+        timer.stop(start);
+    }
+
+    private static void readJson(Graph graph, String json) throws PMException {
         JsonGraph jsonGraph = new Gson().fromJson(json, JsonGraph.class);
 
         Collection<Node> nodes = jsonGraph.getNodes();
@@ -181,6 +192,14 @@ public class GraphSerializer {
     }
 
     public static String serialize(Graph graph) throws PMException {
+        Timer timer = MetricsRegistry.getMetrics().timer("serializer.graph.serialize");
+        long start = timer.start();
+        String result = writeConfig(graph);
+        timer.stop(start);
+        return result;
+    }
+
+    private static String writeConfig(Graph graph) throws PMException {
         String s = "# nodes\n";
 
         List<String> assignmentCmds = new ArrayList<>();
@@ -197,11 +216,7 @@ public class GraphSerializer {
             s += "node " + node.getType() + " " + node.getName() + " " +
                     (node.getProperties().isEmpty() ? "" : node.getProperties().toString().replaceAll(", ", ",")) + "\n";
 
-            Set<String> parents = graph.getParents(node.getName());
-            for (String parent : parents) {
-                Node parentNode = graph.getNode(parent);
-                assignmentCmds.add("assign " + node.getName() + " " + parentNode.getName() + "\n");
-            }
+            graph.forEachParent(node.getName(), parent -> assignmentCmds.add("assign " + node.getName() + " " + parent + "\n"));
         }
 
         s += "\n";
@@ -209,11 +224,7 @@ public class GraphSerializer {
         for (Node node : search) {
             s += "node " + node.getType() + " " + node.getName() + " " +
                     (node.getProperties().isEmpty() ? "" : node.getProperties().toString().replaceAll(", ", ",")) + "\n";
-            Set<String> parents = graph.getParents(node.getName());
-            for (String parent : parents) {
-                Node parentNode = graph.getNode(parent);
-                assignmentCmds.add("assign " + node.getName() + " " + parentNode.getName() + "\n");
-            }
+            graph.forEachParent(node.getName(), parent -> assignmentCmds.add("assign " + node.getName() + " " + parent + "\n"));
         }
 
         s += "\n";
@@ -222,11 +233,7 @@ public class GraphSerializer {
             s += "node " + node.getType() + " " + node.getName() + " " +
                     (node.getProperties().isEmpty() ? "" : node.getProperties().toString().replaceAll(", ", ",")) + "\n";
 
-            Set<String> parents = graph.getParents(node.getName());
-            for (String parent : parents) {
-                Node parentNode = graph.getNode(parent);
-                assignmentCmds.add("assign " + node.getName() + " " + parentNode.getName() + "\n");
-            }
+            graph.forEachParent(node.getName(), parent -> assignmentCmds.add("assign " + node.getName() + " " + parent + "\n"));
         }
 
         s += "\n";
@@ -235,11 +242,7 @@ public class GraphSerializer {
             s += "node " + node.getType() + " " + node.getName() + " " +
                     (node.getProperties().isEmpty() ? "" : node.getProperties().toString().replaceAll(", ", ",")) + "\n";
 
-            Set<String> parents = graph.getParents(node.getName());
-            for (String parent : parents) {
-                Node parentNode = graph.getNode(parent);
-                assignmentCmds.add("assign " + node.getName() + " " + parentNode.getName() + "\n");
-            }
+            graph.forEachParent(node.getName(), parent -> assignmentCmds.add("assign " + node.getName() + " " + parent + "\n"));
         }
 
         Collection<Node> nodes = graph.getNodes();
@@ -249,15 +252,14 @@ public class GraphSerializer {
         }
 
         s += "\n# associations\n";
+        StringBuilder assocCmds = new StringBuilder();
         for (Node node : nodes) {
-            Map<String, OperationSet> assocs = graph.getSourceAssociations(node.getName());
-            for (String target : assocs.keySet()) {
-                Node targetNode = graph.getNode(target);
-                s += "assoc " + node.getName() + " " + targetNode.getName() + " " +
-                        assocs.get(target).toString() + "\n";
-            }
-            s += "\n";
+            graph.forEachSourceAssociation(node.getName(), (target, ops) ->
+                    assocCmds.append("assoc ").append(node.getName()).append(" ").append(target).append(" ")
+                            .append(ops.toString()).append("\n"));
+            assocCmds.append("\n");
         }
+        s += assocCmds;
 
         return s;
     }
@@ -270,6 +272,14 @@ public class GraphSerializer {
      * @return The graph with the loaded configuration.
      */
     public static Graph deserialize(Graph graph, String str) throws PMException {
+        Timer timer = MetricsRegistry.getMetrics().timer("serializer.graph.deserialize");
+        long start = timer.start();
+        Graph result = readConfig(graph, str);
+        timer.stop(start);
+        return result;
+    }
+
+    private static Graph readConfig(Graph graph, String str) throws PMException {
         Scanner sc = new Scanner(str);
 
         Map<String, Node> nodesMap = new HashMap<>();
@@ -2,6 +2,9 @@ package gov.nist.csd.pm.pip.graph;
 
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pip.Versioned;
+import gov.nist.csd.pm.pip.graph.dag.visitor.AssociationVisitor;
+import gov.nist.csd.pm.pip.graph.dag.visitor.NameVisitor;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
 import gov.nist.csd.pm.pip.graph.model.relationships.Assignment;
@@ -11,6 +14,8 @@ import org.jgrapht.DirectedGraph;
 import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
 import org.jgrapht.graph.DirectedMultigraph;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
 
@@ -18,13 +23,18 @@ import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
  * MemGraph is an in-memory implementation of the graph interface.  It stores the names of the nodes in a DAG structure.
  * And stores all other node information in a map for easy/fast retrieval.
  */
-public class MemGraph implements Graph {
+public class MemGraph implements Graph, Versioned {
 
     private static final String NODE_NOT_FOUND_MSG = "node %s does not exist in the graph";
 
     public DirectedGraph<String, Relationship> graph;
     private HashSet<String>                     pcs;
     private HashMap<String, Node>               nodes;
+    // the node names in order, used to return pages of nodes
+    private TreeSet<String>                     names;
+    // the names of the children of each node in order, used to return pages of children
+    private HashMap<String, TreeSet<String>>    childNames;
+    private AtomicLong                          version;
 
     /**
      * Default constructor to create an empty graph in memory.
@@ -32,7 +42,15 @@ public class MemGraph implements Graph {
     public MemGraph() {
         graph = new DirectedMultigraph<>(Relationship.class);
         nodes = new HashMap<>();
+        names = new TreeSet<>();
+        childNames = new HashMap<>();
         pcs = new HashSet<>();
+        version = new AtomicLong();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
     }
 
     @Override
@@ -51,6 +69,8 @@ public class MemGraph implements Graph {
         // create the node
         Node node = new Node(name, PC, properties);
         nodes.put(name, node);
+        names.add(name);
+        version.incrementAndGet();
 
         return node;
     }
@@ -90,12 +110,14 @@ public class MemGraph implements Graph {
         //store the node in the map
         Node node = new Node(name, type, properties);
         nodes.put(name, node);
+        names.add(name);
 
         // assign the new node the to given parent nodes
         assign(name, initialParent);
         for (String parent : additionalParents) {
             assign(name, parent);
         }
+        version.incrementAndGet();
 
         //return the Node
         return node;
@@ -125,6 +147,7 @@ public class MemGraph implements Graph {
 
         // update the node information
         nodes.put(existingNode.getName(), existingNode);
+        version.incrementAndGet();
     }
 
     /**
@@ -135,12 +158,23 @@ public class MemGraph implements Graph {
      */
     @Override
     public void deleteNode(String name) {
+        //remove the node from the children of its parents
+        if (exists(name)) {
+            for (Relationship rel : graph.outgoingEdgesOf(name)) {
+                if (rel instanceof Assignment) {
+                    removeChildName(rel.getSource(), rel.getTarget());
+                }
+            }
+        }
+        childNames.remove(name);
         //remove the vertex from the graph
         graph.removeVertex(name);
         //remove the node from the policies if it is a policy class
         pcs.remove(name);
         //remove the node from the map
         nodes.remove(name);
+        names.remove(name);
+        version.incrementAndGet();
     }
 
     @Override
@@ -158,6 +192,23 @@ public class MemGraph implements Graph {
         return new HashSet<>(nodes.values());
     }
 
+    @Override
+    public Page<Node> getNodes(String token, int pageSize) {
+        return Page.ofOrdered(namesAfter(token).stream().map(nodes::get).iterator(), Node::getName, pageSize);
+    }
+
+    /**
+     * Stream the nodes of the graph without copying them. The graph should not be modified while the stream is consumed.
+     */
+    @Override
+    public Stream<Node> streamNodes() {
+        return nodes.values().stream();
+    }
+
+    private NavigableSet<String> namesAfter(String token) {
+        return token == null ? names : names.tailSet(token, false);
+    }
+
     /**
      * Retrieve the node from the graph with the given name.
      *
@@ -201,30 +252,47 @@ public class MemGraph implements Graph {
 
         HashSet<Node> results = new HashSet<>();
         // iterate over the nodes to find ones that match the search parameters
-        for (Node node : getNodes()) {
-            // if the type parameter is not null and the current node type does not equal the type parameter, do not add
-            if (type != null && !node.getType().equals(type)) {
-                continue;
+        for (Node node : nodes.values()) {
+            if (matches(node, type, properties)) {
+                results.add(node);
             }
+        }
 
-            boolean add = true;
-            for (String key : properties.keySet()) {
-                String checkValue = properties.get(key);
-                String foundValue = node.getProperties().get(key);
-                // if the property provided in the search parameters is null or *, continue to the next property
-                if (!(checkValue == null || checkValue.equals("*")) &&
-                        (foundValue == null || !foundValue.equals(checkValue))) {
-                    add = false;
-                    break;
-                }
-            }
+        return results;
+    }
 
-            if (add) {
-                results.add(node);
+    @Override
+    public Page<Node> search(NodeType type, Map<String, String> properties, String token, int pageSize) {
+        Map<String, String> props = properties == null ? new HashMap<>() : properties;
+        return Page.ofOrdered(namesAfter(token).stream()
+                .map(nodes::get)
+                .filter(node -> matches(node, type, props))
+                .iterator(), Node::getName, pageSize);
+    }
+
+    @Override
+    public Stream<Node> streamSearch(NodeType type, Map<String, String> properties) {
+        Map<String, String> props = properties == null ? new HashMap<>() : properties;
+        return streamNodes().filter(node -> matches(node, type, props));
+    }
+
+    private static boolean matches(Node node, NodeType type, Map<String, String> properties) {
+        // if the type parameter is not null and the current node type does not equal the type parameter, do not add
+        if (type != null && !node.getType().equals(type)) {
+            return false;
+        }
+
+        for (String key : properties.keySet()) {
+            String checkValue = properties.get(key);
+            String foundValue = node.getProperties().get(key);
+            // if the property provided in the search parameters is null or *, continue to the next property
+            if (!(checkValue == null || checkValue.equals("*")) &&
+                    (foundValue == null || !foundValue.equals(checkValue))) {
+                return false;
             }
         }
 
-        return results;
+        return true;
     }
 
     /**
@@ -251,6 +319,34 @@ public class MemGraph implements Graph {
         return children;
     }
 
+    /**
+     * Get a page of the children of the given node.  The names of the children of each node are kept in order, so a page
+     * only reads the children after the token.
+     */
+    @Override
+    public Page<String> getChildren(String name, String token, int pageSize) throws PMException {
+        if (!exists(name)) {
+            throw new PMException(String.format(NODE_NOT_FOUND_MSG, name));
+        }
+
+        NavigableSet<String> children = childNames.getOrDefault(name, new TreeSet<>());
+        if (token != null) {
+            children = children.tailSet(token, false);
+        }
+        return Page.ofOrdered(children.iterator(), c -> c, pageSize);
+    }
+
+    @Override
+    public Stream<String> streamChildren(String name) throws PMException {
+        if (!exists(name)) {
+            throw new PMException(String.format(NODE_NOT_FOUND_MSG, name));
+        }
+
+        return graph.incomingEdgesOf(name).stream()
+                .filter(rel -> !(rel instanceof Association))
+                .map(Relationship::getSource);
+    }
+
     /**
      * Find all the nodes that the given node is assigned to.
      *
@@ -275,6 +371,38 @@ public class MemGraph implements Graph {
         return parents;
     }
 
+    /**
+     * Visit the children of the given node directly from the edges of the graph, without copying them into a set.
+     */
+    @Override
+    public void forEachChild(String name, NameVisitor visitor) throws PMException {
+        if (!exists(name)) {
+            throw new PMException(String.format(NODE_NOT_FOUND_MSG, name));
+        }
+
+        for (Relationship rel : graph.incomingEdgesOf(name)) {
+            if (rel instanceof Assignment) {
+                visitor.visit(rel.getSource());
+            }
+        }
+    }
+
+    /**
+     * Visit the parents of the given node directly from the edges of the graph, without copying them into a set.
+     */
+    @Override
+    public void forEachParent(String name, NameVisitor visitor) throws PMException {
+        if (!exists(name)) {
+            throw new PMException(String.format(NODE_NOT_FOUND_MSG, name));
+        }
+
+        for (Relationship rel : graph.outgoingEdgesOf(name)) {
+            if (rel instanceof Assignment) {
+                visitor.visit(rel.getTarget());
+            }
+        }
+    }
+
     /**
      * Assign the child node to the parent node. Both nodes must exist and both types must make a valid assignment.
      *
@@ -303,6 +431,8 @@ public class MemGraph implements Graph {
         Assignment.checkAssignment(childNode.getType(), parentNode.getType());
 
         graph.addEdge(child, parent, new Assignment(child, parent));
+        childNames.computeIfAbsent(parent, k -> new TreeSet<>()).add(child);
+        version.incrementAndGet();
     }
 
     /**
@@ -314,6 +444,18 @@ public class MemGraph implements Graph {
     @Override
     public void deassign(String child, String parent) {
         graph.removeEdge(child, parent);
+        removeChildName(child, parent);
+        version.incrementAndGet();
+    }
+
+    private void removeChildName(String child, String parent) {
+        TreeSet<String> children = childNames.get(parent);
+        if (children != null) {
+            children.remove(child);
+            if (children.isEmpty()) {
+                childNames.remove(parent);
+            }
+        }
     }
 
     @Override
@@ -353,6 +495,7 @@ public class MemGraph implements Graph {
             Association assoc = (Association) graph.getEdge(ua, target);
             assoc.setOperations(operations);
         }
+        version.incrementAndGet();
     }
 
     /**
@@ -361,6 +504,7 @@ public class MemGraph implements Graph {
     @Override
     public void dissociate(String ua, String target) {
         graph.removeEdge(ua, target);
+        version.incrementAndGet();
     }
 
     /**
@@ -410,5 +554,37 @@ public class MemGraph implements Graph {
         }
         return assocs;
     }
+
+    /**
+     * Visit the associations the given node is the source of without copying the operations of each association.
+     */
+    @Override
+    public void forEachSourceAssociation(String source, AssociationVisitor visitor) throws PMException {
+        if (!exists(source)) {
+            throw new PMException(String.format(NODE_NOT_FOUND_MSG, source));
+        }
+
+        for (Relationship rel : graph.outgoingEdgesOf(source)) {
+            if (rel instanceof Association) {
+                visitor.visit(rel.getTarget(), Collections.unmodifiableSet(((Association) rel).getOperations()));
+            }
+        }
+    }
+
+    /**
+     * Visit the associations the given node is the target of without copying the operations of each association.
+     */
+    @Override
+    public void forEachTargetAssociation(String target, AssociationVisitor visitor) throws PMException {
+        if (!exists(target)) {
+            throw new PMException(String.format(NODE_NOT_FOUND_MSG, target));
+        }
+
+        for (Relationship rel : graph.incomingEdgesOf(target)) {
+            if (rel instanceof Association) {
+                visitor.visit(rel.getSource(), Collections.unmodifiableSet(((Association) rel).getOperations()));
+            }
+        }
+    }
     
 }
@@ -0,0 +1,114 @@
+package gov.nist.csd.pm.pip.graph;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A page of results from a Graph query.  Results are ordered by node name. The next token is the name of the last
+ * item of the page, passing it back to the same query returns the page that follows.  Since the token is a name and not
+ * an offset, nodes created or deleted between requests do not cause results to be skipped or repeated.
+ *
+ * @param <T> the type of the items in the page.
+ */
+public class Page<T> {
+
+    private List<T> items;
+    private String  nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * @return the items in this page, in name order.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the token to retrieve the next page, or null if this is the last page.
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * Build a page from an unordered collection of items.  Only the first pageSize + 1 items with a key greater than
+     * the token are kept while iterating, so the whole collection is never copied or sorted.
+     *
+     * @param items the items to select the page from.
+     * @param key the function to get the name of an item.
+     * @param token the token of the previous page, or null for the first page.
+     * @param pageSize the maximum number of items in the page.
+     * @return the page of items that follow the token.
+     */
+    public static <T> Page<T> of(Iterable<T> items, Function<T, String> key, String token, int pageSize) {
+        checkPageSize(pageSize);
+
+        TreeMap<String, T> selected = new TreeMap<>();
+        for (T item : items) {
+            String k = key.apply(item);
+            if (token != null && k.compareTo(token) <= 0) {
+                continue;
+            }
+
+            if (selected.size() <= pageSize) {
+                selected.put(k, item);
+            } else if (k.compareTo(selected.lastKey()) < 0) {
+                selected.pollLastEntry();
+                selected.put(k, item);
+            }
+        }
+
+        return of(selected, pageSize);
+    }
+
+    /**
+     * Build a page from an iterator that returns items in name order, starting after the token of the previous page.
+     * At most pageSize + 1 items are read from the iterator.
+     *
+     * @param ordered the items in name order.
+     * @param key the function to get the name of an item.
+     * @param pageSize the maximum number of items in the page.
+     * @return the page of the first pageSize items of the iterator.
+     */
+    public static <T> Page<T> ofOrdered(Iterator<T> ordered, Function<T, String> key, int pageSize) {
+        checkPageSize(pageSize);
+
+        TreeMap<String, T> selected = new TreeMap<>();
+        while (ordered.hasNext() && selected.size() <= pageSize) {
+            T item = ordered.next();
+            selected.put(key.apply(item), item);
+        }
+
+        return of(selected, pageSize);
+    }
+
+    private static <T> Page<T> of(TreeMap<String, T> selected, int pageSize) {
+        List<T> page = new ArrayList<>(Math.min(selected.size(), pageSize));
+        String last = null;
+        for (Map.Entry<String, T> entry : selected.entrySet()) {
+            if (page.size() == pageSize) {
+                // there is at least one more item after this page
+                return new Page<>(page, last);
+            }
+
+            page.add(entry.getValue());
+            last = entry.getKey();
+        }
+
+        return new Page<>(page, null);
+    }
+
+    private static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("the page size must be greater than 0");
+        }
+    }
+}
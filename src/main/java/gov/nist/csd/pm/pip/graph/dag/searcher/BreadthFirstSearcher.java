@@ -3,6 +3,7 @@ package gov.nist.csd.pm.pip.graph.dag.searcher;
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.dag.propagator.Propagator;
+import gov.nist.csd.pm.pip.graph.dag.visitor.NameVisitor;
 import gov.nist.csd.pm.pip.graph.dag.visitor.Visitor;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 
@@ -11,13 +12,28 @@ import java.util.*;
 public class BreadthFirstSearcher implements Searcher{
 
     private Graph graph;
+    private TraversalTrace trace;
 
+    /**
+     * Create a searcher of the given graph.  If a TraversalTrace is started on the current thread, the traversals of the
+     * searcher are recorded in it.
+     */
     public BreadthFirstSearcher(Graph graph) {
         this.graph = graph;
+        this.trace = TraversalTrace.current();
+    }
+
+    /**
+     * @param trace the trace to record the traversals of this searcher in, null to not record them.
+     */
+    public void setTrace(TraversalTrace trace) {
+        this.trace = trace;
     }
 
     @Override
     public void traverse(Node start, Propagator propagator, Visitor visitor, Direction direction) throws PMException {
+        TraversalTrace trace = this.trace;
+
         // set up a queue to ensure FIFO
         Queue<Node> queue = new LinkedList<>();
         // set up a set to ensure nodes are only visited once
@@ -27,34 +43,43 @@ public class BreadthFirstSearcher implements Searcher{
 
         while (!queue.isEmpty()) {
             Node node = queue.poll();
+            long begin = trace == null ? 0 : System.nanoTime();
+            int[] fanOut = trace == null ? null : new int[1];
 
             // visit the current node
             visitor.visit(node);
 
-            Set<String> nextLevel = getNextLevel(node.getName(), direction);
-            for (String s : nextLevel) {
+            NameVisitor nextLevel = s -> {
+                if (fanOut != null) {
+                    fanOut[0]++;
+                }
+
                 Node n = graph.getNode(s);
 
                 // if this node has already been seen, we don't need to se it again
-                if (seen.contains(n)) {
-                    continue;
+                if (!seen.add(n)) {
+                    if (trace != null) {
+                        trace.revisitAvoided(s);
+                    }
+                    return;
                 }
 
-                // add the node to the queue and the seen set
+                // add the node to the queue
                 queue.add(n);
-                seen.add(n);
 
                 // propagate from the nextLevel to the current node
                 propagator.propagate(node, n);
+            };
+
+            if (direction == Direction.PARENTS) {
+                graph.forEachParent(node.getName(), nextLevel);
+            } else {
+                graph.forEachChild(node.getName(), nextLevel);
             }
-        }
-    }
 
-    private Set<String> getNextLevel(String node, Direction direction) throws PMException {
-        if (direction == Direction.PARENTS) {
-            return graph.getParents(node);
-        } else {
-            return graph.getChildren(node);
+            if (trace != null) {
+                trace.visit(node.getName(), fanOut[0], System.nanoTime() - begin);
+            }
         }
     }
 }
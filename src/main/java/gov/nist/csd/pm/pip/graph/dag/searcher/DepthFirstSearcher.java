@@ -3,49 +3,88 @@ package gov.nist.csd.pm.pip.graph.dag.searcher;
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.dag.propagator.Propagator;
+import gov.nist.csd.pm.pip.graph.dag.visitor.NameVisitor;
 import gov.nist.csd.pm.pip.graph.dag.visitor.Visitor;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 
 import java.util.HashSet;
-import java.util.Set;
 
 public class DepthFirstSearcher implements Searcher{
 
     private Graph graph;
     private HashSet<String> visited;
+    private TraversalTrace trace;
 
+    /**
+     * Create a searcher of the given graph.  If a TraversalTrace is started on the current thread, the traversals of the
+     * searcher are recorded in it.
+     */
     public DepthFirstSearcher(Graph graph) {
         this.graph = graph;
         this.visited = new HashSet<>();
+        this.trace = TraversalTrace.current();
+    }
+
+    /**
+     * @param trace the trace to record the traversals of this searcher in, null to not record them.
+     */
+    public void setTrace(TraversalTrace trace) {
+        this.trace = trace;
     }
 
     @Override
     public void traverse(Node start, Propagator propagator, Visitor visitor, Direction direction) throws PMException {
+        traverse(start, propagator, visitor, direction, trace);
+    }
+
+    /**
+     * @return the time spent traversing from the start node if the traversal is traced, 0 if it is not.
+     */
+    private long traverse(Node start, Propagator propagator, Visitor visitor, Direction direction,
+                          TraversalTrace trace) throws PMException {
         if(visited.contains(start.getName())) {
-            return;
+            if (trace != null) {
+                trace.revisitAvoided(start.getName());
+            }
+            return 0;
         }
 
+        long begin = trace == null ? 0 : System.nanoTime();
+        // the time spent traversing from the neighbors of the start node and the number of neighbors
+        long[] nested = trace == null ? null : new long[2];
+
         // mark the node as visited
         visited.add(start.getName());
 
-        Set<String> nodes;
-        if (direction == Direction.PARENTS) {
-            nodes = graph.getParents(start.getName());
-        } else {
-            nodes = graph.getChildren(start.getName());
-        }
-
-        for(String n : nodes) {
+        NameVisitor next = n -> {
             Node node = graph.getNode(n);
 
             // traverse from the parent node
-            traverse(node, propagator, visitor, direction);
+            long nanos = traverse(node, propagator, visitor, direction, trace);
+            if (nested != null) {
+                nested[0] += nanos;
+                nested[1]++;
+            }
 
             // propagate from the node to the start node
             propagator.propagate(node, start);
+        };
+
+        if (direction == Direction.PARENTS) {
+            graph.forEachParent(start.getName(), next);
+        } else {
+            graph.forEachChild(start.getName(), next);
         }
 
         // after processing the parents, visit the start node
         visitor.visit(start);
+
+        if (trace == null) {
+            return 0;
+        }
+
+        long elapsed = System.nanoTime() - begin;
+        trace.visit(start.getName(), (int) nested[1], elapsed - nested[0]);
+        return elapsed;
     }
 }
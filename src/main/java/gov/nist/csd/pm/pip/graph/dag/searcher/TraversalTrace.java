@@ -0,0 +1,210 @@
+package gov.nist.csd.pm.pip.graph.dag.searcher;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the traversals of the BreadthFirstSearcher and DepthFirstSearcher: the sequence of nodes visited, the fan-out
+ * of each node, the nodes reached again that were not visited again, and the time spent on each node.  The time spent
+ * on a node is the time spent visiting it and enumerating its neighbors, not including the time spent on other nodes
+ * in between.
+ *
+ * A trace records the traversals of the searchers created by the thread it is started on until it is closed, including
+ * the traversals of the decider:
+ * <pre>
+ * try (TraversalTrace trace = TraversalTrace.start()) {
+ *     decider.list(subject, process, target);
+ *     System.out.println(trace.getHottest(10));
+ * }
+ * </pre>
+ * A searcher can also be given a trace with setTrace.  Searchers created while no trace is started do not record
+ * anything and only check if a trace is started when they are created.
+ */
+public class TraversalTrace implements AutoCloseable {
+
+    private static final ThreadLocal<TraversalTrace> CURRENT = new ThreadLocal<>();
+    // the number of traces started on any thread, so searchers only look up the trace of their thread if there is one
+    private static final AtomicInteger               STARTED = new AtomicInteger();
+
+    private List<String>           sequence;
+    private Map<String, NodeStats> nodes;
+    private long                   revisitsAvoided;
+    private TraversalTrace         previous;
+    private Thread                 thread;
+
+    public TraversalTrace() {
+        this.sequence = new ArrayList<>();
+        this.nodes = new HashMap<>();
+    }
+
+    /**
+     * Start a trace of the searchers created by the current thread.  If a trace is already started on the thread, it
+     * is resumed when the new trace is closed.
+     *
+     * @return the started trace.
+     */
+    public static TraversalTrace start() {
+        TraversalTrace trace = new TraversalTrace();
+        trace.previous = CURRENT.get();
+        trace.thread = Thread.currentThread();
+        CURRENT.set(trace);
+        STARTED.incrementAndGet();
+        return trace;
+    }
+
+    /**
+     * @return the trace started on the current thread, or null if there is none.
+     */
+    public static TraversalTrace current() {
+        return STARTED.get() == 0 ? null : CURRENT.get();
+    }
+
+    /**
+     * Stop tracing the searchers created by the thread the trace was started on.  The recorded traversals can still
+     * be read.
+     */
+    @Override
+    public void close() {
+        if (thread == null) {
+            return;
+        } else if (thread != Thread.currentThread()) {
+            throw new IllegalStateException("a traversal trace must be closed by the thread that started it");
+        }
+
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+        thread = null;
+        STARTED.decrementAndGet();
+    }
+
+    /**
+     * Record a visit of a node.
+     *
+     * @param node the name of the node.
+     * @param fanOut the number of neighbors of the node in the direction of the traversal.
+     * @param nanos the time spent on the node.
+     */
+    synchronized void visit(String node, int fanOut, long nanos) {
+        sequence.add(node);
+        NodeStats stats = nodes.computeIfAbsent(node, NodeStats::new);
+        stats.visits++;
+        stats.fanOut = fanOut;
+        stats.nanos += nanos;
+    }
+
+    /**
+     * Record that a node was reached again and was not visited again.
+     */
+    synchronized void revisitAvoided(String node) {
+        revisitsAvoided++;
+        nodes.computeIfAbsent(node, NodeStats::new).revisitsAvoided++;
+    }
+
+    /**
+     * @return the names of the nodes in the order they were visited.
+     */
+    public synchronized List<String> getVisited() {
+        return new ArrayList<>(sequence);
+    }
+
+    /**
+     * @return the number of times a node was reached again and was not visited again.
+     */
+    public synchronized long getRevisitsAvoided() {
+        return revisitsAvoided;
+    }
+
+    /**
+     * @return the statistics of the given node, or null if it was not reached.
+     */
+    public synchronized NodeStats getNode(String name) {
+        NodeStats stats = nodes.get(name);
+        return stats == null ? null : stats.copy();
+    }
+
+    /**
+     * @param n the maximum number of nodes to return.
+     * @return the statistics of the nodes that took the most time, in descending order of time.
+     */
+    public synchronized List<NodeStats> getHottest(int n) {
+        List<NodeStats> hottest = new ArrayList<>();
+        for (NodeStats stats : nodes.values()) {
+            hottest.add(stats.copy());
+        }
+        hottest.sort(Comparator.comparingLong(NodeStats::getNanos).reversed().thenComparing(NodeStats::getName));
+        return hottest.subList(0, Math.min(n, hottest.size()));
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d visits of %d nodes, %d revisits avoided%n", sequence.size(), nodes.size(),
+                revisitsAvoided));
+        for (NodeStats stats : getHottest(10)) {
+            sb.append(stats).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    public static class NodeStats {
+        private String name;
+        private int    visits;
+        private int    fanOut;
+        private int    revisitsAvoided;
+        private long   nanos;
+
+        NodeStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of times the node was visited, once per traversal that reached it.
+         */
+        public int getVisits() {
+            return visits;
+        }
+
+        /**
+         * @return the number of neighbors of the node in the direction of the last traversal that visited it.
+         */
+        public int getFanOut() {
+            return fanOut;
+        }
+
+        /**
+         * @return the number of times the node was reached again and was not visited again.
+         */
+        public int getRevisitsAvoided() {
+            return revisitsAvoided;
+        }
+
+        /**
+         * @return the total time spent on the node in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        private NodeStats copy() {
+            NodeStats copy = new NodeStats(name);
+            copy.visits = visits;
+            copy.fanOut = fanOut;
+            copy.revisitsAvoided = revisitsAvoided;
+            copy.nanos = nanos;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d us, %d visits, fan-out %d, %d revisits avoided", name, nanos / 1000, visits,
+                    fanOut, revisitsAvoided);
+        }
+    }
+}
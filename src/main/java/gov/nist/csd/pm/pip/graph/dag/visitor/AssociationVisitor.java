@@ -0,0 +1,15 @@
+package gov.nist.csd.pm.pip.graph.dag.visitor;
+
+import gov.nist.csd.pm.exceptions.PMException;
+
+import java.util.Set;
+
+/**
+ * Visits an association of a node, used by Graph.forEachSourceAssociation and Graph.forEachTargetAssociation.  The
+ * operations are a read only view of the association and should be copied if they need to be kept.
+ */
+@FunctionalInterface
+public interface AssociationVisitor {
+
+    void visit(String name, Set<String> operations) throws PMException;
+}
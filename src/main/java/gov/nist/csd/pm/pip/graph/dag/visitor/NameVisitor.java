@@ -0,0 +1,12 @@
+package gov.nist.csd.pm.pip.graph.dag.visitor;
+
+import gov.nist.csd.pm.exceptions.PMException;
+
+/**
+ * Visits the name of a node that is adjacent to another node, used by Graph.forEachChild and Graph.forEachParent.
+ */
+@FunctionalInterface
+public interface NameVisitor {
+
+    void visit(String name) throws PMException;
+}
@@ -1,35 +1,52 @@
 package gov.nist.csd.pm.pip.obligations;
 
+import gov.nist.csd.pm.pip.Versioned;
 import gov.nist.csd.pm.pip.obligations.model.Obligation;
+import gov.nist.csd.pm.pip.obligations.model.Rule;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class MemObligations implements Obligations {
+/**
+ * Obligations stored in memory.  Obligations can be read concurrently with changes.  Changes are applied one at a time,
+ * and the enabled obligations, the labels of the rules, and the rule index are kept up to date as obligations are
+ * added, updated and deleted.
+ */
+public class MemObligations implements Obligations, Versioned {
 
-    private Map<String, Obligation> obligations;
+    private Map<String, Obligation>  obligations;
+    private Map<String, Obligation>  enabled;
+    // the labels of the obligations that have a rule with a given label
+    private Map<String, Set<String>> ruleLabels;
+    // the rule labels indexed for each obligation, which may differ from its rules if they were changed directly
+    private Map<String, List<String>> indexedRuleLabels;
+    private RuleIndex                ruleIndex;
+    private AtomicLong               version;
 
     public MemObligations() {
-        this.obligations = new HashMap<>();
+        this.obligations = new ConcurrentHashMap<>();
+        this.enabled = new ConcurrentHashMap<>();
+        this.ruleLabels = new ConcurrentHashMap<>();
+        this.indexedRuleLabels = new HashMap<>();
+        this.ruleIndex = new RuleIndex();
+        this.version = new AtomicLong();
     }
 
     @Override
-    public void add(Obligation obligation, boolean enable) {
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public synchronized void add(Obligation obligation, boolean enable) {
         obligation.setEnabled(enable);
-        obligations.put(obligation.getLabel(), obligation);
+        put(obligation.getLabel(), obligation);
     }
 
     @Override
     public Obligation get(String label) {
-        for(String l : obligations.keySet()) {
-            if(l.equals(label)) {
-                return obligations.get(l);
-            }
-        }
-
-        return null;
+        return label == null ? null : obligations.get(label);
     }
 
     @Override
@@ -38,26 +55,107 @@ public class MemObligations implements Obligations {
     }
 
     @Override
-    public void update(String label, Obligation obligation) {
-        obligations.put(label, obligation);
+    public synchronized void update(String label, Obligation obligation) {
+        put(label, obligation);
     }
 
     @Override
-    public void delete(String label) {
-        obligations.remove(label);
+    public synchronized void delete(String label) {
+        Obligation obligation = obligations.remove(label);
+        if (obligation == null) {
+            return;
+        }
+
+        enabled.remove(label);
+        unindexRules(label);
+        ruleIndex.remove(label);
+        version.incrementAndGet();
     }
 
     @Override
-    public void setEnable(String label, boolean enabled) {
+    public synchronized void setEnable(String label, boolean enabled) {
         Obligation obligation = obligations.get(label);
+        if (obligation == null) {
+            return;
+        }
+
+        // the enabled flag is not part of the rule index, so the rules do not need to be indexed again
         obligation.setEnabled(enabled);
-        update(label, obligation);
+        if (enabled) {
+            this.enabled.put(label, obligation);
+        } else {
+            this.enabled.remove(label);
+        }
+        version.incrementAndGet();
     }
 
     @Override
     public List<Obligation> getEnabled() {
-        List<Obligation> obligations = getAll();
-        obligations.removeIf((obl) -> !obl.isEnabled());
-        return obligations;
+        return new ArrayList<>(enabled.values());
+    }
+
+    @Override
+    public List<Obligation> getObligationsWithRule(String ruleLabel) {
+        List<Obligation> results = new ArrayList<>();
+        Set<String> labels = ruleLabels.get(ruleLabel);
+        if (labels == null) {
+            return results;
+        }
+
+        for (String label : labels) {
+            Obligation obligation = obligations.get(label);
+            if (obligation != null) {
+                results.add(obligation);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The index is updated when an obligation is added, updated or deleted.  Changes made directly to an Obligation
+     * object are not indexed until it is updated.
+     */
+    @Override
+    public RuleIndex getRuleIndex() {
+        return ruleIndex;
+    }
+
+    private void put(String label, Obligation obligation) {
+        obligations.put(label, obligation);
+        unindexRules(label);
+
+        if (obligation.isEnabled()) {
+            enabled.put(label, obligation);
+        } else {
+            enabled.remove(label);
+        }
+
+        List<String> labels = new ArrayList<>();
+        for (Rule rule : obligation.getRules()) {
+            if (rule.getLabel() != null) {
+                ruleLabels.computeIfAbsent(rule.getLabel(), k -> ConcurrentHashMap.newKeySet()).add(label);
+                labels.add(rule.getLabel());
+            }
+        }
+        indexedRuleLabels.put(label, labels);
+        ruleIndex.add(label, obligation);
+        version.incrementAndGet();
+    }
+
+    private void unindexRules(String label) {
+        List<String> indexed = indexedRuleLabels.remove(label);
+        if (indexed == null) {
+            return;
+        }
+
+        for (String ruleLabel : indexed) {
+            Set<String> labels = ruleLabels.get(ruleLabel);
+            if (labels != null) {
+                labels.remove(label);
+                if (labels.isEmpty()) {
+                    ruleLabels.remove(ruleLabel);
+                }
+            }
+        }
     }
 }
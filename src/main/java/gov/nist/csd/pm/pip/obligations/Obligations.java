@@ -2,7 +2,9 @@ package gov.nist.csd.pm.pip.obligations;
 
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.pip.obligations.model.Obligation;
+import gov.nist.csd.pm.pip.obligations.model.Rule;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface Obligations {
@@ -20,4 +22,34 @@ public interface Obligations {
 
     List<Obligation> getEnabled();
 
+    /**
+     * Get the obligations that have a rule with the given label.  By default, the rules of every obligation are searched.
+     *
+     * @param ruleLabel the label of the rule.
+     * @return the obligations that have a rule with the label.
+     */
+    default List<Obligation> getObligationsWithRule(String ruleLabel) {
+        List<Obligation> results = new ArrayList<>();
+        for (Obligation obligation : getAll()) {
+            for (Rule rule : obligation.getRules()) {
+                if (rule.getLabel() != null && rule.getLabel().equals(ruleLabel)) {
+                    results.add(obligation);
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get an index of the rules of the obligations, used by the EPP to find the rules that can match an event.
+     * Implementations that store obligations in memory should maintain the index as obligations are added, updated and
+     * deleted. By default, a new index is built from all of the obligations.
+     *
+     * @return an index of the rules of the obligations.
+     */
+    default RuleIndex getRuleIndex() {
+        return RuleIndex.of(getAll());
+    }
+
 }
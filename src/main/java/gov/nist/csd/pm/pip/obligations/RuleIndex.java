@@ -0,0 +1,447 @@
+package gov.nist.csd.pm.pip.obligations;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.obligations.model.*;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An index of the rules of a set of obligations, keyed by the operations, subject and target of each rule's event
+ * pattern.  Given an event, the index returns the rules that can match it so the EPP only evaluates the event pattern
+ * of those rules instead of every rule of every obligation.
+ *
+ * The index only looks at the names in an event pattern, so a candidate rule may still not match the event (for example
+ * if the type or properties of a target do not match).  Candidates must be checked against the full event pattern.
+ * A rule is never left out if it can match the event.
+ *
+ * The rules of an obligation are indexed when it is added, so an obligation that is modified after being added must be
+ * re-added to update the index.  The enabled flag of an obligation is not indexed and must be checked by the caller.
+ *
+ * The index can be read by multiple threads while it is changed. Lookups share a read lock and changes take a write lock.
+ */
+public class RuleIndex {
+
+    private Map<String, List<IndexedRule>> byObligation;
+    private Map<String, Long>              obligationOrder;
+    private long                           nextOrder;
+
+    private Dimension operations;
+    private Dimension subjects;
+    private Dimension targets;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RuleIndex() {
+        this.byObligation = new HashMap<>();
+        this.obligationOrder = new HashMap<>();
+        this.operations = new Dimension();
+        this.subjects = new Dimension();
+        this.targets = new Dimension();
+    }
+
+    /**
+     * Build an index of the rules of the given obligations.
+     */
+    public static RuleIndex of(Collection<Obligation> obligations) {
+        RuleIndex index = new RuleIndex();
+        for (Obligation obligation : obligations) {
+            index.add(obligation.getLabel(), obligation);
+        }
+        return index;
+    }
+
+    /**
+     * Index the rules of the given obligation under the given label, replacing any rules already indexed under the
+     * label.  An obligation that is replaced keeps its position relative to the other obligations.
+     */
+    public void add(String label, Obligation obligation) {
+        lock.writeLock().lock();
+        try {
+            index(label, obligation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(String label, Obligation obligation) {
+        unindex(label);
+
+        long order = obligationOrder.computeIfAbsent(label, k -> nextOrder++);
+        List<IndexedRule> indexed = new ArrayList<>();
+        List<Rule> rules = obligation.getRules();
+        for (int i = 0; i < rules.size(); i++) {
+            IndexedRule rule = new IndexedRule(obligation, rules.get(i), order, i);
+
+            // a rule with an empty list of operations can never match an event
+            if (rule.operations != null && rule.operations.isEmpty()) {
+                continue;
+            }
+
+            operations.add(rule, rule.operations);
+            subjects.add(rule, rule.subjects);
+            targets.add(rule, rule.targets);
+            indexed.add(rule);
+        }
+
+        byObligation.put(label, indexed);
+    }
+
+    /**
+     * Remove the rules of the obligation with the given label from the index.
+     */
+    public void remove(String label) {
+        lock.writeLock().lock();
+        try {
+            unindex(label);
+            obligationOrder.remove(label);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(String label) {
+        List<IndexedRule> indexed = byObligation.remove(label);
+        if (indexed == null) {
+            return;
+        }
+
+        for (IndexedRule rule : indexed) {
+            operations.remove(rule, rule.operations);
+            subjects.remove(rule, rule.subjects);
+            targets.remove(rule, rule.targets);
+        }
+    }
+
+    /**
+     * Get the rules that can match the given event, in the order the obligations were added and the order of the rules
+     * in each obligation.  The keys of the dimension with the fewest candidate rules are looked up first, and the
+     * candidates are filtered by the keys of the other two dimensions.  Containers are only requested from the event if
+     * a rule that needs them is a candidate.
+     *
+     * @param event the event to get the candidate rules of.
+     * @return the rules that can match the event.
+     * @throws PMException if there is an error getting the containers of the event's user or target.
+     */
+    public List<IndexedRule> getCandidates(EventKeys event) throws PMException {
+        lock.readLock().lock();
+        try {
+            return lookup(event);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<IndexedRule> lookup(EventKeys event) throws PMException {
+        List<String> opKeys = Collections.singletonList(event.getOperation());
+        Keys subjectKeys = new Keys(event, true);
+        Keys targetKeys = new Keys(event, false);
+
+        int opSize = operations.estimate(opKeys);
+        int subjectSize = subjects.estimate(subjectKeys.direct());
+        int targetSize = targets.estimate(targetKeys.direct());
+
+        Set<IndexedRule> candidates;
+        if (opSize <= subjectSize && opSize <= targetSize) {
+            candidates = operations.lookup(opKeys);
+        } else if (subjectSize <= targetSize) {
+            candidates = subjects.lookup(subjects.containerKeyed > 0 ? subjectKeys.all() : subjectKeys.direct());
+        } else {
+            candidates = targets.lookup(targets.containerKeyed > 0 ? targetKeys.all() : targetKeys.direct());
+        }
+
+        List<IndexedRule> results = new ArrayList<>();
+        for (IndexedRule rule : candidates) {
+            if (matches(rule.operations, opKeys) &&
+                    matches(rule.subjects, rule.subjectContainers, subjectKeys) &&
+                    matches(rule.targets, rule.targetContainers, targetKeys)) {
+                results.add(rule);
+            }
+        }
+
+        results.sort(Comparator.comparingLong((IndexedRule r) -> r.obligationOrder).thenComparingInt(r -> r.ruleOrder));
+        return results;
+    }
+
+    private static boolean matches(Set<String> ruleKeys, List<String> keys) {
+        if (ruleKeys == null) {
+            return true;
+        }
+
+        for (String key : keys) {
+            if (ruleKeys.contains(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean matches(Set<String> ruleKeys, boolean containerKeys, Keys keys) throws PMException {
+        return ruleKeys == null || matches(ruleKeys, keys.direct()) ||
+                (containerKeys && matches(ruleKeys, keys.containers()));
+    }
+
+    /**
+     * The keys of an event used to look up candidate rules.
+     */
+    public interface EventKeys {
+        String getOperation();
+
+        String getUser();
+
+        String getProcess();
+
+        String getTarget();
+
+        /**
+         * @return the names of the nodes the user of the event is assigned to, directly or indirectly.
+         */
+        Set<String> getUserContainers() throws PMException;
+
+        /**
+         * @return the names of the nodes the target of the event is assigned to, directly or indirectly.
+         */
+        Set<String> getTargetContainers() throws PMException;
+    }
+
+    /**
+     * A rule of an obligation in the index.
+     */
+    public static class IndexedRule {
+        private Obligation  obligation;
+        private Rule        rule;
+        private long        obligationOrder;
+        private int         ruleOrder;
+        private Set<String> operations;
+        private Set<String> subjects;
+        private Set<String> targets;
+        private boolean     subjectContainers;
+        private boolean     targetContainers;
+
+        IndexedRule(Obligation obligation, Rule rule, long obligationOrder, int ruleOrder) {
+            this.obligation = obligation;
+            this.rule = rule;
+            this.obligationOrder = obligationOrder;
+            this.ruleOrder = ruleOrder;
+
+            EventPattern pattern = rule.getEventPattern();
+            this.operations = pattern.getOperations() == null ? null : new HashSet<>(pattern.getOperations());
+            this.subjects = subjectKeys(pattern.getSubject());
+            this.targets = targetKeys(pattern.getTarget());
+            this.subjectContainers = hasContainerKey(subjects);
+            this.targetContainers = hasContainerKey(targets);
+        }
+
+        public Obligation getObligation() {
+            return obligation;
+        }
+
+        public Rule getRule() {
+            return rule;
+        }
+
+        /**
+         * @return true if this rule comes after the given rule in the order candidates are returned.
+         */
+        public boolean isAfter(IndexedRule other) {
+            return obligationOrder != other.obligationOrder ?
+                    obligationOrder > other.obligationOrder : ruleOrder > other.ruleOrder;
+        }
+    }
+
+    // keys are prefixed by the kind of name they refer to so the same name is not confused between kinds
+    private static final String USER_PREFIX      = "user:";
+    private static final String PROCESS_PREFIX   = "process:";
+    private static final String ELEMENT_PREFIX   = "element:";
+    private static final String CONTAINER_PREFIX = "container:";
+
+    private static boolean hasContainerKey(Set<String> keys) {
+        if (keys != null) {
+            for (String key : keys) {
+                if (key.startsWith(CONTAINER_PREFIX)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The subject keys of a rule, or null if the rule matches any subject.  A rule with a list of users can be matched by
+     * any of the users or by a user contained in any of them.
+     */
+    private static Set<String> subjectKeys(Subject subject) {
+        if (subject == null ||
+                (subject.getAnyUser() == null && subject.getUser() == null && subject.getProcess() == null) ||
+                (subject.getAnyUser() != null && subject.getAnyUser().isEmpty())) {
+            return null;
+        }
+
+        Set<String> keys = new HashSet<>();
+        if (subject.getAnyUser() != null) {
+            for (String user : subject.getAnyUser()) {
+                if (user == null) {
+                    return null;
+                }
+                keys.add(USER_PREFIX + user);
+                keys.add(CONTAINER_PREFIX + user);
+            }
+            return keys;
+        }
+
+        if (subject.getUser() != null) {
+            keys.add(USER_PREFIX + subject.getUser());
+        }
+
+        if (subject.getProcess() != null) {
+            if (subject.getProcess().getValue() == null) {
+                return null;
+            }
+            keys.add(PROCESS_PREFIX + subject.getProcess().getValue());
+        }
+
+        return keys;
+    }
+
+    /**
+     * The target keys of a rule, or null if the rule matches any target.
+     */
+    private static Set<String> targetKeys(Target target) {
+        if (target == null || (target.getPolicyElements() == null && target.getContainers() == null)) {
+            return null;
+        }
+
+        List<EvrNode> nodes;
+        String prefix;
+        if (target.getContainers() != null) {
+            nodes = target.getContainers();
+            prefix = CONTAINER_PREFIX;
+        } else {
+            nodes = target.getPolicyElements();
+            prefix = ELEMENT_PREFIX;
+        }
+
+        if (nodes.isEmpty()) {
+            return null;
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (EvrNode node : nodes) {
+            if (node.getName() == null) {
+                return null;
+            }
+            keys.add(prefix + node.getName());
+        }
+
+        return keys;
+    }
+
+    /**
+     * The subject or target keys of an event. The direct keys are known from the event, the container keys require
+     * a traversal of the graph and are only computed if needed.
+     */
+    private static class Keys {
+        private EventKeys    event;
+        private boolean      subject;
+        private List<String> direct;
+        private List<String> containers;
+
+        Keys(EventKeys event, boolean subject) {
+            this.event = event;
+            this.subject = subject;
+            if (subject) {
+                this.direct = Arrays.asList(USER_PREFIX + event.getUser(), PROCESS_PREFIX + event.getProcess());
+            } else {
+                this.direct = Collections.singletonList(ELEMENT_PREFIX + event.getTarget());
+            }
+        }
+
+        List<String> direct() {
+            return direct;
+        }
+
+        List<String> containers() throws PMException {
+            if (containers == null) {
+                Set<String> names = subject ? event.getUserContainers() : event.getTargetContainers();
+                containers = new ArrayList<>(names.size());
+                for (String name : names) {
+                    containers.add(CONTAINER_PREFIX + name);
+                }
+            }
+            return containers;
+        }
+
+        List<String> all() throws PMException {
+            List<String> all = new ArrayList<>(direct);
+            all.addAll(containers());
+            return all;
+        }
+    }
+
+    /**
+     * The rules indexed by the keys of one part of their event patterns.  Rules without keys match any event and are
+     * always candidates.
+     */
+    private static class Dimension {
+        private Map<String, Set<IndexedRule>> keyed = new HashMap<>();
+        private Set<IndexedRule>              any   = new HashSet<>();
+        // the number of rules keyed by a container, which is an upper bound of the rules a container lookup returns
+        private int                           containerKeyed;
+
+        void add(IndexedRule rule, Set<String> keys) {
+            if (keys == null) {
+                any.add(rule);
+                return;
+            }
+
+            for (String key : keys) {
+                keyed.computeIfAbsent(key, k -> new HashSet<>()).add(rule);
+            }
+            if (hasContainerKey(keys)) {
+                containerKeyed++;
+            }
+        }
+
+        void remove(IndexedRule rule, Set<String> keys) {
+            if (keys == null) {
+                any.remove(rule);
+                return;
+            }
+
+            for (String key : keys) {
+                Set<IndexedRule> rules = keyed.get(key);
+                rules.remove(rule);
+                if (rules.isEmpty()) {
+                    keyed.remove(key);
+                }
+            }
+            if (hasContainerKey(keys)) {
+                containerKeyed--;
+            }
+        }
+
+        int estimate(List<String> directKeys) {
+            int size = any.size() + containerKeyed;
+            for (String key : directKeys) {
+                Set<IndexedRule> rules = keyed.get(key);
+                if (rules != null) {
+                    size += rules.size();
+                }
+            }
+            return size;
+        }
+
+        Set<IndexedRule> lookup(List<String> keys) {
+            Set<IndexedRule> rules = new HashSet<>(any);
+            for (String key : keys) {
+                Set<IndexedRule> keyedRules = keyed.get(key);
+                if (keyedRules != null) {
+                    rules.addAll(keyedRules);
+                }
+            }
+            return rules;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package gov.nist.csd.pm.pip.obligations.evr;
+
+import gov.nist.csd.pm.pip.obligations.model.Obligation;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses obligation documents and caches them by the SHA-256 hash of their content, so reloading documents that have not
+ * changed does not parse their YAML again.  The cache holds the most recently used documents up to a maximum size.
+ *
+ * The cache keeps the parsed YAML of a document and builds a new Obligation from it on every call.  Obligations are
+ * changed by the PAP and EPP once they are added, so the same Obligation cannot be returned for every load of a document.
+ */
+public class EVRParseCache {
+
+    private final int                              maxSize;
+    private final Map<String, Map<Object, Object>> documents;
+    private final AtomicLong                       hits;
+    private final AtomicLong                       misses;
+
+    /**
+     * @param maxSize the maximum number of documents to cache.
+     */
+    public EVRParseCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("the size of the EVR parse cache must be greater than 0");
+        }
+
+        this.maxSize = maxSize;
+        this.documents = new LinkedHashMap<String, Map<Object, Object>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Object, Object>> eldest) {
+                return size() > EVRParseCache.this.maxSize;
+            }
+        };
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Parse the given obligation document, using the cached YAML if the document was parsed before.
+     *
+     * @param yml the obligation document.
+     * @return the obligation.
+     * @throws EVRException if the document is not a valid obligation.
+     */
+    public Obligation parse(String yml) throws EVRException {
+        String hash = hash(yml);
+
+        Map<Object, Object> map;
+        synchronized (documents) {
+            map = documents.get(hash);
+        }
+
+        if (map != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            map = EVRParser.load(yml);
+        }
+
+        // only cache documents that are valid obligations
+        Obligation obligation = EVRParser.parse(map);
+        synchronized (documents) {
+            documents.put(hash, map);
+        }
+
+        return obligation;
+    }
+
+    /**
+     * Parse the given obligation documents in parallel, using the cached YAML of the documents that were parsed before.
+     *
+     * @param ymls the obligation documents.
+     * @return the obligations in the same order as the documents.
+     * @throws EVRException if any document is not a valid obligation.
+     */
+    public List<Obligation> parseAll(List<String> ymls) throws EVRException {
+        return EVRParser.parseAll(ymls, this::parse);
+    }
+
+    public int size() {
+        synchronized (documents) {
+            return documents.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    /**
+     * @return the number of documents that were found in the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of documents that were not found in the cache and were parsed.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static String hash(String yml) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(yml.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -12,14 +12,23 @@ import org.yaml.snakeyaml.Yaml;
 
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 public class EVRParser {
 
     private static Logger logger = Logger.getLogger(EVRParser.class.getName());
 
+    // a Yaml instance is expensive to create and cannot be shared between threads
+    private static final ThreadLocal<Yaml> YAML = ThreadLocal.withInitial(Yaml::new);
+
     private static <T> T getObject(Object o, Class<T> type) throws EVRException {
-        logger.info(String.format("getting object %s of type %s", o, type));
+        // the message is only built if tracing is enabled, this is called for every element of a document
+        if (logger.isLoggable(Level.FINEST)) {
+            logger.finest(String.format("getting object %s of type %s", o, type));
+        }
         if(!type.isInstance(o)) {
             throw new EVRException("expected " + type + " got " + o.getClass() + " at \"" + o + "\"");
         }
@@ -28,10 +37,50 @@ public class EVRParser {
     }
 
     public static Obligation parse(String yml) throws EVRException {
-        Yaml yaml = new Yaml();
-        Map<Object, Object> map = yaml.load(yml);
+        return parse(load(yml));
+    }
 
-        return parse(map);
+    /**
+     * Parse the given obligation documents in parallel.
+     *
+     * @param ymls the obligation documents.
+     * @return the obligations in the same order as the documents.
+     * @throws EVRException if any document is not a valid obligation.
+     */
+    public static List<Obligation> parseAll(List<String> ymls) throws EVRException {
+        return parseAll(ymls, EVRParser::parse);
+    }
+
+    /**
+     * Load the YAML of an obligation document without parsing the obligation.  The returned map can be parsed with
+     * parse(Map).
+     */
+    static Map<Object, Object> load(String yml) {
+        return YAML.get().load(yml);
+    }
+
+    interface DocumentParser {
+        Obligation parse(String yml) throws EVRException;
+    }
+
+    static List<Obligation> parseAll(List<String> ymls, DocumentParser parser) throws EVRException {
+        Obligation[] obligations = new Obligation[ymls.size()];
+        try {
+            IntStream.range(0, ymls.size()).parallel().forEach(i -> {
+                try {
+                    obligations[i] = parser.parse(ymls.get(i));
+                } catch (EVRException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof EVRException) {
+                throw (EVRException) e.getCause();
+            }
+            throw e;
+        }
+
+        return Arrays.asList(obligations);
     }
 
     /**
@@ -39,8 +88,7 @@ public class EVRParser {
      * rules: array
      */
     public static Obligation parse(InputStream is) throws EVRException {
-        Yaml yaml = new Yaml();
-        Map<Object, Object> map = yaml.load(is);
+        Map<Object, Object> map = YAML.get().load(is);
 
         return parse(map);
     }
@@ -466,7 +514,6 @@ public class EVRParser {
         }
 
         if(map.containsKey("function")) {
-            System.out.println("found function: " + map.get("function"));
             Map funcMap = getObject(map.get("function"), Map.class);
             return new EvrNode(parseFunction(funcMap));
         } else {
@@ -1,19 +1,28 @@
 package gov.nist.csd.pm.pip.prohibitions;
 
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.Versioned;
 import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An in memory implementation of the Prohibitions interface, that stores prohibitions in a list.
  */
-public class MemProhibitions implements Prohibitions {
+public class MemProhibitions implements Prohibitions, Versioned {
 
     private Map<String, List<Prohibition>> prohibitions;
+    private AtomicLong version;
 
     public MemProhibitions() {
         this.prohibitions = new HashMap<>();
+        this.version = new AtomicLong();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
     }
 
     /**
@@ -41,6 +50,7 @@ public class MemProhibitions implements Prohibitions {
         List<Prohibition> exPros = this.prohibitions.getOrDefault(subject, new ArrayList<>());
         exPros.add(prohibition);
         this.prohibitions.put(subject, exPros);
+        version.incrementAndGet();
     }
 
     /**
@@ -122,5 +132,6 @@ public class MemProhibitions implements Prohibitions {
                 }
             }
         }
+        version.incrementAndGet();
     }
 }
@@ -3,6 +3,8 @@ package gov.nist.csd.pm.pip.prohibitions;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.metrics.MetricsRegistry;
+import gov.nist.csd.pm.metrics.Timer;
 import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pip.prohibitions.model.ContainerCondition;
 import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
@@ -21,6 +23,14 @@ public class ProhibitionsSerializer {
      * @throws PMException if there is an error retrieving the prohibitions from the dao.
      */
     public static String toJson(Prohibitions dao) throws PMException {
+        Timer timer = MetricsRegistry.getMetrics().timer("serializer.prohibitions.to_json");
+        long start = timer.start();
+        String result = writeJson(dao);
+        timer.stop(start);
+        return result;
+    }
+
+    private static String writeJson(Prohibitions dao) throws PMException {
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
         List<Prohibition> prohibitions = dao.getAll();
@@ -43,6 +53,14 @@ public class ProhibitionsSerializer {
      * @throws PMException if there is an error adding the prohibitions to the prohibitions.
      */
     public static Prohibitions fromJson(Prohibitions prohibitions, String json) throws PMException {
+        Timer timer = MetricsRegistry.getMetrics().timer("serializer.prohibitions.from_json");
+        long start = timer.start();
+        Prohibitions result = readJson(prohibitions, json);
+        timer.stop(start);
+        return result;
+    }
+
+    private static Prohibitions readJson(Prohibitions prohibitions, String json) throws PMException {
         JsonProhibitions jsonProhibitions = new Gson().fromJson(json, JsonProhibitions.class);
         for(JsonProhibition jsonProhibition : jsonProhibitions.getProhibitions()) {
             Prohibition.Builder builder = new Prohibition.Builder(jsonProhibition.name, jsonProhibition.subject, new OperationSet(jsonProhibition.ops));
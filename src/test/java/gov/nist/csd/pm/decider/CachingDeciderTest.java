@@ -0,0 +1,138 @@
+package gov.nist.csd.pm.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.decider.CachingDecider;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.obligations.model.Obligation;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDeciderTest {
+
+    private PAP            pap;
+    private PReviewDecider decider;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        pap = new PAP(new MemGraph(), new MemProhibitions(), new MemObligations());
+        Graph graph = pap.getGraphPAP();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("ua2", UA, null, "pc1");
+        graph.createNode("u2", U, null, "ua2");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.createNode("o2", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read", "write"));
+        decider = new PReviewDecider(graph, pap.getProhibitionsPAP());
+    }
+
+    @Test
+    void testPolicyVersion() throws PMException {
+        long version = pap.getPolicyVersion();
+        pap.getGraphPAP().createNode("oa2", OA, null, "pc1");
+        assertTrue(pap.getPolicyVersion() > version);
+
+        version = pap.getPolicyVersion();
+        pap.getProhibitionsPAP().add(new Prohibition.Builder("deny", "u1", new OperationSet("write")).build());
+        assertTrue(pap.getPolicyVersion() > version);
+
+        version = pap.getPolicyVersion();
+        Obligation obligation = new Obligation();
+        obligation.setLabel("obligation");
+        pap.getObligationsPAP().add(obligation, true);
+        assertTrue(pap.getPolicyVersion() > version);
+
+        // replacing a store does not take the version back
+        version = pap.getPolicyVersion();
+        pap.setGraphPAP(new MemGraph());
+        assertTrue(pap.getPolicyVersion() > version);
+    }
+
+    @Test
+    void testCache() throws PMException {
+        CachingDecider cache = new CachingDecider.Builder(decider, pap::getPolicyVersion).build();
+
+        assertTrue(cache.check("u1", "", "o1", "read", "write"));
+        assertEquals(new HashSet<>(Arrays.asList("read", "write")), cache.list("u1", "", "o1"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the process is part of the key
+        cache.list("u1", "p1", "o1");
+        assertEquals(2, cache.getMisses());
+
+        // the returned sets can be modified without changing the cache
+        cache.list("u1", "", "o1").clear();
+        assertTrue(cache.check("u1", "", "o1", "read"));
+
+        // a change to the policy invalidates the cached decisions
+        pap.getProhibitionsPAP().add(new Prohibition.Builder("deny", "u1", new OperationSet("write"))
+                .addContainer("oa1", false)
+                .build());
+        assertFalse(cache.check("u1", "", "o1", "write"));
+        pap.getGraphPAP().dissociate("ua1", "oa1");
+        assertFalse(cache.check("u1", "", "o1", "read"));
+
+        // calls that fail are not cached
+        assertThrows(PMException.class, () -> cache.list("u3", "", "o1"));
+        assertThrows(PMException.class, () -> cache.list("u3", "", "o1"));
+    }
+
+    @Test
+    void testNegativeCaching() throws PMException {
+        CachingDecider cache = new CachingDecider.Builder(decider, pap::getPolicyVersion).build();
+        assertFalse(cache.check("u2", "", "o1", "read"));
+        assertFalse(cache.check("u2", "", "o1", "read"));
+        assertEquals(1, cache.getHits());
+
+        cache = new CachingDecider.Builder(decider, pap::getPolicyVersion)
+                .setCacheNegative(false)
+                .build();
+        assertFalse(cache.check("u2", "", "o1", "read"));
+        assertFalse(cache.check("u2", "", "o1", "read"));
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEviction() throws PMException, InterruptedException {
+        CachingDecider cache = new CachingDecider.Builder(decider, pap::getPolicyVersion)
+                .setMaximumSize(1)
+                .build();
+        cache.list("u1", "", "o1");
+        cache.list("u1", "", "o2");
+        cache.list("u1", "", "o1");
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getHits());
+
+        cache = new CachingDecider.Builder(decider, pap::getPolicyVersion)
+                .setTtl(1, TimeUnit.MILLISECONDS)
+                .build();
+        cache.list("u1", "", "o1");
+        Thread.sleep(5);
+        cache.list("u1", "", "o1");
+        assertEquals(0, cache.getHits());
+
+        // nothing is cached if the policy is not versioned
+        cache = new CachingDecider.Builder(decider, () -> -1).build();
+        cache.list("u1", "", "o1");
+        cache.list("u1", "", "o1");
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,125 @@
+package gov.nist.csd.pm.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pdp.decider.AsyncDecider;
+import gov.nist.csd.pm.pdp.decider.ExecutorAsyncDecider;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorAsyncDeciderTest {
+
+    private PReviewDecider decider;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("oa2", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.createNode("o2", O, null, "oa2");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+        decider = new PReviewDecider(graph);
+    }
+
+    @Test
+    void testDecisions() throws ExecutionException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncDecider async = new ExecutorAsyncDecider(decider, executor);
+            assertTrue(async.check("u1", "", "o1", "read").get());
+            assertEquals(Collections.singleton("read"), async.list("u1", "", "o1").get());
+
+            Set<String> nodes = new HashSet<>(Arrays.asList("o1", "o2"));
+            assertEquals(Collections.singleton("o1"), async.filter("u1", "", nodes, "read").get());
+            assertEquals(2, nodes.size());
+
+            Map<String, Boolean> expected = new LinkedHashMap<>();
+            expected.put("o1", true);
+            expected.put("o2", false);
+            assertEquals(expected, async.checkAll("u1", "", Arrays.asList("o1", "o2"), "read").get());
+
+            // the exceptions of decisions complete the futures exceptionally
+            ExecutionException e = assertThrows(ExecutionException.class, () -> async.list("u2", "", "o1").get());
+            assertTrue(e.getCause() instanceof PMException);
+            assertThrows(ExecutionException.class,
+                    () -> async.checkAll("u2", "", Arrays.asList("o1", "o2"), "read").get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testErrorCompletesFuture() {
+        AsyncDecider async = new ExecutorAsyncDecider(new PReviewDecider(new MemGraph()) {
+            @Override
+            public Set<String> list(String subject, String process, String target) {
+                throw new Error("the decision failed");
+            }
+        }, Runnable::run);
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> async.list("u1", "", "o1").get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof Error);
+    }
+
+    @Test
+    void testLock() throws Exception {
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncDecider async = new ExecutorAsyncDecider(decider, executor, lock.readLock());
+
+            // a decision waits while the policy is being changed
+            lock.writeLock().lock();
+            CompletableFuture<Boolean> future;
+            try {
+                future = async.check("u1", "", "o1", "read");
+                assertThrows(TimeoutException.class, () -> future.get(100, TimeUnit.MILLISECONDS));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            assertTrue(future.get(10, TimeUnit.SECONDS));
+            assertEquals(0, lock.getReadLockCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRejected() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        AsyncDecider async = new ExecutorAsyncDecider(decider, executor);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> async.check("u1", "", "o1", "read").get());
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    void testVirtualThreads() throws ExecutionException, InterruptedException {
+        if (!ExecutorAsyncDecider.isVirtualThreadsSupported()) {
+            assertThrows(UnsupportedOperationException.class, ExecutorAsyncDecider::newVirtualThreadExecutor);
+            return;
+        }
+
+        ExecutorService executor = ExecutorAsyncDecider.newVirtualThreadExecutor();
+        try {
+            assertTrue(new ExecutorAsyncDecider(decider, executor).check("u1", "", "o1", "read").get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -687,6 +687,77 @@ class PReviewDeciderTest {
         assertTrue(list.contains(READ) && !list.contains(WRITE));
     }
 
+    @Test
+    void testListManyTargets() throws PMException {
+        Graph graph = new MemGraph();
+        Random rand = new Random(7);
+        List<String> uas = new ArrayList<>();
+        List<String> oas = new ArrayList<>();
+        for (int pc = 1; pc <= 3; pc++) {
+            graph.createPolicyClass("pc" + pc, null);
+            graph.createNode("ua" + pc, UA, null, "pc" + pc);
+            graph.createNode("oa" + pc, OA, null, "pc" + pc);
+            uas.add("ua" + pc);
+            oas.add("oa" + pc);
+        }
+        for (int i = 0; i < 20; i++) {
+            // assign to one or two existing attributes to build diamonds and multiple policy classes
+            String ua = "ua_" + i;
+            graph.createNode(ua, UA, null, uas.get(rand.nextInt(uas.size())));
+            String oa = "oa_" + i;
+            graph.createNode(oa, OA, null, oas.get(rand.nextInt(oas.size())));
+            String extraOA = oas.get(rand.nextInt(oas.size()));
+            if (!graph.isAssigned(oa, extraOA)) {
+                graph.assign(oa, extraOA);
+            }
+            uas.add(ua);
+            oas.add(oa);
+            graph.createNode("o_" + i, O, null, oa, oas.get(rand.nextInt(oas.size() - 1)));
+        }
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            graph.createNode("u_" + i, U, null, uas.get(rand.nextInt(uas.size())), uas.get(rand.nextInt(uas.size())));
+            users.add("u_" + i);
+        }
+        for (String ua : uas) {
+            graph.associate(ua, oas.get(rand.nextInt(oas.size())), new OperationSet(READ));
+            graph.associate(ua, oas.get(rand.nextInt(oas.size())), new OperationSet(WRITE, "execute"));
+        }
+
+        Prohibitions prohibitions = new MemProhibitions();
+        prohibitions.add(new Prohibition.Builder("deny1", "u_0", new OperationSet(WRITE))
+                .setIntersection(true)
+                .addContainer(oas.get(5), false)
+                .addContainer(oas.get(9), true)
+                .build());
+        prohibitions.add(new Prohibition.Builder("deny2", uas.get(4), new OperationSet(READ))
+                .setIntersection(false)
+                .addContainer(oas.get(3), false)
+                .addContainer(oas.get(12), false)
+                .build());
+
+        PReviewDecider decider = new PReviewDecider(graph, prohibitions);
+        Set<String> targets = new HashSet<>();
+        for (Node node : graph.getNodes()) {
+            targets.add(node.getName());
+        }
+
+        for (String user : users) {
+            Map<String, Set<String>> bulk = decider.list(decider.getSubjectContext(user, ""), targets);
+            for (String target : targets) {
+                assertEquals(decider.list(user, "", target), bulk.get(target), user + " on " + target);
+            }
+
+            Set<String> expected = new HashSet<>();
+            for (String target : targets) {
+                if (decider.check(user, "", target, WRITE)) {
+                    expected.add(target);
+                }
+            }
+            assertEquals(expected, decider.filter(user, "", new HashSet<>(targets), WRITE));
+        }
+    }
+
     private static void buildGraph() throws PMException {
         Graph graph = new MemGraph();
         Random rand = new Random();
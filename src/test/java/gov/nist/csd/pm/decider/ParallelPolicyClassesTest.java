@@ -0,0 +1,87 @@
+package gov.nist.csd.pm.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.PolicyGenerator;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPolicyClassesTest {
+
+    private PAP          pap;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        pap = new PAP(new MemGraph(), new MemProhibitions(), new MemObligations());
+        new PolicyGenerator.Builder(7)
+                .setUsers(10)
+                .setObjects(20)
+                .setPolicyClasses(4)
+                .setDepth(2)
+                .setBranching(2)
+                .setAssociationDensity(1)
+                .setProhibitionDensity(0.3)
+                .build()
+                .generate(pap);
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testSameDecisions() throws PMException {
+        PReviewDecider sequential = new PReviewDecider(pap.getGraphPAP(), pap.getProhibitionsPAP());
+        PReviewDecider parallel = new PReviewDecider(pap.getGraphPAP(), pap.getProhibitionsPAP())
+                .setParallelPolicyClasses(pool, 2);
+
+        int granted = 0;
+        for (int u = 0; u < 10; u++) {
+            for (int o = 0; o < 20; o++) {
+                Set<String> perms = sequential.list("u" + u, "", "o" + o);
+                assertEquals(perms, parallel.list("u" + u, "", "o" + o));
+                if (!perms.isEmpty()) {
+                    granted++;
+                }
+            }
+            for (String oa : new String[]{"pc0_oa0", "pc2_oa1", "pc3_oa2"}) {
+                assertEquals(sequential.list("u" + u, "", oa), parallel.list("u" + u, "", oa));
+            }
+            assertEquals(sequential.check("u" + u, "", "o0", "read"), parallel.check("u" + u, "", "o0", "read"));
+        }
+        assertTrue(granted > 0);
+    }
+
+    @Test
+    void testBelowThreshold() throws PMException {
+        PReviewDecider sequential = new PReviewDecider(pap.getGraphPAP(), pap.getProhibitionsPAP());
+        PReviewDecider parallel = new PReviewDecider(pap.getGraphPAP(), pap.getProhibitionsPAP())
+                .setParallelPolicyClasses(pool, 40);
+
+        for (int o = 0; o < 20; o++) {
+            assertEquals(sequential.list("u0", "", "o" + o), parallel.list("u0", "", "o" + o));
+        }
+    }
+
+    @Test
+    void testErrors() {
+        PReviewDecider decider = new PReviewDecider(pap.getGraphPAP(), pap.getProhibitionsPAP());
+        assertThrows(IllegalArgumentException.class, () -> decider.setParallelPolicyClasses(pool, 0));
+
+        decider.setParallelPolicyClasses(pool, 2);
+        assertThrows(PMException.class, () -> decider.list("u0", "", "o100"));
+    }
+}
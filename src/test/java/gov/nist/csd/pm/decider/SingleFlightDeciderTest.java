@@ -0,0 +1,179 @@
+package gov.nist.csd.pm.decider;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pdp.decider.SingleFlightDecider;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightDeciderTest {
+
+    /**
+     * A graph that blocks the first traversal of the user side of the graph until it is released.
+     */
+    private static class BlockingGraph extends MemGraph {
+        CountDownLatch   started  = new CountDownLatch(1);
+        CountDownLatch   released = new CountDownLatch(1);
+        AtomicInteger    subjects = new AtomicInteger();
+        volatile boolean blocking;
+        volatile boolean failing;
+
+        @Override
+        public Node getNode(String name) throws PMException {
+            if (blocking && name.equals("u1") && subjects.getAndIncrement() == 0) {
+                started.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failing) {
+                    throw new Error("the traversal failed");
+                }
+            }
+            return super.getNode(name);
+        }
+    }
+
+    @Test
+    void testSharedComputations() throws Exception {
+        BlockingGraph graph = new BlockingGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.createNode("o2", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+
+        graph.blocking = true;
+
+        SingleFlightDecider decider = new SingleFlightDecider(new PReviewDecider(graph), graph::getVersion);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Set<String>> first = executor.submit(() -> decider.list("u1", "", "o1"));
+            assertTrue(graph.started.await(10, TimeUnit.SECONDS));
+
+            Future<Boolean> same = executor.submit(() -> decider.check("u1", "", "o1", "read"));
+            Future<Set<String>> otherTarget = executor.submit(() -> decider.list("u1", "", "o2"));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((decider.getSharedDecisions() < 1 || decider.getSharedSubjects() < 1)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            graph.released.countDown();
+
+            assertEquals(Collections.singleton("read"), first.get());
+            assertTrue(same.get());
+            assertEquals(Collections.singleton("read"), otherTarget.get());
+            assertEquals(1, decider.getSharedDecisions());
+            assertEquals(1, decider.getSharedSubjects());
+            // the user side of the graph was only traversed once
+            assertEquals(1, graph.subjects.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        // completed computations are not reused
+        decider.list("u1", "", "o1");
+        assertEquals(2, graph.subjects.get());
+    }
+
+    @Test
+    void testChangedPolicyIsNotShared() throws Exception {
+        BlockingGraph graph = new BlockingGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+
+        graph.blocking = true;
+
+        SingleFlightDecider decider = new SingleFlightDecider(new PReviewDecider(graph), graph::getVersion);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Set<String>> first = executor.submit(() -> decider.list("u1", "", "o1"));
+            assertTrue(graph.started.await(10, TimeUnit.SECONDS));
+
+            // a call made after the policy changed computes its own decision
+            graph.associate("ua1", "oa1", new OperationSet("read", "write"));
+            Future<Set<String>> second = executor.submit(() -> decider.list("u1", "", "o1"));
+            assertEquals(new HashSet<>(Arrays.asList("read", "write")), second.get(10, TimeUnit.SECONDS));
+            assertEquals(0, decider.getSharedDecisions());
+            assertEquals(0, decider.getSharedSubjects());
+
+            graph.released.countDown();
+            first.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // nothing is shared if the policy is not versioned
+        SingleFlightDecider unversioned = new SingleFlightDecider(new PReviewDecider(graph), () -> -1);
+        assertEquals(new HashSet<>(Arrays.asList("read", "write")), unversioned.list("u1", "", "o1"));
+        assertThrows(IllegalArgumentException.class, () -> new SingleFlightDecider(new PReviewDecider(graph), null));
+    }
+
+    @Test
+    void testErrors() throws PMException {
+        MemGraph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        SingleFlightDecider decider = new SingleFlightDecider(new PReviewDecider(graph), graph::getVersion);
+        assertThrows(PMException.class, () -> decider.list("u1", "", "o1"));
+        assertThrows(PMException.class, () -> decider.check("u1", "", "o1", "read"));
+    }
+
+    @Test
+    void testSharedComputationThrowsError() throws Exception {
+        BlockingGraph graph = new BlockingGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+
+        graph.blocking = true;
+        graph.failing = true;
+
+        SingleFlightDecider decider = new SingleFlightDecider(new PReviewDecider(graph), graph::getVersion);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Set<String>> first = executor.submit(() -> decider.list("u1", "", "o1"));
+            assertTrue(graph.started.await(10, TimeUnit.SECONDS));
+
+            Future<Set<String>> same = executor.submit(() -> decider.list("u1", "", "o1"));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (decider.getSharedDecisions() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            graph.released.countDown();
+
+            // the call sharing the computation receives the error instead of waiting forever
+            ExecutionException firstEx = assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertTrue(firstEx.getCause() instanceof Error);
+            ExecutionException sameEx = assertThrows(ExecutionException.class, () -> same.get(10, TimeUnit.SECONDS));
+            assertTrue(sameEx.getCause() instanceof Error);
+            assertEquals(1, decider.getSharedDecisions());
+        } finally {
+            executor.shutdown();
+        }
+
+        // the failed computation is not kept
+        assertEquals(Collections.singleton("read"), decider.list("u1", "", "o1"));
+    }
+}
@@ -3,10 +3,14 @@ package gov.nist.csd.pm.epp;
 import gov.nist.csd.pm.epp.events.AssignEvent;
 import gov.nist.csd.pm.epp.events.AssignToEvent;
 import gov.nist.csd.pm.epp.events.DeassignEvent;
+import gov.nist.csd.pm.epp.events.DeassignFromEvent;
+import gov.nist.csd.pm.epp.events.EventContext;
+import gov.nist.csd.pm.epp.functions.FunctionExecutor;
 import gov.nist.csd.pm.exceptions.PMException;
 import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pdp.services.UserContext;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.MemGraph;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
@@ -14,14 +18,21 @@ import gov.nist.csd.pm.pip.graph.model.nodes.NodeType;
 import gov.nist.csd.pm.pip.obligations.MemObligations;
 import gov.nist.csd.pm.pip.obligations.Obligations;
 import gov.nist.csd.pm.pip.obligations.evr.EVRParser;
-import gov.nist.csd.pm.pip.obligations.model.Obligation;
-import gov.nist.csd.pm.pip.obligations.model.Rule;
+import gov.nist.csd.pm.pip.obligations.model.*;
+import gov.nist.csd.pm.pip.obligations.model.actions.FunctionAction;
+import gov.nist.csd.pm.pip.obligations.model.functions.Arg;
+import gov.nist.csd.pm.pip.obligations.model.functions.Function;
 import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -106,6 +117,14 @@ class EPPTest {
         // check that the deny was created
         // an exception is thrown if one doesnt exist
         pdp.getPAP().getProhibitionsPAP().get("deny");
+
+        // the second rule deletes everything the first created
+        pdp.getEPP().processEvent(new DeassignFromEvent(oa1, o1), u1.getName(), "123");
+        assertFalse(pdp.getPAP().getGraphPAP().exists("new OA"));
+        assertFalse(pdp.getPAP().getGraphPAP().getSourceAssociations(ua1.getName()).containsKey("new OA"));
+        assertThrows(PMException.class, () -> pdp.getPAP().getProhibitionsPAP().get("deny"));
+        assertTrue(pdp.getPAP().getObligationsPAP().getObligationsWithRule("created rule").isEmpty());
+        assertEquals(2, pdp.getPAP().getObligationsPAP().get("test").getRules().size());
     }
 
     @Test
@@ -132,4 +151,743 @@ class EPPTest {
 
         assertTrue(graph.exists("new OA"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFunctionActionsInResponseBatch() throws PMException {
+        String yml = "label: functions\n" +
+                "rules:\n" +
+                "  - label: create with function\n" +
+                "    event:\n" +
+                "      operations:\n" +
+                "        - assign to\n" +
+                "      target:\n" +
+                "        policyElements:\n" +
+                "          - name: oa1\n" +
+                "            type: OA\n" +
+                "    response:\n" +
+                "      actions:\n" +
+                "        - function:\n" +
+                "            name: create_node\n" +
+                "            args:\n" +
+                "              - oa1\n" +
+                "              - OA\n" +
+                "              - function oa\n" +
+                "              - OA\n" +
+                "        - assign:\n" +
+                "            - what:\n" +
+                "                name: o1\n" +
+                "                type: O\n" +
+                "              where:\n" +
+                "                name: function oa\n" +
+                "                type: OA\n";
+        pdp.getPAP().getObligationsPAP().add(EVRParser.parse(yml), true);
+
+        // the node created by the function can be used by the later actions of the response
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "123");
+        Graph graph = pdp.getPAP().getGraphPAP();
+        assertTrue(graph.isAssigned("o1", "function oa"));
+
+        // if a later action fails the node created by the function is not created
+        String failing = yml.replace("label: functions", "label: failing")
+                .replace("function oa", "failing oa")
+                .replace("name: o1", "name: missing");
+        pdp.getPAP().getObligationsPAP().add(EVRParser.parse(failing), true);
+        assertThrows(PMException.class, () -> pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "123"));
+        assertFalse(graph.exists("failing oa"));
+    }
+
+    @Test
+    void testRuleSeesChangesOfEarlierRule() throws PMException {
+        String yml = "label: sequence\n" +
+                "rules:\n" +
+                "  - label: add user\n" +
+                "    event:\n" +
+                "      operations:\n" +
+                "        - assign to\n" +
+                "      target:\n" +
+                "        policyElements:\n" +
+                "          - name: oa1\n" +
+                "            type: OA\n" +
+                "    response:\n" +
+                "      actions:\n" +
+                "        - assign:\n" +
+                "            - what:\n" +
+                "                name: u1\n" +
+                "                type: U\n" +
+                "              where:\n" +
+                "                name: ua2\n" +
+                "                type: UA\n" +
+                "  - label: user added\n" +
+                "    event:\n" +
+                "      subject:\n" +
+                "        anyUser:\n" +
+                "          - ua2\n" +
+                "      operations:\n" +
+                "        - assign to\n" +
+                "      target:\n" +
+                "        policyElements:\n" +
+                "          - name: oa1\n" +
+                "            type: OA\n" +
+                "    response:\n" +
+                "      actions:\n" +
+                "        - create:\n" +
+                "            - what:\n" +
+                "                name: user added oa\n" +
+                "                type: OA\n" +
+                "              where:\n" +
+                "                name: oa1\n" +
+                "                type: OA\n";
+
+        // the second rule only matches once the first has assigned u1 to ua2, whether or not rules are matched in parallel
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (EPPOptions options : Arrays.asList(null, new EPPOptions().setParallelMatching(pool, 1))) {
+                Graph graph = new MemGraph();
+                graph.createPolicyClass("pc1", null);
+                graph.createNode("ua1", UA, null, "pc1");
+                graph.createNode("ua2", UA, null, "pc1");
+                graph.createNode("u1", U, null, "ua1");
+                graph.createNode("oa1", OA, null, "pc1");
+                Node o1 = graph.createNode("o1", O, null, "oa1");
+
+                PDP pdp = new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), options);
+                pdp.getPAP().getObligationsPAP().add(EVRParser.parse(yml), true);
+                pdp.getEPP().processEvent(new AssignToEvent(graph.getNode("oa1"), o1), "u1", "");
+
+                assertTrue(graph.isAssigned("u1", "ua2"));
+                assertTrue(graph.exists("user added oa"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncProcessEvent() throws PMException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream("epp/response_test.yml");
+        Obligation obligation = EVRParser.parse(is);
+
+        PDP pdp = new PDP(new PAP(this.pdp.getPAP().getGraphPAP(), new MemProhibitions(), new MemObligations()),
+                new EPPOptions().setAsync(1, 16, EPPOptions.Backpressure.BLOCK));
+        pdp.getPAP().getObligationsPAP().add(obligation, true);
+        assertTrue(pdp.getEPP().isAsync());
+
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "123");
+        pdp.getEPP().flush();
+
+        assertTrue(pdp.getPAP().getGraphPAP().exists("new OA"));
+        pdp.getEPP().shutdown();
+        assertThrows(PMException.class, () -> pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "123"));
+    }
+
+    @Test
+    void testAsyncOrderPerTarget() throws PMException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+        PDP pdp = buildRecordingPDP(record, new EPPOptions(record).setAsync(4, 8, EPPOptions.Backpressure.BLOCK));
+
+        List<Node> targets = Arrays.asList(o1, oa1, ua1, u1, pc1);
+        for (int i = 0; i < 500; i++) {
+            pdp.getEPP().processEvent(new SeqEvent(targets.get(i % targets.size()), i), u1.getName(), "");
+        }
+        pdp.getEPP().flush();
+
+        // events with the same target are processed in the order they were submitted
+        assertEquals(targets.size(), processed.size());
+        for (List<Integer> seqs : processed.values()) {
+            assertEquals(100, seqs.size());
+            for (int i = 1; i < seqs.size(); i++) {
+                assertTrue(seqs.get(i - 1) < seqs.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testAsyncBackpressure() throws PMException, InterruptedException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch release = new CountDownLatch(1);
+        RecordExecutor record = new RecordExecutor(processed, release);
+
+        // the worker is blocked on the first event and the queue holds one more, the remaining 3 are dropped
+        PDP dropPDP = buildRecordingPDP(record, new EPPOptions(record).setAsync(1, 1, EPPOptions.Backpressure.DROP));
+        dropPDP.getEPP().processEvent(new SeqEvent(o1, 0), u1.getName(), "");
+        while (processed.isEmpty()) {
+            Thread.sleep(1);
+        }
+        for (int i = 1; i < 5; i++) {
+            dropPDP.getEPP().processEvent(new SeqEvent(o1, i), u1.getName(), "");
+        }
+        assertEquals(3, dropPDP.getEPP().getDroppedEvents());
+        release.countDown();
+        dropPDP.getEPP().flush();
+        assertEquals(Arrays.asList(0, 1), processed.get(o1.getName()));
+
+        // with caller runs the events that do not fit in the queue are processed by the caller
+        processed.clear();
+        PDP callerPDP = buildRecordingPDP(new RecordExecutor(processed, null),
+                new EPPOptions(new RecordExecutor(processed, null)).setAsync(1, 1, EPPOptions.Backpressure.CALLER_RUNS));
+        for (int i = 0; i < 50; i++) {
+            callerPDP.getEPP().processEvent(new SeqEvent(o1, i), u1.getName(), "");
+        }
+        callerPDP.getEPP().flush();
+        assertEquals(50, processed.get(o1.getName()).size());
+        assertEquals(0, callerPDP.getEPP().getDroppedEvents());
+    }
+
+    @Test
+    void testAsyncWorkerSubmitsToFullQueue() {
+        // the worker submits events to its own queue, which is full after the first
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        EventPipeline[] pipeline = new EventPipeline[1];
+        pipeline[0] = new EventPipeline((eventCtx, user, process) -> {
+            int seq = ((SeqEvent) eventCtx).seq;
+            handled.add(seq);
+            if (seq == 0) {
+                for (int i = 1; i <= 3; i++) {
+                    pipeline[0].submit(new SeqEvent(o1, i), user, process);
+                }
+            }
+        }, 1, 1, EPPOptions.Backpressure.BLOCK);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            pipeline[0].submit(new SeqEvent(o1, 0), u1.getName(), "");
+            pipeline[0].flush();
+        });
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), new HashSet<>(handled));
+        pipeline[0].shutdown();
+    }
+
+    @Test
+    void testAsyncEventsHoldPolicyLock() throws PMException, InterruptedException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        List<Boolean> locked = Collections.synchronizedList(new ArrayList<>());
+        RecordExecutor record = new RecordExecutor(processed, null) {
+            @Override
+            public Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                               FunctionEvaluator functionEvaluator) {
+                locked.add(((ReentrantReadWriteLock) pdp.getPAP().getLock()).isWriteLockedByCurrentThread());
+                processed.computeIfAbsent(eventCtx.getTarget().getName(), k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(locked.size());
+                return null;
+            }
+        };
+        PDP pdp = buildRecordingPDP(record, new EPPOptions(record).setAsync(4, 8, EPPOptions.Backpressure.CALLER_RUNS));
+        pdp.getPAP().getGraphPAP().associate(ua1.getName(), oa1.getName(), new OperationSet("read", "write", "assign to"));
+
+        // the services create nodes while the workers process the events of the nodes already created
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    Graph graph = pdp.getGraphService(new UserContext(u1.getName(), ""));
+                    for (int i = 0; i < 50; i++) {
+                        graph.createNode("o_" + thread + "_" + i, O, null, "oa1");
+                    }
+                } catch (PMException | RuntimeException e) {
+                    errors.add(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        pdp.getEPP().flush();
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(200, processed.get(oa1.getName()).size());
+        assertEquals(200, locked.size());
+        assertFalse(locked.contains(false));
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 50; i++) {
+                assertTrue(pdp.getPAP().getGraphPAP().isAssigned("o_" + t + "_" + i, "oa1"));
+            }
+        }
+        pdp.getEPP().shutdown();
+    }
+
+    @Test
+    void testAsyncErrorsReportedOnFlush() throws PMException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream("epp/UserContainedIn.yml");
+        Obligation obligation = EVRParser.parse(is);
+
+        PDP pdp = new PDP(new PAP(this.pdp.getPAP().getGraphPAP(), new MemProhibitions(), new MemObligations()),
+                new EPPOptions().setAsync(1, 16, EPPOptions.Backpressure.BLOCK));
+        pdp.getPAP().getObligationsPAP().add(obligation, true);
+
+        // the rule creates "new OA" in oa1 the first time, the second event fails because it already exists
+        Node oa2 = pdp.getPAP().getGraphPAP().getNode("oa2");
+        pdp.getEPP().processEvent(new AssignToEvent(oa2, o1), u1.getName(), "");
+        pdp.getEPP().processEvent(new AssignToEvent(oa2, o1), u1.getName(), "");
+        assertThrows(PMException.class, () -> pdp.getEPP().flush());
+
+        // errors are only reported once
+        pdp.getEPP().flush();
+    }
+
+    @Test
+    void testCompile() throws PMException {
+        // valid obligations compile
+        Obligation obligation = EVRParser.parse(getClass().getClassLoader().getResourceAsStream("epp/response_test.yml"));
+        pdp.getEPP().compile(obligation);
+
+        // unknown functions, invalid arguments and conditions that do not return a boolean are reported when compiled
+        assertThrows(PMException.class, () -> pdp.getEPP().compile(functionObligation(new Function("unknown", new ArrayList<>()), null)));
+        assertThrows(PMException.class, () -> pdp.getEPP().compile(functionObligation(
+                new Function("get_node", Collections.singletonList(new Arg("o1"))), null)));
+        assertThrows(PMException.class, () -> pdp.getEPP().compile(functionObligation(new Function("current_user", new ArrayList<>()),
+                new Function("get_node", Arrays.asList(new Arg("o1"), new Arg("O"))))));
+
+        // an invalid obligation is not added through the obligations service
+        Obligations service = pdp.getObligationsService(new UserContext("super", ""));
+        assertThrows(PMException.class, () -> service.add(functionObligation(new Function("unknown", new ArrayList<>()), null), true));
+        assertNull(service.get("function"));
+    }
+
+    @Test
+    void testCompiledCondition() throws PMException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+        PDP pdp = new PDP(new PAP(this.pdp.getPAP().getGraphPAP(), new MemProhibitions(), new MemObligations()), new EPPOptions(record));
+
+        // record the event only if the target is contained in oa1
+        Function condition = new Function("is_node_contained_in", Arrays.asList(
+                new Arg(new Function("current_target", new ArrayList<>())),
+                new Arg(new Function("get_node", Arrays.asList(new Arg("oa1"), new Arg("OA"))))
+        ));
+        Obligation obligation = functionObligation(new Function(record.getFunctionName(), new ArrayList<>()), condition);
+        pdp.getEPP().compile(obligation);
+        pdp.getPAP().getObligationsPAP().add(obligation, true);
+
+        // the compiled condition is evaluated the same way as the condition itself
+        FunctionEvaluator functionEvaluator = new FunctionEvaluator();
+        for (Node target : Arrays.asList(o1, oa1, u1)) {
+            EventContext eventCtx = new SeqEvent(target, 0);
+            boolean expected = functionEvaluator.evalBool(eventCtx, u1.getName(), "", pdp, condition);
+            pdp.getEPP().processEvent(eventCtx, u1.getName(), "");
+            assertEquals(expected, processed.containsKey(target.getName()));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(o1.getName(), oa1.getName())), processed.keySet());
+    }
+
+    @Test
+    void testCompiledFunctionsValidatedOnce() throws PMException {
+        int[] validated = new int[1];
+        FunctionEvaluator functionEvaluator = new FunctionEvaluator();
+        functionEvaluator.addFunctionExecutor(new FunctionExecutor() {
+            @Override
+            public String getFunctionName() {
+                return "counted";
+            }
+
+            @Override
+            public int numParams() {
+                return 1;
+            }
+
+            @Override
+            public void validate(Function function) {
+                validated[0]++;
+            }
+
+            @Override
+            public String exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                               FunctionEvaluator functionEvaluator) throws PMException {
+                Arg arg = function.getArgs().get(0);
+                return arg.getFunction() == null ? arg.getValue() :
+                        functionEvaluator.evalString(eventCtx, user, process, pdp, arg.getFunction());
+            }
+        });
+
+        // the function and its argument are validated once when compiled, not when they are evaluated
+        Function function = new Function("counted", Collections.singletonList(
+                new Arg(new Function("counted", Collections.singletonList(new Arg("value"))))));
+        CompiledFunction compiled = functionEvaluator.compile(function, String.class);
+        assertEquals(2, validated[0]);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("value", compiled.eval(new SeqEvent(o1, i), u1.getName(), "", pdp));
+            assertEquals("value", functionEvaluator.evalString(new SeqEvent(o1, i), u1.getName(), "", pdp, function));
+        }
+        assertEquals(2, validated[0]);
+
+        // a function that is not compiled is validated each time it is evaluated
+        Function notCompiled = new Function("counted", Collections.singletonList(new Arg("value")));
+        functionEvaluator.evalString(new SeqEvent(o1, 0), u1.getName(), "", pdp, notCompiled);
+        functionEvaluator.evalString(new SeqEvent(o1, 0), u1.getName(), "", pdp, notCompiled);
+        assertEquals(4, validated[0]);
+    }
+
+    @Test
+    void testDiamondHierarchies() throws PMException {
+        // every level of the hierarchies doubles the number of paths to the top attributes
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua-top", UA, null, "pc1");
+        graph.createNode("oa-top", OA, null, "pc1");
+        graph.createNode("ua-other", UA, null, "pc1");
+        graph.createNode("u2", U, null, "ua-other");
+        String ua = createDiamonds(graph, "ua", UA, "ua-top", 30);
+        String oa = createDiamonds(graph, "oa", OA, "oa-top", 30);
+        graph.createNode("u1", U, null, ua);
+        Node target = graph.createNode("o1", O, null, oa);
+
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+        PDP pdp = new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), new EPPOptions(record));
+
+        Obligation obligation = functionObligation(new Function(record.getFunctionName(), new ArrayList<>()), null);
+        EventPattern pattern = obligation.getRules().get(0).getEventPattern();
+        pattern.setSubject(new Subject(Arrays.asList("oa-top", "ua-top")));
+        Target matchTarget = new Target();
+        matchTarget.setContainers(Collections.singletonList(new EvrNode("oa-top", "OA", new HashMap<>())));
+        pattern.setTarget(matchTarget);
+        pdp.getPAP().getObligationsPAP().add(obligation, true);
+
+        pdp.getEPP().processEvent(new SeqEvent(target, 0), "u2", "");
+        assertTrue(processed.isEmpty());
+        pdp.getEPP().processEvent(new SeqEvent(target, 1), "u1", "");
+        assertEquals(Collections.singletonList(1), processed.get(target.getName()));
+    }
+
+    @Test
+    void testParallelMatching() throws PMException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        PDP pdp = new PDP(new PAP(this.pdp.getPAP().getGraphPAP(), new MemProhibitions(), new MemObligations()),
+                new EPPOptions(record).setParallelMatching(pool, 2));
+
+        // the odd rules are only matched if the target is contained in oa2
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Function condition = null;
+            if (i % 2 == 1) {
+                condition = new Function("is_node_contained_in", Arrays.asList(
+                        new Arg(new Function("current_target", new ArrayList<>())),
+                        new Arg(new Function("get_node", Arrays.asList(new Arg("oa2"), new Arg("OA"))))
+                ));
+            } else {
+                expected.add(i);
+            }
+
+            Obligation obligation = functionObligation(
+                    new Function(record.getFunctionName(), Collections.singletonList(new Arg(String.valueOf(i)))), condition);
+            obligation.setLabel("obligation" + i);
+            pdp.getPAP().getObligationsPAP().add(obligation, true);
+        }
+
+        // the actions of the matched rules are applied in the order of the obligations
+        for (int i = 0; i < 10; i++) {
+            processed.clear();
+            pdp.getEPP().processEvent(new SeqEvent(o1, i), u1.getName(), "");
+            assertEquals(expected, processed.get(o1.getName()));
+        }
+
+        pool.shutdown();
+    }
+
+    @Test
+    void testParallelMatchingConditionsUseServices() throws PMException {
+        // a condition that reads the policy through a service, which takes the read lock of the PAP
+        List<Boolean> locked = Collections.synchronizedList(new ArrayList<>());
+        FunctionExecutor serviceCondition = new FunctionExecutor() {
+            @Override
+            public String getFunctionName() {
+                return "service_condition";
+            }
+
+            @Override
+            public int numParams() {
+                return 0;
+            }
+
+            @Override
+            public Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                               FunctionEvaluator functionEvaluator) throws PMException {
+                locked.add(((ReentrantReadWriteLock) pdp.getPAP().getLock()).isWriteLockedByCurrentThread());
+                pdp.getGraphService(new UserContext("super", "")).exists(eventCtx.getTarget().getName());
+                return true;
+            }
+        };
+
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        PDP pdp = new PDP(new PAP(this.pdp.getPAP().getGraphPAP(), new MemProhibitions(), new MemObligations()),
+                new EPPOptions(record, serviceCondition).setParallelMatching(pool, 2));
+        try {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Obligation obligation = functionObligation(
+                        new Function(record.getFunctionName(), Collections.singletonList(new Arg(String.valueOf(i)))),
+                        new Function(serviceCondition.getFunctionName(), new ArrayList<>()));
+                obligation.setLabel("obligation" + i);
+                pdp.getPAP().getObligationsPAP().add(obligation, true);
+                expected.add(i);
+            }
+
+            // the conditions are checked by the thread holding the write lock, so they do not wait for it
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> pdp.getEPP().processEvent(new SeqEvent(o1, 0), u1.getName(), ""));
+            assertEquals(expected, processed.get(o1.getName()));
+            assertEquals(Collections.nCopies(expected.size(), true), locked);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCoalescedBatch() throws PMException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+        PDP pdp = buildRecordingPDP(record, new EPPOptions(record).setCoalescing(0));
+        assertTrue(pdp.getEPP().isCoalescing());
+
+        // outside a batch and without a window events are processed immediately
+        pdp.getEPP().processEvent(new SeqEvent(o1, 0), u1.getName(), "");
+        assertEquals(Collections.singletonList(0), processed.get(o1.getName()));
+        processed.clear();
+
+        pdp.getEPP().beginEventBatch();
+        pdp.getEPP().processEvent(new SeqEvent(o1, 1), u1.getName(), "");
+        pdp.getEPP().beginEventBatch();
+        pdp.getEPP().processEvent(new SeqEvent(oa1, 2), u1.getName(), "");
+        // duplicates of the first two events, only the first event of each is processed
+        pdp.getEPP().processEvent(new SeqEvent(o1, 3), u1.getName(), "");
+        pdp.getEPP().processEvent(new SeqEvent(oa1, 4), u1.getName(), "");
+        // a different user, process or event is not a duplicate
+        pdp.getEPP().processEvent(new SeqEvent(o1, 5), ua1.getName(), "");
+        pdp.getEPP().processEvent(new SeqEvent(o1, 6), u1.getName(), "123");
+        pdp.getEPP().processEvent(new SeqEvent("other", o1, 7), u1.getName(), "");
+        pdp.getEPP().endEventBatch();
+
+        // nothing is processed until the outermost batch ends
+        assertTrue(processed.isEmpty());
+        pdp.getEPP().endEventBatch();
+
+        // the events are processed in the order they were first submitted
+        assertEquals(Arrays.asList(1, 5, 6, 7), processed.get(o1.getName()));
+        assertEquals(Collections.singletonList(2), processed.get(oa1.getName()));
+        assertEquals(2, pdp.getEPP().getCoalescedEvents());
+
+        assertThrows(PMException.class, () -> pdp.getEPP().endEventBatch());
+        assertThrows(PMException.class, () -> this.pdp.getEPP().beginEventBatch());
+    }
+
+    @Test
+    void testCoalescedAssignments() throws PMException, InterruptedException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null) {
+            @Override
+            public Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                               FunctionEvaluator functionEvaluator) {
+                processed.computeIfAbsent(((AssignToEvent) eventCtx).getChildNode().getName(),
+                        k -> Collections.synchronizedList(new ArrayList<>())).add(0);
+                return null;
+            }
+        };
+        PDP pdp = buildRecordingPDP(record, new EPPOptions(record).setCoalescing(0));
+        Node o2 = pdp.getPAP().getGraphPAP().createNode("o2", O, null, oa1.getName());
+
+        // assign to events with different children are not duplicates
+        pdp.getEPP().beginEventBatch();
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "");
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o2), u1.getName(), "");
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "");
+
+        // the batch of this thread does not hold back the events of another thread
+        Thread other = new Thread(() -> {
+            try {
+                pdp.getEPP().processEvent(new AssignToEvent(oa1, u1), u1.getName(), "");
+            } catch (PMException e) {
+                fail(e);
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(Collections.singletonList(0), processed.get(u1.getName()));
+
+        // another thread cannot end the batch of this thread
+        PMException[] error = new PMException[1];
+        Thread end = new Thread(() -> {
+            try {
+                pdp.getEPP().endEventBatch();
+            } catch (PMException e) {
+                error[0] = e;
+            }
+        });
+        end.start();
+        end.join();
+        assertNotNull(error[0]);
+
+        pdp.getEPP().endEventBatch();
+        assertEquals(Collections.singletonList(0), processed.get(o1.getName()));
+        assertEquals(Collections.singletonList(0), processed.get(o2.getName()));
+        assertEquals(1, pdp.getEPP().getCoalescedEvents());
+    }
+
+    @Test
+    void testCoalescedUndoneAssignments() throws PMException {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        RecordExecutor record = new RecordExecutor(new ConcurrentHashMap<>(), null) {
+            @Override
+            public Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                               FunctionEvaluator functionEvaluator) {
+                events.add(eventCtx.getEvent() + " " + eventCtx.getTarget().getName());
+                return null;
+            }
+        };
+        PDP pdp = buildRecordingPDP(record, new EPPOptions(record).setCoalescing(0));
+
+        // an assignment that is undone and done again is processed each time, while an assignment event repeated before
+        // anything else happened to the assignment is a duplicate
+        pdp.getEPP().beginEventBatch();
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "");
+        pdp.getEPP().processEvent(new DeassignFromEvent(oa1, o1), u1.getName(), "");
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "");
+        pdp.getEPP().processEvent(new AssignToEvent(oa1, o1), u1.getName(), "");
+        pdp.getEPP().endEventBatch();
+        assertEquals(Arrays.asList("assign to oa1", "deassign from oa1", "assign to oa1"), events);
+        assertEquals(1, pdp.getEPP().getCoalescedEvents());
+
+        // the events of the child and of the parent of an assignment are about the same assignment
+        events.clear();
+        pdp.getEPP().beginEventBatch();
+        pdp.getEPP().processEvent(new AssignEvent(o1, oa1), u1.getName(), "");
+        pdp.getEPP().processEvent(new DeassignFromEvent(oa1, o1), u1.getName(), "");
+        pdp.getEPP().processEvent(new AssignEvent(o1, oa1), u1.getName(), "");
+        pdp.getEPP().endEventBatch();
+        assertEquals(Arrays.asList("assign o1", "deassign from oa1", "assign o1"), events);
+        assertEquals(1, pdp.getEPP().getCoalescedEvents());
+    }
+
+    @Test
+    void testCoalescingWindow() throws PMException, InterruptedException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        RecordExecutor record = new RecordExecutor(processed, null);
+
+        // events are buffered until flush or the end of the window
+        PDP pdp = buildRecordingPDP(record, new EPPOptions(record).setCoalescing(60_000));
+        for (int i = 0; i < 10; i++) {
+            pdp.getEPP().processEvent(new SeqEvent(i % 2 == 0 ? o1 : oa1, i), u1.getName(), "");
+        }
+        assertTrue(processed.isEmpty());
+        pdp.getEPP().flush();
+        assertEquals(Collections.singletonList(0), processed.get(o1.getName()));
+        assertEquals(Collections.singletonList(1), processed.get(oa1.getName()));
+        assertEquals(8, pdp.getEPP().getCoalescedEvents());
+
+        processed.clear();
+        PDP windowPDP = buildRecordingPDP(record, new EPPOptions(record).setCoalescing(10)
+                .setAsync(2, 16, EPPOptions.Backpressure.BLOCK));
+        windowPDP.getEPP().processEvent(new SeqEvent(o1, 0), u1.getName(), "");
+        windowPDP.getEPP().processEvent(new SeqEvent(o1, 1), u1.getName(), "");
+        while (processed.isEmpty()) {
+            Thread.sleep(1);
+        }
+        windowPDP.getEPP().flush();
+        assertEquals(Collections.singletonList(0), processed.get(o1.getName()));
+        windowPDP.getEPP().shutdown();
+    }
+
+    private static String createDiamonds(Graph graph, String prefix, NodeType type, String top, int levels) throws PMException {
+        String left = top;
+        String right = top;
+        for (int i = 0; i < levels; i++) {
+            String newLeft = prefix + "-l" + i;
+            String newRight = prefix + "-r" + i;
+            graph.createNode(newLeft, type, null, left);
+            graph.createNode(newRight, type, null, left);
+            if (!left.equals(right)) {
+                graph.assign(newLeft, right);
+                graph.assign(newRight, right);
+            }
+            left = newLeft;
+            right = newRight;
+        }
+        return left;
+    }
+
+    private static Obligation functionObligation(Function function, Function condition) {
+        Rule rule = new Rule();
+        rule.setLabel("function");
+        rule.getResponsePattern().addAction(new FunctionAction(function));
+        if (condition != null) {
+            Condition cond = new Condition();
+            cond.setCondition(Collections.singletonList(condition));
+            rule.getResponsePattern().setCondition(cond);
+        }
+
+        Obligation obligation = new Obligation();
+        obligation.setLabel("function");
+        obligation.setRules(new ArrayList<>(Collections.singletonList(rule)));
+        return obligation;
+    }
+
+    private PDP buildRecordingPDP(RecordExecutor record, EPPOptions options) throws PMException {
+        Rule rule = new Rule();
+        rule.setLabel("record");
+        rule.getResponsePattern().addAction(new FunctionAction(new Function(record.getFunctionName(), new ArrayList<>())));
+        Obligation obligation = new Obligation();
+        obligation.setLabel("record");
+        obligation.setRules(new ArrayList<>(Collections.singletonList(rule)));
+
+        PDP pdp = new PDP(new PAP(this.pdp.getPAP().getGraphPAP(), new MemProhibitions(), new MemObligations()), options);
+        pdp.getPAP().getObligationsPAP().add(obligation, true);
+        return pdp;
+    }
+
+    private static class SeqEvent extends EventContext {
+        private int seq;
+
+        SeqEvent(Node target, int seq) {
+            this("seq", target, seq);
+        }
+
+        SeqEvent(String event, Node target, int seq) {
+            super(event, target);
+            this.seq = seq;
+        }
+    }
+
+    private static class RecordExecutor implements FunctionExecutor {
+        private Map<String, List<Integer>> processed;
+        private CountDownLatch             release;
+
+        RecordExecutor(Map<String, List<Integer>> processed, CountDownLatch release) {
+            this.processed = processed;
+            this.release = release;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "record";
+        }
+
+        @Override
+        public int numParams() {
+            return 0;
+        }
+
+        @Override
+        public Object exec(EventContext eventCtx, String user, String process, PDP pdp, Function function,
+                           FunctionEvaluator functionEvaluator) throws PMException {
+            // record the argument of the function if there is one, otherwise the sequence number of the event
+            int value = function.getArgs().isEmpty() ? ((SeqEvent) eventCtx).seq : Integer.parseInt(function.getArgs().get(0).getValue());
+            processed.computeIfAbsent(eventCtx.getTarget().getName(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(value);
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new PMException(e.getMessage());
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package gov.nist.csd.pm.epp;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.obligations.model.EvrNode;
+import gov.nist.csd.pm.pip.obligations.model.Target;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetMatcherTest {
+
+    private Graph graph;
+    private Node  o1;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("oa1", OA, Collections.singletonMap("k", "v"), "pc1");
+        graph.createNode("oa2", OA, null, "oa1");
+        o1 = graph.createNode("o1", O, Collections.singletonMap("x", "y"), "oa2");
+    }
+
+    private static Target target(List<EvrNode> containers, List<EvrNode> policyElements) {
+        Target target = new Target();
+        target.setContainers(containers);
+        target.setPolicyElements(policyElements);
+        return target;
+    }
+
+    private boolean matches(Target target) throws PMException {
+        return new TargetMatcher(target).matches(o1, () -> new HashSet<>(Arrays.asList("oa1", "oa2", "pc1")), graph);
+    }
+
+    @Test
+    void testAnyTarget() throws PMException {
+        assertTrue(new TargetMatcher(null).matches(o1, () -> fail("containers are not needed"), graph));
+        assertTrue(matches(target(null, null)));
+        assertTrue(matches(target(new ArrayList<>(), null)));
+        assertTrue(matches(target(null, new ArrayList<>())));
+    }
+
+    @Test
+    void testPolicyElements() throws PMException {
+        assertTrue(matches(target(null, Arrays.asList(
+                new EvrNode("o2", "O", new HashMap<>()),
+                new EvrNode("o1", "O", Collections.singletonMap("x", "y"))))));
+        assertFalse(matches(target(null, Collections.singletonList(new EvrNode("o1", "OA", new HashMap<>())))));
+        assertFalse(matches(target(null, Collections.singletonList(new EvrNode("o1", "o", new HashMap<>())))));
+        assertFalse(matches(target(null, Collections.singletonList(
+                new EvrNode("o1", "O", Collections.singletonMap("x", "z"))))));
+    }
+
+    @Test
+    void testContainers() throws PMException {
+        assertTrue(matches(target(Collections.singletonList(
+                new EvrNode("oa1", "OA", Collections.singletonMap("k", "v"))), null)));
+        assertTrue(matches(target(Arrays.asList(
+                new EvrNode("oa3", "OA", new HashMap<>()),
+                new EvrNode("oa4", "OA", new HashMap<>()),
+                new EvrNode("oa5", "OA", new HashMap<>()),
+                new EvrNode("oa6", "OA", new HashMap<>()),
+                new EvrNode("oa2", "OA", new HashMap<>())), null)));
+        assertFalse(matches(target(Collections.singletonList(
+                new EvrNode("oa1", "OA", Collections.singletonMap("k", "w"))), null)));
+        assertFalse(matches(target(Collections.singletonList(new EvrNode("o1", "O", new HashMap<>())), null)));
+    }
+}
@@ -0,0 +1,110 @@
+package gov.nist.csd.pm.jfr;
+
+import gov.nist.csd.pm.epp.events.AssignToEvent;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pdp.audit.PReviewAuditor;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    private PDP pdp;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        pdp = new PDP(new PAP(new MemGraph(), new MemProhibitions(), new MemObligations()), null);
+        Graph graph = pdp.getGraphService(new UserContext("super", ""));
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read", "write"));
+    }
+
+    private List<RecordedEvent> record(Duration threshold) throws PMException, IOException {
+        Path file = Files.createTempFile("pm", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(DecisionEvent.class).withThreshold(threshold);
+            recording.enable(ExplainEvent.class).withThreshold(threshold);
+            recording.enable(ProcessEventEvent.class).withThreshold(threshold);
+            recording.start();
+
+            assertTrue(pdp.getDecider().check("u1", "", "o1", "read"));
+            pdp.getDecider().list("u1", "", "o1");
+            PReviewDecider decider = new PReviewDecider(pdp.getPAP().getGraphPAP());
+            decider.list(decider.getSubjectContext("u1", ""), "o1");
+            new PReviewAuditor(pdp.getPAP().getGraphPAP()).explain("u1", "o1");
+            Graph graph = pdp.getPAP().getGraphPAP();
+            pdp.getEPP().processEvent(new AssignToEvent(graph.getNode("oa1"), graph.getNode("o1")), "u1", "");
+
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("gov.nist.csd.pm."))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testEvents() throws PMException, IOException {
+        List<RecordedEvent> events = record(Duration.ZERO);
+        assertEquals(5, events.size());
+
+        RecordedEvent check = events.get(0);
+        assertEquals("gov.nist.csd.pm.Decision", check.getEventType().getName());
+        assertEquals("check", check.getString("operation"));
+        assertEquals("u1", check.getString("subject"));
+        assertEquals("o1", check.getString("target"));
+        assertEquals(2, check.getInt("resultSize"));
+        assertTrue(check.getInt("nodesVisited") >= 5);
+        assertEquals("list", events.get(1).getString("operation"));
+
+        // a decision on a subject context computed before is recorded without the user side of the graph
+        RecordedEvent listContext = events.get(2);
+        assertEquals("list", listContext.getString("operation"));
+        assertEquals("u1", listContext.getString("subject"));
+        assertEquals(2, listContext.getInt("resultSize"));
+        assertTrue(listContext.getInt("nodesVisited") < check.getInt("nodesVisited"));
+
+        RecordedEvent explain = events.get(3);
+        assertEquals("gov.nist.csd.pm.Explain", explain.getEventType().getName());
+        assertEquals("u1", explain.getString("user"));
+        assertEquals(2, explain.getInt("resultSize"));
+
+        RecordedEvent processEvent = events.get(4);
+        assertEquals("gov.nist.csd.pm.ProcessEvent", processEvent.getEventType().getName());
+        assertEquals("assign to", processEvent.getString("event"));
+        assertEquals("oa1", processEvent.getString("target"));
+        assertEquals(0, processEvent.getInt("rulesMatched"));
+    }
+
+    @Test
+    void testThreshold() throws PMException, IOException {
+        assertTrue(record(Duration.ofHours(1)).isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package gov.nist.csd.pm.metrics;
+
+import gov.nist.csd.pm.epp.events.AssignToEvent;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.GraphSerializer;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryMetricsTest {
+
+    @AfterEach
+    void tearDown() {
+        MetricsRegistry.setMetrics(null);
+    }
+
+    @Test
+    void testHistogram() {
+        InMemoryMetrics.InMemoryHistogram histogram = new InMemoryMetrics().histogram("h");
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertEquals(100_000, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long expected = (long) (p * 1000);
+            long actual = histogram.getPercentile(p);
+            assertTrue(actual >= expected && actual <= expected * 1.02, p + ": " + actual);
+        }
+    }
+
+    @Test
+    void testBuckets() {
+        long last = -1;
+        for (long value : new long[]{0, 1, 127, 128, 129, 255, 256, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = InMemoryMetrics.InMemoryHistogram.index(value);
+            long highest = InMemoryMetrics.InMemoryHistogram.highestValue(index);
+            assertTrue(highest >= value && highest - value <= value / 64, value + ": " + highest);
+            assertTrue(highest >= last);
+            last = highest;
+        }
+    }
+
+    @Test
+    void testComponents() throws PMException {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        MetricsRegistry.setMetrics(metrics);
+
+        PDP pdp = new PDP(new PAP(new MemGraph(), new MemProhibitions(), new MemObligations()), null);
+        Graph graph = pdp.getGraphService(new UserContext("super", ""));
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read", "write"));
+        assertThrows(PMException.class, () -> graph.createNode("o2", O, null, "oa2"));
+        pdp.getPAP().getProhibitionsPAP().add(new Prohibition.Builder("deny", "u1", new OperationSet("write"))
+                .addContainer("oa1", false)
+                .build());
+
+        assertEquals(4, metrics.getTimers().get("graph_service.create_node").getHistogram().getCount());
+        assertEquals(1, metrics.getCounters().get("graph_service.create_node.errors").getCount());
+        assertEquals(1, metrics.getTimers().get("graph_service.associate").getHistogram().getCount());
+
+        metrics.clear();
+        assertTrue(pdp.getDecider().check("u1", "", "o1", "read"));
+        assertFalse(pdp.getDecider().check("u1", "", "o1", "write"));
+        assertEquals(2, metrics.getTimers().get("decider.subject").getHistogram().getCount());
+        assertEquals(2, metrics.getTimers().get("decider.target").getHistogram().getCount());
+        assertEquals(2, metrics.getCounters().get("decider.decisions").getCount());
+        assertEquals(2, metrics.getCounters().get("decider.prohibitions.evaluated").getCount());
+        // at least u1 and ua1, and o1, oa1 and pc1, and the nodes of the super policy
+        assertTrue(metrics.getHistograms().get("decider.subject.nodes").getMax() >= 2);
+        assertTrue(metrics.getHistograms().get("decider.target.nodes").getMax() >= 3);
+
+        pdp.getEPP().processEvent(new AssignToEvent(graph.getNode("oa1"), graph.getNode("o1")), "u1", "");
+        assertEquals(1, metrics.getTimers().get("epp.process_event").getHistogram().getCount());
+        assertEquals(0, metrics.getHistograms().get("epp.candidates").getMax());
+
+        GraphSerializer.toJson(pdp.getPAP().getGraphPAP());
+        assertEquals(1, metrics.getTimers().get("serializer.graph.to_json").getHistogram().getCount());
+
+        // nothing is reported once the metrics are removed
+        MetricsRegistry.setMetrics(null);
+        metrics.clear();
+        pdp.getDecider().check("u1", "", "o1", "read");
+        assertTrue(metrics.getTimers().isEmpty());
+    }
+}
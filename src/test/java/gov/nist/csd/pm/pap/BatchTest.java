@@ -0,0 +1,167 @@
+package gov.nist.csd.pm.pap;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import gov.nist.csd.pm.pip.prohibitions.model.Prohibition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+    private PAP pap;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("oa2", OA, null, "oa1");
+        graph.createNode("o1", O, null, "oa2");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+
+        pap = new PAP(graph, new MemProhibitions(), new MemObligations());
+        pap.getProhibitionsPAP().add(new Prohibition.Builder("deny", "ua1", new OperationSet("write")).build());
+    }
+
+    @Test
+    void testApply() throws PMException {
+        Batch batch = new Batch()
+                .createNode("oa3", OA, null, "oa1")
+                .createNode("o2", O, new HashMap<>(), "oa3")
+                .associate("ua1", "oa3", new OperationSet("write"))
+                .deassign("o1", "oa2")
+                .assign("o1", "oa3")
+                .deleteProhibition("deny");
+        assertEquals("oa3", batch.getCreatedNode("oa3").getName());
+        assertNull(batch.getCreatedNode("oa1"));
+
+        // nothing is applied until the batch is
+        assertFalse(pap.getGraphPAP().exists("oa3"));
+
+        pap.apply(batch);
+
+        Graph graph = pap.getGraphPAP();
+        assertEquals(Collections.singleton("oa3"), graph.getParents("o2"));
+        assertEquals(Collections.singleton("oa3"), graph.getParents("o1"));
+        assertEquals(new OperationSet("write"), graph.getSourceAssociations("ua1").get("oa3"));
+        assertTrue(pap.getProhibitionsPAP().getAll().isEmpty());
+    }
+
+    @Test
+    void testInvalidBatchIsNotApplied() throws PMException {
+        // the parent of o2 does not exist
+        Batch batch = new Batch()
+                .createNode("oa3", OA, null, "oa1")
+                .createNode("o2", O, null, "oa4");
+        assertThrows(PMException.class, () -> pap.apply(batch));
+        assertFalse(pap.getGraphPAP().exists("oa3"));
+
+        // a node cannot be created twice
+        assertThrows(PMException.class, () -> pap.apply(new Batch().createNode("oa1", OA, null, "pc1")));
+    }
+
+    @Test
+    void testFailedBatchIsRolledBack() throws PMException {
+        // an object cannot be assigned to a user attribute, which is only detected when the assignment is applied
+        Batch batch = new Batch()
+                .createNode("oa3", OA, null, "oa1")
+                .associate("ua1", "oa1", new OperationSet("write"))
+                .associate("ua1", "oa2", new OperationSet("read"))
+                .deleteProhibition("deny")
+                .deleteNode("oa2")
+                .assign("o1", "ua1");
+        assertThrows(PMException.class, () -> pap.apply(batch));
+
+        Graph graph = pap.getGraphPAP();
+        assertFalse(graph.exists("oa3"));
+        assertEquals(Collections.singleton("oa1"), graph.getParents("oa2"));
+        assertEquals(Collections.singleton("oa2"), graph.getParents("o1"));
+        assertEquals(new OperationSet("read"), graph.getSourceAssociations("ua1").get("oa1"));
+        assertFalse(graph.getSourceAssociations("ua1").containsKey("oa2"));
+        assertEquals("deny", pap.getProhibitionsPAP().get("deny").getName());
+    }
+
+    @Test
+    void testRollbackKeepsProhibitionsWithSameName() throws PMException {
+        // the batch adds a second prohibition named deny, rolling it back does not delete the existing one
+        Prohibition existing = pap.getProhibitionsPAP().get("deny");
+        Batch batch = new Batch()
+                .addProhibition(new Prohibition.Builder("deny", "ua1", new OperationSet("read")).build())
+                .assign("o1", "ua1");
+        assertThrows(PMException.class, () -> pap.apply(batch));
+        assertEquals(Collections.singletonList(existing), pap.getProhibitionsPAP().getAll());
+
+        // deleting the name deletes both prohibitions, and rolling back restores both
+        pap.getProhibitionsPAP().add(new Prohibition.Builder("deny", "ua1", new OperationSet("read")).build());
+        assertThrows(PMException.class, () -> pap.apply(new Batch().deleteProhibition("deny").assign("o1", "ua1")));
+        assertEquals(2, pap.getProhibitionsPAP().getAll().size());
+    }
+
+    @Test
+    void testRollbackUndoesEverythingWhenAnUndoFails() throws PMException {
+        // deleting oa3 fails, so the rollback cannot undo creating it
+        Graph graph = new MemGraph() {
+            @Override
+            public void deleteNode(String name) {
+                if (name.equals("oa3")) {
+                    throw new IllegalStateException("cannot delete " + name);
+                }
+                super.deleteNode(name);
+            }
+        };
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        PAP pap = new PAP(graph, new MemProhibitions(), new MemObligations());
+
+        Batch batch = new Batch()
+                .createNode("oa4", OA, null, "oa1")
+                .createNode("oa3", OA, null, "oa1")
+                .assign("o1", "ua1");
+        PMException ex = assertThrows(PMException.class, () -> pap.apply(batch));
+        assertEquals(1, ex.getSuppressed().length);
+        assertTrue(ex.getSuppressed()[0] instanceof IllegalStateException);
+
+        // the changes before the failed undo are still undone
+        assertFalse(graph.exists("oa4"));
+    }
+
+    @Test
+    void testDeleteNodeWithoutParentsIsNotApplied() throws PMException {
+        // an object without parents could not be created again if the batch is rolled back
+        pap.getGraphPAP().deassign("o1", "oa2");
+        assertThrows(PMException.class, () -> pap.apply(new Batch().deleteNode("o1")));
+        assertTrue(pap.getGraphPAP().exists("o1"));
+
+        // a policy class can be restored
+        assertThrows(PMException.class, () -> pap.apply(new Batch().deleteNode("pc1").assign("o1", "ua1")));
+        assertTrue(pap.getGraphPAP().exists("pc1"));
+        assertEquals(Collections.singleton("pc1"), pap.getGraphPAP().getParents("oa1"));
+    }
+
+    @Test
+    void testGetCreatedNodeByTypeAndProperties() throws PMException {
+        HashMap<String, String> props = new HashMap<>();
+        props.put("k", "v");
+        Batch batch = new Batch()
+                .createNode("oa3", OA, props, "oa1")
+                .createNode("o2", O, props, "oa3");
+
+        assertEquals("o2", batch.getCreatedNode(O, Collections.singletonMap("k", "v")).getName());
+        assertEquals("oa3", batch.getCreatedNode(OA, Collections.singletonMap("k", "*")).getName());
+        assertNull(batch.getCreatedNode(O, Collections.singletonMap("k", "x")));
+        assertNull(batch.getCreatedNode(UA, null));
+    }
+}
@@ -0,0 +1,65 @@
+package gov.nist.csd.pm.pap;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyGeneratorTest {
+
+    @Test
+    void testGenerate() throws PMException {
+        PolicyGenerator generator = new PolicyGenerator.Builder(1)
+                .setUsers(50)
+                .setObjects(80)
+                .setPolicyClasses(2)
+                .setDepth(3)
+                .setBranching(2)
+                .setProhibitionDensity(1)
+                .setObligations(5)
+                .build();
+        PAP pap = new PAP(new MemGraph(), new MemProhibitions(), new MemObligations());
+        generator.generate(pap);
+
+        // each policy class has 1 + 2 + 4 user attributes and as many object attributes
+        Graph graph = pap.getGraphPAP();
+        assertEquals(2 + 2 * 14 + 50 + 80, graph.getNodes().size());
+        assertEquals(2, graph.getPolicyClasses().size());
+        assertEquals(2, graph.getParents("u49").size());
+        assertEquals(2, graph.getParents("o79").size());
+        assertEquals(1, graph.getSourceAssociations("pc0_ua0").size());
+        assertEquals(50, pap.getProhibitionsPAP().getAll().size());
+        assertEquals(5, pap.getObligationsPAP().getAll().size());
+    }
+
+    @Test
+    void testSeed() throws PMException {
+        PolicyGenerator.Builder builder = new PolicyGenerator.Builder(7)
+                .setUsers(100)
+                .setObjects(100)
+                .setPolicyClasses(3)
+                .setAssociationDensity(0.5);
+
+        // the serializers do not order the nodes and relations, so compare the sorted lines
+        assertEquals(lines(builder.build().toJson()), lines(builder.build().toJson()));
+        assertEquals(lines(builder.build().serialize()), lines(builder.build().serialize()));
+        assertNotEquals(lines(builder.build().serialize()), lines(new PolicyGenerator.Builder(8)
+                .setUsers(100)
+                .setObjects(100)
+                .setPolicyClasses(3)
+                .setAssociationDensity(0.5)
+                .build().serialize()));
+    }
+
+    private static List<String> lines(String str) {
+        List<String> lines = new ArrayList<>(Arrays.asList(str.split("\\n")));
+        Collections.sort(lines);
+        return lines;
+    }
+}
@@ -0,0 +1,90 @@
+package gov.nist.csd.pm.pdp;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.graph.model.nodes.Node;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PDPTest {
+
+    private static final int NUM_USERS = 8;
+
+    private PDP buildPDP() throws PMException {
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        for (int i = 0; i < NUM_USERS; i++) {
+            graph.createNode("ua" + i, UA, null, "pc1");
+            graph.createNode("oa" + i, OA, null, "pc1");
+            graph.createNode("u" + i, U, null, "ua" + i);
+            graph.createNode("o" + i, O, null, "oa" + i);
+            graph.associate("ua" + i, "oa" + i, new OperationSet("read"));
+        }
+
+        return new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), null);
+    }
+
+    @Test
+    void testServicesAreBoundToUserContext() throws PMException {
+        PDP pdp = buildPDP();
+
+        Graph u0Service = pdp.getGraphService(new UserContext("u0", ""));
+        Graph u1Service = pdp.getGraphService(new UserContext("u1", ""));
+
+        // getting a service for u1 must not change the user of the service for u0
+        assertTrue(u0Service.exists("o0"));
+        assertFalse(u0Service.exists("o1"));
+        assertTrue(u1Service.exists("o1"));
+        assertFalse(u1Service.exists("o0"));
+    }
+
+    @Test
+    void testConcurrentRequests() throws Exception {
+        PDP pdp = buildPDP();
+
+        // compute the expected view of each user sequentially
+        Map<String, Set<Node>> expected = new HashMap<>();
+        for (int i = 0; i < NUM_USERS; i++) {
+            String user = "u" + i;
+            expected.put(user, pdp.getGraphService(new UserContext(user, "")).getNodes());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < NUM_USERS * 4; i++) {
+            String user = "u" + (i % NUM_USERS);
+            String object = "o" + (i % NUM_USERS);
+            String other = "o" + ((i + 1) % NUM_USERS);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 50; j++) {
+                    Graph graph = pdp.getGraphService(new UserContext(user, ""));
+                    if (!graph.getNodes().equals(expected.get(user)) ||
+                            !graph.exists(object) ||
+                            graph.exists(other)) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+
+        start.countDown();
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+}
@@ -1,19 +1,28 @@
 package gov.nist.csd.pm.pdp.services;
 
 import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pdp.PDP;
 import gov.nist.csd.pm.pdp.decider.PReviewDecider;
 import gov.nist.csd.pm.pip.graph.Graph;
 import gov.nist.csd.pm.pip.graph.GraphSerializer;
 import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.graph.Page;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import gov.nist.csd.pm.pip.obligations.MemObligations;
 import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import static gov.nist.csd.pm.operations.Operations.ASSIGN;
+import static gov.nist.csd.pm.operations.Operations.ASSIGN_TO;
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
 import static gov.nist.csd.pm.pip.graph.model.nodes.Properties.REP_PROPERTY;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -128,4 +137,145 @@ class GraphServiceTest {
         assertEquals(papNodes.size()-1, pdpNodes.size());
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void testPermissionsAfterChangeInSameRequest() throws PMException {
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("users", UA, null, "pc1");
+        graph.createNode("ua2", UA, null, "pc1");
+        graph.createNode("oa2", OA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1", "users");
+        graph.associate("ua1", "users", new OperationSet(ASSIGN));
+        graph.associate("ua1", "ua2", new OperationSet(ASSIGN_TO));
+        graph.associate("ua2", "oa2", new OperationSet("read"));
+
+        PDP pdp = new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), null);
+        Graph graphService = pdp.getGraphService(new UserContext("u1", ""));
+        assertFalse(graphService.exists("oa2"));
+
+        // the assignment made by the service must be reflected in the next permission check of the same service
+        graphService.assign("u1", "ua2");
+        assertTrue(graphService.exists("oa2"));
+    }
+
+    @Test
+    void testPermissionsAfterChangeByOtherService() throws PMException {
+        PDP pdp = new PDP(new PAP(new MemGraph(), new MemProhibitions(), new MemObligations()), null);
+        Graph admin = pdp.getGraphService(new UserContext("super", ""));
+        admin.createPolicyClass("pc1", null);
+        admin.createNode("ua1", UA, null, "pc1");
+        admin.createNode("ua2", UA, null, "pc1");
+        admin.createNode("u1", U, null, "ua1", "ua2");
+        admin.createNode("oa1", OA, null, "pc1");
+        admin.createNode("o1", O, null, "oa1");
+        admin.associate("ua1", "oa1", new OperationSet("read"));
+
+        Graph reader = pdp.getGraphService(new UserContext("u1", ""));
+        assertTrue(reader.exists("o1"));
+
+        // a revocation by another service is seen by the next check of the reader
+        admin.dissociate("ua1", "oa1");
+        assertFalse(reader.exists("o1"));
+
+        // as is a change made directly to the PAP, like the changes of obligations
+        admin.associate("ua2", "oa1", new OperationSet("read"));
+        assertTrue(reader.exists("o1"));
+        pdp.getPAP().getGraphPAP().deassign("u1", "ua2");
+        assertFalse(reader.exists("o1"));
+    }
+
+    @Test
+    void testPagedAndStreamedNodes() throws PMException {
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("oa2", OA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        for (int i = 0; i < 30; i++) {
+            // only the objects in oa1 are accessible to u1
+            graph.createNode("o" + i, O, null, i % 3 == 0 ? "oa1" : "oa2");
+        }
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+
+        PDP pdp = new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), null);
+        Graph graphService = pdp.getGraphService(new UserContext("u1", ""));
+
+        Set<Node> paged = new HashSet<>();
+        String token = null;
+        do {
+            Page<Node> page = graphService.getNodes(token, 3);
+            assertTrue(page.getItems().size() <= 3);
+            paged.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+
+        Set<Node> expected = graphService.getNodes();
+        assertEquals(11, expected.size());
+        assertEquals(expected, paged);
+        assertEquals(expected, graphService.streamNodes().collect(Collectors.toSet()));
+
+        Set<String> children = new HashSet<>();
+        token = null;
+        do {
+            Page<String> page = graphService.getChildren("oa1", token, 4);
+            children.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+        assertEquals(graphService.getChildren("oa1"), children);
+        assertEquals(children, graphService.streamChildren("oa1").collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testStreamWithWritesBetweenPages() throws PMException {
+        Graph graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+        // more objects than fit in a page of the stream
+        for (int i = 0; i < 2500; i++) {
+            graph.createNode(String.format("o%04d", i), O, null, "oa1");
+        }
+
+        PAP pap = new PAP(graph, new MemProhibitions(), new MemObligations());
+        PDP pdp = new PDP(pap, null);
+        Graph graphService = pdp.getGraphService(new UserContext("u1", ""));
+
+        // the consumer deletes every object it reads and adds nodes, the stream continues after the last name it read
+        List<String> streamed = new ArrayList<>();
+        graphService.streamChildren("oa1").forEach(child -> {
+            streamed.add(child);
+            try {
+                graph.deleteNode(child);
+                graph.createNode("a" + child, O, null, "oa1");
+            } catch (PMException e) {
+                fail(e);
+            }
+        });
+        assertEquals(2500, streamed.size());
+        assertEquals("o0000", streamed.get(0));
+        assertEquals("o2499", streamed.get(2499));
+
+        // nodes deleted while the stream is consumed are not returned
+        List<String> nodes = new ArrayList<>();
+        graphService.streamNodes().forEach(node -> {
+            nodes.add(node.getName());
+            if (node.getName().equals("ao0999")) {
+                try {
+                    graph.deleteNode("ao1000");
+                } catch (PMException e) {
+                    fail(e);
+                }
+            }
+        });
+        // the objects and oa1
+        assertEquals(2500, nodes.size());
+        assertFalse(nodes.contains("ao1000"));
+        nodes.remove("oa1");
+        assertEquals(nodes, graphService.streamSearch(O, null).map(Node::getName).collect(Collectors.toList()));
+    }
+}
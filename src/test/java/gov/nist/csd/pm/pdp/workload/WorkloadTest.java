@@ -0,0 +1,159 @@
+package gov.nist.csd.pm.pdp.workload;
+
+import gov.nist.csd.pm.epp.events.ObjectAccessEvent;
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pdp.PDP;
+import gov.nist.csd.pm.pdp.decider.Decider;
+import gov.nist.csd.pm.pdp.services.UserContext;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.GraphSerializer;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.MemObligations;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadTest {
+
+    private PDP    pdp;
+    private String snapshot;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        pdp = new PDP(new PAP(new MemGraph(), new MemProhibitions(), new MemObligations()), null);
+        Graph graph = pdp.getGraphService(new UserContext("super", ""));
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.createNode("oa1", OA, null, "pc1");
+        graph.createNode("o1", O, null, "oa1");
+        graph.associate("ua1", "oa1", new OperationSet("read"));
+
+        snapshot = GraphSerializer.toJson(pdp.getPAP().getGraphPAP());
+    }
+
+    private PDP fromSnapshot() throws PMException {
+        Graph graph = new MemGraph();
+        GraphSerializer.fromJson(graph, snapshot);
+        return new PDP(new PAP(graph, new MemProhibitions(), new MemObligations()), null);
+    }
+
+    private byte[] record() throws PMException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (WorkloadRecorder recorder = new WorkloadRecorder(out)) {
+            pdp.getEPP().setWorkloadRecorder(recorder);
+            Decider decider = recorder.record(pdp.getDecider());
+            Graph graph = recorder.record(pdp.getGraphService(new UserContext("super", "")), new UserContext("super", ""));
+
+            assertTrue(decider.check("u1", "", "o1", "read"));
+            graph.createNode("o2", O, Collections.singletonMap("k", "v"), "oa1");
+            decider.list("u1", "", "o2");
+            decider.filter("u1", "", new HashSet<>(Arrays.asList("o1", "o2")), "read");
+            pdp.getEPP().processEvent(new ObjectAccessEvent("read", pdp.getPAP().getGraphPAP().getNode("o1")), "u1", "");
+            graph.associate("ua1", "oa1", new OperationSet("read", "write"));
+            // a call that fails is recorded too
+            assertThrows(PMException.class, () -> graph.assign("o2", "o1"));
+            graph.deleteNode("o2");
+        }
+        pdp.getEPP().setWorkloadRecorder(null);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testRecordAndRead() throws PMException, IOException {
+        List<RecordedOperation> operations = WorkloadReader.read(new ByteArrayInputStream(record()));
+
+        // the events of the created and deleted node are nested in the create and delete
+        assertEquals(Arrays.asList(OperationType.CHECK, OperationType.CREATE_NODE, OperationType.EVENT, OperationType.LIST,
+                OperationType.FILTER, OperationType.EVENT, OperationType.ASSOCIATE, OperationType.ASSIGN,
+                OperationType.DELETE_NODE, OperationType.EVENT, OperationType.EVENT),
+                operations.stream().map(RecordedOperation::getType).collect(Collectors.toList()));
+        assertTrue(operations.get(2).isNested());
+        assertFalse(operations.get(5).isNested());
+        assertTrue(operations.get(9).isNested());
+        assertTrue(operations.get(10).isNested());
+
+        RecordedOperation create = operations.get(1);
+        assertEquals("super", create.getUser());
+        assertEquals("o2", create.getArg(0));
+        assertEquals("O", create.getArg(1));
+        assertArrayEquals(new String[]{"k", "v"}, create.getArgs()[2]);
+        assertEquals("oa1", create.getArg(3));
+        assertEquals(0, create.getArgs()[4].length);
+
+        for (int i = 1; i < operations.size(); i++) {
+            assertTrue(operations.get(i - 1).getTimestamp() <= operations.get(i).getTimestamp());
+        }
+
+        assertThrows(PMException.class, () -> WorkloadReader.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})));
+    }
+
+    @Test
+    void testReplay() throws PMException, IOException {
+        List<RecordedOperation> operations = WorkloadReader.read(new ByteArrayInputStream(record()));
+
+        for (int concurrency : new int[]{1, 4}) {
+            PDP replayPDP = fromSnapshot();
+            ReplayReport report = new WorkloadReplayer(replayPDP)
+                    .setConcurrency(concurrency)
+                    .setSpeed(100)
+                    .replay(operations);
+
+            // the nested event is not replayed
+            assertEquals(8, report.getOperations());
+            assertEquals(1, report.getStats().get(OperationType.ASSIGN).getErrors());
+            assertEquals(0, report.getStats().get(OperationType.CREATE_NODE).getErrors());
+            assertEquals(2, report.getStats().get(OperationType.EVENT).getCount() +
+                    report.getStats().get(OperationType.CHECK).getCount());
+            assertTrue(report.getThroughput() > 0);
+            assertTrue(report.getStats().get(OperationType.CHECK).getPercentile(50) > 0);
+            assertFalse(report.toString().isEmpty());
+
+            Graph graph = replayPDP.getPAP().getGraphPAP();
+            assertFalse(graph.exists("o2"));
+            assertEquals(new OperationSet("read", "write"), graph.getSourceAssociations("ua1").get("oa1"));
+        }
+    }
+
+    @Test
+    void testConcurrentReplay() throws PMException {
+        // each user creates, checks and deletes its own objects while the other users do the same
+        List<RecordedOperation> operations = new ArrayList<>();
+        long timestamp = 0;
+        for (int i = 0; i < 100; i++) {
+            for (int u = 0; u < 4; u++) {
+                String name = "o_" + u + "_" + i;
+                operations.add(new RecordedOperation(OperationType.CREATE_NODE, timestamp++, false, "super", "",
+                        new String[][]{{name}, {"O"}, null, {"oa1"}, null}));
+                operations.add(new RecordedOperation(OperationType.CHECK, timestamp++, false, "u1", String.valueOf(u),
+                        new String[][]{{name}, {"read"}}));
+                operations.add(new RecordedOperation(OperationType.GET_CAPABILITY_LIST, timestamp++, false, "u1",
+                        String.valueOf(u), new String[][]{}));
+                operations.add(new RecordedOperation(OperationType.DELETE_NODE, timestamp++, false, "super", "",
+                        new String[][]{{name}}));
+            }
+        }
+
+        PDP replayPDP = fromSnapshot();
+        ReplayReport report = new WorkloadReplayer(replayPDP)
+                .setConcurrency(4)
+                .replay(operations);
+
+        assertEquals(1600, report.getOperations());
+        assertEquals(0, report.getStats().get(OperationType.CREATE_NODE).getErrors());
+        assertEquals(0, report.getStats().get(OperationType.DELETE_NODE).getErrors());
+        assertEquals(0, report.getStats().get(OperationType.GET_CAPABILITY_LIST).getErrors());
+        assertEquals(Collections.singleton("o1"), replayPDP.getPAP().getGraphPAP().getChildren("oa1"));
+    }
+}
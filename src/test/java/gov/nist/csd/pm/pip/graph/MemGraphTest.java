@@ -5,9 +5,8 @@ import gov.nist.csd.pm.operations.OperationSet;
 import gov.nist.csd.pm.pip.graph.model.nodes.Node;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -283,4 +282,114 @@ class MemGraphTest {
         assertEquals("pc", node.getName());
         assertEquals(PC, node.getType());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetNodesPaged() throws PMException {
+        MemGraph graph = new MemGraph();
+        graph.createPolicyClass("pc", null);
+        for (int i = 0; i < 25; i++) {
+            graph.createNode(String.format("oa%02d", i), OA, Node.toProperties("k", i % 2 == 0 ? "even" : "odd"), "pc");
+        }
+
+        Page<Node> page = graph.getNodes(null, 10);
+        assertEquals(10, page.getItems().size());
+        assertEquals("oa00", page.getItems().get(0).getName());
+        assertTrue(page.hasNext());
+
+        // a node created before the token is not returned and does not shift the next page
+        graph.createNode("aa", OA, null, "pc");
+        page = graph.getNodes(page.getNextToken(), 10);
+        assertEquals("oa10", page.getItems().get(0).getName());
+
+        page = graph.getNodes(page.getNextToken(), 10);
+        assertEquals(Arrays.asList("oa20", "oa21", "oa22", "oa23", "oa24", "pc"),
+                page.getItems().stream().map(Node::getName).collect(Collectors.toList()));
+        assertFalse(page.hasNext());
+
+        // paged search returns the same nodes as search
+        Set<Node> found = new HashSet<>();
+        String token = null;
+        do {
+            Page<Node> p = graph.search(OA, Node.toProperties("k", "even"), token, 4);
+            found.addAll(p.getItems());
+            token = p.getNextToken();
+        } while (token != null);
+        assertEquals(graph.search(OA, Node.toProperties("k", "even")), found);
+        assertEquals(found, graph.streamSearch(OA, Node.toProperties("k", "even")).collect(Collectors.toSet()));
+
+        assertEquals(graph.getNodes(), graph.streamNodes().collect(Collectors.toSet()));
+        assertThrows(IllegalArgumentException.class, () -> graph.getNodes(null, 0));
+    }
+
+    @Test
+    void testGetChildrenPaged() throws PMException {
+        MemGraph graph = new MemGraph();
+        graph.createPolicyClass("pc", null);
+        graph.createNode("oa", OA, null, "pc");
+        graph.createNode("ua", UA, null, "pc");
+        graph.associate("ua", "oa", new OperationSet("read"));
+        for (int i = 0; i < 12; i++) {
+            graph.createNode("o" + i, O, null, "oa");
+        }
+
+        List<String> children = new ArrayList<>();
+        String token = null;
+        do {
+            Page<String> page = graph.getChildren("oa", token, 5);
+            assertTrue(page.getItems().size() <= 5);
+            children.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+
+        List<String> expected = new ArrayList<>(graph.getChildren("oa"));
+        Collections.sort(expected);
+        assertEquals(expected, children);
+        assertEquals(graph.getChildren("oa"), graph.streamChildren("oa").collect(Collectors.toSet()));
+        assertThrows(PMException.class, () -> graph.getChildren("unknown", null, 5));
+
+        // the ordered children are updated when children are deassigned or deleted
+        graph.deassign("o0", "oa");
+        graph.deleteNode("o1");
+        graph.createNode("oa2", OA, null, "oa");
+        assertEquals(Arrays.asList("o10", "o11", "o2"), graph.getChildren("oa", null, 3).getItems());
+        assertEquals(Arrays.asList("o8", "o9", "oa2"), graph.getChildren("oa", "o7", 5).getItems());
+        assertNull(graph.getChildren("oa", "o7", 5).getNextToken());
+        graph.deleteNode("oa2");
+        assertEquals(Arrays.asList("o8", "o9"), graph.getChildren("oa", "o7", 5).getItems());
+    }
+
+    @Test
+    void testForEachRelationship() throws PMException {
+        MemGraph graph = new MemGraph();
+        graph.createPolicyClass("pc", null);
+        graph.createNode("oa1", OA, null, "pc");
+        graph.createNode("oa2", OA, null, "pc");
+        graph.createNode("ua", UA, null, "pc");
+        graph.createNode("o", O, null, "oa1", "oa2");
+        graph.associate("ua", "oa1", new OperationSet("read", "write"));
+
+        Set<String> children = new HashSet<>();
+        graph.forEachChild("pc", children::add);
+        assertEquals(graph.getChildren("pc"), children);
+
+        // the association between ua and oa1 is not an assignment
+        Set<String> parents = new HashSet<>();
+        graph.forEachParent("o", parents::add);
+        assertEquals(new HashSet<>(Arrays.asList("oa1", "oa2")), parents);
+        Set<String> oa1Children = new HashSet<>();
+        graph.forEachChild("oa1", oa1Children::add);
+        assertEquals(Collections.singleton("o"), oa1Children);
+
+        Map<String, Set<String>> assocs = new HashMap<>();
+        graph.forEachSourceAssociation("ua", assocs::put);
+        assertEquals(graph.getSourceAssociations("ua"), assocs);
+        graph.forEachTargetAssociation("oa1", (source, ops) -> {
+            assertEquals("ua", source);
+            // the operations are a view of the association and cannot be modified
+            assertThrows(UnsupportedOperationException.class, () -> ops.add("delete"));
+        });
+
+        assertThrows(PMException.class, () -> graph.forEachParent("unknown", p -> {}));
+        assertThrows(PMException.class, () -> graph.forEachSourceAssociation("unknown", (t, o) -> {}));
+    }
+}
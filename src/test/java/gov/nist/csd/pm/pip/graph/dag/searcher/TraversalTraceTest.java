@@ -0,0 +1,92 @@
+package gov.nist.csd.pm.pip.graph.dag.searcher;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.operations.OperationSet;
+import gov.nist.csd.pm.pdp.decider.PReviewDecider;
+import gov.nist.csd.pm.pip.graph.Graph;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static gov.nist.csd.pm.pip.graph.model.nodes.NodeType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraversalTraceTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    void setUp() throws PMException {
+        // o1 is assigned to oa1 and oa2, which are both assigned to oa3
+        graph = new MemGraph();
+        graph.createPolicyClass("pc1", null);
+        graph.createNode("oa3", OA, null, "pc1");
+        graph.createNode("oa1", OA, null, "oa3");
+        graph.createNode("oa2", OA, null, "oa3");
+        graph.createNode("o1", O, null, "oa1", "oa2");
+        graph.createNode("ua1", UA, null, "pc1");
+        graph.createNode("u1", U, null, "ua1");
+        graph.associate("ua1", "oa3", new OperationSet("read"));
+    }
+
+    @Test
+    void testBreadthFirst() throws PMException {
+        BreadthFirstSearcher searcher = new BreadthFirstSearcher(graph);
+        assertNull(TraversalTrace.current());
+
+        TraversalTrace trace = new TraversalTrace();
+        searcher.setTrace(trace);
+        List<String> visited = new ArrayList<>();
+        searcher.traverse(graph.getNode("o1"), (parent, child) -> {}, node -> visited.add(node.getName()), Direction.PARENTS);
+
+        assertEquals(visited, trace.getVisited());
+        assertEquals(5, visited.size());
+        // oa3 is reached from oa1 and oa2
+        assertEquals(1, trace.getRevisitsAvoided());
+        assertEquals(1, trace.getNode("oa3").getRevisitsAvoided());
+        assertEquals(2, trace.getNode("o1").getFanOut());
+        assertEquals(1, trace.getNode("oa3").getFanOut());
+        assertEquals(0, trace.getNode("pc1").getFanOut());
+        assertEquals(3, trace.getHottest(3).size());
+    }
+
+    @Test
+    void testDepthFirst() throws PMException {
+        DepthFirstSearcher searcher = new DepthFirstSearcher(graph);
+        TraversalTrace trace = new TraversalTrace();
+        searcher.setTrace(trace);
+        List<String> visited = new ArrayList<>();
+        searcher.traverse(graph.getNode("o1"), (parent, child) -> {}, node -> visited.add(node.getName()), Direction.PARENTS);
+
+        assertEquals(visited, trace.getVisited());
+        assertEquals("o1", visited.get(visited.size() - 1));
+        assertEquals(1, trace.getRevisitsAvoided());
+        assertEquals(2, trace.getNode("o1").getFanOut());
+        for (TraversalTrace.NodeStats stats : trace.getHottest(5)) {
+            assertEquals(1, stats.getVisits());
+            assertTrue(stats.getNanos() >= 0);
+        }
+    }
+
+    @Test
+    void testDecider() throws PMException {
+        PReviewDecider decider = new PReviewDecider(graph);
+        try (TraversalTrace trace = TraversalTrace.start()) {
+            assertSame(trace, TraversalTrace.current());
+            assertEquals(new HashSet<>(Arrays.asList("read")), decider.list("u1", "", "o1"));
+
+            // the user side then the target side
+            List<String> visited = trace.getVisited();
+            assertEquals(Arrays.asList("u1", "ua1", "pc1"), visited.subList(0, 3));
+            assertEquals("o1", visited.get(visited.size() - 1));
+            assertEquals(8, visited.size());
+        }
+
+        assertNull(TraversalTrace.current());
+    }
+}
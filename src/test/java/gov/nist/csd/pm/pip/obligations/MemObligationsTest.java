@@ -0,0 +1,90 @@
+package gov.nist.csd.pm.pip.obligations;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pap.Batch;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pip.graph.MemGraph;
+import gov.nist.csd.pm.pip.obligations.model.Obligation;
+import gov.nist.csd.pm.pip.obligations.model.Rule;
+import gov.nist.csd.pm.pip.prohibitions.MemProhibitions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemObligationsTest {
+
+    private static Obligation obligation(String label, String ... ruleLabels) {
+        List<Rule> rules = new ArrayList<>();
+        for (String ruleLabel : ruleLabels) {
+            Rule rule = new Rule();
+            rule.setLabel(ruleLabel);
+            rules.add(rule);
+        }
+
+        Obligation obligation = new Obligation();
+        obligation.setLabel(label);
+        obligation.setRules(rules);
+        return obligation;
+    }
+
+    private static Set<String> labels(List<Obligation> obligations) {
+        return obligations.stream().map(Obligation::getLabel).collect(Collectors.toSet());
+    }
+
+    @Test
+    void testGetAndEnabled() {
+        MemObligations obligations = new MemObligations();
+        obligations.add(obligation("obl1", "r1"), true);
+        obligations.add(obligation("obl2", "r2"), false);
+
+        assertEquals("obl1", obligations.get("obl1").getLabel());
+        assertNull(obligations.get("obl3"));
+        assertNull(obligations.get(null));
+        assertEquals(Collections.singleton("obl1"), labels(obligations.getEnabled()));
+
+        obligations.setEnable("obl2", true);
+        obligations.setEnable("obl1", false);
+        assertEquals(Collections.singleton("obl2"), labels(obligations.getEnabled()));
+
+        obligations.delete("obl2");
+        assertTrue(obligations.getEnabled().isEmpty());
+        assertEquals(Collections.singleton("obl1"), labels(obligations.getAll()));
+    }
+
+    @Test
+    void testGetObligationsWithRule() {
+        MemObligations obligations = new MemObligations();
+        obligations.add(obligation("obl1", "r1", "shared"), true);
+        obligations.add(obligation("obl2", "r2", "shared"), true);
+
+        assertEquals(Collections.singleton("obl1"), labels(obligations.getObligationsWithRule("r1")));
+        assertEquals(new HashSet<>(Arrays.asList("obl1", "obl2")), labels(obligations.getObligationsWithRule("shared")));
+        assertTrue(obligations.getObligationsWithRule("r3").isEmpty());
+
+        obligations.update("obl1", obligation("obl1", "r3"));
+        assertTrue(obligations.getObligationsWithRule("r1").isEmpty());
+        assertEquals(Collections.singleton("obl1"), labels(obligations.getObligationsWithRule("r3")));
+        assertEquals(Collections.singleton("obl2"), labels(obligations.getObligationsWithRule("shared")));
+
+        obligations.delete("obl2");
+        assertTrue(obligations.getObligationsWithRule("shared").isEmpty());
+    }
+
+    @Test
+    void testDeleteRule() throws PMException {
+        MemObligations obligations = new MemObligations();
+        obligations.add(obligation("obl1", "r1", "shared", "r2"), true);
+        obligations.add(obligation("obl2", "shared"), true);
+        PAP pap = new PAP(new MemGraph(), new MemProhibitions(), obligations);
+
+        pap.apply(new Batch().deleteRule("shared"));
+
+        assertEquals(Arrays.asList("r1", "r2"), obligations.get("obl1").getRules().stream()
+                .map(Rule::getLabel).collect(Collectors.toList()));
+        assertTrue(obligations.get("obl2").getRules().isEmpty());
+        assertTrue(obligations.getObligationsWithRule("shared").isEmpty());
+    }
+}
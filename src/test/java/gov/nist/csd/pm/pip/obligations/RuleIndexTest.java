@@ -0,0 +1,144 @@
+package gov.nist.csd.pm.pip.obligations;
+
+import gov.nist.csd.pm.exceptions.PMException;
+import gov.nist.csd.pm.pip.obligations.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleIndexTest {
+
+    private static Rule rule(String label, List<String> ops, Subject subject, Target target) {
+        EventPattern pattern = new EventPattern();
+        pattern.setOperations(ops);
+        pattern.setSubject(subject);
+        pattern.setTarget(target);
+
+        Rule rule = new Rule();
+        rule.setLabel(label);
+        rule.setEventPattern(pattern);
+        return rule;
+    }
+
+    private static Target elements(String ... names) {
+        Target target = new Target();
+        target.setPolicyElements(Arrays.stream(names).map(n -> new EvrNode(n, "OA", new HashMap<>())).collect(Collectors.toList()));
+        return target;
+    }
+
+    private static Target containers(String ... names) {
+        Target target = new Target();
+        target.setContainers(Arrays.stream(names).map(n -> new EvrNode(n, "OA", new HashMap<>())).collect(Collectors.toList()));
+        return target;
+    }
+
+    private static Obligation obligation(String label, Rule ... rules) {
+        Obligation obligation = new Obligation();
+        obligation.setLabel(label);
+        obligation.setRules(new ArrayList<>(Arrays.asList(rules)));
+        return obligation;
+    }
+
+    private static List<String> candidates(RuleIndex index, String op, String user, String target) throws PMException {
+        return index.getCandidates(new TestEventKeys(op, user, target)).stream()
+                .map(r -> r.getRule().getLabel())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void testCandidates() throws PMException {
+        RuleIndex index = new RuleIndex();
+        index.add("obl1", obligation("obl1",
+                rule("any", null, null, null),
+                rule("assign", Collections.singletonList("assign"), null, null),
+                rule("never", new ArrayList<>(), null, null),
+                rule("u1", null, new Subject("u1"), null),
+                rule("anyUser", null, new Subject(Arrays.asList("ua1", "u2")), null),
+                rule("process", null, new Subject(new EvrProcess("123")), null)
+        ));
+        index.add("obl2", obligation("obl2",
+                rule("o1", Collections.singletonList("assign"), null, elements("o1")),
+                rule("in oa1", Collections.singletonList("assign"), null, containers("oa1")),
+                rule("in oa2", Collections.singletonList("assign"), null, containers("oa2"))
+        ));
+
+        // u1 is in ua1 and o1 is in oa1
+        assertEquals(Arrays.asList("any", "assign", "u1", "anyUser", "o1", "in oa1"),
+                candidates(index, "assign", "u1", "o1"));
+        assertEquals(Arrays.asList("any", "anyUser"),
+                candidates(index, "deassign", "u2", "o2"));
+        assertEquals(Collections.singletonList("any"),
+                candidates(index, "deassign", "u3", "o2"));
+
+        // updating an obligation replaces its rules but keeps its position
+        index.add("obl1", obligation("obl1", rule("updated", null, null, null)));
+        assertEquals(Arrays.asList("updated", "o1", "in oa1"), candidates(index, "assign", "u3", "o1"));
+
+        index.remove("obl1");
+        assertEquals(Arrays.asList("o1", "in oa1"), candidates(index, "assign", "u1", "o1"));
+    }
+
+    @Test
+    void testMemObligationsMaintainsIndex() throws PMException {
+        MemObligations obligations = new MemObligations();
+        obligations.add(obligation("obl1", rule("r1", Collections.singletonList("assign"), null, null)), true);
+        assertEquals(Collections.singletonList("r1"), candidates(obligations.getRuleIndex(), "assign", "u1", "o1"));
+
+        obligations.update("obl1", obligation("obl1", rule("r2", Collections.singletonList("assign"), null, null)));
+        assertEquals(Collections.singletonList("r2"), candidates(obligations.getRuleIndex(), "assign", "u1", "o1"));
+
+        obligations.delete("obl1");
+        assertTrue(candidates(obligations.getRuleIndex(), "assign", "u1", "o1").isEmpty());
+    }
+
+    private static class TestEventKeys implements RuleIndex.EventKeys {
+        private static final Map<String, Set<String>> CONTAINERS = new HashMap<>();
+        static {
+            CONTAINERS.put("u1", new HashSet<>(Arrays.asList("ua1", "pc1")));
+            CONTAINERS.put("o1", new HashSet<>(Arrays.asList("oa1", "pc1")));
+        }
+
+        private String op;
+        private String user;
+        private String target;
+
+        TestEventKeys(String op, String user, String target) {
+            this.op = op;
+            this.user = user;
+            this.target = target;
+        }
+
+        @Override
+        public String getOperation() {
+            return op;
+        }
+
+        @Override
+        public String getUser() {
+            return user;
+        }
+
+        @Override
+        public String getProcess() {
+            return "";
+        }
+
+        @Override
+        public String getTarget() {
+            return target;
+        }
+
+        @Override
+        public Set<String> getUserContainers() {
+            return CONTAINERS.getOrDefault(user, new HashSet<>());
+        }
+
+        @Override
+        public Set<String> getTargetContainers() {
+            return CONTAINERS.getOrDefault(target, new HashSet<>());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package gov.nist.csd.pm.pip.obligations.evr;
+
+import gov.nist.csd.pm.pip.obligations.model.Obligation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EVRParseCacheTest {
+
+    private static String document(String label) {
+        return "label: " + label + "\n" +
+                "rules:\n" +
+                "  - label: rule\n" +
+                "    event:\n" +
+                "      operations:\n" +
+                "        - assign to\n" +
+                "    response:\n" +
+                "      actions:\n" +
+                "        - function:\n" +
+                "            name: current_user\n";
+    }
+
+    @Test
+    void testParseAll() throws EVRException {
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            documents.add(document("obl" + i));
+        }
+
+        List<Obligation> obligations = EVRParser.parseAll(documents);
+        assertEquals(50, obligations.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("obl" + i, obligations.get(i).getLabel());
+        }
+
+        documents.add("label: invalid\nrules: not a list\n");
+        assertThrows(EVRException.class, () -> EVRParser.parseAll(documents));
+    }
+
+    @Test
+    void testCache() throws EVRException {
+        EVRParseCache cache = new EVRParseCache(2);
+
+        Obligation obligation = cache.parse(document("obl1"));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // an unchanged document is not parsed again, but a new obligation is returned
+        Obligation reloaded = cache.parse(document("obl1"));
+        assertEquals(1, cache.getHits());
+        assertEquals("obl1", reloaded.getLabel());
+        assertNotSame(obligation, reloaded);
+        assertNotSame(obligation.getRules(), reloaded.getRules());
+
+        // the least recently used document is evicted
+        cache.parseAll(Arrays.asList(document("obl2"), document("obl3")));
+        assertEquals(2, cache.size());
+        cache.parse(document("obl1"));
+        assertEquals(1, cache.getHits());
+
+        // invalid documents are not cached
+        assertThrows(EVRException.class, () -> cache.parse("label: invalid\nrules: not a list\n"));
+        assertThrows(EVRException.class, () -> cache.parse("label: invalid\nrules: not a list\n"));
+        assertEquals(1, cache.getHits());
+    }
+}